@@ -0,0 +1,88 @@
+package extramuros.java.formats;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * User: antonio
+ * Date: 16/10/2026
+ * Time: 11:15
+ *
+ * Distinct values of a CATEGORICAL column. Every value gets a small integer
+ * code in order of appearance; codes never change once assigned, so they
+ * can be used as group keys instead of the strings.
+ */
+public class ColumnDictionary implements Writable {
+
+    private ArrayList<String> values;
+    private HashMap<String, Integer> codes;
+
+    public ColumnDictionary() {
+        values = new ArrayList<String>();
+        codes = new HashMap<String, Integer>();
+    }
+
+    // code for the value, adding it to the dictionary if it is new
+    public int add(String value) {
+        Integer code = codes.get(value);
+        if(code == null) {
+            code = values.size();
+            values.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    // code for the value, -1 if it is not in the dictionary
+    public int codeFor(String value) {
+        Integer code = codes.get(value);
+        if(code == null) {
+            return -1;
+        } else {
+            return code;
+        }
+    }
+
+    public String valueFor(int code) {
+        return values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public ArrayList<String> getValues() {
+        return values;
+    }
+
+    public ColumnDictionary clone() {
+        ColumnDictionary cloned = new ColumnDictionary();
+        for(String value : values) {
+            cloned.add(value);
+        }
+        return cloned;
+    }
+
+    public void write(DataOutput dataOutput) throws IOException {
+        WritableUtils.writeVInt(dataOutput, values.size());
+        for(String value : values) {
+            Text.writeString(dataOutput, value);
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        int size = WritableUtils.readVInt(dataInput);
+        values = new ArrayList<String>(size);
+        codes = new HashMap<String, Integer>(size * 2);
+        for(int i=0; i<size; i++) {
+            add(Text.readString(dataInput));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package extramuros.java.formats;
+
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 16/10/2026
+ * Time: 15:20
+ *
+ * Zone map of a column over a set of rows: number of non null values,
+ * number of nulls and, for numeric and DATE_TIME values, min and max.
+ */
+public class ColumnStats implements Writable {
+
+    private long count;
+    private long nullCount;
+    private double min;
+    private double max;
+
+    public ColumnStats() {
+        reset();
+    }
+
+    public void reset() {
+        count = 0;
+        nullCount = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    public void add(double value) {
+        count++;
+        if(value < min) {
+            min = value;
+        }
+        if(value > max) {
+            max = value;
+        }
+    }
+
+    // adds the value of the column read by the reader
+    public void add(Row row, NumericColumnReader reader) {
+        if(row.isNullAt(reader.getPosition())) {
+            addNull();
+        } else {
+            double value = reader.readDouble(row);
+            if(reader.isValid()) {
+                add(value);
+            } else {
+                addValue();
+            }
+        }
+    }
+
+    // non null value without an order, e.g. a string
+    public void addValue() {
+        count++;
+    }
+
+    public void addNull() {
+        nullCount++;
+    }
+
+    public void merge(ColumnStats other) {
+        count += other.count;
+        nullCount += other.nullCount;
+        if(other.min < min) {
+            min = other.min;
+        }
+        if(other.max > max) {
+            max = other.max;
+        }
+    }
+
+    // true if min and max are known
+    public boolean hasRange() {
+        return min <= max;
+    }
+
+    /**
+     * False only when no value of the column can be inside [low, high]:
+     * every value is null or the range of the values does not overlap.
+     */
+    public boolean mayContain(double low, double high) {
+        if(count == 0) {
+            return false;
+        } else if(!hasRange()) {
+            return true;
+        } else {
+            return !(max < low || min > high);
+        }
+    }
+
+    public void write(DataOutput dataOutput) throws IOException {
+        dataOutput.writeLong(count);
+        dataOutput.writeLong(nullCount);
+        dataOutput.writeDouble(min);
+        dataOutput.writeDouble(max);
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        count = dataInput.readLong();
+        nullCount = dataInput.readLong();
+        min = dataInput.readDouble();
+        max = dataInput.readDouble();
+    }
+
+    // Fields
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getNullCount() {
+        return nullCount;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
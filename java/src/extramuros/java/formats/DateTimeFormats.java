@@ -0,0 +1,67 @@
+package extramuros.java.formats;
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * User: antonio
+ * Date: 16/10/2026
+ * Time: 09:40
+ *
+ * Cache of the date formats used by DATE_TIME columns. SimpleDateFormat is
+ * not thread safe, every pattern is compiled once per thread and reused for
+ * all the values parsed by that thread.
+ */
+public class DateTimeFormats {
+
+    private static final ConcurrentHashMap<String, ThreadLocal<SimpleDateFormat>> formats =
+            new ConcurrentHashMap<String, ThreadLocal<SimpleDateFormat>>();
+
+    // format for the pattern, only to be used by the calling thread
+    public static SimpleDateFormat formatFor(final String pattern) {
+        ThreadLocal<SimpleDateFormat> format = formats.get(pattern);
+        if(format == null) {
+            format = new ThreadLocal<SimpleDateFormat>() {
+                protected SimpleDateFormat initialValue() {
+                    return new SimpleDateFormat(pattern);
+                }
+            };
+            ThreadLocal<SimpleDateFormat> previous = formats.putIfAbsent(pattern, format);
+            if(previous != null) {
+                format = previous;
+            }
+        }
+        return format.get();
+    }
+
+    public static long parse(String pattern, String value) throws ParseException {
+        return formatFor(pattern).parse(value).getTime();
+    }
+
+    // epoch milliseconds for the value, null if it cannot be parsed
+    public static Long parseOrNull(String pattern, String value) {
+        if(pattern == null || value == null) {
+            return null;
+        }
+        Date date = formatFor(pattern).parse(value, new ParsePosition(0));
+        if(date == null) {
+            return null;
+        } else {
+            return date.getTime();
+        }
+    }
+
+    // DATE_TIME cell as epoch milliseconds, either already numeric or a string in the pattern
+    public static long toEpoch(Object value, String pattern) throws ParseException {
+        if(value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if(pattern == null) {
+            throw new ParseException("No date format for value "+value, 0);
+        } else {
+            return parse(pattern, value.toString());
+        }
+    }
+}
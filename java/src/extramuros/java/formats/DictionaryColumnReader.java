@@ -0,0 +1,77 @@
+package extramuros.java.formats;
+
+/**
+ * User: antonio
+ * Date: 20/10/2026
+ * Time: 10:30
+ *
+ * Reads the code of the value of a column in the dictionary of the table
+ * header, so group-bys and counts can key on small integers and decode the
+ * values only when writing the output. Like NumericColumnReader, readers
+ * are built once in setup() and readCode is called for every row; the
+ * status tells null values apart from values missing in the dictionary,
+ * e.g. rows appended after the dictionary was built.
+ */
+public class DictionaryColumnReader {
+
+    public static final int VALID = 0;
+    public static final int NULL = 1;
+    public static final int INVALID = 2;
+
+    protected int position;
+    protected ColumnDictionary dictionary;
+    protected int status;
+
+    protected DictionaryColumnReader(int position, ColumnDictionary dictionary) {
+        this.position = position;
+        this.dictionary = dictionary;
+        this.status = VALID;
+    }
+
+    public static DictionaryColumnReader forColumn(TableHeader header, String columnName) {
+        int position = header.positionFor(columnName);
+        return new DictionaryColumnReader(position, (position == -1) ? null : header.getDictionary(columnName));
+    }
+
+    // code of the value of the column, -1 if the status is not VALID
+    public int readCode(Row row) {
+        if (row.isNullAt(position)) {
+            status = NULL;
+            return -1;
+        }
+
+        int code;
+        if (row instanceof PrimitiveRow) {
+            code = ((PrimitiveRow) row).getCode(position);
+        } else {
+            code = dictionary.codeFor(row.getValue(position).toString());
+        }
+        status = (code == -1) ? INVALID : VALID;
+        return code;
+    }
+
+    public String valueFor(int code) {
+        return dictionary.valueFor(code);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isValid() {
+        return status == VALID;
+    }
+
+    // false when the column does not exist or has no dictionary
+    public boolean isSupported() {
+        return dictionary != null;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public ColumnDictionary getDictionary() {
+        return dictionary;
+    }
+}
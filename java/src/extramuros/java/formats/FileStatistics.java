@@ -0,0 +1,122 @@
+package extramuros.java.formats;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 16/10/2026
+ * Time: 15:35
+ *
+ * Statistics of one of the files holding the rows of a table. Length and
+ * modification time identify the version of the file the statistics were
+ * computed for. Column statistics are optional: entries written only to
+ * remember a row count have none.
+ */
+public class FileStatistics implements Writable {
+
+    private String path;
+    private long length;
+    private long modificationTime;
+    private long rowCount;
+    private ColumnStats[] columns;
+
+    public FileStatistics() {
+        columns = new ColumnStats[0];
+    }
+
+    public FileStatistics(FileStatus status, int numColumns) {
+        this(numColumns);
+        setStatus(status);
+    }
+
+    // statistics accumulated while the file is being written, setStatus() once it is closed
+    public FileStatistics(int numColumns) {
+        this.rowCount = 0;
+        this.columns = new ColumnStats[numColumns];
+        for(int i=0; i<numColumns; i++) {
+            columns[i] = new ColumnStats();
+        }
+    }
+
+    public void add(Row row, NumericColumnReader[] readers) {
+        rowCount++;
+        for(int i=0; i<columns.length; i++) {
+            columns[i].add(row, readers[i]);
+        }
+    }
+
+    // adds the statistics of another part of the same file, e.g. a split read by another mapper
+    public void merge(FileStatistics other) {
+        rowCount += other.rowCount;
+        for(int i=0; i<columns.length; i++) {
+            columns[i].merge(other.columns[i]);
+        }
+    }
+
+    // true if the file has not changed since the statistics were computed
+    public boolean isCurrent(FileStatus status) {
+        return status.getLen() == length && status.getModificationTime() == modificationTime;
+    }
+
+    // version of the file the statistics describe
+    public void setStatus(FileStatus status) {
+        this.path = status.getPath().toUri().getPath();
+        this.length = status.getLen();
+        this.modificationTime = status.getModificationTime();
+    }
+
+    public boolean hasColumnStats() {
+        return columns.length > 0;
+    }
+
+    public void write(DataOutput dataOutput) throws IOException {
+        Text.writeString(dataOutput, path);
+        dataOutput.writeLong(length);
+        dataOutput.writeLong(modificationTime);
+        dataOutput.writeLong(rowCount);
+        dataOutput.writeInt(columns.length);
+        for(ColumnStats column : columns) {
+            column.write(dataOutput);
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        path = Text.readString(dataInput);
+        length = dataInput.readLong();
+        modificationTime = dataInput.readLong();
+        rowCount = dataInput.readLong();
+        columns = new ColumnStats[dataInput.readInt()];
+        for(int i=0; i<columns.length; i++) {
+            columns[i] = new ColumnStats();
+            columns[i].readFields(dataInput);
+        }
+    }
+
+    // Fields
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public int getNumColumns() {
+        return columns.length;
+    }
+
+    public ColumnStats getColumnStats(int column) {
+        return columns[column];
+    }
+}
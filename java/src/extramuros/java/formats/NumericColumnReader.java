@@ -0,0 +1,172 @@
+package extramuros.java.formats;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+class NumberColumnReader extends NumericColumnReader {
+
+    NumberColumnReader(int position, int type) {
+        super(position, type);
+    }
+
+    public double readDouble(Row row) {
+        if (row.isNullAt(position)) {
+            status = NULL;
+            return Double.NaN;
+        }
+        status = VALID;
+        return row.getDouble(position);
+    }
+
+    public long readLong(Row row) {
+        if (row.isNullAt(position)) {
+            status = NULL;
+            return 0;
+        }
+        status = VALID;
+        return row.getLong(position);
+    }
+}
+
+class DateTimeColumnReader extends NumericColumnReader {
+
+    protected SimpleDateFormat dateFormat;
+    protected ParsePosition parsePosition;
+
+    DateTimeColumnReader(int position, String dateFormat) {
+        super(position, RowTypes.DATE_TIME);
+        if (dateFormat != null) {
+            this.dateFormat = DateTimeFormats.formatFor(dateFormat);
+        }
+        this.parsePosition = new ParsePosition(0);
+    }
+
+    public double readDouble(Row row) {
+        long time = readLong(row);
+        return (status == VALID) ? time : Double.NaN;
+    }
+
+    // epoch milliseconds, date strings are parsed with the format of the column
+    public long readLong(Row row) {
+        if (row.isNullAt(position)) {
+            status = NULL;
+            return 0;
+        }
+
+        Object value = row.getValue(position);
+        if (value instanceof Number) {
+            status = VALID;
+            return ((Number) value).longValue();
+        }
+
+        if (dateFormat == null) {
+            status = INVALID;
+            return 0;
+        }
+        parsePosition.setIndex(0);
+        parsePosition.setErrorIndex(-1);
+        Date date = dateFormat.parse(value.toString(), parsePosition);
+        if (date == null) {
+            status = INVALID;
+            return 0;
+        }
+        status = VALID;
+        return date.getTime();
+    }
+}
+
+class UnsupportedColumnReader extends NumericColumnReader {
+
+    UnsupportedColumnReader(int position, int type) {
+        super(position, type);
+        status = INVALID;
+    }
+
+    public double readDouble(Row row) {
+        return Double.NaN;
+    }
+
+    public long readLong(Row row) {
+        return 0;
+    }
+}
+
+/**
+ * User: antonio
+ * Date: 15/10/2026
+ * Time: 12:10
+ *
+ * Reads a numeric value from a column of a row. Position, type and date
+ * format are resolved once when the reader is created, so mappers build
+ * their readers in setup() and call readDouble/readLong for every row.
+ * Null and unparseable values are reported through getStatus() instead of
+ * exceptions.
+ */
+public abstract class NumericColumnReader {
+
+    public static final int VALID = 0;
+    public static final int NULL = 1;
+    public static final int INVALID = 2;
+
+    protected int position;
+    protected int type;
+    protected int status;
+
+    protected NumericColumnReader(int position, int type) {
+        this.position = position;
+        this.type = type;
+        this.status = VALID;
+    }
+
+    public static NumericColumnReader forColumn(TableHeader header, String columnName) {
+        int position = header.positionFor(columnName);
+        if (position == -1) {
+            return new UnsupportedColumnReader(position, RowTypes.NULL);
+        }
+
+        int type = header.getColumnTypes().get(position);
+        if (type == RowTypes.DOUBLE || type == RowTypes.FLOAT || type == RowTypes.INTEGER || type == RowTypes.LONG) {
+            return new NumberColumnReader(position, type);
+        } else if (type == RowTypes.DATE_TIME) {
+            return new DateTimeColumnReader(position, header.getDateFormats().get(header.getColumnNames().get(position)));
+        } else {
+            return new UnsupportedColumnReader(position, type);
+        }
+    }
+
+    public static NumericColumnReader[] forColumns(TableHeader header, String[] columnNames) {
+        NumericColumnReader[] readers = new NumericColumnReader[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            readers[i] = forColumn(header, columnNames[i]);
+        }
+        return readers;
+    }
+
+    // value of the column, NaN if the status is not VALID
+    public abstract double readDouble(Row row);
+
+    // value of the column as a long, 0 if the status is not VALID
+    public abstract long readLong(Row row);
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isValid() {
+        return status == VALID;
+    }
+
+    // false when the column does not exist or is not numeric/date
+    public boolean isSupported() {
+        return !(this instanceof UnsupportedColumnReader);
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getType() {
+        return type;
+    }
+}
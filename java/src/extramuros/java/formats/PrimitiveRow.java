@@ -0,0 +1,338 @@
+package extramuros.java.formats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * User: antonio
+ * Date: 15/10/2026
+ * Time: 09:20
+ *
+ * Row backed by primitive arrays that shares the column names and types of
+ * a TableHeader. Meant to be reused: readFields overwrites the arrays in
+ * place and numeric values can be read with getDouble/getLong without
+ * boxing. getValues() still works but boxes the values the first time it
+ * is called after every read.
+ */
+public class PrimitiveRow extends Row {
+
+    private TableHeader header;
+    private int[] types;
+    private boolean[] nulls;
+    private double[] doubles;
+    private long[] longs;
+    private String[] strings;
+    private ColumnDictionary[] dictionaries;
+
+    private ArrayList<Object> materialized;
+    private byte[] buffer;
+
+    public PrimitiveRow() {
+    }
+
+    public PrimitiveRow(TableHeader header) {
+        setHeader(header);
+    }
+
+    public void setHeader(TableHeader header) {
+        this.header = header;
+        int size = header.getColumnTypes().size();
+        types = new int[size];
+        for (int i = 0; i < size; i++) {
+            types[i] = header.getColumnTypes().get(i);
+        }
+        nulls = new boolean[size];
+        doubles = new double[size];
+        longs = new long[size];
+        strings = new String[size];
+        dictionaries = new ColumnDictionary[size];
+        for (int i = 0; i < size; i++) {
+            dictionaries[i] = header.getDictionary(header.getColumnNames().get(i));
+        }
+        materialized = null;
+    }
+
+    public TableHeader getHeader() {
+        return header;
+    }
+
+    // loading
+
+    public void set(Row anotherRow) {
+        setId(anotherRow.getId());
+        for (int i = 0; i < types.length; i++) {
+            setValue(i, anotherRow.getValues().get(i));
+        }
+    }
+
+    public void setValue(int position, Object value) {
+        materialized = null;
+        strings[position] = null;
+        if (value == null) {
+            nulls[position] = true;
+            return;
+        }
+
+        nulls[position] = false;
+        int type = types[position];
+        if (type == RowTypes.DOUBLE || type == RowTypes.FLOAT) {
+            doubles[position] = ((Number) value).doubleValue();
+        } else if (type == RowTypes.INTEGER || type == RowTypes.LONG) {
+            longs[position] = ((Number) value).longValue();
+        } else if (type == RowTypes.DATE_TIME && value instanceof Number) {
+            longs[position] = ((Number) value).longValue();
+        } else if (type == RowTypes.DATE_TIME && value instanceof Date) {
+            longs[position] = ((Date) value).getTime();
+        } else {
+            strings[position] = value.toString();
+        }
+    }
+
+    public void setValue(String columnName, Object value) {
+        setValue(header.positionFor(columnName), value);
+    }
+
+    // serialization, same layout as Row
+
+    public void write(DataOutput dataOutput) throws IOException {
+        int size = types.length;
+
+        dataOutput.writeInt(COMPACT_MARKER);
+        dataOutput.writeByte(COMPACT_VERSION);
+        RowEncoding.writeSignedVarLong(dataOutput, getId());
+        RowEncoding.writeVarLong(dataOutput, size);
+
+        for (int i = 0; i < size; i += 2) {
+            int packed = types[i] & 0x0F;
+            if (i + 1 < size) {
+                packed |= (types[i + 1] & 0x0F) << 4;
+            }
+            dataOutput.writeByte(packed);
+        }
+
+        for (int i = 0; i < size; i += 8) {
+            int mask = 0;
+            for (int j = i; j < i + 8 && j < size; j++) {
+                if (nulls[j]) {
+                    mask |= 1 << (j - i);
+                }
+            }
+            dataOutput.writeByte(mask);
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (nulls[i]) {
+                continue;
+            }
+
+            int type = types[i];
+            if (type == RowTypes.DOUBLE) {
+                dataOutput.writeDouble(doubles[i]);
+            } else if (type == RowTypes.FLOAT) {
+                dataOutput.writeFloat((float) doubles[i]);
+            } else if (type == RowTypes.INTEGER || type == RowTypes.LONG) {
+                RowEncoding.writeSignedVarLong(dataOutput, longs[i]);
+            } else if (type == RowTypes.DATE_TIME) {
+                if (strings[i] == null) {
+                    RowEncoding.writeVarLong(dataOutput, 0);
+                    RowEncoding.writeSignedVarLong(dataOutput, longs[i]);
+                } else {
+                    byte[] bytes = strings[i].getBytes("UTF-8");
+                    RowEncoding.writeVarLong(dataOutput, bytes.length + 1);
+                    dataOutput.write(bytes);
+                }
+            } else {
+                byte[] bytes = strings[i].getBytes("UTF-8");
+                RowEncoding.writeVarLong(dataOutput, bytes.length);
+                dataOutput.write(bytes);
+            }
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        materialized = null;
+
+        int first = dataInput.readInt();
+        if (first != COMPACT_MARKER) {
+            // old format, decode through Row and copy the values
+            readLegacyFields(first, dataInput);
+            ArrayList<Object> values = super.getValues();
+            if (header == null) {
+                setHeader(new TableHeader(super.getColumnsNames(), super.getColumnsTypes()));
+            }
+            for (int i = 0; i < types.length; i++) {
+                setValue(i, values.get(i));
+            }
+            return;
+        }
+
+        byte version = dataInput.readByte();
+        if (version != COMPACT_VERSION) {
+            throw new IOException("Unknown row encoding version " + version);
+        }
+
+        setId(RowEncoding.readSignedVarLong(dataInput));
+        int size = (int) RowEncoding.readVarLong(dataInput);
+        if (header == null || size != types.length) {
+            throw new IOException("Row with " + size + " columns does not match the header of the PrimitiveRow");
+        }
+
+        // types come from the shared header
+        for (int i = 0; i < size; i += 2) {
+            dataInput.readByte();
+        }
+
+        for (int i = 0; i < size; i += 8) {
+            int mask = dataInput.readByte();
+            for (int j = i; j < i + 8 && j < size; j++) {
+                nulls[j] = (mask & (1 << (j - i))) != 0;
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            strings[i] = null;
+            if (nulls[i]) {
+                continue;
+            }
+
+            int type = types[i];
+            if (type == RowTypes.DOUBLE) {
+                doubles[i] = dataInput.readDouble();
+            } else if (type == RowTypes.FLOAT) {
+                doubles[i] = dataInput.readFloat();
+            } else if (type == RowTypes.INTEGER || type == RowTypes.LONG) {
+                longs[i] = RowEncoding.readSignedVarLong(dataInput);
+            } else if (type == RowTypes.DATE_TIME) {
+                int length = (int) RowEncoding.readVarLong(dataInput);
+                if (length == 0) {
+                    longs[i] = RowEncoding.readSignedVarLong(dataInput);
+                } else {
+                    strings[i] = readString(dataInput, length - 1);
+                }
+            } else {
+                strings[i] = readString(dataInput, (int) RowEncoding.readVarLong(dataInput));
+            }
+        }
+    }
+
+    private String readString(DataInput dataInput, int length) throws IOException {
+        if (buffer == null || buffer.length < length) {
+            buffer = new byte[Math.max(length, 64)];
+        }
+        dataInput.readFully(buffer, 0, length);
+        return new String(buffer, 0, length, "UTF-8");
+    }
+
+    // access
+
+    public boolean isNullAt(int position) {
+        return nulls[position];
+    }
+
+    public double getDouble(int position) {
+        int type = types[position];
+        if (type == RowTypes.DOUBLE || type == RowTypes.FLOAT) {
+            return doubles[position];
+        } else if (strings[position] != null) {
+            throw new ClassCastException("Column " + position + " does not hold a numeric value");
+        } else {
+            return longs[position];
+        }
+    }
+
+    public long getLong(int position) {
+        int type = types[position];
+        if (type == RowTypes.DOUBLE || type == RowTypes.FLOAT) {
+            return (long) doubles[position];
+        } else if (strings[position] != null) {
+            throw new ClassCastException("Column " + position + " does not hold a numeric value");
+        } else {
+            return longs[position];
+        }
+    }
+
+    public String getString(int position) {
+        if (nulls[position]) {
+            return null;
+        } else if (strings[position] != null) {
+            return strings[position];
+        } else {
+            return String.valueOf(getValue(position));
+        }
+    }
+
+    // code of the value in the dictionary of the column, -1 if null or not in a dictionary
+    public int getCode(int position) {
+        if (nulls[position] || dictionaries[position] == null) {
+            return -1;
+        } else {
+            return dictionaries[position].codeFor(strings[position]);
+        }
+    }
+
+    public Object getValue(int position) {
+        if (nulls[position]) {
+            return null;
+        }
+
+        int type = types[position];
+        if (type == RowTypes.DOUBLE) {
+            return doubles[position];
+        } else if (type == RowTypes.FLOAT) {
+            return (float) doubles[position];
+        } else if (type == RowTypes.INTEGER) {
+            return (int) longs[position];
+        } else if (type == RowTypes.LONG) {
+            return longs[position];
+        } else if (type == RowTypes.DATE_TIME && strings[position] == null) {
+            return longs[position];
+        } else {
+            return strings[position];
+        }
+    }
+
+    public int size() {
+        return types.length;
+    }
+
+    public int compareTo(Row row) {
+        if (size() < row.size()) {
+            return -1;
+        } else if (size() > row.size()) {
+            return 1;
+        } else {
+            return 0;
+        }
+    }
+
+    public Object valueForColumn(String columnName) {
+        return getValue(header.positionFor(columnName));
+    }
+
+    public ArrayList<Object> getValues() {
+        if (materialized == null) {
+            materialized = new ArrayList<Object>(types.length);
+            for (int i = 0; i < types.length; i++) {
+                materialized.add(getValue(i));
+            }
+        }
+        return materialized;
+    }
+
+    public void setValues(ArrayList<Object> values) {
+        for (int i = 0; i < types.length; i++) {
+            setValue(i, values.get(i));
+        }
+    }
+
+    public ArrayList<String> getColumnsNames() {
+        return header.getColumnNames();
+    }
+
+    public ArrayList<Integer> getColumnsTypes() {
+        return header.getColumnTypes();
+    }
+}
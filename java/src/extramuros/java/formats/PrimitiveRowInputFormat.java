@@ -0,0 +1,107 @@
+package extramuros.java.formats;
+
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import java.io.IOException;
+
+class PrimitiveRowRecordReader extends RecordReader<Writable, Row> {
+
+    protected SequenceFile.Reader in;
+    protected long start;
+    protected long end;
+    protected boolean more = true;
+    protected Writable key;
+    protected PrimitiveRow value;
+
+    public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException, InterruptedException {
+        FileSplit split = (FileSplit) inputSplit;
+        Configuration config = context.getConfiguration();
+        Path path = split.getPath();
+        FileSystem fs = path.getFileSystem(config);
+
+        in = new SequenceFile.Reader(fs, path, config);
+        end = split.getStart() + split.getLength();
+        if(split.getStart() > in.getPosition()) {
+            in.sync(split.getStart());
+        }
+        start = in.getPosition();
+        more = start < end;
+
+        key = (Writable) ReflectionUtils.newInstance(in.getKeyClass(), config);
+
+        try {
+            AbstractTable table = TableUtils.readAbstractTable(new Path(config.get(JobKeys.PATH)), config);
+            value = new PrimitiveRow(table.getHeader());
+        } catch (IllegalAccessException e) {
+            throw new IOException("Error reading table header: "+e.getMessage());
+        } catch (InstantiationException e) {
+            throw new IOException("Error reading table header: "+e.getMessage());
+        }
+    }
+
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+        if(!more) {
+            return false;
+        }
+
+        long position = in.getPosition();
+        if(!in.next(key) || (position >= end && in.syncSeen())) {
+            more = false;
+            return false;
+        }
+        in.getCurrentValue(value);
+
+        return true;
+    }
+
+    public Writable getCurrentKey() throws IOException, InterruptedException {
+        return key;
+    }
+
+    public Row getCurrentValue() throws IOException, InterruptedException {
+        return value;
+    }
+
+    public float getProgress() throws IOException, InterruptedException {
+        if(end == start) {
+            return 0.0f;
+        } else {
+            return Math.min(1.0f, (in.getPosition() - start) / (float) (end - start));
+        }
+    }
+
+    public void close() throws IOException {
+        if(in != null) {
+            in.close();
+        }
+    }
+}
+
+/**
+ * User: antonio
+ * Date: 15/10/2026
+ * Time: 10:05
+ *
+ * Reads the SequenceFiles of a native Table decoding every record into the
+ * same PrimitiveRow, built with the header of the table in JobKeys.PATH.
+ * Mappers must not keep references to the rows they receive.
+ */
+public class PrimitiveRowInputFormat extends SequenceFileInputFormat<Writable, Row> {
+
+    @Override
+    public RecordReader<Writable, Row> createRecordReader(InputSplit inputSplit, TaskAttemptContext context) throws IOException {
+        return new PrimitiveRowRecordReader();
+    }
+}
@@ -0,0 +1,68 @@
+package extramuros.java.formats;
+
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * User: antonio
+ * Date: 16/10/2026
+ * Time: 17:10
+ *
+ * Closed range [low, high] over a numeric or DATE_TIME column (dates as
+ * epoch milliseconds). Jobs pass it through JobKeys.RANGE; files and row
+ * groups whose zone maps do not overlap the range are not read.
+ */
+public class RangeFilter {
+
+    private String columnName;
+    private double low;
+    private double high;
+
+    public RangeFilter(String columnName, double low, double high) {
+        this.columnName = columnName;
+        this.low = low;
+        this.high = high;
+    }
+
+    // range stored in the configuration, null if there is none
+    public static RangeFilter fromConfiguration(Configuration config) {
+        String range = config.get(JobKeys.RANGE);
+        if(range == null || range.length() == 0) {
+            return null;
+        }
+        // the column name may contain commas, low and high are the last two parts
+        int highStart = range.lastIndexOf(',');
+        int lowStart = range.lastIndexOf(',', highStart - 1);
+        return new RangeFilter(range.substring(0, lowStart),
+                Double.parseDouble(range.substring(lowStart + 1, highStart)),
+                Double.parseDouble(range.substring(highStart + 1)));
+    }
+
+    public void toConfiguration(Configuration config) {
+        config.set(JobKeys.RANGE, columnName + "," + low + "," + high);
+    }
+
+    public boolean mayMatch(ColumnStats stats) {
+        return stats == null || stats.mayContain(low, high);
+    }
+
+    // reader must have been built for the column of the filter
+    public boolean accepts(Row row, NumericColumnReader reader) {
+        double value = reader.readDouble(row);
+        return reader.isValid() && value >= low && value <= high;
+    }
+
+    // Fields
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public double getLow() {
+        return low;
+    }
+
+    public double getHigh() {
+        return high;
+    }
+}
@@ -8,6 +8,7 @@ import java.io.DataOutput;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.Date;
 
 /**
  * User: antonio
@@ -16,23 +17,31 @@ import java.util.ArrayList;
  */
 public class Row implements Writable, WritableComparable<Row> {
 
-    private int id;
+    private long id;
     private ArrayList<String> columnsNames;
     private ArrayList<Integer> columnsTypes;
     private ArrayList<Object> values;
 
+    // scratch space for decoding strings, and whether readFields made up the column names
+    private transient byte[] buffer;
+    private transient boolean fabricatedNames;
+
+    // first int of a compact encoded row, rows in the old format start with the row id
+    public static final int COMPACT_MARKER = 0xE7C0DE01;
+    public static final byte COMPACT_VERSION = 1;
+
     public Row() {
 
     }
 
-    public Row(int id, ArrayList<String> columnsNames, ArrayList<Integer> columnsTypes, ArrayList<Object> values) {
+    public Row(long id, ArrayList<String> columnsNames, ArrayList<Integer> columnsTypes, ArrayList<Object> values) {
         setId(id);
         this.setColumnsNames(columnsNames);
         this.setColumnsTypes(columnsTypes);
         this.setValues(values);
     }
 
-    public Row(int id, ArrayList<Object> values) {
+    public Row(long id, ArrayList<Object> values) {
         setId(id);
         setValues(values);
     }
@@ -44,6 +53,17 @@ public class Row implements Writable, WritableComparable<Row> {
         setValues(anotherRow.getValues());
     }
 
+    /**
+     * Plain Row with the same values. Map outputs declared with Row as
+     * their value class must be exactly Row, not a lazy or primitive view.
+     */
+    public Row toRow() {
+        if (getClass() == Row.class) {
+            return this;
+        }
+        return new Row(getId(), getColumnsNames(), getColumnsTypes(), new ArrayList<Object>(getValues()));
+    }
+
     public void setSchema(ArrayList<String> columnsNames, ArrayList<Integer> columnsTypes) {
         setColumnsNames(columnsNames);
         setColumnsTypes(columnsTypes);
@@ -52,45 +72,144 @@ public class Row implements Writable, WritableComparable<Row> {
     // serialization
 
     public void write(DataOutput dataOutput) throws IOException {
-        dataOutput.writeInt(getId());
-        dataOutput.writeInt(values.size());
+        int size = values.size();
+
+        dataOutput.writeInt(COMPACT_MARKER);
+        dataOutput.writeByte(COMPACT_VERSION);
+        RowEncoding.writeSignedVarLong(dataOutput, getId());
+        RowEncoding.writeVarLong(dataOutput, size);
+
+        // column types, two per byte
+        for (int i = 0; i < size; i += 2) {
+            int packed = getColumnsTypes().get(i) & 0x0F;
+            if (i + 1 < size) {
+                packed |= (getColumnsTypes().get(i + 1) & 0x0F) << 4;
+            }
+            dataOutput.writeByte(packed);
+        }
 
-        for (int i = 0; i < values.size(); i++) {
-            Object value = getValues().get(i);
-            int type = getColumnsTypes().get(i);
+        // null bitmap
+        for (int i = 0; i < size; i += 8) {
+            int mask = 0;
+            for (int j = i; j < i + 8 && j < size; j++) {
+                if (values.get(j) == null) {
+                    mask |= 1 << (j - i);
+                }
+            }
+            dataOutput.writeByte(mask);
+        }
 
+        for (int i = 0; i < size; i++) {
+            Object value = values.get(i);
             if (value == null) {
-                dataOutput.writeByte(RowTypes.NULL);
-                dataOutput.writeByte(type);
-                NullWritable tmp = NullWritable.get();
-                tmp.write(dataOutput);
-            } else {
-                dataOutput.writeByte(type);
-                if (type == RowTypes.STRING || type == RowTypes.CATEGORICAL) {
-                    Text tmp = new Text((String) value);
-                    tmp.write(dataOutput);
-                } else if (type == RowTypes.DOUBLE) {
-                    DoubleWritable tmp = new DoubleWritable((Double) value);
-                    tmp.write(dataOutput);
-                } else if (type == RowTypes.LONG) {
-                    LongWritable tmp = new LongWritable((Long) value);
-                    tmp.write(dataOutput);
-                } else if (value.getClass() == Float.class) {
-                    FloatWritable tmp = new FloatWritable((Float) value);
-                    tmp.write(dataOutput);
-                } else if (type == RowTypes.INTEGER) {
-                    IntWritable tmp = new IntWritable((Integer) value);
-                    tmp.write(dataOutput);
-                } else if(type == RowTypes.DATE_TIME) {
-                    Text tmp = new Text((String) value);
-                    tmp.write(dataOutput);
+                continue;
+            }
+
+            int type = getColumnsTypes().get(i);
+            if (type == RowTypes.DOUBLE) {
+                dataOutput.writeDouble(((Number) value).doubleValue());
+            } else if (type == RowTypes.FLOAT) {
+                dataOutput.writeFloat(((Number) value).floatValue());
+            } else if (type == RowTypes.INTEGER || type == RowTypes.LONG) {
+                RowEncoding.writeSignedVarLong(dataOutput, ((Number) value).longValue());
+            } else if (type == RowTypes.DATE_TIME) {
+                // 0 marks an epoch value, otherwise length + 1 of the date string
+                if (value instanceof Number) {
+                    RowEncoding.writeVarLong(dataOutput, 0);
+                    RowEncoding.writeSignedVarLong(dataOutput, ((Number) value).longValue());
+                } else {
+                    byte[] bytes = value.toString().getBytes("UTF-8");
+                    RowEncoding.writeVarLong(dataOutput, bytes.length + 1);
+                    dataOutput.write(bytes);
                 }
+            } else {
+                byte[] bytes = value.toString().getBytes("UTF-8");
+                RowEncoding.writeVarLong(dataOutput, bytes.length);
+                dataOutput.write(bytes);
             }
         }
     }
 
     public void readFields(DataInput dataInput) throws IOException {
-        setId(dataInput.readInt());
+        int first = dataInput.readInt();
+        if (first != COMPACT_MARKER) {
+            // rows written before the compact encoding start with the id
+            readLegacyFields(first, dataInput);
+            return;
+        }
+
+        byte version = dataInput.readByte();
+        if (version != COMPACT_VERSION) {
+            throw new IOException("Unknown row encoding version " + version);
+        }
+
+        setId(RowEncoding.readSignedVarLong(dataInput));
+        int size = (int) RowEncoding.readVarLong(dataInput);
+        prepareFields(size);
+
+        for (int i = 0; i < size; i += 2) {
+            int packed = dataInput.readByte();
+            columnsTypes.add(packed & 0x0F);
+            if (i + 1 < size) {
+                columnsTypes.add((packed >> 4) & 0x0F);
+            }
+        }
+
+        byte[] nulls = new byte[(size + 7) / 8];
+        dataInput.readFully(nulls);
+
+        for (int i = 0; i < size; i++) {
+            if ((nulls[i / 8] & (1 << (i % 8))) != 0) {
+                values.add(null);
+                continue;
+            }
+
+            int type = columnsTypes.get(i);
+            if (type == RowTypes.DOUBLE) {
+                values.add(dataInput.readDouble());
+            } else if (type == RowTypes.FLOAT) {
+                values.add(dataInput.readFloat());
+            } else if (type == RowTypes.INTEGER) {
+                values.add((int) RowEncoding.readSignedVarLong(dataInput));
+            } else if (type == RowTypes.LONG) {
+                values.add(RowEncoding.readSignedVarLong(dataInput));
+            } else if (type == RowTypes.DATE_TIME) {
+                int length = (int) RowEncoding.readVarLong(dataInput);
+                if (length == 0) {
+                    values.add(RowEncoding.readSignedVarLong(dataInput));
+                } else {
+                    values.add(readString(dataInput, length - 1));
+                }
+            } else {
+                values.add(readString(dataInput, (int) RowEncoding.readVarLong(dataInput)));
+            }
+        }
+    }
+
+    private String readString(DataInput dataInput, int length) throws IOException {
+        if (buffer == null || buffer.length < length) {
+            buffer = new byte[Math.max(length, 64)];
+        }
+        dataInput.readFully(buffer, 0, length);
+        return new String(buffer, 0, length, "UTF-8");
+    }
+
+    // values and types get fresh lists since set(Row) shares them, fabricated names are reused
+    private void prepareFields(int size) {
+        values = new ArrayList<Object>(size);
+        columnsTypes = new ArrayList<Integer>(size);
+
+        if (columnsNames == null || (fabricatedNames && columnsNames.size() != size)) {
+            columnsNames = new ArrayList<String>(size);
+            for (int i = 0; i < size; i++) {
+                columnsNames.add("DIM-" + i);
+            }
+            fabricatedNames = true;
+        }
+    }
+
+    protected void readLegacyFields(int id, DataInput dataInput) throws IOException {
+        setId(id);
         int size = dataInput.readInt();
         values = new ArrayList<Object>(size);
         columnsTypes = new ArrayList<Integer>(size);
@@ -157,13 +276,34 @@ public class Row implements Writable, WritableComparable<Row> {
         return getValues().get(position) == null;
     }
 
+    public Object getValue(int position) {
+        return getValues().get(position);
+    }
+
+    public double getDouble(int position) {
+        return ((Number) getValues().get(position)).doubleValue();
+    }
+
+    public long getLong(int position) {
+        return ((Number) getValues().get(position)).longValue();
+    }
+
+    public String getString(int position) {
+        Object value = getValues().get(position);
+        return value == null ? null : value.toString();
+    }
+
+    public int size() {
+        return getValues().size();
+    }
+
     // Fields
 
-    public int getId() {
+    public long getId() {
         return id;
     }
 
-    public void setId(int id) {
+    public void setId(long id) {
         this.id = id;
     }
 
@@ -178,7 +318,16 @@ public class Row implements Writable, WritableComparable<Row> {
             this.values.set(position,(Integer) value);
         } else if(type == RowTypes.LONG) {
             this.values.set(position,(Long) value);
-        } else if(type == RowTypes.STRING || type == RowTypes.CATEGORICAL || type == RowTypes.DATE_TIME) {
+        } else if(type == RowTypes.DATE_TIME) {
+            // dates and numbers are stored as epoch milliseconds, strings as they are parsed later
+            if(value instanceof Date) {
+                this.values.set(position, ((Date) value).getTime());
+            } else if(value instanceof Number) {
+                this.values.set(position, ((Number) value).longValue());
+            } else {
+                this.values.set(position, (String)value);
+            }
+        } else if(type == RowTypes.STRING || type == RowTypes.CATEGORICAL) {
             this.values.set(position, (String)value);
         }
     }
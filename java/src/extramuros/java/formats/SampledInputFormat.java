@@ -0,0 +1,80 @@
+package extramuros.java.formats;
+
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 21:15
+ *
+ * Reads a random sample of the splits of another input format, set in
+ * JobKeys.SAMPLED_INPUT_FORMAT, instead of all of them. The splits are
+ * shuffled with the seed in JobKeys.SAMPLE_SEED and the ones between the
+ * positions JobKeys.SAMPLE_SPLITS_FROM and JobKeys.SAMPLE_SPLITS_TO of
+ * the shuffled list are read, so successive jobs with the same seed and
+ * consecutive ranges read disjoint samples of splits.
+ */
+public class SampledInputFormat extends InputFormat<Writable, Writable> {
+
+    public List<InputSplit> getSplits(JobContext context) throws IOException, InterruptedException {
+        Configuration config = context.getConfiguration();
+        List<InputSplit> splits = delegate(config).getSplits(context);
+
+        int[] order = shuffledOrder(splits.size(), config.getLong(JobKeys.SAMPLE_SEED, 0));
+        int from = Math.max(config.getInt(JobKeys.SAMPLE_SPLITS_FROM, 0), 0);
+        int to = Math.min(config.getInt(JobKeys.SAMPLE_SPLITS_TO, splits.size()), splits.size());
+
+        ArrayList<InputSplit> sampled = new ArrayList<InputSplit>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            sampled.add(splits.get(order[i]));
+        }
+        return sampled;
+    }
+
+    public RecordReader<Writable, Writable> createRecordReader(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+        return delegate(context.getConfiguration()).createRecordReader(split, context);
+    }
+
+    public static void setDelegate(Configuration config, Class<? extends InputFormat> inputFormat) {
+        config.setClass(JobKeys.SAMPLED_INPUT_FORMAT, inputFormat, InputFormat.class);
+    }
+
+    // number of splits of the whole input
+    public static int countSplits(JobContext context) throws IOException, InterruptedException {
+        return delegate(context.getConfiguration()).getSplits(context).size();
+    }
+
+    protected static InputFormat<Writable, Writable> delegate(Configuration config) {
+        Class<? extends InputFormat> inputFormat = config.getClass(JobKeys.SAMPLED_INPUT_FORMAT, PrimitiveRowInputFormat.class, InputFormat.class);
+        return (InputFormat<Writable, Writable>) ReflectionUtils.newInstance(inputFormat, config);
+    }
+
+    // positions 0 .. size - 1 shuffled with the seed
+    public static int[] shuffledOrder(int size, long seed) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,300 @@
+package extramuros.java.formats;
+
+import extramuros.java.jobs.stats.moments.Moments;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.mahout.common.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 20:10
+ *
+ * Column statistics computed by jobs, stored next to the table metadata
+ * (tablePath + ".catalog"). The statistics are kept per file of the rows
+ * of the table together with the length and modification time of the
+ * file, and they are mergeable, so the statistics of the table are the
+ * merge of the statistics of its files.
+ *
+ * Every statistic is the serialized state of a job for a column: moments,
+ * quantile sketches, HyperLogLog sketches and histograms. States are
+ * identified by a kind, that includes the parameters of the state (e.g.
+ * the size of a sketch or the bins of a histogram), and the column.
+ *
+ * forTable() keeps the statistics of the files that have not changed and
+ * drops the ones of the files that have been modified or removed. Jobs
+ * only need to read the files returned by missingFiles(), e.g. the part
+ * files appended to the table since the last run.
+ */
+public class StatsCatalog implements Writable {
+
+    public static final String SUFFIX = ".catalog";
+    public static final String MOMENTS = "moments";
+    // separates the column from the path of the file in the keys of the jobs run per file
+    public static final String FILE_SEPARATOR = "\t";
+    // separates the path of the file from the start of the split in the keys of the jobs run per split
+    public static final String SPLIT_SEPARATOR = "@";
+
+    private ArrayList<FileStatistics> files;
+    // file path -> kind and column -> state
+    private HashMap<String, HashMap<String, Writable>> states;
+
+    private static final Logger log = LoggerFactory.getLogger(StatsCatalog.class);
+
+    public StatsCatalog() {
+        files = new ArrayList<FileStatistics>();
+        states = new HashMap<String, HashMap<String, Writable>>();
+    }
+
+    public static Path pathFor(AbstractTable table) {
+        return new Path(table.getTablePath() + SUFFIX);
+    }
+
+    /**
+     * Catalog of the table with the statistics of the files that have not
+     * changed since they were computed. Null if the table has no metadata
+     * path.
+     */
+    public static StatsCatalog forTable(AbstractTable table, Configuration config) {
+        if(table.getTablePath() == null) {
+            return null;
+        }
+
+        StatsCatalog catalog = load(table, config);
+        if(catalog == null) {
+            catalog = new StatsCatalog();
+        }
+
+        try {
+            FileSystem fs = FileSystem.get(config);
+            catalog.refresh(TableStatistics.rowFiles(fs, new Path(table.getRowsPath())));
+            return catalog;
+        } catch (IOException e) {
+            log.error("Error reading the files of the table for the stats catalog", e);
+            return null;
+        }
+    }
+
+    // stored catalog, null if there is none
+    protected static StatsCatalog load(AbstractTable table, Configuration config) {
+        try {
+            FileSystem fs = FileSystem.get(config);
+            Path path = pathFor(table);
+            if(!fs.exists(path)) {
+                return null;
+            }
+
+            return (StatsCatalog) TableUtils.readFirstWritable(path, config)[1];
+        } catch (Exception e) {
+            log.error("Error reading stats catalog", e);
+            return null;
+        }
+    }
+
+    // keeps the statistics of the current files that have not changed
+    protected void refresh(FileStatus[] current) {
+        HashMap<String, FileStatistics> byPath = new HashMap<String, FileStatistics>();
+        for(FileStatistics file : files) {
+            byPath.put(file.getPath(), file);
+        }
+
+        ArrayList<FileStatistics> currentFiles = new ArrayList<FileStatistics>(current.length);
+        HashMap<String, HashMap<String, Writable>> currentStates = new HashMap<String, HashMap<String, Writable>>(current.length * 2);
+        for(FileStatus status : current) {
+            String path = status.getPath().toUri().getPath();
+            FileStatistics file = byPath.get(path);
+            if(file != null && file.isCurrent(status) && states.containsKey(path)) {
+                currentStates.put(path, states.get(path));
+            } else {
+                file = new FileStatistics(status, 0);
+            }
+            currentFiles.add(file);
+        }
+
+        if(currentStates.size() < states.size()) {
+            log.info("Dropping stats of " + (states.size() - currentStates.size()) + " changed or removed files");
+        }
+        files = currentFiles;
+        states = currentStates;
+    }
+
+    public boolean save(AbstractTable table, Configuration config) {
+        try {
+            TableUtils.writeSingleWritable(pathFor(table), new LongWritable((new Date()).getTime()), this, config);
+            return true;
+        } catch (IOException e) {
+            log.error("Error saving stats catalog", e);
+            return false;
+        }
+    }
+
+    protected static String keyFor(String kind, String columnName) {
+        return kind + "/" + columnName;
+    }
+
+    // files
+
+    // paths of the files without a state of the kind for some of the columns
+    public ArrayList<String> missingFiles(String kind, String[] columns) {
+        ArrayList<String> missing = new ArrayList<String>();
+        for(FileStatistics file : files) {
+            for(String column : columns) {
+                if(getState(file.getPath(), kind, column) == null) {
+                    missing.add(file.getPath());
+                    break;
+                }
+            }
+        }
+        return missing;
+    }
+
+    // states
+
+    public Writable getState(String filePath, String kind, String columnName) {
+        HashMap<String, Writable> fileStates = states.get(filePath);
+        return (fileStates == null) ? null : fileStates.get(keyFor(kind, columnName));
+    }
+
+    public void putState(String filePath, String kind, String columnName, Writable state) {
+        HashMap<String, Writable> fileStates = states.get(filePath);
+        if(fileStates == null) {
+            fileStates = new HashMap<String, Writable>();
+            states.put(filePath, fileStates);
+        }
+        fileStates.put(keyFor(kind, columnName), state);
+    }
+
+    /**
+     * States of the column for every file of the table, to be merged by the
+     * job that computes them. Null if some file has no state.
+     */
+    public ArrayList<Writable> getStates(String kind, String columnName) {
+        ArrayList<Writable> columnStates = new ArrayList<Writable>(files.size());
+        for(FileStatistics file : files) {
+            Writable state = getState(file.getPath(), kind, columnName);
+            if(state == null) {
+                return null;
+            }
+            columnStates.add(state);
+        }
+        return columnStates;
+    }
+
+    /**
+     * Stores the states written by a job run with JobKeys.PER_FILE, keyed by
+     * column, FILE_SEPARATOR and path of the file. False if the state of
+     * some column was not assigned to a file.
+     */
+    public boolean putJobStates(String kind, Iterator<Pair<Writable, Writable>> pairs) {
+        while(pairs.hasNext()) {
+            Pair<Writable, Writable> pair = pairs.next();
+            String key = pair.getFirst().toString();
+            int separator = key.indexOf(FILE_SEPARATOR);
+            if(separator < 0) {
+                log.error("Stats of column " + key + " not assigned to a file");
+                return false;
+            }
+            putState(key.substring(separator + 1), kind, key.substring(0, separator), pair.getSecond());
+        }
+        return true;
+    }
+
+    // moments
+
+    /**
+     * Moments of the column in the whole table, merging the moments of
+     * every file. Null if they have not been computed for some file.
+     */
+    public Moments getMoments(String columnName) {
+        ArrayList<Writable> fileMoments = getStates(MOMENTS, columnName);
+        if(fileMoments == null) {
+            return null;
+        }
+
+        Moments merged = new Moments();
+        for(Writable moments : fileMoments) {
+            merged.merge((Moments) moments);
+        }
+        return merged;
+    }
+
+    public Moments getMoments(String filePath, String columnName) {
+        return (Moments) getState(filePath, MOMENTS, columnName);
+    }
+
+    public void putMoments(String filePath, String columnName, Moments columnMoments) {
+        putState(filePath, MOMENTS, columnName, columnMoments);
+    }
+
+    // serialization
+
+    public void write(DataOutput dataOutput) throws IOException {
+        dataOutput.writeInt(files.size());
+        for(FileStatistics file : files) {
+            file.write(dataOutput);
+            HashMap<String, Writable> fileStates = states.get(file.getPath());
+            if(fileStates == null) {
+                dataOutput.writeInt(0);
+            } else {
+                dataOutput.writeInt(fileStates.size());
+                for(Map.Entry<String, Writable> entry : fileStates.entrySet()) {
+                    Text.writeString(dataOutput, entry.getKey());
+                    Text.writeString(dataOutput, entry.getValue().getClass().getName());
+                    entry.getValue().write(dataOutput);
+                }
+            }
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        int numFiles = dataInput.readInt();
+        files = new ArrayList<FileStatistics>(numFiles);
+        states = new HashMap<String, HashMap<String, Writable>>(numFiles * 2);
+        for(int i=0; i<numFiles; i++) {
+            FileStatistics file = new FileStatistics();
+            file.readFields(dataInput);
+            files.add(file);
+
+            int size = dataInput.readInt();
+            if(size > 0) {
+                HashMap<String, Writable> fileStates = new HashMap<String, Writable>(size * 2);
+                for(int j=0; j<size; j++) {
+                    String key = Text.readString(dataInput);
+                    String className = Text.readString(dataInput);
+                    Writable state;
+                    try {
+                        state = (Writable) Class.forName(className).newInstance();
+                    } catch (Exception e) {
+                        throw new IOException("Cannot read stats of class " + className + ": " + e.getMessage());
+                    }
+                    state.readFields(dataInput);
+                    fileStates.put(key, state);
+                }
+                states.put(file.getPath(), fileStates);
+            }
+        }
+    }
+
+    // Fields
+
+    public ArrayList<FileStatistics> getFiles() {
+        return files;
+    }
+}
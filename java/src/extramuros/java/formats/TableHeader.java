@@ -17,10 +17,16 @@ import java.util.HashMap;
  * Time: 10:46
  */
 public class TableHeader implements Writable {
+
+    // headers written with dictionaries start with this marker instead of the number of columns
+    public static final int VERSIONED_MARKER = -0x45584801;
+    public static final byte VERSION = 1;
+
     private ArrayList<String> columnNames;
     private HashMap<String,String> dateFormats;
     private ArrayList<Integer> columnTypes;
     private HashMap<String, Integer> columnsMap;
+    private HashMap<String, ColumnDictionary> dictionaries;
 
     public TableHeader() {
 
@@ -30,10 +36,17 @@ public class TableHeader implements Writable {
         this.setColumnNames(columnNames);
         this.setColumnTypes(columnTypes);
         this.setDateFormats(new HashMap<String, String>());
+        this.setDictionaries(new HashMap<String, ColumnDictionary>());
         buildColumnsMap();
     }
 
     public void write(DataOutput dataOutput) throws IOException {
+        boolean versioned = getDictionaries() != null && !getDictionaries().isEmpty();
+        if(versioned) {
+            dataOutput.writeInt(VERSIONED_MARKER);
+            dataOutput.writeByte(VERSION);
+        }
+
         dataOutput.writeInt(getColumnNames().size());
         for(int i=0; i< getColumnNames().size(); i++) {
             Text tmpName = new Text(getColumnNames().get(i));
@@ -48,10 +61,26 @@ public class TableHeader implements Writable {
             Text dateColumnFormat = new Text(getDateFormats().get(columnName));
             dateColumnFormat.write(dataOutput);
         }
+
+        if(versioned) {
+            dataOutput.writeInt(getDictionaries().size());
+            for(String columnName : getDictionaries().keySet()) {
+                new Text(columnName).write(dataOutput);
+                getDictionaries().get(columnName).write(dataOutput);
+            }
+        }
     }
 
     public void readFields(DataInput dataInput) throws IOException {
         int size = dataInput.readInt();
+        boolean versioned = size == VERSIONED_MARKER;
+        if(versioned) {
+            byte version = dataInput.readByte();
+            if(version != VERSION) {
+                throw new IOException("Unknown table header version "+version);
+            }
+            size = dataInput.readInt();
+        }
         setColumnNames(new ArrayList<String>(size));
         setColumnTypes(new ArrayList<Integer>(size));
 
@@ -77,6 +106,18 @@ public class TableHeader implements Writable {
             getDateFormats().put(tmpName.toString(),tmpFormat.toString());
         }
 
+        setDictionaries(new HashMap<String, ColumnDictionary>());
+        if(versioned) {
+            size = dataInput.readInt();
+            for(int i=0; i<size; i++) {
+                Text tmpName = new Text();
+                tmpName.readFields(dataInput);
+                ColumnDictionary dictionary = new ColumnDictionary();
+                dictionary.readFields(dataInput);
+                getDictionaries().put(tmpName.toString(), dictionary);
+            }
+        }
+
         buildColumnsMap();
     }
 
@@ -122,6 +163,12 @@ public class TableHeader implements Writable {
         }
         cloned.setDateFormats(clonedDateFormats);
 
+        if(getDictionaries() != null) {
+            for(String key : getDictionaries().keySet()) {
+                cloned.getDictionaries().put(key, getDictionaries().get(key).clone());
+            }
+        }
+
         return cloned;
     }
 
@@ -160,4 +207,34 @@ public class TableHeader implements Writable {
     public void setDateFormats(HashMap<String,String> dateFormats) {
         this.dateFormats = dateFormats;
     }
+
+    public HashMap<String, ColumnDictionary> getDictionaries() {
+        return dictionaries;
+    }
+
+    public void setDictionaries(HashMap<String, ColumnDictionary> dictionaries) {
+        this.dictionaries = dictionaries;
+    }
+
+    // dictionary of a CATEGORICAL column, null if the column has none
+    public ColumnDictionary getDictionary(String columnName) {
+        if(dictionaries == null) {
+            return null;
+        } else {
+            return dictionaries.get(columnName);
+        }
+    }
+
+    // dictionary of the column, created empty if it does not exist yet
+    public ColumnDictionary dictionaryFor(String columnName) {
+        if(dictionaries == null) {
+            dictionaries = new HashMap<String, ColumnDictionary>();
+        }
+        ColumnDictionary dictionary = dictionaries.get(columnName);
+        if(dictionary == null) {
+            dictionary = new ColumnDictionary();
+            dictionaries.put(columnName, dictionary);
+        }
+        return dictionary;
+    }
 }
@@ -0,0 +1,259 @@
+package extramuros.java.formats;
+
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * User: antonio
+ * Date: 16/10/2026
+ * Time: 16:00
+ *
+ * Zone maps of a table: row count and per file column statistics, stored in
+ * a sequence file next to the table metadata (tablePath + ".stats").
+ * Statistics are only returned by load() while every file of the table is
+ * unchanged, so jobs can trust them to answer counts and min/max without
+ * reading the rows and to skip files that cannot match a range.
+ */
+public class TableStatistics implements Writable {
+
+    public static final String SUFFIX = ".stats";
+
+    private ArrayList<String> columnNames;
+    private ArrayList<FileStatistics> files;
+    private long rowCount;
+
+    private static final Logger log = LoggerFactory.getLogger(TableStatistics.class);
+
+    public TableStatistics() {
+        columnNames = new ArrayList<String>();
+        files = new ArrayList<FileStatistics>();
+    }
+
+    /**
+     * Statistics of a table from the statistics of its files computed while
+     * the rows were written or by the mappers of the statistics job, files
+     * must hold every file of the table.
+     */
+    public static TableStatistics fromFiles(TableHeader header, List<FileStatistics> files) {
+        TableStatistics statistics = new TableStatistics();
+        statistics.columnNames = new ArrayList<String>(header.getColumnNames());
+        for(FileStatistics file : files) {
+            statistics.files.add(file);
+            statistics.rowCount += file.getRowCount();
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Statistics holding only the total number of rows, for tables whose
+     * rows have been counted by a job.
+     */
+    public static TableStatistics rowCountOnly(AbstractTable table, long rowCount, Configuration config) throws IOException {
+        TableStatistics statistics = fingerprint(table, config);
+        statistics.rowCount = rowCount;
+
+        return statistics;
+    }
+
+    /**
+     * Length and modification time of the files of the table without any
+     * statistics, isCurrent() tells if the files have changed since.
+     */
+    public static TableStatistics fingerprint(AbstractTable table, Configuration config) throws IOException {
+        FileSystem fs = FileSystem.get(config);
+
+        TableStatistics statistics = new TableStatistics();
+        for(FileStatus status : rowFiles(fs, new Path(table.getRowsPath()))) {
+            FileStatistics file = new FileStatistics(status, 0);
+            file.setRowCount(-1);
+            statistics.files.add(file);
+        }
+        statistics.rowCount = -1;
+
+        return statistics;
+    }
+
+    public static Path pathFor(AbstractTable table) {
+        return new Path(table.getTablePath() + SUFFIX);
+    }
+
+    // statistics of the table, null if there are none or the rows have changed since they were saved
+    public static TableStatistics load(AbstractTable table, Configuration config) {
+        try {
+            FileSystem fs = FileSystem.get(config);
+            Path path = pathFor(table);
+            if(!fs.exists(path)) {
+                return null;
+            }
+
+            TableStatistics statistics = (TableStatistics) TableUtils.readFirstWritable(path, config)[1];
+            if(statistics.isCurrent(table.getRowsPath(), config)) {
+                return statistics;
+            } else {
+                log.info("Ignoring outdated statistics " + path.toUri().getPath());
+                return null;
+            }
+        } catch (Exception e) {
+            log.error("Error reading table statistics", e);
+            return null;
+        }
+    }
+
+    public static TableStatistics load(AbstractTable table) {
+        return load(table, table.getConfiguration());
+    }
+
+    // true if the files under rowsPath are the same files the statistics were computed for
+    public boolean isCurrent(String rowsPath, Configuration config) throws IOException {
+        FileStatus[] current = rowFiles(FileSystem.get(config), new Path(rowsPath));
+        if(current.length != files.size()) {
+            return false;
+        }
+
+        HashMap<String, FileStatistics> byPath = new HashMap<String, FileStatistics>();
+        for(FileStatistics file : files) {
+            byPath.put(file.getPath(), file);
+        }
+        for(FileStatus status : current) {
+            FileStatistics file = byPath.get(status.getPath().toUri().getPath());
+            if(file == null || !file.isCurrent(status)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean save(AbstractTable table, Configuration config) {
+        try {
+            TableUtils.writeSingleWritable(pathFor(table), new LongWritable((new Date()).getTime()), this, config);
+            return true;
+        } catch (IOException e) {
+            log.error("Error saving table statistics", e);
+            return false;
+        }
+    }
+
+    public boolean save(AbstractTable table) {
+        return save(table, table.getConfiguration());
+    }
+
+    public static FileStatus[] rowFiles(FileSystem fs, Path rows) throws IOException {
+        if(fs.isFile(rows)) {
+            return new FileStatus[]{fs.getFileStatus(rows)};
+        }
+
+        ArrayList<FileStatus> children = new ArrayList<FileStatus>();
+        for(FileStatus child : fs.listStatus(rows)) {
+            String name = child.getPath().getName();
+            if(!child.isDir() && !name.startsWith("_") && !name.startsWith(".")) {
+                children.add(child);
+            }
+        }
+        return children.toArray(new FileStatus[children.size()]);
+    }
+
+    // queries
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public boolean hasColumnStats() {
+        for(FileStatistics file : files) {
+            if(!file.hasColumnStats()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // statistics of the column over all the files, null if they are not known
+    public ColumnStats getColumnStats(String columnName) {
+        int position = positionFor(columnName);
+        if(position == -1 || !hasColumnStats()) {
+            return null;
+        }
+
+        ColumnStats merged = new ColumnStats();
+        for(FileStatistics file : files) {
+            merged.merge(file.getColumnStats(position));
+        }
+        return merged;
+    }
+
+    /**
+     * Paths of the files that may hold values of the column inside
+     * [low, high]. All the files are returned if the column has no
+     * statistics.
+     */
+    public ArrayList<String> filesMatching(String columnName, double low, double high) {
+        int position = positionFor(columnName);
+        ArrayList<String> matching = new ArrayList<String>(files.size());
+        for(FileStatistics file : files) {
+            if(position == -1 || !file.hasColumnStats() || file.getColumnStats(position).mayContain(low, high)) {
+                matching.add(file.getPath());
+            }
+        }
+        return matching;
+    }
+
+    public ArrayList<FileStatistics> getFiles() {
+        return files;
+    }
+
+    protected int positionFor(String columnName) {
+        for(int i=0; i<columnNames.size(); i++) {
+            if(columnNames.get(i).equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // serialization
+
+    public void write(DataOutput dataOutput) throws IOException {
+        dataOutput.writeLong(rowCount);
+        dataOutput.writeInt(columnNames.size());
+        for(String columnName : columnNames) {
+            Text.writeString(dataOutput, columnName);
+        }
+        dataOutput.writeInt(files.size());
+        for(FileStatistics file : files) {
+            file.write(dataOutput);
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        rowCount = dataInput.readLong();
+        int size = dataInput.readInt();
+        columnNames = new ArrayList<String>(size);
+        for(int i=0; i<size; i++) {
+            columnNames.add(Text.readString(dataInput));
+        }
+        size = dataInput.readInt();
+        files = new ArrayList<FileStatistics>(size);
+        for(int i=0; i<size; i++) {
+            FileStatistics file = new FileStatistics();
+            file.readFields(dataInput);
+            files.add(file);
+        }
+    }
+}
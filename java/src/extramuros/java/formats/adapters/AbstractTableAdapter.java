@@ -28,10 +28,10 @@ public abstract class AbstractTableAdapter<L,P> extends Mapper<Writable, L, Writ
     protected static final Logger log = LoggerFactory.getLogger(Mapper.class);
 
 
-    public abstract Row parse(int id, P[] parts);
+    public abstract Row parse(long id, P[] parts);
 
 
-    public Row parseLine(int id, L line) {
+    public Row parseLine(long id, L line) {
         P[] parts = split(line);
          for(int i=0; i<parts.length; i++) {
              if(isNull(parts[i])) {
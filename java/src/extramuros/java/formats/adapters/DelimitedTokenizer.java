@@ -0,0 +1,386 @@
+package extramuros.java.formats.adapters;
+
+import org.apache.hadoop.io.Text;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.CharacterCodingException;
+
+/**
+ * User: antonio
+ * Date: 17/10/2026
+ * Time: 09:30
+ *
+ * Splits a delimited line directly over its UTF-8 bytes. tokenize() only
+ * records where every field starts and ends; numbers are parsed from those
+ * byte ranges and strings are only built when they are requested, so the
+ * same tokenizer can be reused for every line of a split.
+ *
+ * Fields starting with the quote character (if one is set) run until the
+ * closing quote and may contain separators, doubled quotes and backslash
+ * escapes. Without a quote character fields are taken as they are.
+ */
+public class DelimitedTokenizer {
+
+    private static final String REGEX_METACHARACTERS = "\\[](){}.*+?^$|";
+
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    private byte[] separator;
+    private int quote;
+
+    private byte[] bytes;
+    private int[] starts;
+    private int[] ends;
+    private boolean[] escaped;
+    private int numFields;
+
+    // parsed mantissa and decimal digits of the last simple decimal
+    private long mantissa;
+    private int decimals;
+
+    public DelimitedTokenizer(byte[] separator, int quote, int maxFields) {
+        this.separator = separator;
+        this.quote = quote;
+        this.starts = new int[maxFields];
+        this.ends = new int[maxFields];
+        this.escaped = new boolean[maxFields];
+    }
+
+    /**
+     * Bytes of the separator if the separator regular expression matches a
+     * literal string, null if it needs a real regular expression.
+     */
+    public static byte[] literalSeparator(String regex) {
+        if(regex == null || regex.length() == 0) {
+            return null;
+        }
+
+        String literal = regex;
+        if(regex.length() == 2 && regex.charAt(0) == '\\' && !Character.isLetterOrDigit(regex.charAt(1))) {
+            literal = regex.substring(1);
+        } else {
+            for(int i=0; i<regex.length(); i++) {
+                if(REGEX_METACHARACTERS.indexOf(regex.charAt(i)) != -1) {
+                    return null;
+                }
+            }
+        }
+
+        try {
+            return literal.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the fields of the line. Fields after the first maxFields are
+     * ignored and, as String.split does, trailing empty fields are dropped.
+     * Returns the number of fields found.
+     */
+    public int tokenize(byte[] line, int length) {
+        bytes = line;
+        numFields = 0;
+
+        int position = 0;
+        while(numFields < starts.length) {
+            escaped[numFields] = false;
+            if(quote != -1 && position < length && line[position] == quote) {
+                position = scanQuoted(line, position, length);
+            } else {
+                starts[numFields] = position;
+                int next = indexOfSeparator(line, position, length);
+                ends[numFields] = next == -1 ? length : next;
+                position = ends[numFields];
+            }
+            numFields++;
+
+            if(position >= length) {
+                break;
+            }
+            // skip anything left until the separator (text after a closing quote)
+            int next = indexOfSeparator(line, position, length);
+            if(next == -1) {
+                break;
+            }
+            position = next + separator.length;
+            if(position == length) {
+                // line ends with a separator, last field is empty
+                if(numFields < starts.length) {
+                    starts[numFields] = length;
+                    ends[numFields] = length;
+                    escaped[numFields] = false;
+                    numFields++;
+                }
+                break;
+            }
+        }
+
+        while(numFields > 0 && starts[numFields - 1] == ends[numFields - 1]) {
+            numFields--;
+        }
+
+        return numFields;
+    }
+
+    private int scanQuoted(byte[] line, int position, int length) {
+        int start = position + 1;
+        int i = start;
+        while(i < length) {
+            if(line[i] == '\\' && i + 1 < length) {
+                escaped[numFields] = true;
+                i += 2;
+            } else if(line[i] == quote) {
+                if(i + 1 < length && line[i + 1] == quote) {
+                    escaped[numFields] = true;
+                    i += 2;
+                } else {
+                    break;
+                }
+            } else {
+                i++;
+            }
+        }
+        starts[numFields] = start;
+        ends[numFields] = Math.min(i, length);
+        return Math.min(i + 1, length);
+    }
+
+    private int indexOfSeparator(byte[] line, int from, int length) {
+        int last = length - separator.length;
+        byte first = separator[0];
+        for(int i=from; i<=last; i++) {
+            if(line[i] == first) {
+                int j = 1;
+                while(j < separator.length && line[i + j] == separator[j]) {
+                    j++;
+                }
+                if(j == separator.length) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // field access
+
+    // true if the last line split is the given array
+    public boolean holds(byte[] line) {
+        return bytes == line;
+    }
+
+    public int getNumFields() {
+        return numFields;
+    }
+
+    public int getStart(int field) {
+        return starts[field];
+    }
+
+    public int getEnd(int field) {
+        return ends[field];
+    }
+
+    /**
+     * True if the field without its spaces is equal, ignoring ASCII case, to
+     * one of the sentinels (already encoded as UTF-8).
+     */
+    public boolean matchesAny(int field, byte[][] sentinels) {
+        for(byte[] sentinel : sentinels) {
+            if(matchesIgnoringSpaces(field, sentinel)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesIgnoringSpaces(int field, byte[] sentinel) {
+        int j = 0;
+        for(int i=starts[field]; i<ends[field]; i++) {
+            byte b = bytes[i];
+            if(b == ' ') {
+                continue;
+            }
+            if(j >= sentinel.length || toLower(b) != toLower(sentinel[j])) {
+                return false;
+            }
+            j++;
+        }
+        return j == sentinel.length;
+    }
+
+    private static int toLower(byte b) {
+        if(b >= 'A' && b <= 'Z') {
+            return b + ('a' - 'A');
+        }
+        return b;
+    }
+
+    public String getString(int field) throws CharacterCodingException {
+        String value = Text.decode(bytes, starts[field], ends[field] - starts[field]);
+        if(escaped[field]) {
+            return unescape(value);
+        }
+        return value;
+    }
+
+    private String unescape(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for(int i=0; i<value.length(); i++) {
+            char c = value.charAt(i);
+            if(c == '\\' && i + 1 < value.length()) {
+                i++;
+                builder.append(value.charAt(i));
+            } else if(c == quote && i + 1 < value.length() && value.charAt(i + 1) == quote) {
+                i++;
+                builder.append(c);
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    // numbers, spaces inside the field are ignored as parse() always did
+
+    public long parseLong(int field) {
+        long value = 0;
+        boolean negative = false;
+        boolean digits = false;
+        int i = starts[field];
+        int end = ends[field];
+
+        i = skipSpaces(i, end);
+        if(i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        for(; i<end; i++) {
+            byte b = bytes[i];
+            if(b == ' ') {
+                continue;
+            }
+            if(b < '0' || b > '9') {
+                throw numberFormatException(field);
+            }
+            digits = true;
+            // accumulate as a negative number so Long.MIN_VALUE fits
+            if(value < (Long.MIN_VALUE + (b - '0')) / 10) {
+                throw numberFormatException(field);
+            }
+            value = value * 10 - (b - '0');
+        }
+        if(!digits) {
+            throw numberFormatException(field);
+        }
+        if(!negative) {
+            if(value == Long.MIN_VALUE) {
+                throw numberFormatException(field);
+            }
+            return -value;
+        }
+        return value;
+    }
+
+    public int parseInt(int field) {
+        long value = parseLong(field);
+        if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw numberFormatException(field);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Simple decimals with a mantissa below 2^53 and at most 22 decimal
+     * digits are divided by an exact power of ten, which rounds exactly as
+     * Double.parseDouble does. Anything else (exponents, long mantissas,
+     * NaN...) goes through Double.parseDouble.
+     */
+    public double parseDouble(int field) {
+        if(parseSimpleDecimal(field, 1L << 53, DOUBLE_POWERS_OF_TEN.length - 1)) {
+            return mantissa / DOUBLE_POWERS_OF_TEN[decimals];
+        }
+        return Double.parseDouble(stripSpaces(field));
+    }
+
+    public float parseFloat(int field) {
+        if(parseSimpleDecimal(field, 1L << 24, FLOAT_POWERS_OF_TEN.length - 1)) {
+            return (float) mantissa / FLOAT_POWERS_OF_TEN[decimals];
+        }
+        return Float.parseFloat(stripSpaces(field));
+    }
+
+    private boolean parseSimpleDecimal(int field, long maxMantissa, int maxDecimals) {
+        int i = skipSpaces(starts[field], ends[field]);
+        int end = ends[field];
+        boolean negative = false;
+        boolean digits = false;
+        boolean point = false;
+
+        mantissa = 0;
+        decimals = 0;
+        if(i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        for(; i<end; i++) {
+            byte b = bytes[i];
+            if(b == ' ') {
+                continue;
+            } else if(b == '.' && !point) {
+                point = true;
+            } else if(b >= '0' && b <= '9') {
+                digits = true;
+                mantissa = mantissa * 10 + (b - '0');
+                if(mantissa >= maxMantissa) {
+                    return false;
+                }
+                if(point) {
+                    decimals++;
+                    if(decimals > maxDecimals) {
+                        return false;
+                    }
+                }
+            } else {
+                return false;
+            }
+        }
+        if(!digits) {
+            return false;
+        }
+        if(negative) {
+            // -0.0 keeps its sign as in Double.parseDouble
+            mantissa = -mantissa;
+            if(mantissa == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipSpaces(int i, int end) {
+        while(i < end && bytes[i] == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private String stripSpaces(int field) {
+        StringBuilder builder = new StringBuilder(ends[field] - starts[field]);
+        for(int i=starts[field]; i<ends[field]; i++) {
+            if(bytes[i] != ' ') {
+                builder.append((char) (bytes[i] & 0xFF));
+            }
+        }
+        return builder.toString();
+    }
+
+    private NumberFormatException numberFormatException(int field) {
+        return new NumberFormatException("For input string: \"" + stripSpaces(field) + "\"");
+    }
+}
@@ -0,0 +1,132 @@
+package extramuros.java.formats.adapters;
+
+import extramuros.java.formats.Row;
+import org.apache.hadoop.io.Text;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * User: antonio
+ * Date: 17/10/2026
+ * Time: 12:05
+ *
+ * Row over a copy of the bytes of a delimited text line. The line is
+ * split when the row is built but a cell is only parsed the first time it
+ * is read, and the parsed value is kept. The tokenizer is shared by the
+ * rows of the parser, a row splits its line again if the tokenizer has
+ * moved to another line since. getValues(), write() and
+ * setValue() parse every cell; rows read with readFields() hold the
+ * values they read.
+ */
+public class LazyTextRow extends Row {
+
+    private TextFieldParser parser;
+    private byte[] bytes;
+    private Object[] cells;
+    private boolean[] parsed;
+    private ArrayList<Object> materialized;
+
+    public LazyTextRow() {
+    }
+
+    LazyTextRow(long id, TextFieldParser parser, Text line) {
+        setId(id);
+        super.setColumnsNames(parser.getHeader().getColumnNames());
+        super.setColumnsTypes(parser.getHeader().getColumnTypes());
+
+        this.parser = parser;
+        this.bytes = Arrays.copyOf(line.getBytes(), line.getLength());
+        parser.tokenize(bytes);
+
+        cells = new Object[parser.size()];
+        parsed = new boolean[cells.length];
+    }
+
+    // access
+
+    public Object getValue(int position) {
+        if(!parsed[position]) {
+            cells[position] = parser.parse(parser.tokenize(bytes), position);
+            parsed[position] = true;
+        }
+        return cells[position];
+    }
+
+    public boolean isNullAt(int position) {
+        return getValue(position) == null;
+    }
+
+    public double getDouble(int position) {
+        return ((Number) getValue(position)).doubleValue();
+    }
+
+    public long getLong(int position) {
+        return ((Number) getValue(position)).longValue();
+    }
+
+    public String getString(int position) {
+        Object value = getValue(position);
+        return value == null ? null : value.toString();
+    }
+
+    public Object valueForColumn(String columnName) {
+        return getValue(getColumnsNames().indexOf(columnName));
+    }
+
+    public int size() {
+        return cells.length;
+    }
+
+    public int compareTo(Row row) {
+        if (size() < row.size()) {
+            return -1;
+        } else if (size() > row.size()) {
+            return 1;
+        } else {
+            return 0;
+        }
+    }
+
+    public ArrayList<Object> getValues() {
+        if(materialized == null) {
+            materialized = new ArrayList<Object>(cells.length);
+            for(int i=0; i<cells.length; i++) {
+                materialized.add(getValue(i));
+            }
+        }
+        return materialized;
+    }
+
+    // updates
+
+    public void setValues(ArrayList<Object> values) {
+        cells = values.toArray();
+        parsed = new boolean[cells.length];
+        Arrays.fill(parsed, true);
+        materialized = values;
+    }
+
+    public void setValue(String columnName, Object value) {
+        int position = getColumnsNames().indexOf(columnName);
+        getValues().set(position, value);
+        cells[position] = value;
+    }
+
+    // serialization, rows are written and read as plain rows
+
+    public void write(DataOutput dataOutput) throws IOException {
+        super.setValues(getValues());
+        super.write(dataOutput);
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        super.readFields(dataInput);
+        parser = null;
+        bytes = null;
+        setValues(super.getValues());
+    }
+}
@@ -1,6 +1,7 @@
 package extramuros.java.formats.adapters;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.DateTimeFormats;
 import extramuros.java.formats.Row;
 import extramuros.java.formats.RowTypes;
 import extramuros.java.formats.TableHeader;
@@ -20,8 +21,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.DataInput;
 import java.io.DataOutput;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 
@@ -33,7 +37,9 @@ class TextLinesRowIterator implements Iterator<Row> {
     protected Row lastRow;
     protected int currentFile;
     protected FileSystem fs;
-    protected int counter;
+    protected long counter;
+    // rows hold parsed values, the line buffer can be reused
+    protected Text text = new Text();
 
     private static final Logger log = LoggerFactory.getLogger(TextLinesRowIterator.class);
 
@@ -74,12 +80,9 @@ class TextLinesRowIterator implements Iterator<Row> {
 
     private Row readNextRow() {
         try {
-            Text text = new Text();
-
             if(reader.readLine(text)>0) {
                 counter++;
-                String tmp = text.toString().trim();
-                text = new Text(tmp.trim());
+                trim(text);
                 return adapter.parseLine(counter, text);
             } else {
                 reader.close();
@@ -98,6 +101,22 @@ class TextLinesRowIterator implements Iterator<Row> {
         }
     }
 
+    // removes leading and trailing whitespace as String.trim does, without decoding the line
+    private static void trim(Text text) {
+        byte[] bytes = text.getBytes();
+        int start = 0;
+        int end = text.getLength();
+        while(start < end && (bytes[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while(end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if(start > 0 || end < text.getLength()) {
+            text.set(bytes, start, end - start);
+        }
+    }
+
     public Row next() {
         if(lastRow!=null){
             Row tmp = lastRow;
@@ -113,6 +132,100 @@ class TextLinesRowIterator implements Iterator<Row> {
 }
 
 
+/**
+ * Column types, date formats and null values of a table laid out by
+ * position, shared by the rows parsed with the same adapter. The rows also
+ * share a single tokenizer, split again for a row when it last split
+ * another line.
+ */
+class TextFieldParser {
+
+    private static final Logger log = LoggerFactory.getLogger(TextFieldParser.class);
+
+    private TableHeader header;
+    private byte[] separator;
+    private int quote;
+    private byte[][] nullSentinels;
+    private int[] columnTypes;
+    private String[] columnDateFormats;
+    private boolean epochDates;
+    private DelimitedTokenizer tokenizer;
+
+    TextFieldParser(TableHeader header, byte[] separator, int quote, String[] nullValues, boolean epochDates) {
+        this.header = header;
+        this.separator = separator;
+        this.quote = quote;
+        this.epochDates = epochDates;
+
+        int numColumns = header.getColumnNames().size();
+        columnTypes = new int[numColumns];
+        columnDateFormats = new String[numColumns];
+        for(String columnName : header.getColumnNames()) {
+            int position = header.positionFor(columnName);
+            columnTypes[position] = header.typeFor(columnName);
+            columnDateFormats[position] = header.getDateFormats().get(columnName);
+        }
+
+        nullSentinels = new byte[nullValues.length][];
+        for(int i=0; i<nullValues.length; i++) {
+            Text sentinel = new Text(nullValues[i]);
+            nullSentinels[i] = Arrays.copyOf(sentinel.getBytes(), sentinel.getLength());
+        }
+    }
+
+    DelimitedTokenizer tokenizer() {
+        if(tokenizer == null) {
+            tokenizer = new DelimitedTokenizer(separator, quote, columnTypes.length);
+        }
+        return tokenizer;
+    }
+
+    // shared tokenizer holding the fields of the line
+    DelimitedTokenizer tokenize(byte[] line) {
+        DelimitedTokenizer fields = tokenizer();
+        if(!fields.holds(line)) {
+            fields.tokenize(line, line.length);
+        }
+        return fields;
+    }
+
+    TableHeader getHeader() {
+        return header;
+    }
+
+    int size() {
+        return columnTypes.length;
+    }
+
+    // value of the field with the type of its column, null for null values and values that cannot be parsed
+    Object parse(DelimitedTokenizer fields, int position) {
+        if(position >= fields.getNumFields() || fields.matchesAny(position, nullSentinels)) {
+            return null;
+        }
+
+        try {
+            int type = columnTypes[position];
+            if(type == RowTypes.DOUBLE) {
+                return fields.parseDouble(position);
+            } else if(type == RowTypes.FLOAT) {
+                return fields.parseFloat(position);
+            } else if(type == RowTypes.INTEGER) {
+                return fields.parseInt(position);
+            } else if(type == RowTypes.LONG) {
+                return fields.parseLong(position);
+            } else if(type == RowTypes.DATE_TIME && epochDates) {
+                return DateTimeFormats.parse(columnDateFormats[position], fields.getString(position).trim());
+            } else {
+                return fields.getString(position);
+            }
+        } catch (Exception ex) {
+            log.error("Error parsing column in line.", ex);
+            return null;
+        }
+    }
+}
+
+
 /**
  * User: antonio
  * Date: 03/06/2011
@@ -126,6 +239,12 @@ public class TextFileTableAdapter extends AbstractTableAdapter<Text, String> imp
     protected String defaultSeparator;
     protected String tablePath;
     private String[] nullValues;
+    private boolean epochDates;
+    private String quote;
+
+    // built from the header and options on the first parsed line
+    private TextFieldParser parser;
+    private boolean regexSeparator;
 
     public TextFileTableAdapter() {
         // default constructor
@@ -143,6 +262,35 @@ public class TextFileTableAdapter extends AbstractTableAdapter<Text, String> imp
 
     public void setDefaultSeparator(String defaultSeparator) {
         this.defaultSeparator = defaultSeparator;
+        resetParser();
+    }
+
+    public String getQuote() {
+        return quote;
+    }
+
+    /**
+     * Quote character of the fields, null (the default) to read quotes as
+     * part of the values. Quoted fields may contain the separator, doubled
+     * quotes and backslash escapes. Quotes are only handled when the
+     * separator is a literal string, not a regular expression.
+     */
+    public void setQuote(String quote) {
+        this.quote = quote;
+        resetParser();
+    }
+
+    public boolean isEpochDates() {
+        return epochDates;
+    }
+
+    /**
+     * When set, DATE_TIME columns are parsed with the date format of the
+     * column and returned as epoch milliseconds instead of strings.
+     */
+    public void setEpochDates(boolean epochDates) {
+        this.epochDates = epochDates;
+        resetParser();
     }
 
     public void setConfiguration(Configuration config) {
@@ -159,6 +307,7 @@ public class TextFileTableAdapter extends AbstractTableAdapter<Text, String> imp
 
     public void setHeader(TableHeader header) {
         this.header = header;
+        resetParser();
     }
 
     public String getRowsPath() {
@@ -193,6 +342,8 @@ public class TextFileTableAdapter extends AbstractTableAdapter<Text, String> imp
         adapter.setConfiguration(new Configuration(getConfiguration()));
         adapter.setDefaultSeparator(new String(getDefaultSeparator()));
         adapter.setNullValues(getNullValues().clone());
+        adapter.setEpochDates(isEpochDates());
+        adapter.setQuote(getQuote());
         adapter.setTablePath(new String(getTablePath()));
 
         return adapter;
@@ -226,6 +377,13 @@ public class TextFileTableAdapter extends AbstractTableAdapter<Text, String> imp
             tmp = new Text(nullValue);
             tmp.write(dataOutput);
         }
+
+        dataOutput.writeBoolean(epochDates);
+
+        dataOutput.writeBoolean(quote != null);
+        if(quote != null) {
+            Text.writeString(dataOutput, quote);
+        }
     }
 
     public void readFields(DataInput dataInput) throws IOException {
@@ -247,6 +405,21 @@ public class TextFileTableAdapter extends AbstractTableAdapter<Text, String> imp
             tmp.readFields(dataInput);
             nullValues[i] = tmp.toString();
         }
+
+        try {
+            epochDates = dataInput.readBoolean();
+        } catch (EOFException e) {
+            // adapters saved before the flag was added
+            epochDates = false;
+        }
+
+        try {
+            quote = dataInput.readBoolean() ? Text.readString(dataInput) : null;
+        } catch (EOFException e) {
+            // adapters saved before quotes were supported
+            quote = null;
+        }
+        resetParser();
     }
 
     public Iterator<Row> iterator() {
@@ -258,8 +431,42 @@ public class TextFileTableAdapter extends AbstractTableAdapter<Text, String> imp
         }
     }
 
+    /**
+     * Rows of the line are LazyTextRows: the line is only split when it is
+     * parsed and every cell is decoded the first time it is read, so jobs
+     * reading a few columns of a wide table do not parse the rest.
+     * Separators that are real regular expressions still go through
+     * split() and parse every column.
+     */
+    @Override
+    public Row parseLine(long id, Text line) {
+        TextFieldParser fieldParser = parser();
+        if(fieldParser == null) {
+            return super.parseLine(id, line);
+        }
+        return new LazyTextRow(id, fieldParser, line);
+    }
+
+    private void resetParser() {
+        parser = null;
+        regexSeparator = false;
+    }
+
+    // parser for the separator and quote of the table, null if the separator is a regular expression
+    TextFieldParser parser() {
+        if(parser == null && !regexSeparator) {
+            byte[] separator = DelimitedTokenizer.literalSeparator(defaultSeparator);
+            if(separator == null || (quote != null && quote.length() != 1)) {
+                regexSeparator = true;
+                return null;
+            }
+            parser = new TextFieldParser(header, separator, quote == null ? -1 : quote.charAt(0), nullValues, epochDates);
+        }
+        return parser;
+    }
+
     @Override
-    public Row parse(int id, String[] parts) {
+    public Row parse(long id, String[] parts) {
         Object[] values = new Object[parts.length];
 
         for (String columnName : header.getColumnNames()) {
@@ -302,6 +509,8 @@ public class TextFileTableAdapter extends AbstractTableAdapter<Text, String> imp
                 } else if (type == RowTypes.DATE_TIME) {
                     if(part == null) {
                         values[position] = null;
+                    } else if(epochDates) {
+                        values[position] = DateTimeFormats.parse(header.getDateFormats().get(columnName), part.trim());
                     } else {
                         values[position] = part;
                     }
@@ -329,7 +538,7 @@ public class TextFileTableAdapter extends AbstractTableAdapter<Text, String> imp
     @Override
     public Row map(Writable key, Text value) {
         LongWritable keyWritable = (LongWritable) key;
-        return parseLine(new Long(keyWritable.get()).intValue(), value);
+        return parseLine(keyWritable.get(), value);
     }
 
 
@@ -338,9 +547,9 @@ public class TextFileTableAdapter extends AbstractTableAdapter<Text, String> imp
 
             LongWritable keyWritable = (LongWritable) key;
             Long keyValue = keyWritable.get();
-            Row row = parseLine(keyValue.intValue(),line);
+            Row row = parseLine(keyValue,line);
 
-            context.write(key,row);
+            context.write(key,row.toRow());
 
         } catch(Exception e) {
             log.error("Error retrieving value from row",e);
@@ -353,6 +562,20 @@ public class TextFileTableAdapter extends AbstractTableAdapter<Text, String> imp
 
     public String[] split(Text input) {
         String[] parts = new String[getHeader().getColumnNames().size()];
+        TextFieldParser fieldParser = parser();
+        if(fieldParser != null) {
+            DelimitedTokenizer fields = fieldParser.tokenizer();
+            fields.tokenize(input.getBytes(), input.getLength());
+            for(int i=0; i<parts.length && i<fields.getNumFields(); i++) {
+                try {
+                    parts[i] = fields.getString(i);
+                } catch (CharacterCodingException e) {
+                    log.error("Error decoding column in line.", e);
+                }
+            }
+            return parts;
+        }
+
         String[] tmp = input.toString().split(defaultSeparator);
         for(int i=0; i<parts.length; i++) {
             if(i<tmp.length) {
@@ -370,6 +593,7 @@ public class TextFileTableAdapter extends AbstractTableAdapter<Text, String> imp
 
     public void setNullValues(String[] nullValues) {
         this.nullValues = nullValues;
+        resetParser();
     }
 
     public boolean isNull(String part) {
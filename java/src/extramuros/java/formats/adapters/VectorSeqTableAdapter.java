@@ -210,7 +210,7 @@ public class VectorSeqTableAdapter extends AbstractTableAdapter<Writable, Double
     }
 
     @Override
-    public Row parse(int id, Double[] parts) {
+    public Row parse(long id, Double[] parts) {
         Object[] values = new Object[parts.length];
 
         for (String columnName : header.getColumnNames()) {
@@ -276,9 +276,9 @@ public class VectorSeqTableAdapter extends AbstractTableAdapter<Writable, Double
 
     @Override
     public Row map(Writable key, Writable value) {
-        Integer id = TableUtils.parseWritableKeyId(key);
+        Long id = TableUtils.parseWritableKeyId(key);
         if(id==null) {
-            id = TableUtils.randomId();
+            id = (long) TableUtils.randomId();
         }
         return parse(id,split(value));
     }
@@ -0,0 +1,321 @@
+package extramuros.java.formats.columnar;
+
+import extramuros.java.formats.ColumnDictionary;
+import extramuros.java.formats.RowTypes;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * User: antonio
+ * Date: 14/10/2026
+ * Time: 10:12
+ *
+ * Values of a single column inside a row group, stored as an array of
+ * primitives plus a null mask. DATE_TIME columns are stored as epoch longs
+ * when every value in the block is numeric and as strings otherwise.
+ * CATEGORICAL columns with a dictionary in the table header are stored as
+ * codes of that dictionary, other string blocks with repeated values use a
+ * dictionary local to the block.
+ */
+public class ColumnBlock {
+
+    public static final byte PLAIN = 0;
+    public static final byte EPOCH = 1;
+    public static final byte DICTIONARY = 2;
+    public static final byte TABLE_DICTIONARY = 3;
+
+    private int type;
+    private byte encoding;
+    private int size;
+    private boolean[] nulls;
+
+    private double[] doubles;
+    private float[] floats;
+    private int[] ints;
+    private long[] longs;
+    private String[] strings;
+    private int[] codes;
+    private ColumnDictionary dictionary;
+
+    public ColumnBlock(int type, int capacity) {
+        this(type, capacity, null);
+    }
+
+    /**
+     * Block whose values are encoded with the codes of the table dictionary,
+     * new values are added to the dictionary as they are appended.
+     */
+    public ColumnBlock(int type, int capacity, ColumnDictionary dictionary) {
+        this.type = type;
+        this.dictionary = dictionary;
+        this.encoding = dictionary == null ? PLAIN : TABLE_DICTIONARY;
+        allocate(capacity);
+    }
+
+    protected ColumnBlock() {
+    }
+
+    protected void allocate(int capacity) {
+        size = 0;
+        nulls = new boolean[capacity];
+        if(type == RowTypes.DOUBLE) {
+            doubles = new double[capacity];
+        } else if(type == RowTypes.FLOAT) {
+            floats = new float[capacity];
+        } else if(type == RowTypes.INTEGER) {
+            ints = new int[capacity];
+        } else if(type == RowTypes.LONG) {
+            longs = new long[capacity];
+        } else if(type == RowTypes.DATE_TIME) {
+            longs = new long[capacity];
+            strings = new String[capacity];
+        } else {
+            strings = new String[capacity];
+            codes = new int[capacity];
+        }
+    }
+
+    public void add(Object value) {
+        if(value == null) {
+            nulls[size] = true;
+        } else if(type == RowTypes.DOUBLE) {
+            doubles[size] = ((Number) value).doubleValue();
+        } else if(type == RowTypes.FLOAT) {
+            floats[size] = ((Number) value).floatValue();
+        } else if(type == RowTypes.INTEGER) {
+            ints[size] = ((Number) value).intValue();
+        } else if(type == RowTypes.LONG) {
+            longs[size] = ((Number) value).longValue();
+        } else if(type == RowTypes.DATE_TIME) {
+            if(value instanceof Number) {
+                longs[size] = ((Number) value).longValue();
+            } else {
+                strings[size] = value.toString();
+            }
+        } else {
+            strings[size] = value.toString();
+            if(dictionary != null) {
+                codes[size] = dictionary.add(strings[size]);
+            }
+        }
+        size++;
+    }
+
+    public Object get(int i) {
+        if(nulls[i]) {
+            return null;
+        } else if(type == RowTypes.DOUBLE) {
+            return doubles[i];
+        } else if(type == RowTypes.FLOAT) {
+            return floats[i];
+        } else if(type == RowTypes.INTEGER) {
+            return ints[i];
+        } else if(type == RowTypes.LONG) {
+            return longs[i];
+        } else if(type == RowTypes.DATE_TIME) {
+            if(encoding == EPOCH) {
+                return longs[i];
+            } else {
+                return strings[i];
+            }
+        } else {
+            return strings[i];
+        }
+    }
+
+    public boolean isNull(int i) {
+        return nulls[i];
+    }
+
+    /**
+     * Code of the value in the table dictionary, only meaningful when
+     * getEncoding() is TABLE_DICTIONARY. Lets group-bys and counts work
+     * on the codes without comparing strings.
+     */
+    public int getCode(int i) {
+        return codes[i];
+    }
+
+    public byte getEncoding() {
+        return encoding;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public void clear() {
+        for(int i=0; i<size; i++) {
+            nulls[i] = false;
+            if(strings != null) {
+                strings[i] = null;
+            }
+        }
+        size = 0;
+    }
+
+    // serialization
+
+    public void write(DataOutputBuffer out) throws IOException {
+        byte blockEncoding = PLAIN;
+        ArrayList<String> localValues = null;
+        if(type == RowTypes.DATE_TIME) {
+            blockEncoding = EPOCH;
+            for(int i=0; i<size; i++) {
+                if(!nulls[i] && strings[i] != null) {
+                    blockEncoding = PLAIN;
+                    break;
+                }
+            }
+        } else if(dictionary != null) {
+            blockEncoding = TABLE_DICTIONARY;
+        } else if(type == RowTypes.STRING || type == RowTypes.CATEGORICAL) {
+            localValues = buildLocalDictionary();
+            if(localValues != null) {
+                blockEncoding = DICTIONARY;
+            }
+        }
+
+        out.writeByte(type);
+        out.writeByte(blockEncoding);
+        WritableUtils.writeVInt(out, size);
+
+        byte[] mask = new byte[(size + 7) / 8];
+        for(int i=0; i<size; i++) {
+            if(nulls[i]) {
+                mask[i / 8] |= (1 << (i % 8));
+            }
+        }
+        out.write(mask);
+
+        if(blockEncoding == DICTIONARY) {
+            WritableUtils.writeVInt(out, localValues.size());
+            for(String value : localValues) {
+                Text.writeString(out, value);
+            }
+        }
+
+        for(int i=0; i<size; i++) {
+            if(nulls[i]) {
+                continue;
+            }
+            if(blockEncoding == DICTIONARY || blockEncoding == TABLE_DICTIONARY) {
+                WritableUtils.writeVInt(out, codes[i]);
+            } else if(type == RowTypes.DOUBLE) {
+                out.writeDouble(doubles[i]);
+            } else if(type == RowTypes.FLOAT) {
+                out.writeFloat(floats[i]);
+            } else if(type == RowTypes.INTEGER) {
+                out.writeInt(ints[i]);
+            } else if(type == RowTypes.LONG || (type == RowTypes.DATE_TIME && blockEncoding == EPOCH)) {
+                out.writeLong(longs[i]);
+            } else if(type == RowTypes.DATE_TIME) {
+                Text.writeString(out, strings[i] != null ? strings[i] : String.valueOf(longs[i]));
+            } else {
+                Text.writeString(out, strings[i]);
+            }
+        }
+    }
+
+    /**
+     * Fills codes with block local codes and returns the distinct values, or
+     * null if the block has too few repeated values to be worth it.
+     */
+    private ArrayList<String> buildLocalDictionary() {
+        HashMap<String, Integer> localCodes = new HashMap<String, Integer>();
+        ArrayList<String> localValues = new ArrayList<String>();
+        int nonNulls = 0;
+        for(int i=0; i<size; i++) {
+            if(nulls[i]) {
+                continue;
+            }
+            nonNulls++;
+            Integer code = localCodes.get(strings[i]);
+            if(code == null) {
+                code = localValues.size();
+                localValues.add(strings[i]);
+                localCodes.put(strings[i], code);
+            }
+            codes[i] = code;
+        }
+
+        if(localValues.size() * 2 > nonNulls) {
+            return null;
+        } else {
+            return localValues;
+        }
+    }
+
+    public static ColumnBlock read(byte[] bytes, int length) throws IOException {
+        return read(bytes, length, null);
+    }
+
+    /**
+     * Decodes a block, dictionary is the table dictionary of the column and
+     * is required for TABLE_DICTIONARY blocks. Decoded strings are shared
+     * with the dictionary.
+     */
+    public static ColumnBlock read(byte[] bytes, int length, ColumnDictionary dictionary) throws IOException {
+        DataInputBuffer in = new DataInputBuffer();
+        in.reset(bytes, length);
+
+        ColumnBlock block = new ColumnBlock();
+        block.type = in.readByte();
+        block.encoding = in.readByte();
+        int blockSize = WritableUtils.readVInt(in);
+        block.allocate(blockSize);
+
+        byte[] mask = new byte[(blockSize + 7) / 8];
+        in.readFully(mask);
+
+        String[] localValues = null;
+        if(block.encoding == DICTIONARY) {
+            localValues = new String[WritableUtils.readVInt(in)];
+            for(int i=0; i<localValues.length; i++) {
+                localValues[i] = Text.readString(in);
+            }
+        } else if(block.encoding == TABLE_DICTIONARY) {
+            if(dictionary == null) {
+                throw new IOException("Missing table dictionary for dictionary encoded block");
+            }
+            block.dictionary = dictionary;
+        }
+
+        for(int i=0; i<blockSize; i++) {
+            block.nulls[i] = (mask[i / 8] & (1 << (i % 8))) != 0;
+            if(block.nulls[i]) {
+                continue;
+            }
+            if(block.encoding == DICTIONARY) {
+                block.codes[i] = WritableUtils.readVInt(in);
+                block.strings[i] = localValues[block.codes[i]];
+            } else if(block.encoding == TABLE_DICTIONARY) {
+                block.codes[i] = WritableUtils.readVInt(in);
+                block.strings[i] = dictionary.valueFor(block.codes[i]);
+            } else if(block.type == RowTypes.DOUBLE) {
+                block.doubles[i] = in.readDouble();
+            } else if(block.type == RowTypes.FLOAT) {
+                block.floats[i] = in.readFloat();
+            } else if(block.type == RowTypes.INTEGER) {
+                block.ints[i] = in.readInt();
+            } else if(block.type == RowTypes.LONG || (block.type == RowTypes.DATE_TIME && block.encoding == EPOCH)) {
+                block.longs[i] = in.readLong();
+            } else {
+                block.strings[i] = Text.readString(in);
+            }
+        }
+        block.size = blockSize;
+
+        return block;
+    }
+}
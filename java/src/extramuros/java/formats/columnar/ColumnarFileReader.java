@@ -0,0 +1,162 @@
+package extramuros.java.formats.columnar;
+
+import extramuros.java.formats.ColumnDictionary;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.TableHeader;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * User: antonio
+ * Date: 14/10/2026
+ * Time: 11:40
+ *
+ * Reads a file written by ColumnarFileWriter. Only the blocks of the
+ * projected columns are fetched from the file system, the rest of the
+ * values in the returned rows are null.
+ */
+public class ColumnarFileReader implements Closeable {
+
+    private FSDataInputStream in;
+    private TableHeader header;
+    private ArrayList<RowGroupInfo> rowGroups;
+    private boolean[] projection;
+    private ColumnDictionary[] dictionaries;
+    private byte[] buffer;
+
+    public ColumnarFileReader(Path file, Configuration conf) throws IOException {
+        FileSystem fs = FileSystem.get(conf);
+        long length = fs.getFileStatus(file).getLen();
+        in = fs.open(file);
+
+        byte[] magic = new byte[ColumnarFileWriter.MAGIC.length];
+        in.readFully(magic);
+        if(!Arrays.equals(magic, ColumnarFileWriter.MAGIC)) {
+            in.close();
+            throw new IOException("Not a columnar table file: "+file.toUri().getPath());
+        }
+        byte version = in.readByte();
+        if(version > ColumnarFileWriter.VERSION) {
+            in.close();
+            throw new IOException("Unsupported columnar table version "+version+" in "+file.toUri().getPath());
+        }
+
+        header = new TableHeader();
+        header.readFields(in);
+
+        in.seek(length - 8);
+        long footerOffset = in.readLong();
+        in.seek(footerOffset);
+        int numGroups = in.readInt();
+        rowGroups = new ArrayList<RowGroupInfo>(numGroups);
+        for(int i=0; i<numGroups; i++) {
+            RowGroupInfo info = new RowGroupInfo();
+            info.readFields(in, version);
+            rowGroups.add(info);
+        }
+        if(version >= 2) {
+            // dictionaries are complete only in the footer
+            int numDictionaries = in.readInt();
+            for(int i=0; i<numDictionaries; i++) {
+                String columnName = Text.readString(in);
+                ColumnDictionary dictionary = new ColumnDictionary();
+                dictionary.readFields(in);
+                header.getDictionaries().put(columnName, dictionary);
+            }
+        }
+        dictionaries = new ColumnDictionary[header.getColumnNames().size()];
+        for(int i=0; i<dictionaries.length; i++) {
+            dictionaries[i] = header.getDictionary(header.getColumnNames().get(i));
+        }
+
+        projection = new boolean[header.getColumnNames().size()];
+        Arrays.fill(projection, true);
+        buffer = new byte[4096];
+    }
+
+    /**
+     * Restricts the columns that will be decoded. A null or empty list
+     * selects all the columns, unknown names are ignored.
+     */
+    public void setProjection(String[] columnNames) {
+        if(columnNames == null || columnNames.length == 0) {
+            Arrays.fill(projection, true);
+        } else {
+            Arrays.fill(projection, false);
+            for(String columnName : columnNames) {
+                int position = header.positionFor(columnName.trim());
+                if(position != -1) {
+                    projection[position] = true;
+                }
+            }
+        }
+    }
+
+    public ColumnBlock readIds(RowGroupInfo info) throws IOException {
+        return readBlock(info.getIdsOffset(), info.getIdsLength(), null);
+    }
+
+    public ColumnBlock readColumn(RowGroupInfo info, int column) throws IOException {
+        return readBlock(info.getColumnOffset(column), info.getColumnLength(column), dictionaries[column]);
+    }
+
+    private ColumnBlock readBlock(long offset, int length, ColumnDictionary dictionary) throws IOException {
+        if(buffer.length < length) {
+            buffer = new byte[length];
+        }
+        in.readFully(offset, buffer, 0, length);
+        return ColumnBlock.read(buffer, length, dictionary);
+    }
+
+    public ArrayList<Row> readRows(RowGroupInfo info) throws IOException {
+        int numColumns = projection.length;
+        ColumnBlock ids = readIds(info);
+        ColumnBlock[] blocks = new ColumnBlock[numColumns];
+        for(int i=0; i<numColumns; i++) {
+            if(projection[i]) {
+                blocks[i] = readColumn(info, i);
+            }
+        }
+
+        ArrayList<Row> rows = new ArrayList<Row>(info.getRowCount());
+        for(int r=0; r<info.getRowCount(); r++) {
+            ArrayList<Object> values = new ArrayList<Object>(numColumns);
+            for(int i=0; i<numColumns; i++) {
+                values.add(blocks[i] == null ? null : blocks[i].get(r));
+            }
+            rows.add(new Row(((Number) ids.get(r)).longValue(), header.getColumnNames(), header.getColumnTypes(), values));
+        }
+
+        return rows;
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Fields
+
+    public TableHeader getHeader() {
+        return header;
+    }
+
+    public ArrayList<RowGroupInfo> getRowGroups() {
+        return rowGroups;
+    }
+
+    public long getRowCount() {
+        long count = 0;
+        for(RowGroupInfo info : rowGroups) {
+            count += info.getRowCount();
+        }
+        return count;
+    }
+}
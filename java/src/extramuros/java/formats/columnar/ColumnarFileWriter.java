@@ -0,0 +1,153 @@
+package extramuros.java.formats.columnar;
+
+import extramuros.java.formats.ColumnDictionary;
+import extramuros.java.formats.ColumnStats;
+import extramuros.java.formats.NumericColumnReader;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.RowTypes;
+import extramuros.java.formats.TableHeader;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * User: antonio
+ * Date: 14/10/2026
+ * Time: 11:05
+ *
+ * Writes rows into a columnar file. Rows are buffered in memory until a row
+ * group is full and then every column is written as a separate block, so
+ * readers can fetch only the blocks of the columns they need.
+ *
+ * CATEGORICAL columns are written as codes of a dictionary kept in the
+ * table header. Values are added to the dictionary as they arrive, the
+ * complete dictionaries are written in the footer. The footer also keeps the
+ * zone map of every column in every row group.
+ *
+ * Layout: magic, version, table header, row groups, footer, footer offset.
+ */
+public class ColumnarFileWriter implements Closeable {
+
+    public static final byte[] MAGIC = new byte[]{'E', 'X', 'C', 'O', 'L'};
+    public static final byte VERSION = 3;
+    public static final int DEFAULT_ROW_GROUP_SIZE = 10000;
+
+    private FSDataOutputStream out;
+    private TableHeader header;
+    private int rowGroupSize;
+
+    private ColumnBlock ids;
+    private ColumnBlock[] columns;
+    private ColumnStats[] stats;
+    private NumericColumnReader[] readers;
+    private ArrayList<RowGroupInfo> rowGroups;
+    private DataOutputBuffer buffer;
+
+    public ColumnarFileWriter(Path file, TableHeader header, int rowGroupSize, Configuration conf) throws IOException {
+        this.header = header;
+        this.rowGroupSize = rowGroupSize;
+        this.rowGroups = new ArrayList<RowGroupInfo>();
+        this.buffer = new DataOutputBuffer();
+
+        int numColumns = header.getColumnNames().size();
+        ids = new ColumnBlock(RowTypes.LONG, rowGroupSize);
+        columns = new ColumnBlock[numColumns];
+        stats = new ColumnStats[numColumns];
+        readers = NumericColumnReader.forColumns(header, header.getColumnNames().toArray(new String[numColumns]));
+        for(int i=0; i<numColumns; i++) {
+            int type = header.getColumnTypes().get(i);
+            if(type == RowTypes.CATEGORICAL) {
+                columns[i] = new ColumnBlock(type, rowGroupSize, header.dictionaryFor(header.getColumnNames().get(i)));
+            } else {
+                columns[i] = new ColumnBlock(type, rowGroupSize);
+            }
+            stats[i] = new ColumnStats();
+        }
+
+        out = FileSystem.get(conf).create(file, true);
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        header.write(out);
+    }
+
+    public ColumnarFileWriter(Path file, TableHeader header, Configuration conf) throws IOException {
+        this(file, header, DEFAULT_ROW_GROUP_SIZE, conf);
+    }
+
+    public void append(Row row) throws IOException {
+        ids.add(row.getId());
+        for(int i=0; i<columns.length; i++) {
+            columns[i].add(row.getValues().get(i));
+            stats[i].add(row, readers[i]);
+        }
+
+        if(ids.size() == rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    protected void flushRowGroup() throws IOException {
+        if(ids.size() == 0) {
+            return;
+        }
+
+        RowGroupInfo info = new RowGroupInfo(ids.size(), columns.length);
+
+        long offset = out.getPos();
+        info.setIds(offset, writeBlock(ids));
+        for(int i=0; i<columns.length; i++) {
+            offset = out.getPos();
+            info.setColumn(i, offset, writeBlock(columns[i]));
+            info.setColumnStats(i, stats[i]);
+            stats[i] = new ColumnStats();
+        }
+
+        rowGroups.add(info);
+
+        ids.clear();
+        for(ColumnBlock column : columns) {
+            column.clear();
+        }
+    }
+
+    private int writeBlock(ColumnBlock block) throws IOException {
+        buffer.reset();
+        block.write(buffer);
+        out.write(buffer.getData(), 0, buffer.getLength());
+        return buffer.getLength();
+    }
+
+    public void close() throws IOException {
+        flushRowGroup();
+
+        long footerOffset = out.getPos();
+        out.writeInt(rowGroups.size());
+        for(RowGroupInfo info : rowGroups) {
+            info.write(out);
+        }
+        HashMap<String, ColumnDictionary> dictionaries = header.getDictionaries();
+        if(dictionaries == null) {
+            out.writeInt(0);
+        } else {
+            out.writeInt(dictionaries.size());
+            for(String columnName : dictionaries.keySet()) {
+                Text.writeString(out, columnName);
+                dictionaries.get(columnName).write(out);
+            }
+        }
+        out.writeLong(footerOffset);
+        out.close();
+    }
+
+    public TableHeader getHeader() {
+        return header;
+    }
+}
@@ -0,0 +1,128 @@
+package extramuros.java.formats.columnar;
+
+import extramuros.java.formats.RangeFilter;
+import extramuros.java.formats.Row;
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+class ColumnarRecordReader extends RecordReader<LongWritable, Row> {
+
+    protected ColumnarFileReader reader;
+    protected ArrayList<RowGroupInfo> rowGroups;
+    protected int currentGroup;
+    protected ArrayList<Row> currentRows;
+    protected int currentRow;
+    protected LongWritable key;
+    protected Row value;
+
+    public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException, InterruptedException {
+        FileSplit split = (FileSplit) inputSplit;
+        Configuration config = context.getConfiguration();
+
+        reader = new ColumnarFileReader(split.getPath(), config);
+        String projection = config.get(JobKeys.PROJECTION);
+        if(projection != null) {
+            reader.setProjection(projection.split(","));
+        }
+
+        // row groups whose zone map does not overlap the range are skipped
+        RangeFilter range = RangeFilter.fromConfiguration(config);
+        int rangeColumn = range == null ? -1 : reader.getHeader().positionFor(range.getColumnName());
+
+        // a row group belongs to the split where its first block starts
+        long start = split.getStart();
+        long end = start + split.getLength();
+        rowGroups = new ArrayList<RowGroupInfo>();
+        for(RowGroupInfo info : reader.getRowGroups()) {
+            if(info.getIdsOffset() >= start && info.getIdsOffset() < end) {
+                if(rangeColumn == -1 || range.mayMatch(info.getColumnStats(rangeColumn))) {
+                    rowGroups.add(info);
+                }
+            }
+        }
+
+        currentGroup = -1;
+        currentRows = new ArrayList<Row>();
+        currentRow = 0;
+        key = new LongWritable();
+    }
+
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+        while(currentRow >= currentRows.size()) {
+            currentGroup++;
+            if(currentGroup >= rowGroups.size()) {
+                return false;
+            }
+            currentRows = reader.readRows(rowGroups.get(currentGroup));
+            currentRow = 0;
+        }
+
+        value = currentRows.get(currentRow);
+        key.set(value.getId());
+        currentRow++;
+
+        return true;
+    }
+
+    public LongWritable getCurrentKey() throws IOException, InterruptedException {
+        return key;
+    }
+
+    public Row getCurrentValue() throws IOException, InterruptedException {
+        return value;
+    }
+
+    public float getProgress() throws IOException, InterruptedException {
+        if(rowGroups.size() == 0) {
+            return 1.0f;
+        } else {
+            return Math.min(1.0f, Math.max(0, currentGroup) / (float) rowGroups.size());
+        }
+    }
+
+    public void close() throws IOException {
+        if(reader != null) {
+            reader.close();
+        }
+    }
+}
+
+/**
+ * User: antonio
+ * Date: 14/10/2026
+ * Time: 12:20
+ *
+ * Reads rows from columnar table files. The columns listed in the
+ * JobKeys.PROJECTION configuration key (comma separated) are the only ones
+ * decoded, if the key is not set all the columns are returned. When
+ * JobKeys.RANGE is set, row groups that cannot hold values in the range are
+ * not read; the rows of the groups that are read are not filtered.
+ */
+public class ColumnarInputFormat extends FileInputFormat<LongWritable, Row> {
+
+    @Override
+    public RecordReader<LongWritable, Row> createRecordReader(InputSplit inputSplit, TaskAttemptContext context) throws IOException, InterruptedException {
+        return new ColumnarRecordReader();
+    }
+
+    public static void setProjection(Configuration config, String[] columnNames) {
+        StringBuilder builder = new StringBuilder();
+        for(int i=0; i<columnNames.length; i++) {
+            if(i > 0) {
+                builder.append(",");
+            }
+            builder.append(columnNames[i]);
+        }
+        config.set(JobKeys.PROJECTION, builder.toString());
+    }
+}
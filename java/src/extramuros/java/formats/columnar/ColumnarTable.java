@@ -0,0 +1,279 @@
+package extramuros.java.formats.columnar;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.TableHeader;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+
+class ColumnarRowIterator implements Iterator<Row> {
+
+    protected Path[] inputFiles;
+    protected int currentFile;
+    protected ColumnarFileReader reader;
+    protected int currentGroup;
+    protected ArrayList<Row> currentRows;
+    protected int currentRow;
+    protected Configuration configuration;
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarRowIterator.class);
+
+    ColumnarRowIterator(Path input, Configuration configuration) throws IOException {
+        this.configuration = configuration;
+
+        FileSystem fs = FileSystem.get(configuration);
+        if(fs.isFile(input)) {
+            inputFiles = new Path[1];
+            inputFiles[0] = input;
+        } else {
+            FileStatus[] children = fs.listStatus(input);
+            ArrayList<Path> childrenPaths = new ArrayList<Path>(children.length);
+            for(FileStatus child : children) {
+                String name = child.getPath().getName();
+                if(fs.isFile(child.getPath()) && !name.startsWith("_") && !name.startsWith(".")) {
+                    childrenPaths.add(child.getPath());
+                }
+            }
+
+            inputFiles = childrenPaths.toArray(new Path[childrenPaths.size()]);
+        }
+
+        currentFile = -1;
+        currentGroup = 0;
+        currentRows = new ArrayList<Row>();
+        currentRow = 0;
+    }
+
+    public boolean hasNext() {
+        try {
+            while(currentRow >= currentRows.size()) {
+                if(reader == null || currentGroup >= reader.getRowGroups().size()) {
+                    if(reader != null) {
+                        reader.close();
+                        reader = null;
+                    }
+                    currentFile++;
+                    if(currentFile >= inputFiles.length) {
+                        return false;
+                    }
+                    reader = new ColumnarFileReader(inputFiles[currentFile], configuration);
+                    currentGroup = 0;
+                } else {
+                    currentRows = reader.readRows(reader.getRowGroups().get(currentGroup));
+                    currentGroup++;
+                    currentRow = 0;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("IOException ERROR READING ROW",e);
+            return false;
+        }
+    }
+
+    public Row next() {
+        if(hasNext()) {
+            Row row = currentRows.get(currentRow);
+            currentRow++;
+            return row;
+        } else {
+            return null;
+        }
+    }
+
+    public void remove() {
+    }
+}
+
+/**
+ * User: antonio
+ * Date: 14/10/2026
+ * Time: 12:45
+ *
+ * Table whose rows are stored in columnar files (see ColumnarFileWriter).
+ * Jobs read it through ColumnarInputFormat, decoding only the columns set
+ * in JobKeys.PROJECTION.
+ */
+public class ColumnarTable extends AbstractTableAdapter<Row, Object> implements AbstractTable {
+
+    private TableHeader header;
+    private String rowsPath;
+    protected Configuration config;
+    protected String tablePath;
+
+    public ColumnarTable() {
+        // default constructor
+    }
+
+    public ColumnarTable(TableHeader header, String rowsPath) {
+        this.header = header;
+        this.rowsPath = rowsPath;
+    }
+
+    /**
+     * Writes all the rows of the source table into a single columnar file
+     * at rowsPath and saves the new table at tablePath.
+     */
+    public static ColumnarTable fromTable(AbstractTable source, String rowsPath, String tablePath, int rowGroupSize, Configuration config) throws IOException {
+        TableHeader header = source.getHeader().clone();
+        ColumnarFileWriter writer = new ColumnarFileWriter(new Path(rowsPath), header, rowGroupSize, config);
+        try {
+            for(Row row : source) {
+                writer.append(row);
+            }
+        } finally {
+            writer.close();
+        }
+
+        ColumnarTable table = new ColumnarTable(header, rowsPath);
+        table.setConfiguration(config);
+        table.setTablePath(tablePath);
+        if(!table.save()) {
+            throw new IOException("Error saving columnar table at "+tablePath);
+        }
+
+        return table;
+    }
+
+    public void setConfiguration(Configuration config) {
+        this.config = config;
+    }
+
+    public Configuration getConfiguration() {
+        if(config == null) {
+            config = new Configuration(true);
+        }
+        return config;
+    }
+
+    public TableHeader getHeader() {
+        return header;
+    }
+
+    public void setHeader(TableHeader header) {
+        this.header = header;
+    }
+
+    public String getRowsPath() {
+        return rowsPath;
+    }
+
+    public void setRowsPath(String rowsPath) {
+        this.rowsPath = rowsPath;
+    }
+
+    public String getTablePath() {
+        if(tablePath == null) {
+            return rowsPath+".tbl";
+        } else {
+            return tablePath;
+        }
+    }
+
+    public void setTablePath(String tablePath) {
+        this.tablePath = tablePath;
+    }
+
+    public boolean isAdapter() {
+        return true;
+    }
+
+    public AbstractTable clone() {
+        ColumnarTable cloned = new ColumnarTable();
+
+        cloned.setHeader(getHeader().clone());
+        cloned.setRowsPath(new String(getRowsPath()));
+        cloned.setConfiguration(new Configuration(getConfiguration()));
+        cloned.setTablePath(new String(getTablePath()));
+
+        return cloned;
+    }
+
+    public boolean save() {
+        try {
+            TableUtils.writeSingleWritable(new Path(getTablePath()), new LongWritable((new Date()).getTime()), this, getConfiguration());
+            return true;
+        } catch (IOException e) {
+            log.error("Error saving columnar table",e);
+            return false;
+        }
+    }
+
+    public Class<? extends Writable> getRowClass() {
+        return Row.class;
+    }
+
+    public void write(DataOutput dataOutput) throws IOException {
+        getHeader().write(dataOutput);
+        Text tmp = new Text(getRowsPath());
+        tmp.write(dataOutput);
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        setHeader(new TableHeader());
+        getHeader().readFields(dataInput);
+        Text tmp = new Text();
+        tmp.readFields(dataInput);
+        setRowsPath(tmp.toString());
+    }
+
+    public Iterator<Row> iterator() {
+        try {
+            return new ColumnarRowIterator(new Path(getRowsPath()), getConfiguration());
+        } catch (IOException e) {
+            log.error("Error creating rows iterator", e);
+            return null;
+        }
+    }
+
+    // adapter
+
+    @Override
+    public Row parse(long id, Object[] parts) {
+        ArrayList<Object> values = new ArrayList<Object>(parts.length);
+        for(Object part : parts) {
+            values.add(part);
+        }
+        return new Row(id, header.getColumnNames(), header.getColumnTypes(), values);
+    }
+
+    @Override
+    public Class<? extends InputFormat> inputFormat() {
+        return ColumnarInputFormat.class;
+    }
+
+    @Override
+    public Row map(Writable key, Row value) {
+        // rows are already decoded by the record reader
+        return value;
+    }
+
+    public Object[] split(Row input) {
+        return input.getValues().toArray();
+    }
+
+    public boolean isNull(Object part) {
+        return part == null;
+    }
+
+    public boolean skip(Row line) {
+        return false;
+    }
+}
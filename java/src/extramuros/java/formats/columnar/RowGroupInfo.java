@@ -0,0 +1,121 @@
+package extramuros.java.formats.columnar;
+
+import extramuros.java.formats.ColumnStats;
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 14/10/2026
+ * Time: 10:40
+ *
+ * Footer entry for a row group: number of rows, the position and length
+ * of the ids block and of every column block inside the file and the zone
+ * map (ColumnStats) of every column.
+ */
+public class RowGroupInfo implements Writable {
+
+    private int rowCount;
+    private long idsOffset;
+    private int idsLength;
+    private long[] columnOffsets;
+    private int[] columnLengths;
+    private ColumnStats[] columnStats;
+
+    public RowGroupInfo() {
+    }
+
+    public RowGroupInfo(int rowCount, int numColumns) {
+        this.rowCount = rowCount;
+        this.columnOffsets = new long[numColumns];
+        this.columnLengths = new int[numColumns];
+        this.columnStats = new ColumnStats[numColumns];
+    }
+
+    public void write(DataOutput dataOutput) throws IOException {
+        dataOutput.writeInt(rowCount);
+        dataOutput.writeLong(idsOffset);
+        dataOutput.writeInt(idsLength);
+        dataOutput.writeInt(columnOffsets.length);
+        for(int i=0; i<columnOffsets.length; i++) {
+            dataOutput.writeLong(columnOffsets[i]);
+            dataOutput.writeInt(columnLengths[i]);
+        }
+        for(int i=0; i<columnStats.length; i++) {
+            columnStats[i].write(dataOutput);
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        readFields(dataInput, ColumnarFileWriter.VERSION);
+    }
+
+    // files written before version 3 have no column statistics
+    void readFields(DataInput dataInput, byte version) throws IOException {
+        rowCount = dataInput.readInt();
+        idsOffset = dataInput.readLong();
+        idsLength = dataInput.readInt();
+        int numColumns = dataInput.readInt();
+        columnOffsets = new long[numColumns];
+        columnLengths = new int[numColumns];
+        for(int i=0; i<numColumns; i++) {
+            columnOffsets[i] = dataInput.readLong();
+            columnLengths[i] = dataInput.readInt();
+        }
+        columnStats = new ColumnStats[numColumns];
+        if(version >= 3) {
+            for(int i=0; i<numColumns; i++) {
+                columnStats[i] = new ColumnStats();
+                columnStats[i].readFields(dataInput);
+            }
+        }
+    }
+
+    // Fields
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getIdsOffset() {
+        return idsOffset;
+    }
+
+    public void setIds(long offset, int length) {
+        this.idsOffset = offset;
+        this.idsLength = length;
+    }
+
+    public int getIdsLength() {
+        return idsLength;
+    }
+
+    public void setColumn(int column, long offset, int length) {
+        columnOffsets[column] = offset;
+        columnLengths[column] = length;
+    }
+
+    public long getColumnOffset(int column) {
+        return columnOffsets[column];
+    }
+
+    public int getColumnLength(int column) {
+        return columnLengths[column];
+    }
+
+    // null if the file has no statistics
+    public ColumnStats getColumnStats(int column) {
+        return columnStats[column];
+    }
+
+    public void setColumnStats(int column, ColumnStats stats) {
+        columnStats[column] = stats;
+    }
+
+    public int getNumColumns() {
+        return columnOffsets.length;
+    }
+}
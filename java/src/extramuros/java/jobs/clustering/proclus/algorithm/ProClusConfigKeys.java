@@ -14,5 +14,8 @@ public interface ProClusConfigKeys {
 
     /** Probability of sampling **/
     String PROBABILITY = "proclus.probability";
+
+    /** Number of vectors kept in the pool of random vectors **/
+    String POOL_SIZE = "proclus.pool_size";
 }
 
@@ -1,6 +1,7 @@
 package extramuros.java.jobs.clustering.proclus.algorithm;
 
 import extramuros.java.formats.TableHeader;
+import extramuros.java.formats.TableStatistics;
 import extramuros.java.formats.adapters.VectorSeqTableAdapter;
 import extramuros.java.jobs.utils.ExtramurosJob;
 import extramuros.java.jobs.utils.TableUtils;
@@ -13,9 +14,12 @@ import org.apache.commons.cli2.builder.DefaultOptionBuilder;
 import org.apache.commons.cli2.builder.GroupBuilder;
 import org.apache.commons.cli2.commandline.Parser;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
@@ -23,6 +27,7 @@ import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.mahout.common.CommandLineUtil;
+import org.apache.mahout.common.Pair;
 import org.apache.mahout.common.RandomUtils;
 import org.apache.mahout.common.commandline.DefaultOptionCreator;
 import org.apache.mahout.math.VectorWritable;
@@ -31,7 +36,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 
 
@@ -39,6 +47,13 @@ import java.util.Iterator;
  * User: antonio
  * Date: 23/05/2011
  * Time: 12:26
+ *
+ * The sampling job also builds a pool with poolSize random vectors of the
+ * whole input, a reservoir per task merged by the smallest keys. The pool
+ * is loaded in memory from the pool files of the tasks when the job
+ * finishes. drawRandomVectors draws from the pool, and only counts and
+ * scans the input if the pool is missing or smaller than the number of
+ * vectors to draw.
  */
 public class ProClusSampler {
 
@@ -48,6 +63,13 @@ public class ProClusSampler {
     private Configuration config;
     private FileSystem fs;
     private int totalLines;
+    private TableStatistics inputStatistics;
+    private int poolSize;
+    private VectorWritable[] pool;
+
+    public static final int DEFAULT_POOL_SIZE = 1000;
+    // files written by the sampling tasks next to their parts with their pools
+    public static final String POOL_FILE_PREFIX = "_pool-";
 
     private static final Logger log = LoggerFactory.getLogger(ProClusSampler.class);
 
@@ -116,6 +138,9 @@ public class ProClusSampler {
 
             config.set(ProClusConfigKeys.PROBABILITY, ""+splitSize);
 
+            poolSize = config.getInt(ProClusConfigKeys.POOL_SIZE, DEFAULT_POOL_SIZE);
+            config.setInt(ProClusConfigKeys.POOL_SIZE, poolSize);
+
             // prepare Hadoop job
             Job job = new Job(config, "Probabilistic sampling input data at: "+input.toUri().getPath()
                             + " with probability: " + splitSize);
@@ -149,6 +174,8 @@ public class ProClusSampler {
 
             ProClusUtils.cleanOutput(fs,outputDir);
 
+            loadPool();
+
         } catch (IOException e) {
             log.error("Error running job", e);
         } catch (InterruptedException e) {
@@ -163,6 +190,53 @@ public class ProClusSampler {
         return outputDir;
     }
 
+    public VectorWritable[] getPool() {
+        return pool;
+    }
+
+    // keeps the poolSize vectors with the smallest keys of all the tasks, the pool files are deleted
+    private void loadPool() throws IOException {
+        pool = null;
+
+        ArrayList<Pair<Double,VectorWritable>> pairs = new ArrayList<Pair<Double,VectorWritable>>();
+        boolean found = false;
+        for(FileStatus status : fs.listStatus(outputDir)) {
+            if(!status.getPath().getName().startsWith(POOL_FILE_PREFIX)) {
+                continue;
+            }
+            found = true;
+
+            SequenceFile.Reader reader = new SequenceFile.Reader(fs, status.getPath(), config);
+            try {
+                DoubleWritable key = new DoubleWritable();
+                VectorWritable value = new VectorWritable();
+                while(reader.next(key, value)) {
+                    pairs.add(new Pair<Double,VectorWritable>(key.get(), value));
+                    value = new VectorWritable();
+                }
+            } finally {
+                reader.close();
+            }
+            fs.delete(status.getPath(), false);
+        }
+        if(!found) {
+            log.info("No pool of random vectors in "+outputDir.toUri().getPath());
+            return;
+        }
+
+        Collections.sort(pairs, new Comparator<Pair<Double,VectorWritable>>() {
+            public int compare(Pair<Double,VectorWritable> a, Pair<Double,VectorWritable> b) {
+                return Double.compare(a.getFirst(), b.getFirst());
+            }
+        });
+
+        pool = new VectorWritable[Math.min(poolSize, pairs.size())];
+        for(int i=0; i<pool.length; i++) {
+            pool[i] = pairs.get(i).getSecond();
+        }
+        log.info("Loaded pool of "+pool.length+" random vectors");
+    }
+
     public void run(Configuration config, Path inputFile, Path outputDir, float splitSize) throws Exception, InstantiationException {
         this.config = config;
         this.fs = FileSystem.get(config);
@@ -175,18 +249,30 @@ public class ProClusSampler {
 
 
 
+    // the input is only counted again if its files change between iterations
     public int countLines() throws IOException {
         VectorSeqTableAdapter table = new VectorSeqTableAdapter(new TableHeader(),input.toUri().getPath());
 
+        if(inputStatistics != null && inputStatistics.isCurrent(table.getRowsPath(), config)) {
+            return (int) inputStatistics.getRowCount();
+        }
+
         extramuros.java.jobs.file.countlines.Job job = new extramuros.java.jobs.file.countlines.Job(outputDir.suffix("/countLines"),table,config);
 
         job.run();
 
-        return (Integer) job.getOutput();
+        int count = (Integer) job.getOutput();
+        inputStatistics = TableStatistics.rowCountOnly(table, count, config);
+
+        return count;
     }
 
     public VectorWritable[] drawRandomVectors(int toDraw) throws IOException, IllegalAccessException, InstantiationException {
 
+        if(pool != null && toDraw <= pool.length) {
+            return drawPooledVectors(toDraw);
+        }
+
         totalLines = countLines();
 
         log.debug("TOTAL LINES:"+totalLines);
@@ -234,6 +320,21 @@ public class ProClusSampler {
         return toReturn;
     }
 
+    // distinct vectors of the pool, no job and no scan of the input
+    private VectorWritable[] drawPooledVectors(int toDraw) {
+        VectorWritable[] toReturn = new VectorWritable[toDraw];
+        long[] selected = new long[toDraw];
+
+        RandomSampler.sample(toDraw, pool.length, toDraw, 0, selected, 0, RandomUtils.getRandom());
+        for(int i=0; i<toDraw; i++) {
+            // copies, the medoids built from them must not share the pooled vectors
+            toReturn[i] = new VectorWritable(pool[(int) selected[i]].get().clone());
+        }
+        log.info("Drawn "+toDraw+"/"+pool.length+" vectors from the pool.");
+
+        return toReturn;
+    }
+
 
     public static void main(String[] args) {
         try {
@@ -8,39 +8,84 @@ import extramuros.java.jobs.utils.JobKeys;
 import extramuros.java.jobs.utils.TableUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.mahout.common.Pair;
 import org.apache.mahout.math.VectorWritable;
 import org.apache.mahout.math.jet.random.Uniform;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.PriorityQueue;
 import java.util.UUID;
 
 /**
  * User: antonio
  * Date: 01/06/2011
  * Time: 15:59
+ *
+ * Besides the probabilistic sample, every task keeps a pool with the
+ * poolSize vectors of its split with the smallest random keys and writes
+ * it next to its part file in cleanup(), so the sampler can later draw
+ * random vectors of the whole input without running a new job. The pool
+ * file is written in the work output path of the task and only reaches
+ * the output directory if the attempt is committed.
  */
 public class ProClusSamplerMapper extends org.apache.hadoop.mapreduce.Mapper<Writable,VectorWritable,IntWritable,VectorWritable> {
 
     protected Double samplingProbability;
     protected AbstractTable table;
+    protected Uniform uniform;
+    protected int poolSize;
+    protected PriorityQueue<Pair<Double,VectorWritable>> pool;
 
     //private static final Logger log = LoggerFactory.getLogger(ProClusSamplerMapper.class);
 
     protected void map(Writable key, VectorWritable value, Context context) throws IOException, InterruptedException {
 
         int counter = 0;
-        Uniform uniform = new Uniform(0,1,(int)new Date().getTime());
         if(uniform.nextDoubleFromTo(0, 1) < samplingProbability) {
             context.write(new IntWritable(counter),value);
             counter++;
         }
+
+        if(poolSize > 0) {
+            double poolKey = uniform.nextDoubleFromTo(0, 1);
+            if(pool.size() < poolSize) {
+                // input values are reused by the record reader
+                pool.add(new Pair<Double,VectorWritable>(poolKey, new VectorWritable(value.get().clone())));
+            } else if(poolKey < pool.peek().getFirst()) {
+                pool.poll();
+                pool.add(new Pair<Double,VectorWritable>(poolKey, new VectorWritable(value.get().clone())));
+            }
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        if(poolSize > 0) {
+            Configuration config = context.getConfiguration();
+            Path poolFile = new Path(FileOutputFormat.getWorkOutputPath(context),
+                    String.format("%sm-%05d", ProClusSampler.POOL_FILE_PREFIX, context.getTaskAttemptID().getTaskID().getId()));
+            SequenceFile.Writer writer = new SequenceFile.Writer(poolFile.getFileSystem(config), config, poolFile,
+                    DoubleWritable.class, VectorWritable.class);
+            try {
+                for(Pair<Double,VectorWritable> pair : pool) {
+                    writer.append(new DoubleWritable(pair.getFirst()), pair.getSecond());
+                }
+            } finally {
+                writer.close();
+            }
+        }
+        super.cleanup(context);
     }
 
     @Override
@@ -51,6 +96,18 @@ public class ProClusSamplerMapper extends org.apache.hadoop.mapreduce.Mapper<Wri
 
         // probability
         samplingProbability = Double.parseDouble(config.get(ProClusConfigKeys.PROBABILITY));
+        // one generator per task, tasks started at the same time get different seeds
+        uniform = new Uniform(0,1,(int)new Date().getTime() + 31 * context.getTaskAttemptID().getTaskID().getId());
+
+        // pool of random vectors, largest key on top
+        poolSize = config.getInt(ProClusConfigKeys.POOL_SIZE, 0);
+        if(poolSize > 0) {
+            pool = new PriorityQueue<Pair<Double,VectorWritable>>(poolSize, new Comparator<Pair<Double,VectorWritable>>() {
+                public int compare(Pair<Double,VectorWritable> a, Pair<Double,VectorWritable> b) {
+                    return Double.compare(b.getFirst(), a.getFirst());
+                }
+            });
+        }
 
     }
 }
@@ -3,6 +3,8 @@ package extramuros.java.jobs.clustering.validation.daviesbouldin;
 import extramuros.java.jobs.utils.ClusterUtils;
 import extramuros.java.jobs.utils.ExtramurosJob;
 import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.SumCountCombiner;
+import extramuros.java.jobs.utils.SumCountWritable;
 import extramuros.java.jobs.utils.TableUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -72,10 +74,11 @@ public class Job extends ExtramurosJob {
             getJob().setJobName("davies_bouldin_job");
 
             getJob().setMapperClass(Mapper.class);
+            getJob().setCombinerClass(SumCountCombiner.class);
             getJob().setReducerClass(Reducer.class);
 
             getJob().setMapOutputKeyClass(Text.class);
-            getJob().setMapOutputValueClass(DoubleWritable.class);
+            getJob().setMapOutputValueClass(SumCountWritable.class);
 
             getJob().setOutputKeyClass(Text.class);
             getJob().setOutputValueClass(DoubleWritable.class);
@@ -182,8 +185,9 @@ public class Job extends ExtramurosJob {
 
             outWriter.append(key, value);
 
-        } catch (Exception e) {
-            log.error("Error writing index output file at "+outputPath, e);
+            // errors flushing the index reach run()
+            outWriter.close();
+            outWriter = null;
         } finally {
             if(outWriter!=null)
                 IOUtils.quietClose(outWriter);
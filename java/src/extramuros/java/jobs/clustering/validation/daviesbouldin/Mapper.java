@@ -2,10 +2,10 @@ package extramuros.java.jobs.clustering.validation.daviesbouldin;
 
 import extramuros.java.jobs.utils.ClusterUtils;
 import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.LongKeyAggregator;
+import extramuros.java.jobs.utils.SumCountWritable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.DoubleWritable;
-import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.mahout.clustering.Cluster;
@@ -24,10 +24,15 @@ import java.util.Iterator;
  * User: antonio
  * Date: 01/06/2011
  * Time: 15:59
+ *
+ * Squared distances are summed per cluster in the mapper and the partial
+ * sums are written when the aggregator is full and in cleanup().
  */
-public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Text, DoubleWritable> {
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Text, SumCountWritable> {
 
     protected HashMap<Integer,Cluster> clustersMap;
+    protected ManhattanDistanceMeasure distance = new ManhattanDistanceMeasure();
+    protected LongKeyAggregator distances;
 
     private static final Logger log = LoggerFactory.getLogger(Mapper.class);
 
@@ -43,19 +48,8 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
             }
 
             if(vector != null && cluster != null) {
-                ManhattanDistanceMeasure distance = new ManhattanDistanceMeasure();
                 double dist = Math.pow(distance.distance(vector,cluster.getCenter()),2.0);
-
-                Text outputKey = null;
-                if(key instanceof Text) {
-                    outputKey = (Text) key;
-                } else if(key instanceof IntWritable) {
-                    outputKey = new Text(""+((IntWritable)key).get());
-                }
-
-                if(outputKey != null) {
-                    context.write(outputKey, new DoubleWritable(dist));
-                }
+                distances.add(clusterId, dist);
             }
         } catch (Exception e) {
             log.error("Error retrieving value from row", e);
@@ -63,10 +57,22 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
     }
 
     @Override
-    protected void setup(Context context) throws IOException, InterruptedException {
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        distances.flush();
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(final Context context) throws IOException, InterruptedException {
         super.setup(context);
         Configuration config = context.getConfiguration();
 
+        distances = new LongKeyAggregator(LongKeyAggregator.memoryFor(config), new LongKeyAggregator.Flusher() {
+            public void flush(long key, double sum, long count) throws IOException, InterruptedException {
+                context.write(new Text(String.valueOf(key)), new SumCountWritable(sum, count));
+            }
+        });
+
         // clusters path
         Path clustersPath = new Path(config.get(JobKeys.PATH));
         log.info("Reading clusters from " + clustersPath);
@@ -1,6 +1,7 @@
 package extramuros.java.jobs.file.countlines;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.TableStatistics;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.jobs.utils.ExtramurosJob;
 import extramuros.java.jobs.utils.JobKeys;
@@ -50,6 +51,14 @@ public class Job extends ExtramurosJob {
                 getFs().delete(outputPath, true);
             }
 
+            // the count is already known if the table has up to date statistics
+            TableStatistics statistics = TableStatistics.load(table, getConf());
+            if(statistics != null) {
+                log.info("Rows count for "+table.getRowsPath()+" read from table statistics");
+                TableUtils.writeSingleWritable(outputFile, new Text("total_lines"), new IntWritable((int) statistics.getRowCount()), getConf());
+                return;
+            }
+
             getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
 
             // prepare Hadoop job
@@ -58,6 +67,7 @@ public class Job extends ExtramurosJob {
             getJob().setJobName("count_lines_job");
 
             getJob().setMapperClass(Mapper.class);
+            getJob().setCombinerClass(Reducer.class);
             getJob().setReducerClass(Reducer.class);
 
             getJob().setMapOutputKeyClass(Text.class);
@@ -105,6 +115,11 @@ public class Job extends ExtramurosJob {
 
             TableUtils.writeSingleWritable(outputPath.suffix("/count.seq"), new Text("total_lines"),new IntWritable(acum), getConf());
 
+            // remember the count next to the metadata of saved tables
+            if(getFs().exists(new Path(table.getTablePath()))) {
+                TableStatistics.rowCountOnly(table, acum, getConf()).save(table, getConf());
+            }
+
         } catch (IOException e) {
             log.error("Error running job", e);
         } catch (InterruptedException e) {
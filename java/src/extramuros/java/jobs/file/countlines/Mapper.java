@@ -15,15 +15,24 @@ import java.util.UUID;
  * User: antonio
  * Date: 01/06/2011
  * Time: 15:59
+ *
+ * Counts the rows of the split and writes the count once in cleanup().
  */
 public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable,Writable,Text,IntWritable> {
 
     protected String hash;
+    protected int counter;
 
     private static final Logger log = LoggerFactory.getLogger(Mapper.class);
 
     protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
-        context.write(new Text(hash),new IntWritable(1));
+        counter++;
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        context.write(new Text(hash), new IntWritable(counter));
+        super.cleanup(context);
     }
 
     @Override
@@ -33,5 +42,6 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable,Writable
 
         // hash
         hash = UUID.randomUUID().toString();
+        counter = 0;
     }
 }
@@ -20,8 +20,9 @@ public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Text,IntWritabl
     protected void reduce(Text columnName, Iterable<IntWritable> values, Context context) {
         int counter = 0;
 
+        // mappers and the combiner write partial counts
         for(IntWritable value : values) {
-            counter++;
+            counter = counter + value.get();
         }
 
         try {
@@ -2,13 +2,15 @@ package extramuros.java.jobs.file.filter;
 
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
+import extramuros.java.formats.RangeFilter;
 import extramuros.java.formats.Row;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.jobs.utils.JobKeys;
 import extramuros.java.jobs.utils.TableUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Writable;
 import org.apache.mahout.math.Vector;
 import org.slf4j.Logger;
@@ -22,12 +24,14 @@ import java.io.IOException;
  * Date: 01/06/2011
  * Time: 15:59
  */
-public abstract class AbstractFilterMapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, IntWritable, Writable> {
+public abstract class AbstractFilterMapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, LongWritable, Writable> {
 
     protected AbstractTable table;
     protected String[] columns;
     protected Class<? extends Vector> vectorClass;
     protected Object filterInformation;
+    protected RangeFilter range;
+    protected NumericColumnReader rangeReader;
 
     private static final Logger log = LoggerFactory.getLogger(AbstractFilterMapper.class);
 
@@ -43,12 +47,16 @@ public abstract class AbstractFilterMapper extends org.apache.hadoop.mapreduce.M
             row = (Row) value;
         }
 
+        if(range != null && !range.accepts(row, rangeReader)) {
+            return;
+        }
+
         try {
 
             boolean filterResult = filter(row);
 
             if(filterResult) {
-                context.write(new IntWritable(row.getId()), value);
+                context.write(new LongWritable(row.getId()), value);
             }
 
         } catch (Exception e) {
@@ -79,6 +87,11 @@ public abstract class AbstractFilterMapper extends org.apache.hadoop.mapreduce.M
 
         filterInformation = config.get(JobKeys.FILTER_INFORMATION);
 
+        range = RangeFilter.fromConfiguration(config);
+        if(range != null && table != null) {
+            rangeReader = NumericColumnReader.forColumn(table.getHeader(), range.getColumnName());
+        }
+
         // custom setup
         customSetup(context);
     }
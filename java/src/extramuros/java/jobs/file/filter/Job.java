@@ -1,15 +1,16 @@
 package extramuros.java.jobs.file.filter;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.RangeFilter;
 import extramuros.java.formats.Row;
+import extramuros.java.formats.TableStatistics;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.jobs.utils.ExtramurosJob;
 import extramuros.java.jobs.utils.JobKeys;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Writable;
-import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
@@ -17,6 +18,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 
 /**
  * User: antonio
@@ -29,6 +31,7 @@ public class Job extends ExtramurosJob {
     protected AbstractTable table;
     protected Class<? extends AbstractFilterMapper> mapperClass;
     protected String filterInfo;
+    protected RangeFilter range;
 
     private static final Logger log = LoggerFactory.getLogger(Job.class);
 
@@ -42,6 +45,14 @@ public class Job extends ExtramurosJob {
 
     }
 
+    /**
+     * Only rows with a value of the column inside the range are kept, files
+     * whose statistics do not overlap the range are not read.
+     */
+    public void setRange(RangeFilter range) {
+        this.range = range;
+    }
+
     @Override
     public void run() {
         try {
@@ -56,13 +67,16 @@ public class Job extends ExtramurosJob {
             setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "filter table job. "));
 
             getJob().setJobName("filter_table_job");
+            if(range != null) {
+                range.toConfiguration(getJob().getConfiguration());
+            }
 
             getJob().setMapperClass(mapperClass);
             getJob().setNumReduceTasks(0);
 
-            getJob().setMapOutputKeyClass(IntWritable.class);
+            getJob().setMapOutputKeyClass(LongWritable.class);
             getJob().setMapOutputValueClass(table.getRowClass());
-            getJob().setOutputKeyClass(IntWritable.class);
+            getJob().setOutputKeyClass(LongWritable.class);
             getJob().setOutputValueClass(table.getRowClass());
 
             if(table.isAdapter()) {
@@ -72,9 +86,23 @@ public class Job extends ExtramurosJob {
             }
             getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
 
-            String inputPathString = composeInputPathString(new Path(table.getRowsPath()));
-            log.info("Composed input path "+inputPathString);
-            FileInputFormat.addInputPaths(getJob(), inputPathString);
+            Path[] files = getAllChildrenFiles(new Path(table.getRowsPath()));
+            if(range != null) {
+                TableStatistics statistics = TableStatistics.load(table, getConf());
+                if(statistics != null) {
+                    ArrayList<String> matching = statistics.filesMatching(range.getColumnName(), range.getLow(), range.getHigh());
+                    files = new Path[matching.size()];
+                    for(int i=0; i<files.length; i++) {
+                        files[i] = new Path(matching.get(i));
+                    }
+                }
+                if(files.length == 0) {
+                    log.info("No file of "+table.getRowsPath()+" can hold rows in the range");
+                    getFs().mkdirs(outputPath);
+                    return;
+                }
+            }
+            addInputPaths(files);
             FileOutputFormat.setOutputPath(getJob(), outputPath);
 
             getJob().setJarByClass(Job.class);
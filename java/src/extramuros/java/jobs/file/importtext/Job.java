@@ -0,0 +1,175 @@
+package extramuros.java.jobs.file.importtext;
+
+import extramuros.java.formats.FileStatistics;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.Table;
+import extramuros.java.formats.TableStatistics;
+import extramuros.java.formats.adapters.TextFileTableAdapter;
+import extramuros.java.jobs.utils.ExtramurosJob;
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * User: antonio
+ * Date: 17/10/2026
+ * Time: 15:00
+ *
+ * Imports the text files wrapped by a saved TextFileTableAdapter as a
+ * Table: a map only job parses the lines with the separator, null values,
+ * quote and date formats of the adapter and every mapper writes a part
+ * file of rows under outputPath + ".rows". Row ids are the offsets of the
+ * lines, as in the adapter. The table is saved in outputPath.
+ * The mappers compute the statistics of the columns of their part files
+ * while writing them, getStatistics() returns them for the whole table so
+ * they can be saved without reading the rows again.
+ */
+public class Job extends ExtramurosJob {
+
+    // files written by the mappers with the statistics of their part
+    public static final String STATS_FILE_PREFIX = "_stats-";
+
+    protected Path outputPath;
+    protected Path rowsPath;
+    protected TextFileTableAdapter source;
+    protected int skipLines;
+    protected Table output;
+    protected TableStatistics statistics;
+
+    private static final Logger log = LoggerFactory.getLogger(Job.class);
+
+
+    public Job(Path outputPath, TextFileTableAdapter source, int skipLines, Configuration configuration) throws IOException {
+        super(configuration);
+        this.source = source;
+        this.outputPath = outputPath;
+        this.rowsPath = outputPath.suffix(".rows");
+        this.skipLines = skipLines;
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (getFs().exists(rowsPath)) {
+                getFs().delete(rowsPath, true);
+            }
+
+            getConf().set(JobKeys.PATH, new Path(source.getTablePath()).toUri().getPath());
+
+            // prepare Hadoop job
+            setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "import text table job. "));
+
+            getJob().setJobName("import_text_table_job");
+            getJob().getConfiguration().setInt(JobKeys.SKIP_LINES, skipLines);
+
+            getJob().setMapperClass(Mapper.class);
+            getJob().setNumReduceTasks(0);
+
+            getJob().setMapOutputKeyClass(LongWritable.class);
+            getJob().setMapOutputValueClass(Row.class);
+            getJob().setOutputKeyClass(LongWritable.class);
+            getJob().setOutputValueClass(Row.class);
+
+            getJob().setInputFormatClass(TextInputFormat.class);
+            getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
+
+            String inputPathString = composeInputPathString(new Path(source.getRowsPath()));
+            log.info("Composed input path "+inputPathString);
+            FileInputFormat.addInputPaths(getJob(), inputPathString);
+            FileOutputFormat.setOutputPath(getJob(), rowsPath);
+
+            getJob().setJarByClass(Job.class);
+
+            if (!getJob().waitForCompletion(true)) {
+                throw new InterruptedException("Import job failed processing " + new Path(source.getRowsPath()).toUri().getPath()
+                        + " output: " + rowsPath.toUri().getPath());
+            }
+
+            cleanOutput(rowsPath);
+
+            output = new Table(source.getHeader().clone(), rowsPath.toUri().getPath());
+            output.setConfiguration(getConf());
+            output.setTablePath(outputPath.toUri().getPath());
+            output.save();
+
+            statistics = collectStatistics();
+
+        } catch (IOException e) {
+            log.error("Error running job", e);
+        } catch (InterruptedException e) {
+            log.error("Error running job", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Error running job", e);
+        }
+    }
+
+    /**
+     * Table statistics from the files the mappers left next to their
+     * parts, the files are deleted. Null if a part has no statistics.
+     */
+    protected TableStatistics collectStatistics() throws IOException {
+        ArrayList<FileStatistics> files = new ArrayList<FileStatistics>();
+        boolean complete = true;
+        for (FileStatus status : getFs().listStatus(rowsPath)) {
+            String name = status.getPath().getName();
+            if (!name.startsWith(STATS_FILE_PREFIX)) {
+                continue;
+            }
+
+            Path part = new Path(rowsPath, "part-" + name.substring(STATS_FILE_PREFIX.length()));
+            if (getFs().exists(part)) {
+                FileStatistics file = new FileStatistics();
+                FSDataInputStream in = getFs().open(status.getPath());
+                try {
+                    file.readFields(in);
+                } finally {
+                    in.close();
+                }
+                file.setStatus(getFs().getFileStatus(part));
+                files.add(file);
+            } else {
+                complete = false;
+            }
+            getFs().delete(status.getPath(), false);
+        }
+
+        TableStatistics collected = TableStatistics.fromFiles(output.getHeader(), files);
+        if (!complete || !collected.isCurrent(rowsPath.toUri().getPath(), getConf())) {
+            log.info("Missing statistics for some parts of " + rowsPath.toUri().getPath());
+            return null;
+        }
+        return collected;
+    }
+
+    // statistics of the imported table, null if they could not be computed by the mappers
+    public TableStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public Path getOutputFile() {
+        return outputPath;
+    }
+
+    @Override
+    public Object getOutput() {
+        return output;
+    }
+
+    public int run(String[] strings) throws Exception {
+        run();
+        return 0;
+    }
+}
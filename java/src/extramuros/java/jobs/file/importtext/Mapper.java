@@ -0,0 +1,95 @@
+package extramuros.java.jobs.file.importtext;
+
+import extramuros.java.formats.FileStatistics;
+import extramuros.java.formats.NumericColumnReader;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.TableHeader;
+import extramuros.java.formats.adapters.TextFileTableAdapter;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 17/10/2026
+ * Time: 15:10
+ *
+ * Parses the lines of a text file with the adapter describing it and
+ * writes them as rows. The first lines of the file are skipped by the
+ * mapper reading the split that starts at offset 0.
+ * The statistics of the columns of the rows written are computed on the
+ * way and left in a side file next to the part file, see Job.
+ */
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<LongWritable, Text, LongWritable, Row> {
+
+    protected TextFileTableAdapter adapter;
+    protected int toSkip;
+    protected NumericColumnReader[] readers;
+    protected FileStatistics statistics;
+
+    private static final Logger log = LoggerFactory.getLogger(Mapper.class);
+
+    protected void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+        if(toSkip > 0) {
+            toSkip--;
+            return;
+        }
+        if(value.getLength() == 0) {
+            return;
+        }
+
+        Row row = adapter.map(key, value);
+        if(row != null) {
+            Row output = row.toRow();
+            context.write(key, output);
+            statistics.add(output, readers);
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        Path statsFile = new Path(FileOutputFormat.getWorkOutputPath(context),
+                String.format("%sm-%05d", Job.STATS_FILE_PREFIX, context.getTaskAttemptID().getTaskID().getId()));
+        FSDataOutputStream out = statsFile.getFileSystem(context.getConfiguration()).create(statsFile, true);
+        try {
+            statistics.write(out);
+        } finally {
+            out.close();
+        }
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        // table info
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        log.info("Reading mapper from " + tablePath);
+        try {
+            adapter = (TextFileTableAdapter) TableUtils.readAbstractTable(tablePath, config);
+            TableHeader header = adapter.getHeader();
+            String[] columns = header.getColumnNames().toArray(new String[header.getColumnNames().size()]);
+            readers = NumericColumnReader.forColumns(header, columns);
+            statistics = new FileStatistics(columns.length);
+        } catch (Exception e) {
+            log.error("Error reading text table adapter in mapper ", e);
+        }
+
+        toSkip = 0;
+        if(((FileSplit) context.getInputSplit()).getStart() == 0) {
+            toSkip = config.getInt(JobKeys.SKIP_LINES, 0);
+        }
+    }
+}
@@ -8,7 +8,6 @@ import extramuros.java.jobs.utils.JobKeys;
 import extramuros.java.jobs.utils.TableUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Writable;
 import org.slf4j.Logger;
@@ -29,6 +28,7 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable,Writable
     protected Double samplingProbability;
     protected AbstractTable table;
     protected String hash;
+    protected Uniform uniform;
 
     private static final Logger log = LoggerFactory.getLogger(Mapper.class);
 
@@ -44,11 +44,8 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable,Writable
             row = (Row) value;
         }
 
-        Uniform uniform = new Uniform(0,1,(int)new Date().getTime());
         if(uniform.nextDoubleFromTo(0, 1) < samplingProbability) {
-            log.info("WRITING OUTPUT KEY:" + new IntWritable(row.getId()));
-            log.info("WRITING OUTPUT VALUE: " + row);
-            context.write(new LongWritable(row.getId()),row);
+            context.write(new LongWritable(row.getId()),row.toRow());
         }
     }
 
@@ -62,6 +59,8 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable,Writable
 
         // probability
         samplingProbability = Double.parseDouble(config.get(JobKeys.PROBABILITY));
+        // one generator per task, tasks started at the same time get different seeds
+        uniform = new Uniform(0,1,(int)new Date().getTime() + 31 * context.getTaskAttemptID().getTaskID().getId());
 
         // table info
         Path tablePath = new Path(config.get(JobKeys.PATH));
@@ -0,0 +1,150 @@
+package extramuros.java.jobs.file.reservoirsample;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.Table;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.ExtramurosJob;
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 23:05
+ *
+ * Samples exactly sampleSize rows of a table, or all of them if the table
+ * is smaller, in a single pass without counting the rows first. Every
+ * mapper keeps a reservoir of sampleSize rows and the single reducer takes
+ * the sampleSize rows with the smallest keys of all the reservoirs. With a
+ * weight column the probability of a row being sampled is proportional to
+ * its weight, rows with a null or non positive weight are never sampled.
+ */
+public class Job extends ExtramurosJob {
+
+    protected Path outputPath;
+    protected AbstractTable table;
+    protected Path outputFile;
+    protected int sampleSize;
+    protected String weightColumn;
+    protected long seed;
+
+    private static final Logger log = LoggerFactory.getLogger(Job.class);
+
+
+    public Job(String outputPath, int sampleSize, String weightColumn, AbstractTable table, Configuration configuration) throws IOException {
+        super(configuration);
+        this.sampleSize = sampleSize;
+        this.weightColumn = weightColumn;
+        this.seed = (new Date()).getTime();
+        this.table = table;
+        this.outputPath = new Path(outputPath);
+        this.outputFile = this.outputPath.suffix("/rows.rows");
+    }
+
+    public Job(String outputPath, int sampleSize, AbstractTable table, Configuration configuration) throws IOException {
+        this(outputPath, sampleSize, null, table, configuration);
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+
+            getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
+
+            // prepare Hadoop job
+            setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "reservoir sample job"));
+
+            getJob().setJobName("reservoir_sample_job");
+            getJob().getConfiguration().setInt(JobKeys.SAMPLE_SIZE, sampleSize);
+            getJob().getConfiguration().setLong(JobKeys.SAMPLE_SEED, seed);
+            if (weightColumn != null) {
+                getJob().getConfiguration().set(JobKeys.WEIGHT_COLUMN, weightColumn);
+            }
+
+            getJob().setMapperClass(Mapper.class);
+            getJob().setReducerClass(Reducer.class);
+            getJob().setNumReduceTasks(1);
+
+            getJob().setMapOutputKeyClass(DoubleWritable.class);
+            getJob().setMapOutputValueClass(Row.class);
+
+            getJob().setOutputKeyClass(LongWritable.class);
+            getJob().setOutputValueClass(Row.class);
+
+            if (table.isAdapter()) {
+                getJob().setInputFormatClass(((AbstractTableAdapter<Writable, Writable>) table).inputFormat());
+            } else {
+                getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
+            }
+            getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
+
+            String inputPathString = composeInputPathString(new Path(table.getRowsPath()));
+            log.info("Composed input path " + inputPathString);
+            FileInputFormat.addInputPaths(getJob(), inputPathString);
+            FileOutputFormat.setOutputPath(getJob(), outputPath);
+
+            getJob().setJarByClass(Job.class);
+
+            if (!getJob().waitForCompletion(true)) {
+                throw new InterruptedException("Reservoir sample job failed processing " + new Path(table.getRowsPath()).toUri().getPath()
+                        + " output: " + outputPath.toUri().getPath());
+            }
+
+            cleanOutput(outputPath);
+
+            // output of the single reducer
+            getFs().rename(new Path(outputPath, "part-r-00000"), outputFile);
+
+        } catch (IOException e) {
+            log.error("Error running job", e);
+        } catch (InterruptedException e) {
+            log.error("Error running job", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Error running job", e);
+        }
+    }
+
+    @Override
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    @Override
+    public Object getOutput() {
+        Table outputTable = new Table(table.getHeader(), outputFile.toUri().getPath());
+        outputTable.setConfiguration(getConf());
+        return outputTable;
+    }
+
+    // Fields
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int run(String[] strings) throws Exception {
+        run();
+        return 0;
+    }
+}
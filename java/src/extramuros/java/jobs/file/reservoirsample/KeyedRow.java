@@ -0,0 +1,51 @@
+package extramuros.java.jobs.file.reservoirsample;
+
+import extramuros.java.formats.Row;
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 23:30
+ *
+ * A row of a reservoir together with its random sampling key.
+ */
+public class KeyedRow implements Writable {
+
+    private double key;
+    private Row row;
+
+    public KeyedRow() {
+        this.row = new Row();
+    }
+
+    public KeyedRow(double key, Row row) {
+        this.key = key;
+        this.row = row;
+    }
+
+    public void write(DataOutput dataOutput) throws IOException {
+        dataOutput.writeDouble(key);
+        row.write(dataOutput);
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        key = dataInput.readDouble();
+        row = new Row();
+        row.readFields(dataInput);
+    }
+
+    // Fields
+
+    public double getKey() {
+        return key;
+    }
+
+    public Row getRow() {
+        return row;
+    }
+}
@@ -0,0 +1,105 @@
+package extramuros.java.jobs.file.reservoirsample;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.Writable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 22:40
+ *
+ * Keeps a reservoir with the sampleSize rows of the split with the
+ * smallest random keys and writes them in cleanup(). The key of a row is
+ * an exponential variate -log(u) / weight (Efraimidis-Spirakis), weight is
+ * 1 or the value of the weight column, so the rows with the smallest keys
+ * of the whole table are a weighted sample without replacement of the
+ * table. Without weight column the key is drawn before the row is read and
+ * rows that do not enter the reservoir are never decoded.
+ *
+ * There is one random generator per task, seeded with the seed of the job
+ * and the number of the task.
+ */
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, DoubleWritable, Row> {
+
+    protected AbstractTable table;
+    protected int sampleSize;
+    protected NumericColumnReader weightReader;
+    protected Random random;
+    protected Reservoir reservoir;
+
+    private static final Logger log = LoggerFactory.getLogger(Mapper.class);
+
+    protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
+        double sampleKey = -Math.log(1 - random.nextDouble());
+        if (weightReader == null && !reservoir.accepts(sampleKey)) {
+            return;
+        }
+
+        Row row = null;
+        if (table.isAdapter()) {
+            // adapt input
+            row = ((AbstractTableAdapter<Writable, Writable>) table).map(key, value);
+
+        } else {
+            // force conversion
+            row = (Row) value;
+        }
+
+        if (weightReader != null) {
+            double weight = weightReader.readDouble(row);
+            if (!weightReader.isValid() || weight <= 0) {
+                return;
+            }
+            sampleKey = sampleKey / weight;
+        }
+
+        reservoir.add(sampleKey, row);
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        for (KeyedRow keyedRow : reservoir) {
+            context.write(new DoubleWritable(keyedRow.getKey()), keyedRow.getRow());
+        }
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        sampleSize = config.getInt(JobKeys.SAMPLE_SIZE, 0);
+        random = new Random(config.getLong(JobKeys.SAMPLE_SEED, 0) * 31 + context.getTaskAttemptID().getTaskID().getId());
+        reservoir = new Reservoir(sampleSize);
+
+        // table info
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        log.info("Reading mapper from " + tablePath);
+        try {
+            table = TableUtils.readAbstractTable(tablePath, config);
+            String weightColumn = config.get(JobKeys.WEIGHT_COLUMN);
+            if (weightColumn != null) {
+                weightReader = NumericColumnReader.forColumn(table.getHeader(), weightColumn);
+                if (!weightReader.isSupported()) {
+                    log.error("Weight column " + weightColumn + " is not numeric");
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package extramuros.java.jobs.file.reservoirsample;
+
+import extramuros.java.formats.Row;
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 22:55
+ *
+ * Single reducer receiving the reservoirs of all the mappers sorted by
+ * key; the first sampleSize rows are the sample of the table.
+ */
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<DoubleWritable, Row, LongWritable, Row> {
+
+    protected int sampleSize;
+    protected int written;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        sampleSize = context.getConfiguration().getInt(JobKeys.SAMPLE_SIZE, 0);
+        written = 0;
+    }
+
+    @Override
+    protected void reduce(DoubleWritable key, Iterable<Row> rows, Context context) throws IOException, InterruptedException {
+        for (Row row : rows) {
+            if (written >= sampleSize) {
+                return;
+            }
+            context.write(new LongWritable(row.getId()), row);
+            written++;
+        }
+    }
+}
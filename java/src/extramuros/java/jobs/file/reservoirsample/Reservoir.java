@@ -0,0 +1,82 @@
+package extramuros.java.jobs.file.reservoirsample;
+
+import extramuros.java.formats.Row;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 23:30
+ *
+ * The capacity rows with the smallest sampling keys added so far, in a
+ * heap with the largest key on top. Callers check accepts() before
+ * decoding or copying a row.
+ */
+public class Reservoir implements Iterable<KeyedRow> {
+
+    private static final Comparator<KeyedRow> LARGEST_FIRST = new Comparator<KeyedRow>() {
+        public int compare(KeyedRow a, KeyedRow b) {
+            return Double.compare(b.getKey(), a.getKey());
+        }
+    };
+
+    private int capacity;
+    private PriorityQueue<KeyedRow> heap;
+
+    public Reservoir(int capacity) {
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<KeyedRow>(Math.max(capacity, 0) + 1, LARGEST_FIRST);
+    }
+
+    public boolean accepts(double key) {
+        if (heap.size() < capacity) {
+            return true;
+        }
+        return capacity > 0 && key < heap.peek().getKey();
+    }
+
+    public void add(KeyedRow keyedRow) {
+        if (!accepts(keyedRow.getKey())) {
+            return;
+        }
+        heap.add(keyedRow);
+        if (heap.size() > capacity) {
+            heap.poll();
+        }
+    }
+
+    // copy of the row, rows may be reused by record readers
+    public void add(double key, Row row) {
+        if (accepts(key)) {
+            add(new KeyedRow(key, copy(row)));
+        }
+    }
+
+    private static Row copy(Row row) {
+        return new Row(row.getId(), row.getColumnsNames(), row.getColumnsTypes(), new ArrayList<Object>(row.getValues()));
+    }
+
+    // rows sorted by increasing key
+    public ArrayList<KeyedRow> sorted() {
+        ArrayList<KeyedRow> rows = new ArrayList<KeyedRow>(heap);
+        Collections.sort(rows, Collections.reverseOrder(LARGEST_FIRST));
+        return rows;
+    }
+
+    public Iterator<KeyedRow> iterator() {
+        return heap.iterator();
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
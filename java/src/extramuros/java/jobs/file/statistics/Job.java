@@ -0,0 +1,150 @@
+package extramuros.java.jobs.file.statistics;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.FileStatistics;
+import extramuros.java.formats.PrimitiveRowInputFormat;
+import extramuros.java.formats.TableStatistics;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.ExtramurosJob;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.mahout.common.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * User: antonio
+ * Date: 20/10/2026
+ * Time: 12:40
+ *
+ * Computes the row count and the min, max and number of nulls of every
+ * column for each file of a table in a single map side pass and saves them
+ * as the TableStatistics of the table. Every mapper accumulates the
+ * statistics of its split, the combiner and the single reducer merge the
+ * splits of the same file.
+ */
+public class Job extends ExtramurosJob {
+
+    protected Path outputPath;
+    protected AbstractTable table;
+    protected TableStatistics statistics;
+
+    private static final Logger log = LoggerFactory.getLogger(Job.class);
+
+
+    public Job(Path outputPath, AbstractTable table, Configuration configuration) throws IOException {
+        super(configuration);
+        this.table = table;
+        this.outputPath = outputPath;
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+
+            FileStatus[] rowFiles = TableStatistics.rowFiles(getFs(), new Path(table.getRowsPath()));
+            Path[] files = new Path[rowFiles.length];
+            for (int i = 0; i < rowFiles.length; i++) {
+                files[i] = rowFiles[i].getPath();
+            }
+
+            getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
+
+            // prepare Hadoop job
+            setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "table statistics job"));
+
+            getJob().setJobName("table_statistics_job");
+
+            getJob().setMapperClass(Mapper.class);
+            getJob().setCombinerClass(Reducer.class);
+            getJob().setReducerClass(Reducer.class);
+            getJob().setNumReduceTasks(1);
+
+            getJob().setMapOutputKeyClass(Text.class);
+            getJob().setMapOutputValueClass(FileStatistics.class);
+
+            getJob().setOutputKeyClass(Text.class);
+            getJob().setOutputValueClass(FileStatistics.class);
+
+            if (table.isAdapter()) {
+                getJob().setInputFormatClass(((AbstractTableAdapter<Writable, Writable>) table).inputFormat());
+            } else {
+                getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
+            }
+            getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
+
+            addInputPaths(files);
+            FileOutputFormat.setOutputPath(getJob(), outputPath);
+
+            getJob().setJarByClass(Job.class);
+
+            if (!getJob().waitForCompletion(true)) {
+                throw new InterruptedException("Table statistics failed processing " + new Path(table.getRowsPath()).toUri().getPath()
+                        + " output: " + outputPath.toUri().getPath());
+            }
+
+            cleanOutput(outputPath);
+
+            HashMap<String, FileStatistics> byPath = new HashMap<String, FileStatistics>(rowFiles.length);
+            Iterator<Pair<Writable, Writable>> pairs = TableUtils.directorySeqIterator(outputPath, getConf());
+            while (pairs.hasNext()) {
+                Pair<Writable, Writable> pair = pairs.next();
+                byPath.put(pair.getFirst().toString(), (FileStatistics) pair.getSecond());
+            }
+            getFs().delete(outputPath, true);
+
+            // files without splits have no rows
+            int numColumns = table.getHeader().getColumnNames().size();
+            ArrayList<FileStatistics> fileStatistics = new ArrayList<FileStatistics>(rowFiles.length);
+            for (FileStatus status : rowFiles) {
+                FileStatistics file = byPath.get(status.getPath().toUri().getPath());
+                if (file == null) {
+                    file = new FileStatistics(numColumns);
+                }
+                file.setStatus(status);
+                fileStatistics.add(file);
+            }
+
+            statistics = TableStatistics.fromFiles(table.getHeader(), fileStatistics);
+            statistics.save(table, getConf());
+
+        } catch (IOException e) {
+            log.error("Error running job", e);
+        } catch (InterruptedException e) {
+            log.error("Error running job", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Error running job", e);
+        }
+    }
+
+    @Override
+    public Path getOutputFile() {
+        return TableStatistics.pathFor(table);
+    }
+
+    // statistics computed by the job, null if it has not run or failed
+    @Override
+    public Object getOutput() {
+        return statistics;
+    }
+
+    public int run(String[] strings) throws Exception {
+        run();
+        return 0;
+    }
+}
@@ -0,0 +1,77 @@
+package extramuros.java.jobs.file.statistics;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.FileStatistics;
+import extramuros.java.formats.NumericColumnReader;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 20/10/2026
+ * Time: 12:10
+ *
+ * Accumulates the row count and the statistics of every column for the
+ * rows of the split and writes them once in cleanup(), keyed by the path
+ * of the file the split belongs to.
+ */
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Text, FileStatistics> {
+
+    protected AbstractTable table;
+    protected NumericColumnReader[] readers;
+    protected FileStatistics statistics;
+    protected String filePath;
+
+    private static final Logger log = LoggerFactory.getLogger(Mapper.class);
+
+    protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
+        Row row = null;
+        if (table.isAdapter()) {
+            // adapt input
+            row = ((AbstractTableAdapter<Writable, Writable>) table).map(key, value);
+
+        } else {
+            // force conversion
+            row = (Row) value;
+        }
+
+        statistics.add(row, readers);
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        context.write(new Text(filePath), statistics);
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        filePath = ((FileSplit) context.getInputSplit()).getPath().toUri().getPath();
+
+        // table info
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        log.info("Reading mapper from " + tablePath);
+        try {
+            table = TableUtils.readAbstractTable(tablePath, config);
+            String[] columns = table.getHeader().getColumnNames().toArray(new String[table.getHeader().getColumnNames().size()]);
+            readers = NumericColumnReader.forColumns(table.getHeader(), columns);
+            statistics = new FileStatistics(columns.length);
+        } catch (Exception e) {
+            log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package extramuros.java.jobs.file.statistics;
+
+import extramuros.java.formats.FileStatistics;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 20/10/2026
+ * Time: 12:25
+ *
+ * Merges the statistics of the splits of every file, also used as the
+ * combiner.
+ */
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Text, FileStatistics, Text, FileStatistics> {
+
+    private static final Logger log = LoggerFactory.getLogger(Reducer.class);
+
+    @Override
+    protected void reduce(Text filePath, Iterable<FileStatistics> values, Context context) {
+        FileStatistics merged = null;
+
+        // the values are reused by the iterator, they are merged into a new object
+        for (FileStatistics value : values) {
+            if (merged == null) {
+                merged = new FileStatistics(value.getNumColumns());
+            }
+            merged.merge(value);
+        }
+
+        try {
+            context.write(filePath, merged);
+        } catch (IOException e) {
+            log.error("Error reducing statistics for file " + filePath.toString(), e);
+        } catch (InterruptedException e) {
+            log.error("Error reducing statistics for file " + filePath.toString(), e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package extramuros.java.jobs.file.stratifiedsample;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.Table;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.ExtramurosJob;
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+
+/**
+ * User: antonio
+ * Date: 19/10/2026
+ * Time: 00:15
+ *
+ * Stratified sample of a table by the values of a (categorical) column in
+ * a single pass. Every mapper keeps a reservoir per stratum and the single
+ * reducer merges them and writes the rows allocated to every stratum:
+ *  - with quotas, quota rows of every stratum (sampleSize for the strata
+ *    without quota), all the rows of the smaller strata.
+ *  - without quotas, sampleSize rows allocated in proportion to the sizes
+ *    of the strata, at least minimum rows per stratum. The counts of the
+ *    strata travel with the reservoirs and the reducer picks the
+ *    allocation, so the table is read once, but every task may keep up to
+ *    max(sampleSize, minimum) rows per stratum (see Strata.capacity).
+ * Rows are chosen uniformly at random inside every stratum.
+ */
+public class Job extends ExtramurosJob {
+
+    protected Path outputPath;
+    protected AbstractTable table;
+    protected Path outputFile;
+    protected String stratumColumn;
+    protected Strata strata;
+    protected long seed;
+
+    private static final Logger log = LoggerFactory.getLogger(Job.class);
+
+
+    public Job(String outputPath, String stratumColumn, HashMap<String, Integer> quotas, int defaultQuota, AbstractTable table, Configuration configuration) throws IOException {
+        this(outputPath, stratumColumn, new Strata(quotas, defaultQuota, 0), table, configuration);
+    }
+
+    public Job(String outputPath, String stratumColumn, int sampleSize, int minimum, AbstractTable table, Configuration configuration) throws IOException {
+        this(outputPath, stratumColumn, new Strata(null, sampleSize, minimum), table, configuration);
+    }
+
+    protected Job(String outputPath, String stratumColumn, Strata strata, AbstractTable table, Configuration configuration) throws IOException {
+        super(configuration);
+        this.stratumColumn = stratumColumn;
+        this.strata = strata;
+        this.seed = (new Date()).getTime();
+        this.table = table;
+        this.outputPath = new Path(outputPath);
+        this.outputFile = this.outputPath.suffix("/rows.rows");
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+
+            getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
+
+            // prepare Hadoop job
+            setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "stratified sample job"));
+
+            getJob().setJobName("stratified_sample_job");
+            getJob().getConfiguration().set(JobKeys.STRATUM_COLUMN, stratumColumn);
+            getJob().getConfiguration().setLong(JobKeys.SAMPLE_SEED, seed);
+            strata.toConfiguration(getJob().getConfiguration());
+
+            getJob().setMapperClass(Mapper.class);
+            getJob().setReducerClass(Reducer.class);
+            getJob().setNumReduceTasks(1);
+
+            // strata of a column with a dictionary are grouped by code
+            getJob().setMapOutputKeyClass(table.getHeader().getDictionary(stratumColumn) != null ? IntWritable.class : Text.class);
+            getJob().setMapOutputValueClass(StratumReservoir.class);
+
+            getJob().setOutputKeyClass(LongWritable.class);
+            getJob().setOutputValueClass(Row.class);
+
+            if (table.isAdapter()) {
+                getJob().setInputFormatClass(((AbstractTableAdapter<Writable, Writable>) table).inputFormat());
+            } else {
+                getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
+            }
+            getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
+
+            String inputPathString = composeInputPathString(new Path(table.getRowsPath()));
+            log.info("Composed input path " + inputPathString);
+            FileInputFormat.addInputPaths(getJob(), inputPathString);
+            FileOutputFormat.setOutputPath(getJob(), outputPath);
+
+            getJob().setJarByClass(Job.class);
+
+            if (!getJob().waitForCompletion(true)) {
+                throw new InterruptedException("Stratified sample job failed processing " + new Path(table.getRowsPath()).toUri().getPath()
+                        + " output: " + outputPath.toUri().getPath());
+            }
+
+            cleanOutput(outputPath);
+
+            // output of the single reducer
+            getFs().rename(new Path(outputPath, "part-r-00000"), outputFile);
+
+        } catch (IOException e) {
+            log.error("Error running job", e);
+        } catch (InterruptedException e) {
+            log.error("Error running job", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Error running job", e);
+        }
+    }
+
+    @Override
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    @Override
+    public Object getOutput() {
+        Table outputTable = new Table(table.getHeader(), outputFile.toUri().getPath());
+        outputTable.setConfiguration(getConf());
+        return outputTable;
+    }
+
+    // Fields
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int run(String[] strings) throws Exception {
+        run();
+        return 0;
+    }
+}
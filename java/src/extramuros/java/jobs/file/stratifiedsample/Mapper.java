@@ -0,0 +1,139 @@
+package extramuros.java.jobs.file.stratifiedsample;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.DictionaryColumnReader;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 23:55
+ *
+ * Keeps a reservoir per value of the stratum column with the rows of the
+ * split with the smallest random keys, as many as the stratum may need,
+ * and counts the rows of every stratum. Writes one pair stratum/reservoir
+ * per stratum in cleanup(). Rows with a null stratum are not sampled.
+ *
+ * If the column has a dictionary the reservoirs are kept by code and
+ * written with IntWritable keys, the reducer decodes them. Values missing
+ * in the dictionary are not sampled.
+ */
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Writable, StratumReservoir> {
+
+    protected AbstractTable table;
+    protected int position;
+    protected Strata strata;
+    protected Random random;
+    protected HashMap<String, StratumReservoir> reservoirs;
+    protected DictionaryColumnReader reader;
+    protected StratumReservoir[] codeReservoirs;
+    protected long missing;
+
+    private static final Logger log = LoggerFactory.getLogger(Mapper.class);
+
+    protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
+        Row row = null;
+        if (table.isAdapter()) {
+            // adapt input
+            row = ((AbstractTableAdapter<Writable, Writable>) table).map(key, value);
+
+        } else {
+            // force conversion
+            row = (Row) value;
+        }
+
+        if (position == -1 || row.isNullAt(position)) {
+            return;
+        }
+
+        StratumReservoir reservoir;
+        if (reader.isSupported()) {
+            int code = reader.readCode(row);
+            if (!reader.isValid()) {
+                missing++;
+                return;
+            }
+            if (code >= codeReservoirs.length) {
+                codeReservoirs = Arrays.copyOf(codeReservoirs, Math.max(code + 1, 2 * codeReservoirs.length));
+            }
+            reservoir = codeReservoirs[code];
+            if (reservoir == null) {
+                // quotas are given by value, the dictionary is decoded once per stratum
+                reservoir = new StratumReservoir(strata.capacity(reader.valueFor(code)));
+                codeReservoirs[code] = reservoir;
+            }
+        } else {
+            String stratum = row.getValue(position).toString();
+            reservoir = reservoirs.get(stratum);
+            if (reservoir == null) {
+                reservoir = new StratumReservoir(strata.capacity(stratum));
+                reservoirs.put(stratum, reservoir);
+            }
+        }
+
+        double sampleKey = -Math.log(1 - random.nextDouble());
+        if (reservoir.accepts(sampleKey)) {
+            reservoir.add(sampleKey, row);
+        } else {
+            reservoir.skip();
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        for (Map.Entry<String, StratumReservoir> entry : reservoirs.entrySet()) {
+            context.write(new Text(entry.getKey()), entry.getValue());
+        }
+        for (int code = 0; code < codeReservoirs.length; code++) {
+            if (codeReservoirs[code] != null) {
+                context.write(new IntWritable(code), codeReservoirs[code]);
+            }
+        }
+        if (missing > 0) {
+            log.error(missing + " rows not sampled, their stratum is not in the dictionary");
+        }
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        strata = Strata.fromConfiguration(config);
+        random = new Random(config.getLong(JobKeys.SAMPLE_SEED, 0) * 31 + context.getTaskAttemptID().getTaskID().getId());
+        reservoirs = new HashMap<String, StratumReservoir>();
+        codeReservoirs = new StratumReservoir[0];
+
+        // table info
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        log.info("Reading mapper from " + tablePath);
+        try {
+            table = TableUtils.readAbstractTable(tablePath, config);
+            String column = config.get(JobKeys.STRATUM_COLUMN);
+            position = table.getHeader().positionFor(column);
+            reader = DictionaryColumnReader.forColumn(table.getHeader(), column);
+            if (position == -1) {
+                log.error("Column " + column + " not found");
+            }
+        } catch (Exception e) {
+            log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
+        }
+    }
+}
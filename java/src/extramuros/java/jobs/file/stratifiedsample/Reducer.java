@@ -0,0 +1,86 @@
+package extramuros.java.jobs.file.stratifiedsample;
+
+import extramuros.java.formats.Row;
+import extramuros.java.formats.DictionaryColumnReader;
+import extramuros.java.jobs.file.reservoirsample.KeyedRow;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * User: antonio
+ * Date: 19/10/2026
+ * Time: 00:05
+ *
+ * Single reducer merging the reservoirs of every stratum. The allocation
+ * of proportional samples depends on the sizes of all the strata, so the
+ * rows are written in cleanup(), stratum by stratum, once all the strata
+ * have been merged. Strata keyed by their dictionary code (IntWritable)
+ * are decoded here.
+ */
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Writable, StratumReservoir, LongWritable, Row> {
+
+    protected Strata strata;
+    protected HashMap<String, StratumReservoir> reservoirs;
+    protected DictionaryColumnReader reader;
+
+    private static final Logger log = LoggerFactory.getLogger(Reducer.class);
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+        strata = Strata.fromConfiguration(config);
+        reservoirs = new HashMap<String, StratumReservoir>();
+
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        try {
+            reader = DictionaryColumnReader.forColumn(TableUtils.readAbstractTable(tablePath, config).getHeader(),
+                    config.get(JobKeys.STRATUM_COLUMN));
+        } catch (Exception e) {
+            log.error("Error reading extramuros.java.visualization.Table in reducer ", e);
+        }
+    }
+
+    @Override
+    protected void reduce(Writable key, Iterable<StratumReservoir> values, Context context) throws IOException, InterruptedException {
+        String stratum = (key instanceof IntWritable) ? reader.valueFor(((IntWritable) key).get()) : key.toString();
+        StratumReservoir merged = new StratumReservoir(strata.capacity(stratum));
+        for (StratumReservoir value : values) {
+            merged.merge(value);
+        }
+        reservoirs.put(stratum, merged);
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        HashMap<String, Long> counts = new HashMap<String, Long>(reservoirs.size() * 2);
+        for (String stratum : reservoirs.keySet()) {
+            counts.put(stratum, reservoirs.get(stratum).getCount());
+        }
+        HashMap<String, Integer> allocation = strata.allocate(counts);
+
+        ArrayList<String> sortedStrata = new ArrayList<String>(reservoirs.keySet());
+        Collections.sort(sortedStrata);
+        for (String stratum : sortedStrata) {
+            ArrayList<KeyedRow> rows = reservoirs.get(stratum).sorted();
+            int size = Math.min(allocation.get(stratum), rows.size());
+            for (int i = 0; i < size; i++) {
+                Row row = rows.get(i).getRow();
+                context.write(new LongWritable(row.getId()), row);
+            }
+        }
+        super.cleanup(context);
+    }
+}
@@ -0,0 +1,163 @@
+package extramuros.java.jobs.file.stratifiedsample;
+
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.conf.Configuration;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 23:50
+ *
+ * Number of rows to sample from every stratum. With quotas every stratum
+ * has a fixed number of rows, sampleSize for the strata without quota.
+ * Without quotas sampleSize rows are allocated to the strata in proportion
+ * to their sizes (largest remainder method), every stratum getting at
+ * least minimum rows if it has them.
+ */
+public class Strata {
+
+    private HashMap<String, Integer> quotas;
+    private int sampleSize;
+    private int minimum;
+
+    public Strata(HashMap<String, Integer> quotas, int sampleSize, int minimum) {
+        this.quotas = quotas;
+        this.sampleSize = sampleSize;
+        this.minimum = minimum;
+    }
+
+    public static Strata fromConfiguration(Configuration config) {
+        HashMap<String, Integer> quotas = null;
+        String encoded = config.get(JobKeys.STRATA_QUOTAS);
+        if (encoded != null) {
+            quotas = new HashMap<String, Integer>();
+            for (String pair : encoded.split(",")) {
+                int separator = pair.lastIndexOf('=');
+                if (separator > 0) {
+                    quotas.put(decode(pair.substring(0, separator)), Integer.parseInt(pair.substring(separator + 1)));
+                }
+            }
+        }
+        return new Strata(quotas, config.getInt(JobKeys.SAMPLE_SIZE, 0), config.getInt(JobKeys.STRATA_MINIMUM, 0));
+    }
+
+    public void toConfiguration(Configuration config) {
+        if (quotas != null) {
+            StringBuilder encoded = new StringBuilder();
+            for (Map.Entry<String, Integer> quota : quotas.entrySet()) {
+                if (encoded.length() > 0) {
+                    encoded.append(",");
+                }
+                encoded.append(encode(quota.getKey())).append("=").append(quota.getValue());
+            }
+            config.set(JobKeys.STRATA_QUOTAS, encoded.toString());
+        }
+        config.setInt(JobKeys.SAMPLE_SIZE, sampleSize);
+        config.setInt(JobKeys.STRATA_MINIMUM, minimum);
+    }
+
+    // values of the column may contain the separators
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public boolean isProportional() {
+        return quotas == null;
+    }
+
+    /**
+     * Rows of the stratum that may end up in the sample. Without quotas the
+     * share of a stratum is only known in the reducer, once every stratum
+     * has been counted, so any stratum could take max(sampleSize, minimum)
+     * rows: a task keeps at most that many rows per stratum, or all the
+     * rows of its split if there are fewer.
+     */
+    public int capacity(String stratum) {
+        if (isProportional()) {
+            return Math.max(sampleSize, minimum);
+        }
+        Integer quota = quotas.get(stratum);
+        return (quota == null) ? sampleSize : quota;
+    }
+
+    /**
+     * Rows sampled from every stratum given the number of rows of the
+     * strata.
+     */
+    public HashMap<String, Integer> allocate(HashMap<String, Long> counts) {
+        HashMap<String, Integer> allocation = new HashMap<String, Integer>(counts.size() * 2);
+        if (!isProportional()) {
+            for (Map.Entry<String, Long> count : counts.entrySet()) {
+                allocation.put(count.getKey(), (int) Math.min(capacity(count.getKey()), count.getValue()));
+            }
+            return allocation;
+        }
+
+        // minimum rows per stratum
+        long remaining = sampleSize;
+        long rest = 0;
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+            int rows = (int) Math.min(minimum, count.getValue());
+            allocation.put(count.getKey(), rows);
+            remaining -= rows;
+            rest += count.getValue() - rows;
+        }
+        if (remaining <= 0 || rest == 0) {
+            return allocation;
+        }
+        if (remaining >= rest) {
+            // the whole table
+            for (Map.Entry<String, Long> count : counts.entrySet()) {
+                allocation.put(count.getKey(), (int) (long) count.getValue());
+            }
+            return allocation;
+        }
+
+        // proportional share of the remaining rows, leftovers to the largest fractions
+        final HashMap<String, Double> fractions = new HashMap<String, Double>(counts.size() * 2);
+        long assigned = 0;
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+            double share = (double) remaining * (count.getValue() - allocation.get(count.getKey())) / rest;
+            int rows = (int) Math.floor(share);
+            allocation.put(count.getKey(), allocation.get(count.getKey()) + rows);
+            fractions.put(count.getKey(), share - rows);
+            assigned += rows;
+        }
+        ArrayList<String> strata = new ArrayList<String>(counts.keySet());
+        Collections.sort(strata, new Comparator<String>() {
+            public int compare(String a, String b) {
+                int byFraction = Double.compare(fractions.get(b), fractions.get(a));
+                return (byFraction != 0) ? byFraction : a.compareTo(b);
+            }
+        });
+        for (int i = 0; assigned < remaining && i < strata.size(); i++) {
+            String stratum = strata.get(i);
+            if (allocation.get(stratum) < counts.get(stratum)) {
+                allocation.put(stratum, allocation.get(stratum) + 1);
+                assigned++;
+            }
+        }
+        return allocation;
+    }
+}
@@ -0,0 +1,89 @@
+package extramuros.java.jobs.file.stratifiedsample;
+
+import extramuros.java.formats.Row;
+import extramuros.java.jobs.file.reservoirsample.KeyedRow;
+import extramuros.java.jobs.file.reservoirsample.Reservoir;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 23:45
+ *
+ * Reservoir of the rows of a stratum together with the number of rows of
+ * the stratum seen, so reservoirs of different splits can be merged and
+ * the strata sizes are known for proportional allocation.
+ */
+public class StratumReservoir implements Writable {
+
+    private long count;
+    private Reservoir reservoir;
+
+    public StratumReservoir() {
+        this(0);
+    }
+
+    public StratumReservoir(int capacity) {
+        this.reservoir = new Reservoir(capacity);
+    }
+
+    public boolean accepts(double key) {
+        return reservoir.accepts(key);
+    }
+
+    public void add(double key, Row row) {
+        count++;
+        reservoir.add(key, row);
+    }
+
+    // a row not sampled still counts for the size of the stratum
+    public void skip() {
+        count++;
+    }
+
+    public void merge(StratumReservoir other) {
+        count += other.count;
+        for (KeyedRow keyedRow : other.reservoir) {
+            reservoir.add(keyedRow);
+        }
+    }
+
+    // serialization
+
+    public void write(DataOutput dataOutput) throws IOException {
+        WritableUtils.writeVLong(dataOutput, count);
+        WritableUtils.writeVInt(dataOutput, reservoir.getCapacity());
+        WritableUtils.writeVInt(dataOutput, reservoir.size());
+        for (KeyedRow keyedRow : reservoir) {
+            keyedRow.write(dataOutput);
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        count = WritableUtils.readVLong(dataInput);
+        reservoir = new Reservoir(WritableUtils.readVInt(dataInput));
+        int size = WritableUtils.readVInt(dataInput);
+        for (int i = 0; i < size; i++) {
+            KeyedRow keyedRow = new KeyedRow();
+            keyedRow.readFields(dataInput);
+            reservoir.add(keyedRow);
+        }
+    }
+
+    // Fields
+
+    public long getCount() {
+        return count;
+    }
+
+    // sampled rows sorted by increasing key
+    public ArrayList<KeyedRow> sorted() {
+        return reservoir.sorted();
+    }
+}
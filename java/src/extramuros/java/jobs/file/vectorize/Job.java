@@ -1,6 +1,7 @@
 package extramuros.java.jobs.file.vectorize;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
 import extramuros.java.formats.RowTypes;
 import extramuros.java.formats.TableHeader;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
@@ -9,11 +10,10 @@ import extramuros.java.jobs.utils.ExtramurosJob;
 import extramuros.java.jobs.utils.JobKeys;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.mahout.math.Vector;
@@ -66,21 +66,23 @@ public class Job extends ExtramurosJob {
             setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "vectorize job. "));
 
             getJob().setJobName("vectorize_job");
+            // only the needed columns are decoded by columnar tables
+            getJob().getConfiguration().set(JobKeys.PROJECTION, columnsBuilder.toString());
 
             getJob().setMapperClass(Mapper.class);
             getJob().setNumReduceTasks(0);
 
-            getJob().setMapOutputKeyClass(IntWritable.class);
+            getJob().setMapOutputKeyClass(LongWritable.class);
             getJob().setMapOutputValueClass(VectorWritable.class);
 
-            getJob().setOutputKeyClass(IntWritable.class);
+            getJob().setOutputKeyClass(LongWritable.class);
             getJob().setOutputValueClass(VectorWritable.class);
 
 
             if(table.isAdapter()) {
                 getJob().setInputFormatClass(((AbstractTableAdapter<Writable,Writable>)table).inputFormat());
             } else {
-                getJob().setInputFormatClass(SequenceFileInputFormat.class);
+                getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
             }
             getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
 
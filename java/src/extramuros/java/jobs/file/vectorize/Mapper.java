@@ -2,8 +2,8 @@ package extramuros.java.jobs.file.vectorize;
 
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
 import extramuros.java.formats.Row;
-import extramuros.java.formats.RowTypes;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.jobs.utils.JobKeys;
 import extramuros.java.jobs.utils.TableUtils;
@@ -23,11 +23,15 @@ import java.util.UUID;
  * Date: 01/06/2011
  * Time: 15:59
  */
-public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, IntWritable, VectorWritable> {
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, LongWritable, VectorWritable> {
 
     protected AbstractTable table;
     protected String[] columns;
     protected Class<? extends Vector> vectorClass;
+    protected Constructor<? extends Vector> vectorConstructor;
+    protected boolean sparse;
+    protected NumericColumnReader[] readers;
+    protected double[] values;
 
     private static final Logger log = LoggerFactory.getLogger(Mapper.class);
 
@@ -43,61 +47,26 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
             row = (Row) value;
         }
 
-        try {
-            // Retrieving the values from the row
-
-            double[] values = new double[columns.length];
-            int counter = 0;
-            for (String column : columns) {
-                int position = table.getHeader().positionFor(column);
-                int type = table.getHeader().typeFor(column);
-                Double val = null;
-
-                if(row.isNullAt(position)) {
-                    throw (new Exception("Null value parsing row at column " + column));
-                }
+        // Retrieving the values from the row
 
-                if (type == RowTypes.DOUBLE) {
-                    val = (Double) row.getValues().get(position);
-                } else if (type == RowTypes.FLOAT) {
-                    val = ((Float) row.getValues().get(position)).doubleValue();
-                } else if (type == RowTypes.INTEGER) {
-                    val = ((Integer) row.getValues().get(position)).doubleValue();
-                } else if (type == RowTypes.LONG) {
-                    val = ((Long) row.getValues().get(position)).doubleValue();
-                } else if(type == RowTypes.DATE_TIME) {
-                    try {
-                        val = new Long(TableUtils.parseDateAtColumn(row, position, table).getTime()).doubleValue();
-                    } catch (Exception ex) {
-                        // format exception
-                        val = null;
-                    }
-                }
-
-                if (val != null) {
-                    values[counter] = val;
-                } else {
-                    throw (new Exception("Null value parsing row at column " + column));
-                }
-                counter++;
+        for (int i = 0; i < readers.length; i++) {
+            values[i] = readers[i].readDouble(row);
+            if (!readers[i].isValid()) {
+                log.error("Null value parsing row at column " + columns[i]);
+                return;
             }
+        }
 
-            // Building the right vector using reflection
-
-            Class[] constructorArgTypes = new Class[1];
-            constructorArgTypes[0] = Integer.TYPE;
-
-            Constructor ctr = vectorClass.getConstructor(constructorArgTypes);
-            Object[] constructorArgs = new Object[1];
-            constructorArgs[0]  = new Integer(columns.length);
+        try {
+            // Building the right vector
 
-            Vector v = (Vector) ctr.newInstance(constructorArgs);
+            Vector v = vectorConstructor.newInstance(columns.length);
 
             // Setting the values in the vector
 
             for(int i=0; i<values.length; i++){
                 double val = values[i];
-                if(vectorClass == RandomAccessSparseVector.class || vectorClass == SequentialAccessSparseVector.class) {
+                if(sparse) {
                     if(val != 0) {
                         v.set(i,val);
                     }
@@ -107,18 +76,15 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
             }
 
 
-            Integer id = TableUtils.parseWritableKeyId(key);
+            Long id = TableUtils.parseWritableKeyId(key);
             if(id == null) {
-                id = TableUtils.randomId();
+                id = (long) TableUtils.randomId();
             }
 
 
-            context.write(new IntWritable(id),new VectorWritable(v));
+            context.write(new LongWritable(id),new VectorWritable(v));
 
         } catch (Exception e) {
-            for(StackTraceElement trace : e.getStackTrace()) {
-                log.error(trace.toString());
-            }
             log.error("Error parsing row", e);
         }
     }
@@ -140,12 +106,20 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
         // vector class
         try {
             vectorClass = Class.forName(config.get(JobKeys.CLASS_NAME)).asSubclass(Vector.class);
+            vectorConstructor = vectorClass.getConstructor(Integer.TYPE);
+            sparse = vectorClass == RandomAccessSparseVector.class || vectorClass == SequentialAccessSparseVector.class;
         } catch (ClassNotFoundException e) {
             log.error("Error reading vector class", e);
+        } catch (NoSuchMethodException e) {
+            log.error("Error reading vector class", e);
         }
 
         // columns
         String columnsString = config.get(JobKeys.COLUMNS);
         columns = columnsString.split(",");
+        values = new double[columns.length];
+        if (table != null) {
+            readers = NumericColumnReader.forColumns(table.getHeader(), columns);
+        }
     }
 }
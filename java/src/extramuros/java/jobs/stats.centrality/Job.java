@@ -1,16 +1,16 @@
 package extramuros.java.jobs.stats.centrality;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.stats.moments.Moments;
 import extramuros.java.jobs.utils.ExtramurosJob;
 import extramuros.java.jobs.utils.JobKeys;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.mahout.math.Vector;
@@ -89,12 +89,15 @@ public class Job extends ExtramurosJob {
                 setJob(new org.apache.hadoop.mapreduce.Job(getConf(),"centrality stats job for column: "+columnName));
 
                 getJob().setJobName("centrality_stats_job");
+                // only the needed columns are decoded by columnar tables
+                getJob().getConfiguration().set(JobKeys.PROJECTION, columnName);
 
                 getJob().setMapperClass(Mapper.class);
+                getJob().setCombinerClass(extramuros.java.jobs.stats.moments.Reducer.class);
                 getJob().setReducerClass(Reducer.class);
 
                 getJob().setMapOutputKeyClass(Text.class);
-                getJob().setMapOutputValueClass(DoubleWritable.class);
+                getJob().setMapOutputValueClass(Moments.class);
 
                 getJob().setOutputKeyClass(Text.class);
                 getJob().setOutputValueClass(VectorWritable.class);
@@ -102,7 +105,7 @@ public class Job extends ExtramurosJob {
                 if(table.isAdapter()) {
                     getJob().setInputFormatClass(((AbstractTableAdapter<Writable,Writable>)table).inputFormat());
                 } else {
-                    getJob().setInputFormatClass(SequenceFileInputFormat.class);
+                    getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
                 }
                 getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
 
@@ -1,15 +1,14 @@
 package extramuros.java.jobs.stats.centrality;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
 import extramuros.java.formats.Row;
-import extramuros.java.formats.RowTypes;
-import extramuros.java.formats.Table;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.stats.moments.Moments;
 import extramuros.java.jobs.utils.JobKeys;
 import extramuros.java.jobs.utils.TableUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.slf4j.Logger;
@@ -21,12 +20,19 @@ import java.io.IOException;
  * User: antonio
  * Date: 01/06/2011
  * Time: 15:59
+ *
+ * Accumulates the values of the column in the split and writes their
+ * moments once in cleanup().
  */
-public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Text, DoubleWritable> {
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Text, Moments> {
 
     protected AbstractTable table;
     protected String columnName;
 
+    protected NumericColumnReader reader;
+    protected Text outputKey;
+    protected Moments moments = new Moments();
+
     private static final Logger log = LoggerFactory.getLogger(Mapper.class);
 
     protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
@@ -40,36 +46,18 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
             row = (Row) value;
         }
 
-        int position = table.getHeader().positionFor(columnName);
-        int type = table.getHeader().typeFor(columnName);
+        double number = reader.readDouble(row);
+        if (reader.isValid()) {
+            moments.add(number);
+        }
+    }
 
-        try {
-            if (!row.isNullAt(position)) {
-                if (type == RowTypes.DOUBLE) {
-                    DoubleWritable number = new DoubleWritable(((Double) row.getValues().get(position)));
-                    context.write(new Text(columnName), number);
-                } else if (type == RowTypes.FLOAT) {
-                    DoubleWritable number = new DoubleWritable(((Float) row.getValues().get(position)).doubleValue());
-                    context.write(new Text(columnName), number);
-                } else if (type == RowTypes.INTEGER) {
-                    DoubleWritable number = new DoubleWritable(((Integer) row.getValues().get(position)).doubleValue());
-                    context.write(new Text(columnName), number);
-                } else if (type == RowTypes.LONG) {
-                    DoubleWritable number = new DoubleWritable(((Long) row.getValues().get(position)).doubleValue());
-                    context.write(new Text(columnName), number);
-                } else if(type == RowTypes.DATE_TIME) {
-                    try {
-                        double tmp  = new Long(TableUtils.parseDateAtColumn(row, position, table).getTime()).doubleValue();
-                        DoubleWritable number = new DoubleWritable(tmp);
-                        context.write(new Text(columnName), number);
-                    } catch (Exception ex) {
-                        // format exception
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.error("Error retrieving value from row", e);
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        if (moments.getCount() > 0) {
+            context.write(outputKey, moments);
         }
+        super.cleanup(context);
     }
 
     @Override
@@ -79,6 +67,7 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
 
         // column name
         columnName = config.get(JobKeys.COLUMN_NAME);
+        outputKey = new Text(columnName);
         log.info("Setup column name: " + columnName);
 
         // table info
@@ -86,6 +75,10 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
         log.info("Reading mapper from " + tablePath);
         try {
             table = TableUtils.readAbstractTable(tablePath, config);
+            reader = NumericColumnReader.forColumn(table.getHeader(), columnName);
+            if (!reader.isSupported()) {
+                log.error("Column " + columnName + " is not numeric");
+            }
         } catch (Exception e) {
             log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
         }
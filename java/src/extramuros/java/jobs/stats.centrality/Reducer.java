@@ -1,6 +1,6 @@
 package extramuros.java.jobs.stats.centrality;
 
-import org.apache.hadoop.io.DoubleWritable;
+import extramuros.java.jobs.stats.moments.Moments;
 import org.apache.hadoop.io.Text;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.VectorWritable;
@@ -14,42 +14,24 @@ import java.io.IOException;
  * Date: 01/06/2011
  * Time: 16:25
  */
-public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Text,DoubleWritable,Text,VectorWritable>{
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Text,Moments,Text,VectorWritable>{
 
     private static final Logger log = LoggerFactory.getLogger(Reducer.class);
 
     @Override
-    protected void reduce(Text columnName, Iterable<DoubleWritable> values, Context context) {
-        int counter = 0;
-        double avg = 0;
-        double min = 0;
-        double max = 0;
-        boolean initialized = false;
-
-        for(DoubleWritable value : values) {
-            counter++;
-            double number = value.get();
-            avg = avg + number;
-            if(!initialized) {
-                initialized = true;
-                min = number;
-                max = number;
-            } else {
-                if(number < min) {
-                    min = number;
-                }
-                if(number > max) {
-                    max = number;
-                }
-            }
+    protected void reduce(Text columnName, Iterable<Moments> values, Context context) {
+        // mappers and the combiner write partial moments
+        Moments moments = new Moments();
+        for(Moments value : values) {
+            moments.merge(value);
         }
 
         try {
             DenseVector v = new DenseVector(4);
-            v.set(0, avg/(double)counter);
-            v.set(1, min);
-            v.set(2, max);
-            v.set(3, counter);
+            v.set(0, moments.getMean());
+            v.set(1, moments.getMin());
+            v.set(2, moments.getMax());
+            v.set(3, moments.getCount());
 
             context.write(columnName, new VectorWritable(v));
 
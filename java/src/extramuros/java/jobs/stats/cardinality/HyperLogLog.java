@@ -0,0 +1,152 @@
+package extramuros.java.jobs.stats.cardinality;
+
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 16:10
+ *
+ * HyperLogLog sketch estimating the number of distinct values of a column
+ * of any type. Values are hashed to 64 bits; the first precision bits of
+ * the hash choose one of 2^precision registers that keeps the longest run
+ * of leading zeros seen in the rest of the hash. Sketches with the same
+ * precision are merged keeping the maximum of every register, so sketches
+ * of different splits or of data appended to a table can be combined.
+ * The relative error is about 1.04 / sqrt(2^precision), 0.8% with the
+ * default precision of 14 (16KB per sketch).
+ */
+public class HyperLogLog implements Writable {
+
+    public static final int DEFAULT_PRECISION = 14;
+
+    private int precision;
+    private byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        this.precision = Math.min(Math.max(precision, 4), 18);
+        this.registers = new byte[1 << this.precision];
+    }
+
+    public void addValue(Object value) {
+        if (value != null) {
+            addHash(hash(value));
+        }
+    }
+
+    public void addHash(long hash) {
+        int register = (int) (hash >>> (64 - precision));
+        // sentinel bit so that the rank is at most 64 - precision + 1
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches with precision " + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = alpha(m) * m * (double) m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // linear counting for small cardinalities
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    // hashing, equal values of a column give the same hash in every task
+
+    public static long hash(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            return mix(Double.doubleToLongBits(number == 0 ? 0.0 : number));
+        } else if (value instanceof Number) {
+            return mix(((Number) value).longValue());
+        } else if (value instanceof Date) {
+            return mix(((Date) value).getTime());
+        } else {
+            return hash(value.toString());
+        }
+    }
+
+    public static long hash(String value) {
+        // FNV-1a over the chars, finished with the mixer
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash ^ value.length());
+    }
+
+    // finalizer of MurmurHash3 (fmix64)
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    // serialization
+
+    public void write(DataOutput dataOutput) throws IOException {
+        dataOutput.writeByte(precision);
+        dataOutput.write(registers);
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        precision = dataInput.readByte();
+        registers = new byte[1 << precision];
+        dataInput.readFully(registers);
+    }
+
+    // Fields
+
+    public int getPrecision() {
+        return precision;
+    }
+}
@@ -0,0 +1,222 @@
+package extramuros.java.jobs.stats.cardinality;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
+import extramuros.java.formats.StatsCatalog;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.ExtramurosJob;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.mahout.common.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 16:50
+ *
+ * Estimates the number of distinct values of several columns of a table,
+ * of any type, in a single pass. Every mapper builds a HyperLogLog sketch
+ * per column for its split, the combiner and the single reducer merge
+ * them. The merged sketches are kept in the output so they can be merged
+ * with the sketches of rows appended later to the table.
+ *
+ * The sketches of every file of the table are kept in the stats catalog of
+ * the table and only the files without sketches are read, e.g. the files
+ * appended since the last run.
+ */
+public class Job extends ExtramurosJob {
+
+    protected String[] columns;
+    protected int precision;
+    protected AbstractTable table;
+    protected Path outputPath;
+
+    private static final Logger log = LoggerFactory.getLogger(Job.class);
+
+
+    public Job(String[] columns, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        this(columns, HyperLogLog.DEFAULT_PRECISION, table, outputPath, configuration);
+    }
+
+    public Job(String[] columns, int precision, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        super(configuration);
+
+        this.columns = columns;
+        this.precision = precision;
+        this.table = table;
+        this.outputPath = new Path(outputPath);
+    }
+
+    public Path getOutputFile() {
+        return outputPath;
+    }
+
+    /**
+     * Map from column name to its estimated number of distinct values.
+     */
+    public Object getOutput() {
+        return estimates(getSketches());
+    }
+
+    public HashMap<String, HyperLogLog> getSketches() {
+        return readSketches(outputPath, getConf());
+    }
+
+    /**
+     * Sketches stored in the output of a previous run of the job.
+     */
+    public static HashMap<String, HyperLogLog> readSketches(Path path, Configuration configuration) {
+        HashMap<String, HyperLogLog> sketches = new HashMap<String, HyperLogLog>();
+        try {
+            Iterator<Pair<Writable, Writable>> pairs = TableUtils.directorySeqIterator(path, configuration);
+            while (pairs.hasNext()) {
+                Pair<Writable, Writable> pair = pairs.next();
+                sketches.put(pair.getFirst().toString(), (HyperLogLog) pair.getSecond());
+            }
+        } catch (IOException e) {
+            log.error("Error reading cardinality sketches from " + path.toUri().getPath(), e);
+        }
+        return sketches;
+    }
+
+    /**
+     * Merges the sketches of other into sketches, columns only in other are
+     * added.
+     */
+    public static HashMap<String, HyperLogLog> mergeSketches(HashMap<String, HyperLogLog> sketches, HashMap<String, HyperLogLog> other) {
+        for (String column : other.keySet()) {
+            if (sketches.containsKey(column)) {
+                sketches.get(column).merge(other.get(column));
+            } else {
+                sketches.put(column, other.get(column));
+            }
+        }
+        return sketches;
+    }
+
+    public static HashMap<String, Long> estimates(HashMap<String, HyperLogLog> sketches) {
+        HashMap<String, Long> estimates = new HashMap<String, Long>(sketches.size());
+        for (String column : sketches.keySet()) {
+            estimates.put(column, sketches.get(column).estimate());
+        }
+        return estimates;
+    }
+
+    // kind of the sketches in the stats catalog, sketches of other precisions are not merged
+    protected String catalogKind() {
+        return "distinct:" + precision;
+    }
+
+    public void run() {
+        try {
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+
+            StatsCatalog catalog = catalogStates(table, catalogKind(), columns, outputPath, perFileStates());
+            if (catalog == null) {
+                return;
+            }
+
+            // merged sketches of the files, written as a run over the whole table would
+            HashMap<String, HyperLogLog> merged = new HashMap<String, HyperLogLog>(columns.length);
+            for (String column : columns) {
+                HyperLogLog sketch = new HyperLogLog(precision);
+                for (Writable fileSketch : catalog.getStates(catalogKind(), column)) {
+                    sketch.merge((HyperLogLog) fileSketch);
+                }
+                merged.put(column, sketch);
+            }
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+            TableUtils.writeNamedWritables(new Path(outputPath, "part-r-00000"), merged, HyperLogLog.class, getConf());
+
+        } catch (IOException e) {
+            log.error("Error running job", e);
+        } catch (InterruptedException e) {
+            log.error("Error running job", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Error running job", e);
+        }
+    }
+
+    // sketches of every file kept in the stats catalog
+    protected PerFileStates perFileStates() {
+        return new PerFileStates() {
+            public void runFiles(Path[] files, boolean perFile) throws IOException, InterruptedException, ClassNotFoundException {
+                runSketches(files, perFile);
+            }
+
+            public Writable emptyState(String column) {
+                return new HyperLogLog(precision);
+            }
+        };
+    }
+
+    // Hadoop job computing the sketches of the columns for some of the files
+    protected void runSketches(Path[] files, boolean perFile) throws IOException, InterruptedException, ClassNotFoundException {
+        if (getFs().exists(outputPath)) {
+            getFs().delete(outputPath, true);
+        }
+
+        getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
+
+        // prepare Hadoop job
+        setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "distinct count stats job"));
+
+        getJob().setJobName("distinct_count_stats_job");
+        getJob().getConfiguration().set(JobKeys.COLUMNS, joinColumns(columns));
+        getJob().getConfiguration().setInt(JobKeys.HLL_PRECISION, precision);
+        // only the needed columns are decoded by columnar tables
+        getJob().getConfiguration().set(JobKeys.PROJECTION, joinColumns(columns));
+        getJob().getConfiguration().setBoolean(JobKeys.PER_FILE, perFile);
+
+        getJob().setMapperClass(Mapper.class);
+        getJob().setCombinerClass(Reducer.class);
+        getJob().setReducerClass(Reducer.class);
+        getJob().setNumReduceTasks(1);
+
+        getJob().setMapOutputKeyClass(Text.class);
+        getJob().setMapOutputValueClass(HyperLogLog.class);
+
+        getJob().setOutputKeyClass(Text.class);
+        getJob().setOutputValueClass(HyperLogLog.class);
+
+        if (table.isAdapter()) {
+            getJob().setInputFormatClass(((AbstractTableAdapter<Writable, Writable>) table).inputFormat());
+        } else {
+            getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
+        }
+        getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
+
+        addInputPaths(files);
+        FileOutputFormat.setOutputPath(getJob(), outputPath);
+
+        getJob().setJarByClass(Job.class);
+
+        if (!getJob().waitForCompletion(true)) {
+            throw new InterruptedException("Stats algorithm failed processing " + new Path(table.getRowsPath()).toUri().getPath()
+                    + " output: " + outputPath.toUri().getPath());
+        }
+
+        cleanOutput(outputPath);
+    }
+
+    public int run(String[] strings) throws Exception {
+        run();
+        return 0;
+    }
+}
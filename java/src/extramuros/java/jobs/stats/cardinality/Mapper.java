@@ -0,0 +1,94 @@
+package extramuros.java.jobs.stats.cardinality;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 16:30
+ *
+ * Adds the not null values of every column, of any type, for all the rows
+ * of the split to a HyperLogLog sketch and writes one pair column/sketch
+ * per column in cleanup(). With JobKeys.PER_FILE the path of the file of
+ * the split follows the column in the keys, see TableUtils.perFileKeySuffix.
+ */
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Text, HyperLogLog> {
+
+    protected AbstractTable table;
+    protected String[] columns;
+    protected int[] positions;
+    protected HyperLogLog[] sketches;
+    protected String keySuffix;
+
+    private static final Logger log = LoggerFactory.getLogger(Mapper.class);
+
+    protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
+        Row row = null;
+        if (table.isAdapter()) {
+            // adapt input
+            row = ((AbstractTableAdapter<Writable, Writable>) table).map(key, value);
+
+        } else {
+            // force conversion
+            row = (Row) value;
+        }
+
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] != -1 && !row.isNullAt(positions[i])) {
+                sketches[i].addValue(row.getValue(positions[i]));
+            }
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        for (int i = 0; i < columns.length; i++) {
+            context.write(new Text(columns[i] + keySuffix), sketches[i]);
+        }
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        // column names
+        columns = config.get(JobKeys.COLUMNS).split(",");
+        int precision = config.getInt(JobKeys.HLL_PRECISION, HyperLogLog.DEFAULT_PRECISION);
+        sketches = new HyperLogLog[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            sketches[i] = new HyperLogLog(precision);
+        }
+
+        keySuffix = TableUtils.perFileKeySuffix(config, context.getInputSplit());
+
+        // table info
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        log.info("Reading mapper from " + tablePath);
+        try {
+            table = TableUtils.readAbstractTable(tablePath, config);
+            positions = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                positions[i] = table.getHeader().positionFor(columns[i]);
+                if (positions[i] == -1) {
+                    log.error("Column " + columns[i] + " not found");
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
+        }
+    }
+}
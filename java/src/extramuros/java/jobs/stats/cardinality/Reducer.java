@@ -0,0 +1,26 @@
+package extramuros.java.jobs.stats.cardinality;
+
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 16:40
+ *
+ * Merges the partial sketches of a column. Used both as combiner and as
+ * the single reducer of the job.
+ */
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Text, HyperLogLog, Text, HyperLogLog> {
+
+    @Override
+    protected void reduce(Text columnName, Iterable<HyperLogLog> values, Context context) throws IOException, InterruptedException {
+        HyperLogLog merged = new HyperLogLog(context.getConfiguration().getInt(JobKeys.HLL_PRECISION, HyperLogLog.DEFAULT_PRECISION));
+        for (HyperLogLog value : values) {
+            merged.merge(value);
+        }
+        context.write(columnName, merged);
+    }
+}
@@ -0,0 +1,167 @@
+package extramuros.java.jobs.stats.correlation;
+
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 19:00
+ *
+ * Means and co-moments (sums of products of deviations from the means) of
+ * a set of columns, enough to compute their covariance and correlation
+ * matrices. Co-moments are kept for the upper triangle of the matrix,
+ * diagonal included, in a single array row by row. Rows are added with
+ * Welford's update and partial co-moments are merged with Chan's formula,
+ * as in Moments.
+ */
+public class CoMoments implements Writable {
+
+    private int dimension;
+    private long count;
+    private double[] means;
+    private double[] comoments;
+
+    // deviations of the row being added
+    private double[] deltas;
+
+    public CoMoments() {
+        this(0);
+    }
+
+    public CoMoments(int dimension) {
+        this.dimension = dimension;
+        this.means = new double[dimension];
+        this.comoments = new double[dimension * (dimension + 1) / 2];
+        this.deltas = new double[dimension];
+    }
+
+    public void add(double[] values) {
+        count++;
+        for (int i = 0; i < dimension; i++) {
+            deltas[i] = values[i] - means[i];
+            means[i] += deltas[i] / count;
+        }
+        int position = 0;
+        for (int i = 0; i < dimension; i++) {
+            double delta = deltas[i];
+            for (int j = i; j < dimension; j++) {
+                // old deviation of i times new deviation of j
+                comoments[position++] += delta * (values[j] - means[j]);
+            }
+        }
+    }
+
+    public void merge(CoMoments other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            System.arraycopy(other.means, 0, means, 0, dimension);
+            System.arraycopy(other.comoments, 0, comoments, 0, comoments.length);
+            return;
+        }
+
+        double total = count + other.count;
+        double factor = count * (double) other.count / total;
+        for (int i = 0; i < dimension; i++) {
+            deltas[i] = other.means[i] - means[i];
+        }
+        int position = 0;
+        for (int i = 0; i < dimension; i++) {
+            for (int j = i; j < dimension; j++) {
+                comoments[position] += other.comoments[position] + deltas[i] * deltas[j] * factor;
+                position++;
+            }
+        }
+        for (int i = 0; i < dimension; i++) {
+            means[i] += deltas[i] * other.count / total;
+        }
+        count += other.count;
+    }
+
+    private int index(int i, int j) {
+        if (i > j) {
+            int tmp = i;
+            i = j;
+            j = tmp;
+        }
+        // rows before i hold dimension, dimension - 1, ... values
+        return i * dimension - i * (i - 1) / 2 + (j - i);
+    }
+
+    // population covariance, NaN if there are no rows
+    public double covariance(int i, int j) {
+        return comoments[index(i, j)] / count;
+    }
+
+    // Pearson correlation, NaN if one of the columns is constant
+    public double correlation(int i, int j) {
+        return comoments[index(i, j)] / Math.sqrt(comoments[index(i, i)] * comoments[index(j, j)]);
+    }
+
+    public double[][] covarianceMatrix() {
+        double[][] matrix = new double[dimension][dimension];
+        for (int i = 0; i < dimension; i++) {
+            for (int j = 0; j < dimension; j++) {
+                matrix[i][j] = covariance(i, j);
+            }
+        }
+        return matrix;
+    }
+
+    public double[][] correlationMatrix() {
+        double[][] matrix = new double[dimension][dimension];
+        for (int i = 0; i < dimension; i++) {
+            for (int j = 0; j < dimension; j++) {
+                matrix[i][j] = correlation(i, j);
+            }
+        }
+        return matrix;
+    }
+
+    // serialization
+
+    public void write(DataOutput dataOutput) throws IOException {
+        dataOutput.writeInt(dimension);
+        dataOutput.writeLong(count);
+        for (double mean : means) {
+            dataOutput.writeDouble(mean);
+        }
+        for (double comoment : comoments) {
+            dataOutput.writeDouble(comoment);
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        dimension = dataInput.readInt();
+        count = dataInput.readLong();
+        means = new double[dimension];
+        comoments = new double[dimension * (dimension + 1) / 2];
+        deltas = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            means[i] = dataInput.readDouble();
+        }
+        for (int i = 0; i < comoments.length; i++) {
+            comoments[i] = dataInput.readDouble();
+        }
+    }
+
+    // Fields
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean(int i) {
+        return means[i];
+    }
+}
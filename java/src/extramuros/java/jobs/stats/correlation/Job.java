@@ -0,0 +1,213 @@
+package extramuros.java.jobs.stats.correlation;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.RowTypes;
+import extramuros.java.formats.Table;
+import extramuros.java.formats.TableHeader;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.ExtramurosJob;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.mahout.common.IOUtils;
+import org.apache.mahout.common.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 19:35
+ *
+ * Computes the covariance and Pearson correlation matrices of several
+ * numeric columns of a table in a single pass. Every mapper accumulates
+ * the co-moments of all the pairs of columns for its split, rows with a
+ * null or invalid value in any of the columns are skipped. The combiner
+ * and the single reducer merge them into outputPath + ".comoments".
+ *
+ * The correlation matrix is saved as a table in outputPath with a first
+ * 'column' column with the names of the columns and a DOUBLE column for
+ * every column.
+ */
+public class Job extends ExtramurosJob {
+
+    public static final String COLUMN = "column";
+
+    protected String[] columns;
+    protected AbstractTable table;
+    protected Path outputPath;
+    protected Path comomentsPath;
+    protected Table output;
+
+    private static final Logger log = LoggerFactory.getLogger(Job.class);
+
+
+    public Job(String[] columns, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        super(configuration);
+
+        this.columns = columns;
+        this.table = table;
+        this.outputPath = new Path(outputPath);
+        this.comomentsPath = this.outputPath.suffix(".comoments");
+    }
+
+    public Path getOutputFile() {
+        return outputPath;
+    }
+
+    /**
+     * Table with the correlation matrix.
+     */
+    public Object getOutput() {
+        return output;
+    }
+
+    /**
+     * Merged co-moments of the columns, null if the job has not run or
+     * there were no valid rows.
+     */
+    public CoMoments getCoMoments() {
+        try {
+            Iterator<Pair<Writable, Writable>> pairs = TableUtils.directorySeqIterator(comomentsPath, getConf());
+            if (pairs.hasNext()) {
+                return (CoMoments) pairs.next().getSecond();
+            }
+        } catch (IOException e) {
+            log.error("Error reading co-moments from " + comomentsPath.toUri().getPath(), e);
+        }
+        return null;
+    }
+
+    public void run() {
+        try {
+            if (getFs().exists(comomentsPath)) {
+                getFs().delete(comomentsPath, true);
+            }
+
+            StringBuilder columnsBuilder = new StringBuilder();
+            for (String column : columns) {
+                if (columnsBuilder.length() > 0) {
+                    columnsBuilder.append(",");
+                }
+                columnsBuilder.append(column);
+            }
+
+            getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
+
+            // prepare Hadoop job
+            setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "correlation matrix job"));
+
+            getJob().setJobName("correlation_matrix_job");
+            getJob().getConfiguration().set(JobKeys.COLUMNS, columnsBuilder.toString());
+            // only the needed columns are decoded by columnar tables
+            getJob().getConfiguration().set(JobKeys.PROJECTION, columnsBuilder.toString());
+
+            getJob().setMapperClass(Mapper.class);
+            getJob().setCombinerClass(Reducer.class);
+            getJob().setReducerClass(Reducer.class);
+            getJob().setNumReduceTasks(1);
+
+            getJob().setMapOutputKeyClass(Text.class);
+            getJob().setMapOutputValueClass(CoMoments.class);
+
+            getJob().setOutputKeyClass(Text.class);
+            getJob().setOutputValueClass(CoMoments.class);
+
+            if (table.isAdapter()) {
+                getJob().setInputFormatClass(((AbstractTableAdapter<Writable, Writable>) table).inputFormat());
+            } else {
+                getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
+            }
+            getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
+
+            String inputPathString = composeInputPathString(new Path(table.getRowsPath()));
+            FileInputFormat.setInputPaths(getJob(), inputPathString);
+            FileOutputFormat.setOutputPath(getJob(), comomentsPath);
+
+            getJob().setJarByClass(Job.class);
+
+            if (!getJob().waitForCompletion(true)) {
+                throw new InterruptedException("Correlation matrix job failed processing " + new Path(table.getRowsPath()).toUri().getPath()
+                        + " output: " + comomentsPath.toUri().getPath());
+            }
+
+            cleanOutput(comomentsPath);
+
+            CoMoments comoments = getCoMoments();
+            if (comoments == null) {
+                comoments = new CoMoments(columns.length);
+            }
+            output = saveCorrelationTable(comoments);
+
+        } catch (IOException e) {
+            log.error("Error running job", e);
+        } catch (InterruptedException e) {
+            log.error("Error running job", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Error running job", e);
+        }
+    }
+
+    protected Table saveCorrelationTable(CoMoments comoments) throws IOException {
+        ArrayList<String> columnNames = new ArrayList<String>(columns.length + 1);
+        ArrayList<Integer> columnTypes = new ArrayList<Integer>(columns.length + 1);
+        columnNames.add(COLUMN);
+        columnTypes.add(RowTypes.STRING);
+        for (String column : columns) {
+            columnNames.add(column);
+            columnTypes.add(RowTypes.DOUBLE);
+        }
+        TableHeader header = new TableHeader(columnNames, columnTypes);
+
+        Path rowsPath = outputPath.suffix(".rows");
+        if (getFs().exists(rowsPath)) {
+            getFs().delete(rowsPath, true);
+        }
+
+        double[][] correlations = comoments.correlationMatrix();
+        SequenceFile.Writer writer = null;
+        try {
+            writer = new SequenceFile.Writer(getFs(), getConf(), rowsPath, LongWritable.class, Row.class);
+            for (int i = 0; i < columns.length; i++) {
+                ArrayList<Object> values = new ArrayList<Object>(columns.length + 1);
+                values.add(columns[i]);
+                for (int j = 0; j < columns.length; j++) {
+                    values.add(correlations[i][j]);
+                }
+                writer.append(new LongWritable(i), new Row(i, columnNames, columnTypes, values));
+            }
+            // errors flushing the rows reach run()
+            writer.close();
+            writer = null;
+        } finally {
+            if (writer != null) {
+                IOUtils.quietClose(writer);
+            }
+        }
+
+        Table correlationTable = new Table(header, rowsPath.toUri().getPath());
+        correlationTable.setConfiguration(getConf());
+        correlationTable.setTablePath(outputPath.toUri().getPath());
+        correlationTable.save();
+        return correlationTable;
+    }
+
+    public int run(String[] strings) throws Exception {
+        run();
+        return 0;
+    }
+}
@@ -0,0 +1,92 @@
+package extramuros.java.jobs.stats.correlation;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 19:15
+ *
+ * Accumulates the co-moments of the columns for the rows of the split
+ * where all of them have a valid value and writes them in cleanup().
+ */
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Text, CoMoments> {
+
+    public static final Text KEY = new Text("comoments");
+
+
+    protected AbstractTable table;
+    protected String[] columns;
+    protected NumericColumnReader[] readers;
+    protected CoMoments comoments;
+    protected double[] values;
+
+    private static final Logger log = LoggerFactory.getLogger(Mapper.class);
+
+    protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
+        Row row = null;
+        if (table.isAdapter()) {
+            // adapt input
+            row = ((AbstractTableAdapter<Writable, Writable>) table).map(key, value);
+
+        } else {
+            // force conversion
+            row = (Row) value;
+        }
+
+        for (int i = 0; i < readers.length; i++) {
+            values[i] = readers[i].readDouble(row);
+            if (!readers[i].isValid()) {
+                return;
+            }
+        }
+        comoments.add(values);
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        if (comoments.getCount() > 0) {
+            context.write(KEY, comoments);
+        }
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        // column names
+        columns = config.get(JobKeys.COLUMNS).split(",");
+        comoments = new CoMoments(columns.length);
+        values = new double[columns.length];
+
+        // table info
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        log.info("Reading mapper from " + tablePath);
+        try {
+            table = TableUtils.readAbstractTable(tablePath, config);
+            readers = NumericColumnReader.forColumns(table.getHeader(), columns);
+            for (int i = 0; i < readers.length; i++) {
+                if (!readers[i].isSupported()) {
+                    log.error("Column " + columns[i] + " is not numeric");
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package extramuros.java.jobs.stats.correlation;
+
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 19:25
+ *
+ * Merges the partial co-moments of the tasks. Used both as combiner and
+ * as the single reducer of the job.
+ */
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Text, CoMoments, Text, CoMoments> {
+
+    @Override
+    protected void reduce(Text key, Iterable<CoMoments> values, Context context) throws IOException, InterruptedException {
+        CoMoments merged = null;
+        for (CoMoments value : values) {
+            if (merged == null) {
+                merged = new CoMoments(value.getDimension());
+            }
+            merged.merge(value);
+        }
+        context.write(key, merged);
+    }
+}
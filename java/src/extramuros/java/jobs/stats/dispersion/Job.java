@@ -1,17 +1,18 @@
 package extramuros.java.jobs.stats.dispersion;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
 import extramuros.java.formats.Table;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.jobs.utils.ExtramurosJob;
 import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.SumCountCombiner;
+import extramuros.java.jobs.utils.SumCountWritable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.mahout.math.Vector;
@@ -82,12 +83,15 @@ public class Job extends ExtramurosJob {
             setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "dispersion stats job for column: " + columnName));
 
             getJob().setJobName("dispersion_stats_job");
+            // only the needed columns are decoded by columnar tables
+            getJob().getConfiguration().set(JobKeys.PROJECTION, columnName);
 
             getJob().setMapperClass(Mapper.class);
+            getJob().setCombinerClass(SumCountCombiner.class);
             getJob().setReducerClass(Reducer.class);
 
             getJob().setMapOutputKeyClass(Text.class);
-            getJob().setMapOutputValueClass(DoubleWritable.class);
+            getJob().setMapOutputValueClass(SumCountWritable.class);
 
             getJob().setOutputKeyClass(Text.class);
             getJob().setOutputValueClass(VectorWritable.class);
@@ -95,7 +99,7 @@ public class Job extends ExtramurosJob {
             if(table.isAdapter()) {
                 getJob().setInputFormatClass(((AbstractTableAdapter<Writable,Writable>)table).inputFormat());
             } else {
-                getJob().setInputFormatClass(SequenceFileInputFormat.class);
+                getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
             }
             getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
 
@@ -1,15 +1,14 @@
 package extramuros.java.jobs.stats.dispersion;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
 import extramuros.java.formats.Row;
-import extramuros.java.formats.RowTypes;
-import extramuros.java.formats.Table;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.SumCountWritable;
 import extramuros.java.jobs.utils.TableUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.slf4j.Logger;
@@ -22,12 +21,17 @@ import java.io.IOException;
  * Date: 01/06/2011
  * Time: 15:59
  */
-public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Text, DoubleWritable> {
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Text, SumCountWritable> {
 
     protected AbstractTable table;
     protected String columnName;
     protected Double average;
 
+    protected NumericColumnReader reader;
+    protected Text outputKey;
+    // squared deviations of the split, written once in cleanup()
+    protected SumCountWritable deviations = new SumCountWritable();
+
     private static final Logger log = LoggerFactory.getLogger(Mapper.class);
 
     protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
@@ -42,38 +46,18 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
             row = (Row) value;
         }
 
-        int position = table.getHeader().positionFor(columnName);
-        int type = table.getHeader().typeFor(columnName);
-        Double number = null;
-
-        try {
-            if (!row.isNullAt(position)) {
-
-                if (type == RowTypes.DOUBLE) {
-                    number = (Double) row.getValues().get(position);
-                } else if (type == RowTypes.FLOAT) {
-                    number = ((Float) row.getValues().get(position)).doubleValue();
-                } else if (type == RowTypes.INTEGER) {
-                    number = ((Integer) row.getValues().get(position)).doubleValue();
-                } else if (type == RowTypes.LONG) {
-                    number = ((Long) row.getValues().get(position)).doubleValue();
-                } else if(type == RowTypes.DATE_TIME) {
-                    try {
-                        number = new Long(TableUtils.parseDateAtColumn(row, position, table).getTime()).doubleValue();
-                    } catch (Exception ex) {
-                        // format exception
-                        number = null;
-                    }
-                }
-
-            }
-            if (number != null) {
-                context.write(new Text(columnName), new DoubleWritable(Math.pow(average - number, 2)));
-            }
+        double number = reader.readDouble(row);
+        if (reader.isValid()) {
+            deviations.add(Math.pow(average - number, 2));
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Error retrieving value from row", e);
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        if (deviations.getCount() > 0) {
+            context.write(outputKey, deviations);
         }
+        super.cleanup(context);
     }
 
     @Override
@@ -83,6 +67,7 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
 
         // column name
         columnName = config.get(JobKeys.COLUMN_NAME);
+        outputKey = new Text(columnName);
         log.info("Setup column name: " + columnName);
 
 
@@ -95,6 +80,10 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
         log.info("Reading mapper from " + tablePath);
         try {
             table = TableUtils.readAbstractTable(tablePath, config);
+            reader = NumericColumnReader.forColumn(table.getHeader(), columnName);
+            if (!reader.isSupported()) {
+                log.error("Column " + columnName + " is not numeric");
+            }
         } catch (Exception e) {
             log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
         }
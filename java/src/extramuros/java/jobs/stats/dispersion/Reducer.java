@@ -1,6 +1,6 @@
 package extramuros.java.jobs.stats.dispersion;
 
-import org.apache.hadoop.io.DoubleWritable;
+import extramuros.java.jobs.utils.SumCountWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.VectorWritable;
@@ -14,20 +14,19 @@ import java.io.IOException;
  * Date: 01/06/2011
  * Time: 16:25
  */
-public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Text,DoubleWritable,Text,VectorWritable>{
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Text,SumCountWritable,Text,VectorWritable>{
 
     private static final Logger log = LoggerFactory.getLogger(Reducer.class);
 
     @Override
-    protected void reduce(Text columnName, Iterable<DoubleWritable> values, Context context) {
+    protected void reduce(Text columnName, Iterable<SumCountWritable> values, Context context) {
         double counter = 0;
         double sum = 0;
 
-
-        for(DoubleWritable value : values) {
-            counter++;
-            double number = value.get();
-            sum = sum + number;
+        // mappers and the combiner write partial sums
+        for(SumCountWritable value : values) {
+            counter = counter + value.getCount();
+            sum = sum + value.getSum();
         }
 
         try {
@@ -0,0 +1,25 @@
+package extramuros.java.jobs.stats.freqdistribution;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 20/10/2026
+ * Time: 11:20
+ *
+ * Adds the frequencies of a code written by different mappers.
+ */
+public class CodeCombiner extends org.apache.hadoop.mapreduce.Reducer<IntWritable, LongWritable, IntWritable, LongWritable> {
+
+    @Override
+    protected void reduce(IntWritable code, Iterable<LongWritable> values, Context context) throws IOException, InterruptedException {
+        long sum = 0;
+        for (LongWritable value : values) {
+            sum += value.get();
+        }
+        context.write(code, new LongWritable(sum));
+    }
+}
@@ -0,0 +1,104 @@
+package extramuros.java.jobs.stats.freqdistribution;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.DictionaryColumnReader;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * User: antonio
+ * Date: 20/10/2026
+ * Time: 11:10
+ *
+ * Counts the values of a column with a dictionary by code in an array and
+ * writes the pairs code/frequency in cleanup(). Values missing in the
+ * dictionary are not counted, the dictionary has to be rebuilt after new
+ * values are appended.
+ */
+public class CodeMapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, IntWritable, LongWritable> {
+
+    protected AbstractTable table;
+    protected String columnName;
+
+    protected DictionaryColumnReader reader;
+    protected long[] frequencies;
+    protected long missing;
+
+    private static final Logger log = LoggerFactory.getLogger(CodeMapper.class);
+
+    protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
+
+        Row row = null;
+        if (table.isAdapter()) {
+            // adapt input
+            row = ((AbstractTableAdapter<Writable, Writable>) table).map(key, value);
+
+        } else {
+            // force conversion
+            row = (Row) value;
+        }
+
+        int code = reader.readCode(row);
+        if (reader.isValid()) {
+            if (code >= frequencies.length) {
+                frequencies = Arrays.copyOf(frequencies, Math.max(code + 1, 2 * frequencies.length));
+            }
+            frequencies[code]++;
+        } else if (reader.getStatus() == DictionaryColumnReader.INVALID) {
+            missing++;
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        IntWritable outputKey = new IntWritable();
+        LongWritable outputValue = new LongWritable();
+        for (int code = 0; code < frequencies.length; code++) {
+            if (frequencies[code] > 0) {
+                outputKey.set(code);
+                outputValue.set(frequencies[code]);
+                context.write(outputKey, outputValue);
+            }
+        }
+        if (missing > 0) {
+            log.error(missing + " values of column " + columnName + " are not in its dictionary");
+        }
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        // column name
+        columnName = config.get(JobKeys.COLUMN_NAME);
+        log.info("Setup column name: " + columnName);
+
+        // table info
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        log.info("Reading mapper from " + tablePath);
+        try {
+            table = TableUtils.readAbstractTable(tablePath, config);
+            reader = DictionaryColumnReader.forColumn(table.getHeader(), columnName);
+            frequencies = new long[reader.isSupported() ? reader.getDictionary().size() : 0];
+            if (!reader.isSupported()) {
+                log.error("Column " + columnName + " has no dictionary");
+            }
+        } catch (Exception e) {
+            log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
+        }
+    }
+}
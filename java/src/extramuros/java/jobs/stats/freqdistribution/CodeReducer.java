@@ -0,0 +1,53 @@
+package extramuros.java.jobs.stats.freqdistribution;
+
+import extramuros.java.formats.DictionaryColumnReader;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 20/10/2026
+ * Time: 11:25
+ *
+ * Adds the frequencies of a code and writes the pair value/frequency, the
+ * only place where the codes are decoded.
+ */
+public class CodeReducer extends org.apache.hadoop.mapreduce.Reducer<IntWritable, LongWritable, Text, DoubleWritable> {
+
+    protected DictionaryColumnReader reader;
+
+    private static final Logger log = LoggerFactory.getLogger(CodeReducer.class);
+
+    @Override
+    protected void reduce(IntWritable code, Iterable<LongWritable> values, Context context) throws IOException, InterruptedException {
+        long sum = 0;
+        for (LongWritable value : values) {
+            sum += value.get();
+        }
+        context.write(new Text(reader.valueFor(code.get())), new DoubleWritable(sum));
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        try {
+            reader = DictionaryColumnReader.forColumn(TableUtils.readAbstractTable(tablePath, config).getHeader(),
+                    config.get(JobKeys.COLUMN_NAME));
+        } catch (Exception e) {
+            log.error("Error reading extramuros.java.visualization.Table in reducer ", e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package extramuros.java.jobs.stats.freqdistribution;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.jobs.utils.ExtramurosJob;
 import extramuros.java.jobs.utils.JobKeys;
@@ -8,9 +9,11 @@ import extramuros.java.jobs.utils.TableUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.slf4j.Logger;
@@ -22,6 +25,11 @@ import java.io.IOException;
  * User: antonio
  * Date: 02/06/2011
  * Time: 09:57
+ *
+ * Frequency of every distinct value of a column. Numeric values are
+ * counted by their bits, values of a column with a dictionary by code,
+ * grouped as IntWritable keys and decoded by the reducer, that writes
+ * pairs value/frequency with the value as Text.
  */
 public class Job extends ExtramurosJob {
 
@@ -54,20 +62,35 @@ public class Job extends ExtramurosJob {
             setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "stats job for column: " + columnName));
 
             getJob().setJobName("frequency_distribution_job");
+            // only the needed columns are decoded by columnar tables
+            getJob().getConfiguration().set(JobKeys.PROJECTION, columnName);
 
-            getJob().setMapperClass(Mapper.class);
-            getJob().setReducerClass(Reducer.class);
+            if (table.getHeader().getDictionary(columnName) != null) {
+                getJob().setMapperClass(CodeMapper.class);
+                getJob().setCombinerClass(CodeCombiner.class);
+                getJob().setReducerClass(CodeReducer.class);
 
-            getJob().setMapOutputKeyClass(DoubleWritable.class);
-            getJob().setMapOutputValueClass(DoubleWritable.class);
+                getJob().setMapOutputKeyClass(IntWritable.class);
+                getJob().setMapOutputValueClass(LongWritable.class);
 
-            getJob().setOutputKeyClass(DoubleWritable.class);
-            getJob().setOutputValueClass(DoubleWritable.class);
+                getJob().setOutputKeyClass(Text.class);
+                getJob().setOutputValueClass(DoubleWritable.class);
+            } else {
+                getJob().setMapperClass(Mapper.class);
+                getJob().setCombinerClass(Reducer.class);
+                getJob().setReducerClass(Reducer.class);
+
+                getJob().setMapOutputKeyClass(DoubleWritable.class);
+                getJob().setMapOutputValueClass(DoubleWritable.class);
+
+                getJob().setOutputKeyClass(DoubleWritable.class);
+                getJob().setOutputValueClass(DoubleWritable.class);
+            }
 
             if(table.isAdapter()) {
                 getJob().setInputFormatClass(((AbstractTableAdapter<Writable,Writable>)table).inputFormat());
             } else {
-                getJob().setInputFormatClass(SequenceFileInputFormat.class);
+                getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
             }
             getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
 
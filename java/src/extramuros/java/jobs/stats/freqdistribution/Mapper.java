@@ -1,10 +1,11 @@
 package extramuros.java.jobs.stats.freqdistribution;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
 import extramuros.java.formats.Row;
-import extramuros.java.formats.RowTypes;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.LongKeyAggregator;
 import extramuros.java.jobs.utils.TableUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -19,12 +20,20 @@ import java.io.IOException;
  * User: antonio
  * Date: 01/06/2011
  * Time: 15:59
+ *
+ * Counts the values of the split by the bits of the value, pairs
+ * value/frequency are written when the aggregator is full and in cleanup().
  */
 public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable,Writable,DoubleWritable,DoubleWritable> {
 
     protected AbstractTable table;
     protected String columnName;
 
+    protected NumericColumnReader reader;
+    protected DoubleWritable outputKey = new DoubleWritable();
+    protected DoubleWritable outputValue = new DoubleWritable();
+    protected LongKeyAggregator frequencies;
+
     private static final Logger log = LoggerFactory.getLogger(Mapper.class);
 
     protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
@@ -39,42 +48,32 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable,Writable
             row = (Row) value;
         }
 
-        int position = table.getHeader().positionFor(columnName);
-        int type = table.getHeader().typeFor(columnName);
-        Double number = null;
-
-        try {
-            if(type == RowTypes.DOUBLE){
-                number = (Double) row.getValues().get(position);
-            } else if(type == RowTypes.FLOAT) {
-                number = ((Float) row.getValues().get(position)).doubleValue();
-            } else if(type == RowTypes.INTEGER) {
-                number = ((Integer) row.getValues().get(position)).doubleValue();
-            } else if(type == RowTypes.LONG) {
-                number = ((Long) row.getValues().get(position)).doubleValue();
-            } else if(type == RowTypes.DATE_TIME) {
-                try {
-                    number = new Long(TableUtils.parseDateAtColumn(row, position, table).getTime()).doubleValue();
-                } catch (Exception ex) {
-                    // format exception
-                    number = null;
-                }
-            }
-
-            if(number!=null) {
-                context.write(new DoubleWritable(number), new DoubleWritable(1));
-            }
-
-        } catch(Exception e) {
-            log.error("Error retrieving value from row",e);
+        double number = reader.readDouble(row);
+        if(reader.isValid()) {
+            // 0.0 and -0.0 are the same value for the reducer
+            frequencies.add(Double.doubleToLongBits(number == 0 ? 0.0 : number), 1);
         }
     }
 
     @Override
-    protected void setup(Context context) throws IOException, InterruptedException {
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        frequencies.flush();
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(final Context context) throws IOException, InterruptedException {
         super.setup(context);
         Configuration config = context.getConfiguration();
 
+        frequencies = new LongKeyAggregator(LongKeyAggregator.memoryFor(config), new LongKeyAggregator.Flusher() {
+            public void flush(long key, double sum, long count) throws IOException, InterruptedException {
+                outputKey.set(Double.longBitsToDouble(key));
+                outputValue.set(count);
+                context.write(outputKey, outputValue);
+            }
+        });
+
         // column name
         columnName = config.get(JobKeys.COLUMN_NAME);
         log.info("Setup column name: "+columnName);
@@ -85,6 +84,10 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable,Writable
         log.info("Reading mapper from "+tablePath);
         try {
             table = TableUtils.readAbstractTable(tablePath,config);
+            reader = NumericColumnReader.forColumn(table.getHeader(), columnName);
+            if(!reader.isSupported()) {
+                log.error("Column "+columnName+" is not numeric");
+            }
         } catch (Exception e) {
             log.error("Error reading extramuros.java.visualization.Table in mapper ",e);
         }
@@ -0,0 +1,265 @@
+package extramuros.java.jobs.stats.histogram;
+
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 14:20
+ *
+ * Mergeable histogram of the values of a column with a fixed number of
+ * bins, so its size does not depend on the number of rows.
+ *
+ * With fixed edges (equi-width or equi-depth bins computed before the job)
+ * every value increments the count of the bin containing it; values out
+ * of the edges are counted in the first or last bin. Without edges the
+ * bins adapt to the data (Ben-Haim and Tom-Tov streaming histogram): every
+ * bin is a centroid with a count and when there are more than maxBins
+ * centroids the two closest ones are merged into their weighted average.
+ */
+public class Histogram implements Writable {
+
+    private boolean adaptive;
+    private int maxBins;
+    private long count;
+    private double min;
+    private double max;
+
+    // edges of the bins, or centroids for adaptive histograms
+    private double[] points;
+    private long[] counts;
+    private int size;
+
+    public Histogram() {
+    }
+
+    public static Histogram withEdges(double[] edges) {
+        Histogram histogram = new Histogram();
+        histogram.adaptive = false;
+        histogram.maxBins = edges.length - 1;
+        histogram.points = edges.clone();
+        histogram.counts = new long[edges.length - 1];
+        histogram.size = edges.length - 1;
+        histogram.min = Double.NaN;
+        histogram.max = Double.NaN;
+        return histogram;
+    }
+
+    public static Histogram adaptive(int maxBins) {
+        Histogram histogram = new Histogram();
+        histogram.adaptive = true;
+        histogram.maxBins = Math.max(maxBins, 1);
+        // one extra slot for the centroid being inserted
+        histogram.points = new double[histogram.maxBins + 1];
+        histogram.counts = new long[histogram.maxBins + 1];
+        histogram.size = 0;
+        histogram.min = Double.NaN;
+        histogram.max = Double.NaN;
+        return histogram;
+    }
+
+    /**
+     * Empty histogram with the same bins (or maximum number of bins) as
+     * this one.
+     */
+    public Histogram emptyCopy() {
+        return adaptive ? adaptive(maxBins) : withEdges(points);
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void add(double value, long frequency) {
+        if (Double.isNaN(value) || frequency <= 0) {
+            return;
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        count += frequency;
+
+        if (adaptive) {
+            insertCentroid(value, frequency);
+        } else {
+            counts[binFor(value)] += frequency;
+        }
+    }
+
+    public void merge(Histogram other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (adaptive) {
+            double otherMin = other.min;
+            double otherMax = other.max;
+            for (int i = 0; i < other.size; i++) {
+                add(other.points[i], other.counts[i]);
+            }
+            // centroids lie between the extremes of the merged histogram
+            min = Math.min(min, otherMin);
+            max = Math.max(max, otherMax);
+        } else {
+            if (!Arrays.equals(points, other.points)) {
+                throw new IllegalArgumentException("Cannot merge histograms with different bins");
+            }
+            if (count == 0) {
+                min = other.min;
+                max = other.max;
+            } else {
+                min = Math.min(min, other.min);
+                max = Math.max(max, other.max);
+            }
+            count += other.count;
+            for (int i = 0; i < size; i++) {
+                counts[i] += other.counts[i];
+            }
+        }
+    }
+
+    // fixed bins, the last bin is closed on the right
+
+    private int binFor(double value) {
+        if (value <= points[0]) {
+            return 0;
+        }
+        if (value >= points[size]) {
+            return size - 1;
+        }
+        int position = Arrays.binarySearch(points, 0, size + 1, value);
+        if (position >= 0) {
+            // on an edge, which starts the next bin
+            return Math.min(position, size - 1);
+        }
+        return -position - 2;
+    }
+
+    // adaptive bins
+
+    private void insertCentroid(double value, long frequency) {
+        int position = Arrays.binarySearch(points, 0, size, value);
+        if (position >= 0) {
+            counts[position] += frequency;
+            return;
+        }
+
+        position = -position - 1;
+        System.arraycopy(points, position, points, position + 1, size - position);
+        System.arraycopy(counts, position, counts, position + 1, size - position);
+        points[position] = value;
+        counts[position] = frequency;
+        size++;
+
+        if (size > maxBins) {
+            mergeClosestCentroids();
+        }
+    }
+
+    private void mergeClosestCentroids() {
+        int closest = 0;
+        double gap = Double.MAX_VALUE;
+        for (int i = 0; i < size - 1; i++) {
+            if (points[i + 1] - points[i] < gap) {
+                gap = points[i + 1] - points[i];
+                closest = i;
+            }
+        }
+
+        long merged = counts[closest] + counts[closest + 1];
+        points[closest] = (points[closest] * counts[closest] + points[closest + 1] * counts[closest + 1]) / merged;
+        counts[closest] = merged;
+        System.arraycopy(points, closest + 2, points, closest + 1, size - closest - 2);
+        System.arraycopy(counts, closest + 2, counts, closest + 1, size - closest - 2);
+        size--;
+    }
+
+    /**
+     * Bins as arrays [lower, upper, count]. The bounds of adaptive bins are
+     * the middle points between consecutive centroids and the extremes of
+     * the values.
+     */
+    public ArrayList<double[]> getBins() {
+        ArrayList<double[]> bins = new ArrayList<double[]>(size);
+        for (int i = 0; i < size; i++) {
+            double lower;
+            double upper;
+            if (adaptive) {
+                lower = i == 0 ? min : (points[i - 1] + points[i]) / 2;
+                upper = i == size - 1 ? max : (points[i] + points[i + 1]) / 2;
+            } else {
+                lower = points[i];
+                upper = points[i + 1];
+            }
+            bins.add(new double[]{lower, upper, counts[i]});
+        }
+        return bins;
+    }
+
+    // serialization
+
+    public void write(DataOutput dataOutput) throws IOException {
+        dataOutput.writeBoolean(adaptive);
+        dataOutput.writeInt(maxBins);
+        dataOutput.writeLong(count);
+        dataOutput.writeDouble(min);
+        dataOutput.writeDouble(max);
+        dataOutput.writeInt(size);
+        int numPoints = adaptive ? size : size + 1;
+        for (int i = 0; i < numPoints; i++) {
+            dataOutput.writeDouble(points[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            dataOutput.writeLong(counts[i]);
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        adaptive = dataInput.readBoolean();
+        maxBins = dataInput.readInt();
+        count = dataInput.readLong();
+        min = dataInput.readDouble();
+        max = dataInput.readDouble();
+        size = dataInput.readInt();
+        int numPoints = adaptive ? size : size + 1;
+        points = new double[adaptive ? maxBins + 1 : numPoints];
+        counts = new long[adaptive ? maxBins + 1 : size];
+        for (int i = 0; i < numPoints; i++) {
+            points[i] = dataInput.readDouble();
+        }
+        for (int i = 0; i < size; i++) {
+            counts[i] = dataInput.readLong();
+        }
+    }
+
+    // Fields
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public int getMaxBins() {
+        return maxBins;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,246 @@
+package extramuros.java.jobs.stats.histogram;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
+import extramuros.java.formats.StatsCatalog;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.ExtramurosJob;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.mahout.common.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 15:05
+ *
+ * Histogram of the values of a column. Unlike the frequency distribution
+ * job, that writes a pair for every distinct value, the mappers fill a
+ * histogram with a fixed number of bins, the combiner and the single
+ * reducer merge them and the output is one histogram whatever the number
+ * of rows. Bins are given by their edges (equi-width, equi-depth...) or
+ * adapt to the data when only the number of bins is given. Without edges,
+ * as for a column without values, the histogram is empty.
+ *
+ * The histograms of every file of the table are kept in the stats catalog
+ * of the table and only the files without a histogram with the same bins
+ * are read, e.g. the files appended since the last run.
+ */
+public class Job extends ExtramurosJob {
+
+    public static final int DEFAULT_BINS = 20;
+
+    protected String columnName;
+    protected double[] edges;
+    protected int bins;
+    protected AbstractTable table;
+    protected Path outputPath;
+
+    private static final Logger log = LoggerFactory.getLogger(Job.class);
+
+    public Job(String columnName, double[] edges, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        super(configuration);
+
+        this.columnName = columnName;
+        this.edges = edges;
+        this.bins = Math.max(edges.length - 1, 0);
+        this.table = table;
+        this.outputPath = new Path(outputPath);
+    }
+
+    public Job(String columnName, int bins, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        super(configuration);
+
+        this.columnName = columnName;
+        this.bins = bins;
+        this.table = table;
+        this.outputPath = new Path(outputPath);
+    }
+
+    public static String formatEdges(double[] edges) {
+        StringBuilder builder = new StringBuilder();
+        for (double edge : edges) {
+            if (builder.length() > 0) {
+                builder.append(",");
+            }
+            builder.append(Double.toString(edge));
+        }
+        return builder.toString();
+    }
+
+    public static double[] parseEdges(String edges) {
+        String[] parts = edges.split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i]);
+        }
+        return values;
+    }
+
+    // kind of the histograms in the stats catalog, histograms with other bins are not merged
+    protected String catalogKind() {
+        return (edges != null) ? "histogram:" + formatEdges(edges) : "histogram:adaptive:" + bins;
+    }
+
+    // empty histogram with the bins of the job
+    protected Histogram emptyHistogram() {
+        return (edges != null) ? Histogram.withEdges(edges) : Histogram.adaptive(bins);
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+
+            // no edges for a column without values, the histogram is empty
+            if (edges != null && edges.length < 2) {
+                TableUtils.writeNamedWritables(new Path(outputPath, "part-r-00000"), new HashMap<String, Histogram>(),
+                        Histogram.class, getConf());
+                return;
+            }
+
+            StatsCatalog catalog = catalogStates(table, catalogKind(), new String[]{columnName}, outputPath, perFileStates());
+            if (catalog == null) {
+                return;
+            }
+
+            // merged histogram of the files, written as a run over the whole table would
+            Histogram merged = emptyHistogram();
+            for (Writable fileHistogram : catalog.getStates(catalogKind(), columnName)) {
+                merged.merge((Histogram) fileHistogram);
+            }
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+            HashMap<String, Histogram> output = new HashMap<String, Histogram>(1);
+            if (merged.getCount() > 0) {
+                output.put(columnName, merged);
+            }
+            TableUtils.writeNamedWritables(new Path(outputPath, "part-r-00000"), output, Histogram.class, getConf());
+        } catch (IOException e) {
+            log.error("Error running job", e);
+        } catch (InterruptedException e) {
+            log.error("Error running job", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Error running job", e);
+        }
+    }
+
+    // histograms of every file kept in the stats catalog
+    protected PerFileStates perFileStates() {
+        return new PerFileStates() {
+            public void runFiles(Path[] files, boolean perFile) throws IOException, InterruptedException, ClassNotFoundException {
+                runHistograms(files, perFile);
+            }
+
+            public Writable emptyState(String column) {
+                return emptyHistogram();
+            }
+        };
+    }
+
+    // Hadoop job computing the histograms of the column for some of the files
+    protected void runHistograms(Path[] files, boolean perFile) throws IOException, InterruptedException, ClassNotFoundException {
+        if (getFs().exists(outputPath)) {
+            getFs().delete(outputPath, true);
+        }
+
+        getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
+        getConf().set(JobKeys.COLUMN_NAME, columnName);
+
+        // prepare Hadoop job
+        setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "histogram job for column: " + columnName));
+
+        getJob().setJobName("histogram_job");
+        // only the needed columns are decoded by columnar tables
+        getJob().getConfiguration().set(JobKeys.PROJECTION, columnName);
+        if (edges != null) {
+            getJob().getConfiguration().set(JobKeys.HISTOGRAM_EDGES, formatEdges(edges));
+        } else {
+            getJob().getConfiguration().setInt(JobKeys.HISTOGRAM_BINS, bins);
+        }
+        getJob().getConfiguration().setBoolean(JobKeys.PER_FILE, perFile);
+
+        getJob().setMapperClass(Mapper.class);
+        getJob().setCombinerClass(Reducer.class);
+        getJob().setReducerClass(Reducer.class);
+        getJob().setNumReduceTasks(1);
+
+        getJob().setMapOutputKeyClass(Text.class);
+        getJob().setMapOutputValueClass(Histogram.class);
+
+        getJob().setOutputKeyClass(Text.class);
+        getJob().setOutputValueClass(Histogram.class);
+
+        if (table.isAdapter()) {
+            getJob().setInputFormatClass(((AbstractTableAdapter<Writable, Writable>) table).inputFormat());
+        } else {
+            getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
+        }
+        getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
+
+        addInputPaths(files);
+        FileOutputFormat.setOutputPath(getJob(), outputPath);
+
+        getJob().setJarByClass(Job.class);
+
+        if (!getJob().waitForCompletion(true)) {
+            throw new InterruptedException("Histogram job failed processing " + new Path(table.getRowsPath()).toUri().getPath()
+                    + " output: " + outputPath.toUri().getPath());
+        }
+
+        cleanOutput(outputPath);
+    }
+
+    @Override
+    public Path getOutputFile() {
+        return outputPath;
+    }
+
+    /**
+     * Merged histogram, null if the column has no values.
+     */
+    public Histogram getHistogram() {
+        try {
+            Iterator<Pair<Writable, Writable>> pairs = TableUtils.directorySeqIterator(outputPath, getConf());
+            if (pairs.hasNext()) {
+                return (Histogram) pairs.next().getSecond();
+            }
+        } catch (IOException e) {
+            log.error("Error reading histogram from " + outputPath.toUri().getPath(), e);
+        }
+        return null;
+    }
+
+    /**
+     * Bins of the histogram as arrays [lower, upper, count].
+     */
+    @Override
+    public Object getOutput() {
+        Histogram histogram = getHistogram();
+        if (histogram == null) {
+            return new ArrayList<double[]>();
+        }
+        return histogram.getBins();
+    }
+
+    public int run(String[] strings) throws Exception {
+        run();
+        return 0;
+    }
+}
@@ -0,0 +1,96 @@
+package extramuros.java.jobs.stats.histogram;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 14:45
+ *
+ * Adds the values of the column for all the rows of the split to a
+ * histogram and writes it once in cleanup(). With JobKeys.PER_FILE the
+ * path of the file of the split follows the column in the key, see
+ * TableUtils.perFileKeySuffix.
+ */
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Text, Histogram> {
+
+    protected AbstractTable table;
+    protected String columnName;
+
+    protected NumericColumnReader reader;
+    protected Histogram histogram;
+    protected String keySuffix;
+
+    private static final Logger log = LoggerFactory.getLogger(Mapper.class);
+
+    protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
+        Row row = null;
+        if (table.isAdapter()) {
+            // adapt input
+            row = ((AbstractTableAdapter<Writable, Writable>) table).map(key, value);
+
+        } else {
+            // force conversion
+            row = (Row) value;
+        }
+
+        double number = reader.readDouble(row);
+        if (reader.isValid()) {
+            histogram.add(number);
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        if (histogram.getCount() > 0) {
+            context.write(new Text(columnName + keySuffix), histogram);
+        }
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        // column name
+        columnName = config.get(JobKeys.COLUMN_NAME);
+        log.info("Setup column name: " + columnName);
+
+        // bins
+        String edges = config.get(JobKeys.HISTOGRAM_EDGES);
+        if (edges != null) {
+            histogram = Histogram.withEdges(Job.parseEdges(edges));
+        } else {
+            histogram = Histogram.adaptive(config.getInt(JobKeys.HISTOGRAM_BINS, Job.DEFAULT_BINS));
+        }
+
+        keySuffix = TableUtils.perFileKeySuffix(config, context.getInputSplit());
+
+        // table info
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        log.info("Reading mapper from " + tablePath);
+        try {
+            table = TableUtils.readAbstractTable(tablePath, config);
+            reader = NumericColumnReader.forColumn(table.getHeader(), columnName);
+            if (!reader.isSupported()) {
+                log.error("Column " + columnName + " is not numeric");
+            }
+        } catch (Exception e) {
+            log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
+        }
+    }
+}
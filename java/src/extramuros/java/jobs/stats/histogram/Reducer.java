@@ -0,0 +1,28 @@
+package extramuros.java.jobs.stats.histogram;
+
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 14:55
+ *
+ * Merges the partial histograms of the column. Used both as combiner and
+ * as the single reducer of the job.
+ */
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Text, Histogram, Text, Histogram> {
+
+    @Override
+    protected void reduce(Text columnName, Iterable<Histogram> values, Context context) throws IOException, InterruptedException {
+        Histogram merged = null;
+        for (Histogram value : values) {
+            if (merged == null) {
+                merged = value.emptyCopy();
+            }
+            merged.merge(value);
+        }
+        context.write(columnName, merged);
+    }
+}
@@ -0,0 +1,313 @@
+package extramuros.java.jobs.stats.moments;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
+import extramuros.java.formats.SampledInputFormat;
+import extramuros.java.formats.StatsCatalog;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.ExtramurosJob;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.math.jet.stat.Probability;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 21:50
+ *
+ * Approximate version of the moments job reading a random sample of the
+ * splits of the table instead of every row. The mappers write the moments
+ * of their split and the estimates and confidence intervals are computed
+ * by ApproximateMoments.
+ *
+ * A first round reads PILOT_FRACTION of the splits. While the interval of
+ * the average of some column is wider than relativeError (relative to the
+ * average) more splits are read, as many as the width of the interval
+ * says are needed, without reading again the splits already read. With a
+ * time budget the number of splits of the next round is limited to the
+ * ones that can be read in the time left at the speed of the previous
+ * rounds.
+ */
+public class ApproximateJob extends ExtramurosJob {
+
+    public static final double DEFAULT_ERROR = 0.01;
+    public static final double DEFAULT_CONFIDENCE = 0.95;
+    public static final double PILOT_FRACTION = 0.05;
+    public static final int MAX_ROUNDS = 4;
+
+    protected String[] columns;
+    protected AbstractTable table;
+    protected Path outputPath;
+    protected double relativeError;
+    protected double confidence;
+    protected long timeBudget;
+    protected long seed;
+    protected HashMap<String, ApproximateMoments> results;
+
+    private static final Logger log = LoggerFactory.getLogger(ApproximateJob.class);
+
+
+    /**
+     * relativeError is the target half width of the interval of the
+     * averages relative to the averages and timeBudget the maximum time in
+     * milliseconds, 0 for no limit.
+     */
+    public ApproximateJob(String[] columns, double relativeError, double confidence, long timeBudget,
+                          AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        super(configuration);
+
+        this.columns = columns;
+        this.relativeError = relativeError;
+        this.confidence = confidence;
+        this.timeBudget = timeBudget;
+        this.seed = (new Date()).getTime();
+        this.table = table;
+        this.outputPath = new Path(outputPath);
+    }
+
+    public ApproximateJob(String[] columns, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        this(columns, DEFAULT_ERROR, DEFAULT_CONFIDENCE, 0, table, outputPath, configuration);
+    }
+
+    public Path getOutputFile() {
+        return outputPath;
+    }
+
+    /**
+     * Map from column name to a map with the estimates of the keys of the
+     * moments job, the bounds of the intervals in the keys 'avg_low',
+     * 'avg_high', 'var_low', 'var_high', 'stdev_low', 'stdev_high',
+     * 'count_low', 'count_high', 'nulls_low' and 'nulls_high', and the
+     * number of splits in 'splits' and 'sampled_splits'. 'min' and 'max'
+     * are the ones of the sample.
+     */
+    public Object getOutput() {
+        HashMap<String, HashMap<String, Double>> stats = new HashMap<String, HashMap<String, Double>>(columns.length);
+        if (results == null) {
+            return stats;
+        }
+
+        double z = zValue();
+        for (String column : columns) {
+            ApproximateMoments estimates = results.get(column);
+            if (estimates == null) {
+                continue;
+            }
+            HashMap<String, Double> values = new HashMap<String, Double>(20);
+            putInterval(values, "avg", estimates.average(z));
+            putInterval(values, "var", estimates.variance(z));
+            putInterval(values, "stdev", estimates.standardDeviation(z));
+            putInterval(values, "count", estimates.count(z));
+            putInterval(values, "nulls", estimates.nulls(z));
+            values.put("min", estimates.getSample().getMin());
+            values.put("max", estimates.getSample().getMax());
+            values.put("splits", (double) estimates.getTotalSplits());
+            values.put("sampled_splits", (double) estimates.getSampledSplits());
+            stats.put(column, values);
+        }
+        return stats;
+    }
+
+    private static void putInterval(HashMap<String, Double> values, String key, double[] interval) {
+        values.put(key, interval[0]);
+        values.put(key + "_low", interval[1]);
+        values.put(key + "_high", interval[2]);
+    }
+
+    // estimates of every column, null if the job has not run
+    public HashMap<String, ApproximateMoments> getEstimates() {
+        return results;
+    }
+
+    protected double zValue() {
+        return Probability.normalInverse(0.5 + confidence / 2);
+    }
+
+    public void run() {
+        try {
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+
+            long start = (new Date()).getTime();
+            double z = zValue();
+            // column -> moments of every split read
+            HashMap<String, ArrayList<Moments>> splitMoments = new HashMap<String, ArrayList<Moments>>(columns.length * 2);
+            for (String column : columns) {
+                splitMoments.put(column, new ArrayList<Moments>());
+            }
+
+            int totalSplits = -1;
+            int from = 0;
+            int to = 0;
+            for (int round = 0; round < MAX_ROUNDS; round++) {
+                Path roundPath = new Path(outputPath, "round-" + round);
+                prepareJob(from, to, roundPath);
+                if (totalSplits < 0) {
+                    totalSplits = SampledInputFormat.countSplits(getJob());
+                    to = Math.min(totalSplits, Math.max(2, (int) Math.ceil(totalSplits * PILOT_FRACTION)));
+                    getJob().getConfiguration().setInt(JobKeys.SAMPLE_SPLITS_TO, to);
+                }
+                if (totalSplits == 0) {
+                    break;
+                }
+
+                log.info("Reading splits " + from + " to " + to + " of " + totalSplits);
+                if (!getJob().waitForCompletion(true)) {
+                    throw new InterruptedException("Approximate stats failed processing " + new Path(table.getRowsPath()).toUri().getPath()
+                            + " output: " + roundPath.toUri().getPath());
+                }
+                readSplitMoments(roundPath, splitMoments);
+
+                results = estimates(splitMoments, totalSplits, to);
+                double worstError = 0;
+                for (ApproximateMoments estimates : results.values()) {
+                    worstError = Math.max(worstError, estimates.relativeError(z));
+                }
+                log.info("Relative error after " + to + " splits: " + worstError);
+                if (worstError <= relativeError || to >= totalSplits) {
+                    break;
+                }
+
+                // splits needed for the target error, the width shrinks with the square root of the splits read
+                long needed = (long) Math.ceil(to * (worstError / relativeError) * (worstError / relativeError));
+                int next = (int) Math.min(totalSplits, Double.isInfinite(worstError) ? 2L * to : needed);
+                if (timeBudget > 0) {
+                    long elapsed = (new Date()).getTime() - start;
+                    long affordable = to + (long) ((timeBudget - elapsed) / ((double) elapsed / to));
+                    next = (int) Math.min(next, affordable);
+                }
+                if (next <= to) {
+                    break;
+                }
+                from = to;
+                to = next;
+            }
+
+            if (results == null) {
+                results = estimates(splitMoments, Math.max(totalSplits, 0), 0);
+            }
+
+        } catch (IOException e) {
+            log.error("Error running job", e);
+        } catch (InterruptedException e) {
+            log.error("Error running job", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Error running job", e);
+        }
+    }
+
+    // Hadoop job reading the splits from .. to of the shuffled splits
+    protected void prepareJob(int from, int to, Path roundPath) throws IOException {
+        StringBuilder columnsBuilder = new StringBuilder();
+        for (String column : columns) {
+            if (columnsBuilder.length() > 0) {
+                columnsBuilder.append(",");
+            }
+            columnsBuilder.append(column);
+        }
+
+        getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
+
+        setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "approximate moments stats job"));
+
+        getJob().setJobName("approximate_moments_stats_job");
+        getJob().getConfiguration().set(JobKeys.COLUMNS, columnsBuilder.toString());
+        // only the needed columns are decoded by columnar tables
+        getJob().getConfiguration().set(JobKeys.PROJECTION, columnsBuilder.toString());
+        getJob().getConfiguration().setBoolean(JobKeys.PER_SPLIT, true);
+        getJob().getConfiguration().setLong(JobKeys.SAMPLE_SEED, seed);
+        getJob().getConfiguration().setInt(JobKeys.SAMPLE_SPLITS_FROM, from);
+        getJob().getConfiguration().setInt(JobKeys.SAMPLE_SPLITS_TO, to);
+
+        getJob().setMapperClass(Mapper.class);
+        getJob().setCombinerClass(Reducer.class);
+        getJob().setReducerClass(Reducer.class);
+        getJob().setNumReduceTasks(1);
+
+        getJob().setMapOutputKeyClass(Text.class);
+        getJob().setMapOutputValueClass(Moments.class);
+
+        getJob().setOutputKeyClass(Text.class);
+        getJob().setOutputValueClass(Moments.class);
+
+        if (table.isAdapter()) {
+            SampledInputFormat.setDelegate(getJob().getConfiguration(), ((AbstractTableAdapter<Writable, Writable>) table).inputFormat());
+        } else {
+            SampledInputFormat.setDelegate(getJob().getConfiguration(), PrimitiveRowInputFormat.class);
+        }
+        getJob().setInputFormatClass(SampledInputFormat.class);
+        getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
+
+        String inputPathString = composeInputPathString(new Path(table.getRowsPath()));
+        FileInputFormat.setInputPaths(getJob(), inputPathString);
+        FileOutputFormat.setOutputPath(getJob(), roundPath);
+
+        getJob().setJarByClass(ApproximateJob.class);
+    }
+
+    protected void readSplitMoments(Path roundPath, HashMap<String, ArrayList<Moments>> splitMoments) throws IOException {
+        cleanOutput(roundPath);
+        Iterator<Pair<Writable, Writable>> pairs = TableUtils.directorySeqIterator(roundPath, getConf());
+        while (pairs.hasNext()) {
+            Pair<Writable, Writable> pair = pairs.next();
+            String key = pair.getFirst().toString();
+            int separator = key.indexOf(StatsCatalog.FILE_SEPARATOR);
+            if (separator < 0) {
+                throw new IOException("Moments of column " + key + " not assigned to a split, the input cannot be sampled");
+            }
+            ArrayList<Moments> moments = splitMoments.get(key.substring(0, separator));
+            if (moments != null) {
+                moments.add((Moments) pair.getSecond());
+            }
+        }
+    }
+
+    // every split read counts, also the ones without output
+    protected HashMap<String, ApproximateMoments> estimates(HashMap<String, ArrayList<Moments>> splitMoments, int totalSplits, int sampledSplits) {
+        HashMap<String, ApproximateMoments> estimates = new HashMap<String, ApproximateMoments>(columns.length * 2);
+        for (String column : columns) {
+            ApproximateMoments columnEstimates = new ApproximateMoments(totalSplits);
+            ArrayList<Moments> moments = splitMoments.get(column);
+            for (Moments split : moments) {
+                columnEstimates.addSplit(split);
+            }
+            for (int i = moments.size(); i < sampledSplits; i++) {
+                columnEstimates.addSplit(new Moments());
+            }
+            estimates.put(column, columnEstimates);
+        }
+        return estimates;
+    }
+
+    // Fields
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int run(String[] strings) throws Exception {
+        run();
+        return 0;
+    }
+}
@@ -0,0 +1,173 @@
+package extramuros.java.jobs.stats.moments;
+
+import java.util.ArrayList;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 21:30
+ *
+ * Estimates of the moments of a column of a table from the moments of a
+ * random sample of its splits, with confidence intervals. The splits are
+ * the sampling units (cluster sampling), so the intervals take into
+ * account that the rows of a split are not independent: the average and
+ * the variance are ratio estimators whose variance is estimated from the
+ * differences between splits, and counts are scaled by the number of
+ * splits of the table. All the estimators include the finite population
+ * correction, the intervals have zero width when every split is read.
+ * Intervals are normal approximations: the one of the average is the
+ * most reliable, the one of the variance is too narrow with few splits.
+ */
+public class ApproximateMoments {
+
+    private int totalSplits;
+    private ArrayList<Moments> splits;
+    private Moments sample;
+
+    public ApproximateMoments(int totalSplits) {
+        this.totalSplits = totalSplits;
+        this.splits = new ArrayList<Moments>();
+        this.sample = new Moments();
+    }
+
+    // moments of one of the sampled splits, empty if it had no rows
+    public void addSplit(Moments moments) {
+        splits.add(moments);
+        sample.merge(moments);
+    }
+
+    // estimates, arrays [estimate, low, high] for the normal quantile z
+
+    public double[] average(double z) {
+        double mean = sample.getMean();
+        double[] y = new double[splits.size()];
+        double[] n = new double[splits.size()];
+        for (int i = 0; i < y.length; i++) {
+            Moments split = splits.get(i);
+            n[i] = split.getCount();
+            y[i] = (split.getCount() == 0) ? 0 : split.getMean() * split.getCount();
+        }
+        return interval(mean, ratioVariance(mean, y, n), z);
+    }
+
+    public double[] variance(double z) {
+        double mean = sample.getMean();
+        double[] y = new double[splits.size()];
+        double[] n = new double[splits.size()];
+        for (int i = 0; i < y.length; i++) {
+            Moments split = splits.get(i);
+            n[i] = split.getCount();
+            if (split.getCount() > 0) {
+                // squared deviations from the mean of the sample
+                double delta = split.getMean() - mean;
+                y[i] = split.getVariance() * split.getCount() + delta * delta * split.getCount();
+            }
+        }
+        return interval(sample.getVariance(), ratioVariance(sample.getVariance(), y, n), z);
+    }
+
+    public double[] standardDeviation(double z) {
+        double[] variance = variance(z);
+        return new double[]{Math.sqrt(variance[0]), Math.sqrt(Math.max(variance[1], 0)), Math.sqrt(variance[2])};
+    }
+
+    // values not null in the table
+    public double[] count(double z) {
+        double[] n = new double[splits.size()];
+        for (int i = 0; i < n.length; i++) {
+            n[i] = splits.get(i).getCount();
+        }
+        return total(n, z);
+    }
+
+    public double[] nulls(double z) {
+        double[] n = new double[splits.size()];
+        for (int i = 0; i < n.length; i++) {
+            n[i] = splits.get(i).getNullCount();
+        }
+        return total(n, z);
+    }
+
+    /**
+     * Half width of the interval of the average relative to the average,
+     * or to the standard deviation if the average is zero.
+     */
+    public double relativeError(double z) {
+        double[] average = average(z);
+        double scale = Math.abs(average[0]);
+        if (scale == 0) {
+            scale = sample.getStandardDeviation();
+        }
+        double halfWidth = (average[2] - average[1]) / 2;
+        if (Double.isNaN(halfWidth)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return halfWidth == 0 ? 0 : halfWidth / scale;
+    }
+
+    // estimator of the total of a value per split
+    private double[] total(double[] n, double z) {
+        int m = n.length;
+        double sum = 0;
+        for (double value : n) {
+            sum += value;
+        }
+        double estimate = (m == 0) ? Double.NaN : sum * totalSplits / m;
+
+        double variance;
+        if (m >= totalSplits) {
+            variance = 0;
+        } else if (m < 2) {
+            variance = Double.NaN;
+        } else {
+            double mean = sum / m;
+            double squares = 0;
+            for (double value : n) {
+                squares += (value - mean) * (value - mean);
+            }
+            variance = (double) totalSplits * totalSplits * (1 - (double) m / totalSplits) * squares / (m - 1) / m;
+        }
+        return interval(estimate, variance, z);
+    }
+
+    // linearized variance of the ratio sum(y) / sum(n)
+    private double ratioVariance(double ratio, double[] y, double[] n) {
+        int m = y.length;
+        if (m >= totalSplits) {
+            return 0;
+        }
+        if (m < 2) {
+            return Double.NaN;
+        }
+
+        double sumN = 0;
+        double squares = 0;
+        for (int i = 0; i < m; i++) {
+            sumN += n[i];
+            double residual = y[i] - ratio * n[i];
+            squares += residual * residual;
+        }
+        double meanN = sumN / m;
+        return (1 - (double) m / totalSplits) * squares / (m - 1) / (m * meanN * meanN);
+    }
+
+    private static double[] interval(double estimate, double variance, double z) {
+        double halfWidth = z * Math.sqrt(variance);
+        return new double[]{estimate, estimate - halfWidth, estimate + halfWidth};
+    }
+
+    // Fields
+
+    // merged moments of the sampled splits, min and max are the ones of the sample
+    public Moments getSample() {
+        return sample;
+    }
+
+    public int getSampledSplits() {
+        return splits.size();
+    }
+
+    public int getTotalSplits() {
+        return totalSplits;
+    }
+}
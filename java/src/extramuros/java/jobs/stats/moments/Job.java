@@ -0,0 +1,209 @@
+package extramuros.java.jobs.stats.moments;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
+import extramuros.java.formats.StatsCatalog;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.ExtramurosJob;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.mahout.common.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * User: antonio
+ * Date: 17/10/2026
+ * Time: 18:05
+ *
+ * Computes count, nulls, min, max, average, variance and standard
+ * deviation of several numeric columns of a table in a single pass. Every
+ * mapper accumulates the moments of its split, the combiner and the
+ * single reducer merge them.
+ *
+ * The moments of every file of the table are kept in the stats catalog of
+ * the table and merged to get the moments of the table. Only the files
+ * without moments in the catalog for some of the columns are read, e.g.
+ * the files appended to the table since the last run, and the table is
+ * not read at all if no file has changed.
+ */
+public class Job extends ExtramurosJob {
+
+    protected String[] columns;
+    protected AbstractTable table;
+    protected Path outputPath;
+    protected HashMap<String, Moments> results;
+
+    private static final Logger log = LoggerFactory.getLogger(Job.class);
+
+
+    public Job(String[] columns, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        super(configuration);
+
+        this.columns = columns;
+        this.table = table;
+        this.outputPath = new Path(outputPath);
+    }
+
+    public Path getOutputFile() {
+        return outputPath;
+    }
+
+    /**
+     * Map from column name to a map with keys 'avg', 'min', 'max',
+     * 'count', 'nulls', 'var' and 'stdev'.
+     */
+    public Object getOutput() {
+        HashMap<String, Moments> moments = results;
+        if (moments == null) {
+            moments = readMoments();
+        }
+
+        HashMap<String, HashMap<String, Double>> stats = new HashMap<String, HashMap<String, Double>>(columns.length);
+        for (Map.Entry<String, Moments> entry : moments.entrySet()) {
+            stats.put(entry.getKey(), toMap(entry.getValue()));
+        }
+        return stats;
+    }
+
+    /**
+     * Moments of every column, null if the job has not run.
+     */
+    public HashMap<String, Moments> getMoments() {
+        return results;
+    }
+
+    // moments written by the Hadoop job
+    protected HashMap<String, Moments> readMoments() {
+        HashMap<String, Moments> moments = new HashMap<String, Moments>(columns.length);
+        try {
+            Iterator<Pair<Writable, Writable>> pairs = TableUtils.directorySeqIterator(outputPath, getConf());
+            while (pairs.hasNext()) {
+                Pair<Writable, Writable> pair = pairs.next();
+                moments.put(pair.getFirst().toString(), (Moments) pair.getSecond());
+            }
+        } catch (IOException e) {
+            log.error("Error reading moments from " + outputPath.toUri().getPath(), e);
+        }
+        return moments;
+    }
+
+    public static HashMap<String, Double> toMap(Moments moments) {
+        HashMap<String, Double> values = new HashMap<String, Double>(7);
+        values.put("avg", moments.getMean());
+        values.put("min", moments.getMin());
+        values.put("max", moments.getMax());
+        values.put("count", (double) moments.getCount());
+        values.put("nulls", (double) moments.getNullCount());
+        values.put("var", moments.getVariance());
+        values.put("stdev", moments.getStandardDeviation());
+        return values;
+    }
+
+    public void run() {
+        try {
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+
+            results = new HashMap<String, Moments>(columns.length);
+
+            StatsCatalog catalog = catalogStates(table, StatsCatalog.MOMENTS, columns, outputPath, perFileStates());
+            if (catalog == null) {
+                results.putAll(readMoments());
+                return;
+            }
+
+            for (String column : columns) {
+                Moments columnMoments = catalog.getMoments(column);
+                if (columnMoments != null) {
+                    results.put(column, columnMoments);
+                }
+            }
+
+        } catch (IOException e) {
+            log.error("Error running job", e);
+        } catch (InterruptedException e) {
+            log.error("Error running job", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Error running job", e);
+        }
+    }
+
+    // moments of every file kept in the stats catalog
+    protected PerFileStates perFileStates() {
+        return new PerFileStates() {
+            public void runFiles(Path[] files, boolean perFile) throws IOException, InterruptedException, ClassNotFoundException {
+                runMoments(files, perFile);
+            }
+
+            public Writable emptyState(String column) {
+                return new Moments();
+            }
+        };
+    }
+
+    // Hadoop job computing the moments of the columns for some of the files
+    protected void runMoments(Path[] files, boolean perFile) throws IOException, InterruptedException, ClassNotFoundException {
+        if (getFs().exists(outputPath)) {
+            getFs().delete(outputPath, true);
+        }
+
+        getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
+
+        // prepare Hadoop job
+        setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "moments stats job"));
+
+        getJob().setJobName("moments_stats_job");
+        getJob().getConfiguration().set(JobKeys.COLUMNS, joinColumns(columns));
+        // only the needed columns are decoded by columnar tables
+        getJob().getConfiguration().set(JobKeys.PROJECTION, joinColumns(columns));
+        getJob().getConfiguration().setBoolean(JobKeys.PER_FILE, perFile);
+
+        getJob().setMapperClass(Mapper.class);
+        getJob().setCombinerClass(Reducer.class);
+        getJob().setReducerClass(Reducer.class);
+        getJob().setNumReduceTasks(1);
+
+        getJob().setMapOutputKeyClass(Text.class);
+        getJob().setMapOutputValueClass(Moments.class);
+
+        getJob().setOutputKeyClass(Text.class);
+        getJob().setOutputValueClass(Moments.class);
+
+        if (table.isAdapter()) {
+            getJob().setInputFormatClass(((AbstractTableAdapter<Writable, Writable>) table).inputFormat());
+        } else {
+            getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
+        }
+        getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
+
+        addInputPaths(files);
+        FileOutputFormat.setOutputPath(getJob(), outputPath);
+
+        getJob().setJarByClass(Job.class);
+
+        if (!getJob().waitForCompletion(true)) {
+            throw new InterruptedException("Stats algorithm failed processing " + new Path(table.getRowsPath()).toUri().getPath()
+                    + " output: " + outputPath.toUri().getPath());
+        }
+
+        cleanOutput(outputPath);
+    }
+
+    public int run(String[] strings) throws Exception {
+        run();
+        return 0;
+    }
+}
@@ -0,0 +1,96 @@
+package extramuros.java.jobs.stats.moments;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 17/10/2026
+ * Time: 17:40
+ *
+ * Accumulates the moments of every column for all the rows of the split
+ * and writes one pair column/moments per column in cleanup(). With
+ * JobKeys.PER_FILE or JobKeys.PER_SPLIT the moments of every file or
+ * split are kept apart, see TableUtils.perFileKeySuffix.
+ */
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Text, Moments> {
+
+    protected AbstractTable table;
+    protected String[] columns;
+    protected NumericColumnReader[] readers;
+    protected Moments[] moments;
+    protected String keySuffix;
+
+    private static final Logger log = LoggerFactory.getLogger(Mapper.class);
+
+    protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
+        Row row = null;
+        if (table.isAdapter()) {
+            // adapt input
+            row = ((AbstractTableAdapter<Writable, Writable>) table).map(key, value);
+
+        } else {
+            // force conversion
+            row = (Row) value;
+        }
+
+        for (int i = 0; i < readers.length; i++) {
+            double number = readers[i].readDouble(row);
+            if (readers[i].isValid()) {
+                moments[i].add(number);
+            } else if (readers[i].getStatus() == NumericColumnReader.NULL) {
+                moments[i].addNull();
+            }
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        for (int i = 0; i < columns.length; i++) {
+            context.write(new Text(columns[i] + keySuffix), moments[i]);
+        }
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        // column names
+        columns = config.get(JobKeys.COLUMNS).split(",");
+        moments = new Moments[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            moments[i] = new Moments();
+        }
+
+        keySuffix = TableUtils.perFileKeySuffix(config, context.getInputSplit());
+
+        // table info
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        log.info("Reading mapper from " + tablePath);
+        try {
+            table = TableUtils.readAbstractTable(tablePath, config);
+            readers = NumericColumnReader.forColumns(table.getHeader(), columns);
+            for (int i = 0; i < readers.length; i++) {
+                if (!readers[i].isSupported()) {
+                    log.error("Column " + columns[i] + " is not numeric");
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package extramuros.java.jobs.stats.moments;
+
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 17/10/2026
+ * Time: 17:20
+ *
+ * Count, nulls, min, max, mean and sum of squared deviations of a column.
+ * Values are added with Welford's update and partial results are merged
+ * with Chan's formula, so mappers, combiners and the reducer can all
+ * accumulate without a second pass over the rows.
+ */
+public class Moments implements Writable {
+
+    private long count;
+    private long nullCount;
+    private double min;
+    private double max;
+    private double mean;
+    private double m2;
+
+    public Moments() {
+        reset();
+    }
+
+    public void reset() {
+        count = 0;
+        nullCount = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+        mean = 0;
+        m2 = 0;
+    }
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        if(value < min) {
+            min = value;
+        }
+        if(value > max) {
+            max = value;
+        }
+    }
+
+    public void addNull() {
+        nullCount++;
+    }
+
+    public void merge(Moments other) {
+        nullCount += other.nullCount;
+        if(other.count == 0) {
+            return;
+        }
+        if(count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+        } else {
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+            count = total;
+        }
+        if(other.min < min) {
+            min = other.min;
+        }
+        if(other.max > max) {
+            max = other.max;
+        }
+    }
+
+    public void write(DataOutput dataOutput) throws IOException {
+        dataOutput.writeLong(count);
+        dataOutput.writeLong(nullCount);
+        dataOutput.writeDouble(min);
+        dataOutput.writeDouble(max);
+        dataOutput.writeDouble(mean);
+        dataOutput.writeDouble(m2);
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        count = dataInput.readLong();
+        nullCount = dataInput.readLong();
+        min = dataInput.readDouble();
+        max = dataInput.readDouble();
+        mean = dataInput.readDouble();
+        m2 = dataInput.readDouble();
+    }
+
+    // Fields
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getNullCount() {
+        return nullCount;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    // NaN if there are no values
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    // population variance as computed by the dispersion job, NaN if there are no values
+    public double getVariance() {
+        return count == 0 ? Double.NaN : m2 / count;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+}
@@ -0,0 +1,25 @@
+package extramuros.java.jobs.stats.moments;
+
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 17/10/2026
+ * Time: 17:55
+ *
+ * Merges the partial moments of a column. Used both as combiner and as
+ * the single reducer of the job.
+ */
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Text, Moments, Text, Moments> {
+
+    @Override
+    protected void reduce(Text columnName, Iterable<Moments> values, Context context) throws IOException, InterruptedException {
+        Moments merged = new Moments();
+        for (Moments value : values) {
+            merged.merge(value);
+        }
+        context.write(columnName, merged);
+    }
+}
@@ -1,10 +1,12 @@
 package extramuros.java.jobs.stats.normalization;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
 import extramuros.java.formats.RowTypes;
 import extramuros.java.formats.TableHeader;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.formats.adapters.VectorSeqTableAdapter;
+import extramuros.java.jobs.stats.moments.Moments;
 import extramuros.java.jobs.utils.ExtramurosJob;
 import extramuros.java.jobs.utils.JobKeys;
 import org.apache.hadoop.conf.Configuration;
@@ -12,7 +14,6 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.mahout.math.VectorWritable;
@@ -21,6 +22,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * User: antonio
@@ -62,6 +64,24 @@ public class Job extends ExtramurosJob {
         this.outputPath = new Path(outputPath);
     }
 
+    /**
+     * Normalizes the columns with the min and max values of the columns in
+     * the table, taken from the stats catalog of the table when they are
+     * there and computed by the moments job otherwise.
+     */
+    public Job(String[] columns, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        super(configuration);
+
+        StringBuilder columnsSB = new StringBuilder(columns[0]);
+        for (int i = 1; i < columns.length; i++) {
+            columnsSB.append("," + columns[i]);
+        }
+
+        this.columns = columnsSB.toString();
+        this.table = table;
+        this.outputPath = new Path(outputPath);
+    }
+
     public Path getOutputFile() {
         return outputPath;
     }
@@ -91,6 +111,10 @@ public class Job extends ExtramurosJob {
                 getFs().delete(outputPath, true);
             }
 
+            if (minValues == null) {
+                computeBounds();
+            }
+
             getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
             getConf().set(JobKeys.COLUMNS, columns);
             getConf().set(JobKeys.MAX_VALUES, maxValues);
@@ -101,6 +125,8 @@ public class Job extends ExtramurosJob {
             setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "normalization job"));
 
             getJob().setJobName("centrality_stats_job");
+            // only the needed columns are decoded by columnar tables
+            getJob().getConfiguration().set(JobKeys.PROJECTION, columns);
 
             getJob().setMapperClass(Mapper.class);
 
@@ -115,7 +141,7 @@ public class Job extends ExtramurosJob {
             if (table.isAdapter()) {
                 getJob().setInputFormatClass(((AbstractTableAdapter<Writable, Writable>) table).inputFormat());
             } else {
-                getJob().setInputFormatClass(SequenceFileInputFormat.class);
+                getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
             }
             getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
 
@@ -141,6 +167,42 @@ public class Job extends ExtramurosJob {
         }
     }
 
+    // min and max values of the columns from the moments of the table
+    protected void computeBounds() throws IOException {
+        String[] columnsArray = columns.split(",");
+        Path momentsPath = outputPath.suffix(".moments");
+
+        extramuros.java.jobs.stats.moments.Job momentsJob =
+                new extramuros.java.jobs.stats.moments.Job(columnsArray, table, momentsPath.toUri().getPath(), getConf());
+        momentsJob.run();
+
+        HashMap<String, Moments> moments = momentsJob.getMoments();
+        if (getFs().exists(momentsPath)) {
+            getFs().delete(momentsPath, true);
+        }
+        if (moments == null) {
+            throw new IOException("Cannot compute the min and max values of " + columns);
+        }
+
+        StringBuilder minValuesSB = new StringBuilder();
+        StringBuilder maxValuesSB = new StringBuilder();
+        for (int i = 0; i < columnsArray.length; i++) {
+            Moments columnMoments = moments.get(columnsArray[i]);
+            if (columnMoments == null) {
+                throw new IOException("Cannot compute the min and max values of column " + columnsArray[i]);
+            }
+            if (i > 0) {
+                minValuesSB.append(",");
+                maxValuesSB.append(",");
+            }
+            minValuesSB.append(columnMoments.getMin());
+            maxValuesSB.append(columnMoments.getMax());
+        }
+
+        this.minValues = minValuesSB.toString();
+        this.maxValues = maxValuesSB.toString();
+    }
+
     public int run(String[] strings) throws Exception {
         run();
         return 0;
@@ -1,9 +1,8 @@
 package extramuros.java.jobs.stats.normalization;
 
-import edu.emory.mathcs.csparsej.tfloat.Scs_cumsum;
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
 import extramuros.java.formats.Row;
-import extramuros.java.formats.RowTypes;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.jobs.utils.JobKeys;
 import extramuros.java.jobs.utils.TableUtils;
@@ -31,6 +30,7 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
     protected String[] columns;
     protected double[] minValues;
     protected double[] maxValues;
+    protected NumericColumnReader[] readers;
 
     private static final Logger log = LoggerFactory.getLogger(Mapper.class);
 
@@ -47,56 +47,19 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
 
         DenseVector vector = new DenseVector(columns.length);
 
-        int i =0;
-        boolean success = true;
-        for (String columnName : columns) {
-            int position = table.getHeader().positionFor(columnName);
-            int type = table.getHeader().typeFor(columnName);
-
-            Double number = new Double(0);
-            try {
-                if(row.isNullAt(position)) {
-                    success = false;
-                    break;
-                }
-                if (type == RowTypes.DOUBLE) {
-                    number = ((Double) row.getValues().get(position));
-                } else if (type == RowTypes.FLOAT) {
-                    number = ((Float) row.getValues().get(position)).doubleValue();
-                } else if (type == RowTypes.INTEGER) {
-                    number = ((Integer) row.getValues().get(position)).doubleValue();
-                } else if (type == RowTypes.LONG) {
-                    number = ((Long) row.getValues().get(position)).doubleValue();
-                } else if(type == RowTypes.DATE_TIME) {
-                    try {
-                        number = new Long(TableUtils.parseDateAtColumn(row, position, table).getTime()).doubleValue();
-                    } catch (Exception ex) {
-                        // format exception
-                        success = false;
-                        break;
-                    }
-                } else {
-                    success = false;
-                    break;
-                }
-
-                log.info("NUMBER: "+number);
-                log.info("MIN VALUES:"+minValues[i]);
-                log.info("MAX VALUES:"+maxValues[i]);
-                vector.set(i, ((number - minValues[i]) / (maxValues[i] - minValues[i])));
-            } catch (Exception e) {
-                log.error("Error retrieving value from row", e);
+        for (int i = 0; i < readers.length; i++) {
+            double number = readers[i].readDouble(row);
+            if (!readers[i].isValid()) {
+                return;
             }
-            i++;
+            vector.set(i, ((number - minValues[i]) / (maxValues[i] - minValues[i])));
         }
 
-        if(success) {
-            Integer id = TableUtils.parseWritableKeyId(key);
-            if(id == null) {
-                id = TableUtils.randomId();
-            }
-            context.write(new LongWritable(id), new VectorWritable(vector));
+        Long id = TableUtils.parseWritableKeyId(key);
+        if(id == null) {
+            id = (long) TableUtils.randomId();
         }
+        context.write(new LongWritable(id), new VectorWritable(vector));
     }
 
 
@@ -131,6 +94,7 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
         log.info("Reading mapper from " + tablePath);
         try {
             table = TableUtils.readAbstractTable(tablePath, config);
+            readers = NumericColumnReader.forColumns(table.getHeader(), columns);
         } catch (Exception e) {
             log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
         }
@@ -0,0 +1,212 @@
+package extramuros.java.jobs.stats.quantiles;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
+import extramuros.java.formats.StatsCatalog;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.ExtramurosJob;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.mahout.common.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 12:10
+ *
+ * Computes approximate quantiles (median, percentiles...) of several
+ * numeric columns of a table in a single pass. Every mapper builds a
+ * QuantileSketch per column for its split, the combiner and the single
+ * reducer merge them. The merged sketches are kept in the output and
+ * the requested quantiles are read from them.
+ *
+ * As the moments job, the sketches of every file of the table are kept in
+ * the stats catalog of the table and only the files without sketches are
+ * read, e.g. the files appended since the last run.
+ */
+public class Job extends ExtramurosJob {
+
+    protected String[] columns;
+    protected double[] fractions;
+    protected int sketchSize;
+    protected AbstractTable table;
+    protected Path outputPath;
+
+    private static final Logger log = LoggerFactory.getLogger(Job.class);
+
+
+    public Job(String[] columns, double[] fractions, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        this(columns, fractions, QuantileSketch.DEFAULT_SIZE, table, outputPath, configuration);
+    }
+
+    public Job(String[] columns, double[] fractions, int sketchSize, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        super(configuration);
+
+        this.columns = columns;
+        this.fractions = fractions;
+        this.sketchSize = sketchSize;
+        this.table = table;
+        this.outputPath = new Path(outputPath);
+    }
+
+    public Path getOutputFile() {
+        return outputPath;
+    }
+
+    /**
+     * Map from column name to a map from every requested fraction (0.5 for
+     * the median) to its approximate quantile.
+     */
+    public Object getOutput() {
+        HashMap<String, HashMap<Double, Double>> quantiles = new HashMap<String, HashMap<Double, Double>>(columns.length);
+        for (Pair<String, QuantileSketch> sketch : getSketches()) {
+            quantiles.put(sketch.getFirst(), toMap(sketch.getSecond(), fractions));
+        }
+        return quantiles;
+    }
+
+    /**
+     * Merged sketches of the columns, to read other quantiles without
+     * running the job again.
+     */
+    public ArrayList<Pair<String, QuantileSketch>> getSketches() {
+        ArrayList<Pair<String, QuantileSketch>> sketches = new ArrayList<Pair<String, QuantileSketch>>(columns.length);
+        try {
+            Iterator<Pair<Writable, Writable>> pairs = TableUtils.directorySeqIterator(outputPath, getConf());
+            while (pairs.hasNext()) {
+                Pair<Writable, Writable> pair = pairs.next();
+                sketches.add(new Pair<String, QuantileSketch>(pair.getFirst().toString(), (QuantileSketch) pair.getSecond()));
+            }
+        } catch (IOException e) {
+            log.error("Error reading quantile sketches from " + outputPath.toUri().getPath(), e);
+        }
+        return sketches;
+    }
+
+    public static HashMap<Double, Double> toMap(QuantileSketch sketch, double[] fractions) {
+        HashMap<Double, Double> values = new HashMap<Double, Double>(fractions.length);
+        for (double fraction : fractions) {
+            values.put(fraction, sketch.quantile(fraction));
+        }
+        return values;
+    }
+
+    // kind of the sketches in the stats catalog, sketches of other sizes are not merged
+    protected String catalogKind() {
+        return "quantiles:" + sketchSize;
+    }
+
+    public void run() {
+        try {
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+
+            StatsCatalog catalog = catalogStates(table, catalogKind(), columns, outputPath, perFileStates());
+            if (catalog == null) {
+                return;
+            }
+
+            // merged sketches of the files, written as a run over the whole table would
+            HashMap<String, QuantileSketch> merged = new HashMap<String, QuantileSketch>(columns.length);
+            for (String column : columns) {
+                QuantileSketch sketch = new QuantileSketch(sketchSize);
+                for (Writable fileSketch : catalog.getStates(catalogKind(), column)) {
+                    sketch.merge((QuantileSketch) fileSketch);
+                }
+                merged.put(column, sketch);
+            }
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+            TableUtils.writeNamedWritables(new Path(outputPath, "part-r-00000"), merged, QuantileSketch.class, getConf());
+
+        } catch (IOException e) {
+            log.error("Error running job", e);
+        } catch (InterruptedException e) {
+            log.error("Error running job", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Error running job", e);
+        }
+    }
+
+    // sketches of every file kept in the stats catalog
+    protected PerFileStates perFileStates() {
+        return new PerFileStates() {
+            public void runFiles(Path[] files, boolean perFile) throws IOException, InterruptedException, ClassNotFoundException {
+                runSketches(files, perFile);
+            }
+
+            public Writable emptyState(String column) {
+                return new QuantileSketch(sketchSize);
+            }
+        };
+    }
+
+    // Hadoop job computing the sketches of the columns for some of the files
+    protected void runSketches(Path[] files, boolean perFile) throws IOException, InterruptedException, ClassNotFoundException {
+        if (getFs().exists(outputPath)) {
+            getFs().delete(outputPath, true);
+        }
+
+        getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
+
+        // prepare Hadoop job
+        setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "quantiles stats job"));
+
+        getJob().setJobName("quantiles_stats_job");
+        getJob().getConfiguration().set(JobKeys.COLUMNS, joinColumns(columns));
+        getJob().getConfiguration().setInt(JobKeys.SKETCH_SIZE, sketchSize);
+        // only the needed columns are decoded by columnar tables
+        getJob().getConfiguration().set(JobKeys.PROJECTION, joinColumns(columns));
+        getJob().getConfiguration().setBoolean(JobKeys.PER_FILE, perFile);
+
+        getJob().setMapperClass(Mapper.class);
+        getJob().setCombinerClass(Reducer.class);
+        getJob().setReducerClass(Reducer.class);
+        getJob().setNumReduceTasks(1);
+
+        getJob().setMapOutputKeyClass(Text.class);
+        getJob().setMapOutputValueClass(QuantileSketch.class);
+
+        getJob().setOutputKeyClass(Text.class);
+        getJob().setOutputValueClass(QuantileSketch.class);
+
+        if (table.isAdapter()) {
+            getJob().setInputFormatClass(((AbstractTableAdapter<Writable, Writable>) table).inputFormat());
+        } else {
+            getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
+        }
+        getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
+
+        addInputPaths(files);
+        FileOutputFormat.setOutputPath(getJob(), outputPath);
+
+        getJob().setJarByClass(Job.class);
+
+        if (!getJob().waitForCompletion(true)) {
+            throw new InterruptedException("Stats algorithm failed processing " + new Path(table.getRowsPath()).toUri().getPath()
+                    + " output: " + outputPath.toUri().getPath());
+        }
+
+        cleanOutput(outputPath);
+    }
+
+    public int run(String[] strings) throws Exception {
+        run();
+        return 0;
+    }
+}
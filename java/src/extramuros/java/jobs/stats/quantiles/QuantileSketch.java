@@ -0,0 +1,298 @@
+package extramuros.java.jobs.stats.quantiles;
+
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 11:10
+ *
+ * Mergeable sketch of the distribution of a column (KLL compactors). Values
+ * are kept in levels where every value of level h stands for 2^h values of
+ * the column. When the sketch is over its capacity the lowest full level
+ * is sorted and every other value is promoted to the next level, so the
+ * sketch keeps about 3 * size values whatever the number of rows. With
+ * the default size the rank error of a quantile stays below 1%. Sketches
+ * with less than size values are exact.
+ */
+public class QuantileSketch implements Writable {
+
+    public static final int DEFAULT_SIZE = 200;
+    private static final int MIN_CAPACITY = 8;
+
+    private int size;
+    private long count;
+    private double min;
+    private double max;
+
+    private double[][] levels;
+    private int[] lengths;
+    private int numLevels;
+    // alternates the half of a level that is promoted
+    private boolean odd;
+    // capacities of the levels, computed again when the number of levels changes
+    private int[] capacities;
+    private int capacitiesLevels;
+    private int totalCapacity;
+
+    public QuantileSketch() {
+        this(DEFAULT_SIZE);
+    }
+
+    public QuantileSketch(int size) {
+        this.size = Math.max(size, 8);
+        this.min = Double.NaN;
+        this.max = Double.NaN;
+        this.levels = new double[1][];
+        this.lengths = new int[1];
+        this.levels[0] = new double[capacity(0, 1)];
+        this.numLevels = 1;
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        count++;
+
+        append(0, value);
+        compress();
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+
+        for (int h = 0; h < other.numLevels; h++) {
+            for (int i = 0; i < other.lengths[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        compress();
+    }
+
+    /**
+     * Smallest value whose rank is at least fraction * count. 0 returns the
+     * minimum and 1 the maximum, NaN if the sketch is empty.
+     */
+    public double quantile(double fraction) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (fraction <= 0) {
+            return min;
+        }
+        if (fraction >= 1) {
+            return max;
+        }
+
+        int retained = retained();
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        int position = 0;
+        long total = 0;
+        for (int h = 0; h < numLevels; h++) {
+            for (int i = 0; i < lengths[h]; i++) {
+                values[position] = levels[h][i];
+                weights[position] = 1L << h;
+                total += weights[position];
+                position++;
+            }
+        }
+        sortByValue(values, weights);
+
+        double rank = fraction * total;
+        long cumulative = 0;
+        for (int i = 0; i < retained; i++) {
+            cumulative += weights[i];
+            if (cumulative >= rank) {
+                return values[i];
+            }
+        }
+        return max;
+    }
+
+    public double[] quantiles(double[] fractions) {
+        double[] values = new double[fractions.length];
+        for (int i = 0; i < fractions.length; i++) {
+            values[i] = quantile(fractions[i]);
+        }
+        return values;
+    }
+
+    // compaction
+
+    private int capacity(int level, int levelsCount) {
+        int depth = levelsCount - level - 1;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(size * Math.pow(2.0 / 3.0, depth)));
+    }
+
+    private void updateCapacities() {
+        if (capacitiesLevels == numLevels) {
+            return;
+        }
+        capacities = new int[numLevels];
+        totalCapacity = 0;
+        for (int h = 0; h < numLevels; h++) {
+            capacities[h] = capacity(h, numLevels);
+            totalCapacity += capacities[h];
+        }
+        capacitiesLevels = numLevels;
+    }
+
+    private void append(int level, double value) {
+        while (level >= numLevels) {
+            addLevel();
+        }
+        if (lengths[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], Math.max(2, levels[level].length * 2));
+        }
+        levels[level][lengths[level]++] = value;
+    }
+
+    private void addLevel() {
+        if (numLevels == levels.length) {
+            levels = Arrays.copyOf(levels, numLevels * 2);
+            lengths = Arrays.copyOf(lengths, numLevels * 2);
+        }
+        levels[numLevels] = new double[2];
+        lengths[numLevels] = 0;
+        numLevels++;
+    }
+
+    // compacts the lowest full level while the sketch is over its capacity
+    private void compress() {
+        updateCapacities();
+        while (retained() > totalCapacity) {
+            int h = 0;
+            while (lengths[h] < capacities[h]) {
+                h++;
+            }
+            if (h + 1 == numLevels) {
+                addLevel();
+            }
+            compact(h);
+            updateCapacities();
+        }
+    }
+
+    private int retained() {
+        int retained = 0;
+        for (int h = 0; h < numLevels; h++) {
+            retained += lengths[h];
+        }
+        return retained;
+    }
+
+    private void compact(int level) {
+        double[] values = levels[level];
+        int length = lengths[level];
+        Arrays.sort(values, 0, length);
+
+        // an odd value out stays in the level
+        int start = length % 2;
+        int offset = odd ? 1 : 0;
+        odd = !odd;
+        for (int i = start + offset; i < length; i += 2) {
+            append(level + 1, values[i]);
+        }
+        lengths[level] = start;
+    }
+
+    private static void sortByValue(double[] values, long[] weights) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        final double[] keys = values;
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Double.compare(keys[a], keys[b]);
+            }
+        });
+        double[] sortedValues = new double[values.length];
+        long[] sortedWeights = new long[weights.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedValues[i] = values[order[i]];
+            sortedWeights[i] = weights[order[i]];
+        }
+        System.arraycopy(sortedValues, 0, values, 0, values.length);
+        System.arraycopy(sortedWeights, 0, weights, 0, weights.length);
+    }
+
+    // serialization
+
+    public void write(DataOutput dataOutput) throws IOException {
+        dataOutput.writeInt(size);
+        dataOutput.writeLong(count);
+        dataOutput.writeDouble(min);
+        dataOutput.writeDouble(max);
+        dataOutput.writeBoolean(odd);
+        dataOutput.writeInt(numLevels);
+        for (int h = 0; h < numLevels; h++) {
+            dataOutput.writeInt(lengths[h]);
+            for (int i = 0; i < lengths[h]; i++) {
+                dataOutput.writeDouble(levels[h][i]);
+            }
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        size = dataInput.readInt();
+        count = dataInput.readLong();
+        min = dataInput.readDouble();
+        max = dataInput.readDouble();
+        odd = dataInput.readBoolean();
+        numLevels = dataInput.readInt();
+        capacitiesLevels = 0;
+        levels = new double[Math.max(1, numLevels)][];
+        lengths = new int[levels.length];
+        for (int h = 0; h < numLevels; h++) {
+            lengths[h] = dataInput.readInt();
+            levels[h] = new double[Math.max(2, lengths[h])];
+            for (int i = 0; i < lengths[h]; i++) {
+                levels[h][i] = dataInput.readDouble();
+            }
+        }
+    }
+
+    // Fields
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,26 @@
+package extramuros.java.jobs.stats.quantiles;
+
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 11:55
+ *
+ * Merges the partial sketches of a column. Used both as combiner and as
+ * the single reducer of the job.
+ */
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Text, QuantileSketch, Text, QuantileSketch> {
+
+    @Override
+    protected void reduce(Text columnName, Iterable<QuantileSketch> values, Context context) throws IOException, InterruptedException {
+        QuantileSketch merged = new QuantileSketch(context.getConfiguration().getInt(JobKeys.SKETCH_SIZE, QuantileSketch.DEFAULT_SIZE));
+        for (QuantileSketch value : values) {
+            merged.merge(value);
+        }
+        context.write(columnName, merged);
+    }
+}
@@ -0,0 +1,157 @@
+package extramuros.java.jobs.stats.topvalues;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.ExtramurosJob;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.mahout.common.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 18:05
+ *
+ * Finds the most frequent values (heavy hitters) of several columns of a
+ * table, usually CATEGORICAL or STRING ones, in a single pass. Every
+ * mapper counts the values of its split in a SpaceSaving summary per
+ * column with a bounded number of counters, the combiner and the single
+ * reducer merge them and the k values with the largest counts are read
+ * from the merged summaries. Columns with a dictionary are counted by
+ * code and decoded when the output is read.
+ */
+public class Job extends ExtramurosJob {
+
+    protected String[] columns;
+    protected int k;
+    protected int capacity;
+    protected AbstractTable table;
+    protected Path outputPath;
+
+    private static final Logger log = LoggerFactory.getLogger(Job.class);
+
+
+    public Job(String[] columns, int k, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        this(columns, k, Math.max(SpaceSaving.DEFAULT_CAPACITY, 10 * k), table, outputPath, configuration);
+    }
+
+    public Job(String[] columns, int k, int capacity, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        super(configuration);
+
+        this.columns = columns;
+        this.k = k;
+        this.capacity = capacity;
+        this.table = table;
+        this.outputPath = new Path(outputPath);
+    }
+
+    public Path getOutputFile() {
+        return outputPath;
+    }
+
+    /**
+     * Map from column name to its k most frequent values as arrays
+     * [value, count, error], the real frequency of every value is between
+     * count - error and count.
+     */
+    public Object getOutput() {
+        HashMap<String, ArrayList<Object[]>> top = new HashMap<String, ArrayList<Object[]>>(columns.length);
+        try {
+            Iterator<Pair<Writable, Writable>> pairs = TableUtils.directorySeqIterator(outputPath, getConf());
+            while (pairs.hasNext()) {
+                Pair<Writable, Writable> pair = pairs.next();
+                String column = pair.getFirst().toString();
+                // values counted by code are decoded here
+                top.put(column, ((SpaceSaving) pair.getSecond()).top(k, table.getHeader().getDictionary(column)));
+            }
+        } catch (IOException e) {
+            log.error("Error reading top values from " + outputPath.toUri().getPath(), e);
+        }
+        return top;
+    }
+
+    public void run() {
+        try {
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+
+            StringBuilder columnsBuilder = new StringBuilder();
+            for (String column : columns) {
+                if (columnsBuilder.length() > 0) {
+                    columnsBuilder.append(",");
+                }
+                columnsBuilder.append(column);
+            }
+
+            getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
+
+            // prepare Hadoop job
+            setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "top values stats job"));
+
+            getJob().setJobName("top_values_stats_job");
+            getJob().getConfiguration().set(JobKeys.COLUMNS, columnsBuilder.toString());
+            getJob().getConfiguration().setInt(JobKeys.TOP_VALUES_CAPACITY, capacity);
+            // only the needed columns are decoded by columnar tables
+            getJob().getConfiguration().set(JobKeys.PROJECTION, columnsBuilder.toString());
+
+            getJob().setMapperClass(Mapper.class);
+            getJob().setCombinerClass(Reducer.class);
+            getJob().setReducerClass(Reducer.class);
+            getJob().setNumReduceTasks(1);
+
+            getJob().setMapOutputKeyClass(Text.class);
+            getJob().setMapOutputValueClass(SpaceSaving.class);
+
+            getJob().setOutputKeyClass(Text.class);
+            getJob().setOutputValueClass(SpaceSaving.class);
+
+            if (table.isAdapter()) {
+                getJob().setInputFormatClass(((AbstractTableAdapter<Writable, Writable>) table).inputFormat());
+            } else {
+                getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
+            }
+            getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
+
+            String inputPathString = composeInputPathString(new Path(table.getRowsPath()));
+            FileInputFormat.setInputPaths(getJob(), inputPathString);
+            FileOutputFormat.setOutputPath(getJob(), outputPath);
+
+            getJob().setJarByClass(Job.class);
+
+            if (!getJob().waitForCompletion(true)) {
+                throw new InterruptedException("Stats algorithm failed processing " + new Path(table.getRowsPath()).toUri().getPath()
+                        + " output: " + outputPath.toUri().getPath());
+            }
+
+            cleanOutput(outputPath);
+
+        } catch (IOException e) {
+            log.error("Error running job", e);
+        } catch (InterruptedException e) {
+            log.error("Error running job", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Error running job", e);
+        }
+    }
+
+    public int run(String[] strings) throws Exception {
+        run();
+        return 0;
+    }
+}
@@ -0,0 +1,103 @@
+package extramuros.java.jobs.stats.topvalues;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.DictionaryColumnReader;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 17:45
+ *
+ * Counts the not null values of every column for all the rows of the
+ * split in a SpaceSaving summary of bounded size and writes one pair
+ * column/summary per column in cleanup(). Columns with a dictionary are
+ * counted by code, the strings are not hashed nor copied.
+ */
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, Text, SpaceSaving> {
+
+    protected AbstractTable table;
+    protected String[] columns;
+    protected int[] positions;
+    protected DictionaryColumnReader[] readers;
+    protected SpaceSaving[] summaries;
+
+    private static final Logger log = LoggerFactory.getLogger(Mapper.class);
+
+    protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
+        Row row = null;
+        if (table.isAdapter()) {
+            // adapt input
+            row = ((AbstractTableAdapter<Writable, Writable>) table).map(key, value);
+
+        } else {
+            // force conversion
+            row = (Row) value;
+        }
+
+        for (int i = 0; i < positions.length; i++) {
+            if (readers[i].isSupported()) {
+                int code = readers[i].readCode(row);
+                if (readers[i].isValid()) {
+                    summaries[i].addCode(code);
+                } else if (readers[i].getStatus() == DictionaryColumnReader.INVALID) {
+                    // not in the dictionary yet
+                    summaries[i].add(row.getValue(positions[i]).toString());
+                }
+            } else if (positions[i] != -1 && !row.isNullAt(positions[i])) {
+                summaries[i].add(row.getValue(positions[i]).toString());
+            }
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        for (int i = 0; i < columns.length; i++) {
+            context.write(new Text(columns[i]), summaries[i]);
+        }
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        // column names
+        columns = config.get(JobKeys.COLUMNS).split(",");
+        int capacity = config.getInt(JobKeys.TOP_VALUES_CAPACITY, SpaceSaving.DEFAULT_CAPACITY);
+        summaries = new SpaceSaving[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            summaries[i] = new SpaceSaving(capacity);
+        }
+
+        // table info
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        log.info("Reading mapper from " + tablePath);
+        try {
+            table = TableUtils.readAbstractTable(tablePath, config);
+            positions = new int[columns.length];
+            readers = new DictionaryColumnReader[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                positions[i] = table.getHeader().positionFor(columns[i]);
+                readers[i] = DictionaryColumnReader.forColumn(table.getHeader(), columns[i]);
+                if (positions[i] == -1) {
+                    log.error("Column " + columns[i] + " not found");
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package extramuros.java.jobs.stats.topvalues;
+
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 17:55
+ *
+ * Merges the partial summaries of a column. Used both as combiner and as
+ * the single reducer of the job.
+ */
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<Text, SpaceSaving, Text, SpaceSaving> {
+
+    @Override
+    protected void reduce(Text columnName, Iterable<SpaceSaving> values, Context context) throws IOException, InterruptedException {
+        SpaceSaving merged = new SpaceSaving(context.getConfiguration().getInt(JobKeys.TOP_VALUES_CAPACITY, SpaceSaving.DEFAULT_CAPACITY));
+        for (SpaceSaving value : values) {
+            merged.merge(value);
+        }
+        context.write(columnName, merged);
+    }
+}
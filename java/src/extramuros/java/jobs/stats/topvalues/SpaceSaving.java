@@ -0,0 +1,223 @@
+package extramuros.java.jobs.stats.topvalues;
+
+import extramuros.java.formats.ColumnDictionary;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 17:30
+ *
+ * Space-Saving summary of the most frequent values of a column with at
+ * most capacity counters. Every counter keeps a count that is never below
+ * the real frequency of the value and the maximum error of that count.
+ * A value without counter takes the place of the evicted ones starting
+ * at the largest evicted count. Counters are evicted in batches: when
+ * there are twice capacity counters only the capacity largest ones are
+ * kept, so adding a value is a hash lookup most of the time.
+ *
+ * Summaries are merged adding the counts of every value; a value missing
+ * in one of the summaries may have been counted up to its floor there.
+ * Any value whose frequency is above rows / capacity has a counter.
+ *
+ * Values of a column with a dictionary are counted exactly by code in an
+ * array (addCode) and only decoded by top(k, dictionary), values missing
+ * in the dictionary still go to the counters.
+ */
+public class SpaceSaving implements Writable {
+
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private int capacity;
+    // largest count evicted, upper bound for values without counter
+    private long floor;
+    private HashMap<String, long[]> counters;
+    // exact counts of the values with a code in the dictionary of the column
+    private long[] codeCounts;
+
+    public SpaceSaving() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SpaceSaving(int capacity) {
+        this.capacity = Math.max(capacity, 1);
+        this.counters = new HashMap<String, long[]>();
+        this.codeCounts = new long[0];
+    }
+
+    public void add(String value) {
+        add(value, 1);
+    }
+
+    public void add(String value, long frequency) {
+        long[] counter = counters.get(value);
+        if (counter == null) {
+            counters.put(value, new long[]{floor + frequency, floor});
+            if (counters.size() >= 2 * capacity) {
+                prune();
+            }
+        } else {
+            counter[0] += frequency;
+        }
+    }
+
+    public void addCode(int code) {
+        if (code >= codeCounts.length) {
+            codeCounts = Arrays.copyOf(codeCounts, Math.max(code + 1, 2 * codeCounts.length));
+        }
+        codeCounts[code]++;
+    }
+
+    public void merge(SpaceSaving other) {
+        if (other.codeCounts.length > codeCounts.length) {
+            codeCounts = Arrays.copyOf(codeCounts, other.codeCounts.length);
+        }
+        for (int i = 0; i < other.codeCounts.length; i++) {
+            codeCounts[i] += other.codeCounts[i];
+        }
+
+        HashMap<String, long[]> merged = new HashMap<String, long[]>(counters.size() + other.counters.size());
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            long[] counter = entry.getValue();
+            long[] otherCounter = other.counters.get(entry.getKey());
+            if (otherCounter == null) {
+                merged.put(entry.getKey(), new long[]{counter[0] + other.floor, counter[1] + other.floor});
+            } else {
+                merged.put(entry.getKey(), new long[]{counter[0] + otherCounter[0], counter[1] + otherCounter[1]});
+            }
+        }
+        for (Map.Entry<String, long[]> entry : other.counters.entrySet()) {
+            if (!counters.containsKey(entry.getKey())) {
+                long[] counter = entry.getValue();
+                merged.put(entry.getKey(), new long[]{counter[0] + floor, counter[1] + floor});
+            }
+        }
+
+        counters = merged;
+        floor = floor + other.floor;
+        capacity = Math.max(capacity, other.capacity);
+        if (counters.size() > capacity) {
+            prune();
+        }
+    }
+
+    // keeps the capacity largest counters
+    private void prune() {
+        ArrayList<Map.Entry<String, long[]>> entries = sortedEntries();
+        for (int i = capacity; i < entries.size(); i++) {
+            floor = Math.max(floor, entries.get(i).getValue()[0]);
+            counters.remove(entries.get(i).getKey());
+        }
+    }
+
+    private ArrayList<Map.Entry<String, long[]>> sortedEntries() {
+        return sortedEntries(counters);
+    }
+
+    private static ArrayList<Map.Entry<String, long[]>> sortedEntries(HashMap<String, long[]> counters) {
+        ArrayList<Map.Entry<String, long[]>> entries = new ArrayList<Map.Entry<String, long[]>>(counters.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, long[]>>() {
+            public int compare(Map.Entry<String, long[]> a, Map.Entry<String, long[]> b) {
+                long countA = a.getValue()[0];
+                long countB = b.getValue()[0];
+                if (countA != countB) {
+                    return countA > countB ? -1 : 1;
+                }
+                return a.getKey().compareTo(b.getKey());
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * The k values with the largest counts as arrays [value, count, error],
+     * the real frequency of every value is between count - error and count.
+     */
+    public ArrayList<Object[]> top(int k) {
+        return top(k, null);
+    }
+
+    /**
+     * Same as top(k) decoding the values counted by code with the
+     * dictionary of the column, their counts have no error.
+     */
+    public ArrayList<Object[]> top(int k, ColumnDictionary dictionary) {
+        HashMap<String, long[]> all = counters;
+        if (dictionary != null) {
+            all = new HashMap<String, long[]>(counters);
+            for (int i = 0; i < codeCounts.length; i++) {
+                if (codeCounts[i] > 0) {
+                    all.put(dictionary.valueFor(i), new long[]{codeCounts[i], 0});
+                }
+            }
+        }
+
+        ArrayList<Map.Entry<String, long[]>> entries = sortedEntries(all);
+        ArrayList<Object[]> top = new ArrayList<Object[]>(Math.min(k, entries.size()));
+        for (int i = 0; i < k && i < entries.size(); i++) {
+            Map.Entry<String, long[]> entry = entries.get(i);
+            top.add(new Object[]{entry.getKey(), entry.getValue()[0], entry.getValue()[1]});
+        }
+        return top;
+    }
+
+    // serialization
+
+    public void write(DataOutput dataOutput) throws IOException {
+        WritableUtils.writeVInt(dataOutput, capacity);
+        WritableUtils.writeVLong(dataOutput, floor);
+        WritableUtils.writeVInt(dataOutput, counters.size());
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            Text.writeString(dataOutput, entry.getKey());
+            WritableUtils.writeVLong(dataOutput, entry.getValue()[0]);
+            WritableUtils.writeVLong(dataOutput, entry.getValue()[1]);
+        }
+        WritableUtils.writeVInt(dataOutput, codeCounts.length);
+        for (long count : codeCounts) {
+            WritableUtils.writeVLong(dataOutput, count);
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        capacity = WritableUtils.readVInt(dataInput);
+        floor = WritableUtils.readVLong(dataInput);
+        int size = WritableUtils.readVInt(dataInput);
+        counters = new HashMap<String, long[]>(size * 2);
+        for (int i = 0; i < size; i++) {
+            String value = Text.readString(dataInput);
+            long count = WritableUtils.readVLong(dataInput);
+            long error = WritableUtils.readVLong(dataInput);
+            counters.put(value, new long[]{count, error});
+        }
+        codeCounts = new long[WritableUtils.readVInt(dataInput)];
+        for (int i = 0; i < codeCounts.length; i++) {
+            codeCounts[i] = WritableUtils.readVLong(dataInput);
+        }
+    }
+
+    // Fields
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getFloor() {
+        return floor;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+}
@@ -1,6 +1,7 @@
 package extramuros.java.jobs.timeseries.aggregate;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
 import extramuros.java.formats.Row;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.jobs.utils.JobKeys;
@@ -14,7 +15,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.GregorianCalendar;
 
 /**
@@ -26,7 +26,9 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
 
     protected AbstractTable table;
     protected String columnName;
+    protected NumericColumnReader reader;
     protected String period;
+    protected GregorianCalendar calendar;
 
     private static final Logger log = LoggerFactory.getLogger(Mapper.class);
 
@@ -41,60 +43,12 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
             row = (Row) value;
         }
 
-        int position = table.getHeader().positionFor(columnName);
-        int type = table.getHeader().typeFor(columnName);
+        long time = reader.readLong(row);
 
         try {
-            if (!row.isNullAt(position)) {
+            if (reader.isValid()) {
                 try {
-                    Date date = new Date(TableUtils.parseDateAtColumn(row, position, table).getTime());
-
-                    if(period.compareTo("year")==0) {
-                        GregorianCalendar calendar = new GregorianCalendar();
-                        calendar.setTime(date);
-                        calendar.set(Calendar.MONTH,0);
-                        calendar.set(Calendar.DAY_OF_MONTH, 0);
-                        calendar.set(Calendar.HOUR_OF_DAY,0);
-                        calendar.set(Calendar.HOUR, 0);
-                        calendar.set(Calendar.MINUTE,0);
-                        calendar.set(Calendar.SECOND,0);
-                        calendar.set(Calendar.MILLISECOND,0);
-                        date = calendar.getTime();
-                    } else if(period.compareTo("month")==0) {
-                        GregorianCalendar calendar = new GregorianCalendar();
-                        calendar.setTime(date);
-                        calendar.set(Calendar.DAY_OF_MONTH,0);
-                        calendar.set(Calendar.HOUR_OF_DAY,0);
-                        calendar.set(Calendar.HOUR, 0);
-                        calendar.set(Calendar.MINUTE,0);
-                        calendar.set(Calendar.SECOND,0);
-                        calendar.set(Calendar.MILLISECOND,0);
-                        date = calendar.getTime();
-                    } else if(period.compareTo("week")==0) {
-                        GregorianCalendar calendar = new GregorianCalendar();
-                        calendar.setTime(date);
-                        calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
-                        calendar.set(Calendar.HOUR_OF_DAY,0);
-                        calendar.set(Calendar.MINUTE,0);
-                        calendar.set(Calendar.SECOND,0);
-                        calendar.set(Calendar.MILLISECOND,0);
-                        date = calendar.getTime();
-                    } else if(period.compareTo("day")==0) {
-                        GregorianCalendar calendar = new GregorianCalendar();
-                        calendar.setTime(date);
-                        calendar.set(Calendar.HOUR_OF_DAY,0);
-                        calendar.set(Calendar.MINUTE,0);
-                        calendar.set(Calendar.SECOND,0);
-                        calendar.set(Calendar.MILLISECOND,0);
-                        date = calendar.getTime();
-                    }
-
-
-
-                    Date oldDate = new Date(TableUtils.parseDateAtColumn(row, position, table).getTime());
-                    GregorianCalendar cal = new GregorianCalendar();
-                    cal.setTime(oldDate);
-                    LongWritable number = new LongWritable(date.getTime());
+                    LongWritable number = new LongWritable(periodStart(calendar, time, period));
                     context.write(number, value);
                 } catch (Exception ex) {
                     // format exception
@@ -120,6 +74,7 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
         log.info("Reading mapper from " + tablePath);
         try {
             table = TableUtils.readAbstractTable(tablePath, config);
+            reader = NumericColumnReader.forColumn(table.getHeader(), columnName);
         } catch (Exception e) {
             log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
         }
@@ -127,5 +82,48 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
         // period
         period = config.get(JobKeys.PERIOD);
         log.info("Aggregation period: "+period);
+        calendar = new GregorianCalendar();
+    }
+
+    /**
+     * Start of the period (year, month, week or day) containing the time,
+     * the time itself for any other period. Years and months start at
+     * midnight of their first day. The calendar is reused between calls.
+     */
+    public static long periodStart(GregorianCalendar calendar, long time, String period) {
+        if(period.compareTo("year")==0) {
+            calendar.setTimeInMillis(time);
+            calendar.set(Calendar.MONTH,0);
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+            calendar.set(Calendar.HOUR_OF_DAY,0);
+            calendar.set(Calendar.MINUTE,0);
+            calendar.set(Calendar.SECOND,0);
+            calendar.set(Calendar.MILLISECOND,0);
+            return calendar.getTimeInMillis();
+        } else if(period.compareTo("month")==0) {
+            calendar.setTimeInMillis(time);
+            calendar.set(Calendar.DAY_OF_MONTH,1);
+            calendar.set(Calendar.HOUR_OF_DAY,0);
+            calendar.set(Calendar.MINUTE,0);
+            calendar.set(Calendar.SECOND,0);
+            calendar.set(Calendar.MILLISECOND,0);
+            return calendar.getTimeInMillis();
+        } else if(period.compareTo("week")==0) {
+            calendar.setTimeInMillis(time);
+            calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+            calendar.set(Calendar.HOUR_OF_DAY,0);
+            calendar.set(Calendar.MINUTE,0);
+            calendar.set(Calendar.SECOND,0);
+            calendar.set(Calendar.MILLISECOND,0);
+            return calendar.getTimeInMillis();
+        } else if(period.compareTo("day")==0) {
+            calendar.setTimeInMillis(time);
+            calendar.set(Calendar.HOUR_OF_DAY,0);
+            calendar.set(Calendar.MINUTE,0);
+            calendar.set(Calendar.SECOND,0);
+            calendar.set(Calendar.MILLISECOND,0);
+            return calendar.getTimeInMillis();
+        }
+        return time;
     }
 }
@@ -0,0 +1,25 @@
+package extramuros.java.jobs.timeseries.aggregations;
+
+import org.apache.hadoop.io.LongWritable;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 19/10/2026
+ * Time: 11:00
+ *
+ * Merges the aggregates a task wrote for the same period in different
+ * flushes.
+ */
+public class Combiner extends org.apache.hadoop.mapreduce.Reducer<LongWritable, PeriodAggregates, LongWritable, PeriodAggregates> {
+
+    @Override
+    protected void reduce(LongWritable period, Iterable<PeriodAggregates> values, Context context) throws IOException, InterruptedException {
+        PeriodAggregates merged = new PeriodAggregates();
+        for (PeriodAggregates aggregates : values) {
+            merged.merge(aggregates);
+        }
+        context.write(period, merged);
+    }
+}
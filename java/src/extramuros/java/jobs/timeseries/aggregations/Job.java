@@ -0,0 +1,194 @@
+package extramuros.java.jobs.timeseries.aggregations;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.PrimitiveRowInputFormat;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.RowTypes;
+import extramuros.java.formats.Table;
+import extramuros.java.formats.TableHeader;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.ExtramurosJob;
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * User: antonio
+ * Date: 19/10/2026
+ * Time: 11:15
+ *
+ * Aggregates a time series by period computing count, sum, average, min,
+ * max, first and last value of several numeric columns in a single job,
+ * all the numeric columns by default. The output table has the start of
+ * the period in the date column followed by a column per column and
+ * function, named column_function.
+ */
+public class Job extends ExtramurosJob {
+
+    public static final String[] FUNCTIONS = {"count", "sum", "avg", "min", "max", "first", "last"};
+    public static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    protected String columnName;
+    protected String[] columns;
+    protected AbstractTable table;
+    protected Path outputPath;
+    protected String period;
+
+    private static final Logger log = LoggerFactory.getLogger(Job.class);
+
+
+    public Job(String columnName, String period, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        this(columnName, null, period, table, outputPath, configuration);
+    }
+
+    public Job(String columnName, String[] columns, String period, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+        super(configuration);
+
+        this.columnName = columnName;
+        this.table = table;
+        this.outputPath = new Path(outputPath);
+        this.period = period;
+
+        TableHeader header = table.getHeader();
+        int position = header.positionFor(columnName);
+        if (position == -1) {
+            throw (new IOException("The requested column could not be found"));
+        }
+        if (header.getColumnTypes().get(position) != RowTypes.DATE_TIME) {
+            throw (new IOException("The requested column " + columnName + " is not of type DATE_TIME"));
+        }
+
+        if (columns == null) {
+            ArrayList<String> numericColumns = new ArrayList<String>();
+            for (int i = 0; i < header.getColumnNames().size(); i++) {
+                if (i != position && header.isColumnNumeric(i) && header.getColumnTypes().get(i) != RowTypes.DATE_TIME) {
+                    numericColumns.add(header.getColumnNames().get(i));
+                }
+            }
+            columns = numericColumns.toArray(new String[numericColumns.size()]);
+        }
+        if (columns.length == 0) {
+            throw (new IOException("The table has no numeric columns to aggregate"));
+        }
+        this.columns = columns;
+    }
+
+    /**
+     * Header of the aggregated table, the date column followed by
+     * column_function for every column and function in FUNCTIONS.
+     */
+    public static TableHeader outputHeader(String columnName, String[] columns) {
+        ArrayList<String> columnNames = new ArrayList<String>(1 + columns.length * FUNCTIONS.length);
+        ArrayList<Integer> columnTypes = new ArrayList<Integer>(1 + columns.length * FUNCTIONS.length);
+
+        columnNames.add(columnName);
+        columnTypes.add(RowTypes.DATE_TIME);
+        for (String column : columns) {
+            for (String function : FUNCTIONS) {
+                columnNames.add(column + "_" + function);
+                columnTypes.add(function.equals("count") ? RowTypes.LONG : RowTypes.DOUBLE);
+            }
+        }
+
+        TableHeader header = new TableHeader(columnNames, columnTypes);
+        header.getDateFormats().put(columnName, DATE_FORMAT);
+        return header;
+    }
+
+    public Path getOutputFile() {
+        return outputPath;
+    }
+
+    public Object getOutput() {
+        Table outputTable = new Table(outputHeader(columnName, columns), outputPath.toUri().getPath());
+        outputTable.setConfiguration(getConf());
+        outputTable.setTablePath(outputPath.suffix(".tbl").toUri().getPath());
+
+        return outputTable;
+    }
+
+    public void run() {
+        try {
+            if (getFs().exists(outputPath)) {
+                getFs().delete(outputPath, true);
+            }
+
+            getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
+            getConf().set(JobKeys.COLUMN_NAME, columnName);
+            getConf().set(JobKeys.PERIOD, period);
+
+            StringBuilder columnsString = new StringBuilder();
+            for (String column : columns) {
+                if (columnsString.length() > 0) {
+                    columnsString.append(",");
+                }
+                columnsString.append(column);
+            }
+            getConf().set(JobKeys.COLUMNS, columnsString.toString());
+
+
+            // prepare Hadoop job
+            setJob(new org.apache.hadoop.mapreduce.Job(getConf(), "time series aggregations job for column: " + columnName));
+
+            getJob().setJobName("time_series_aggregations");
+
+            getJob().setMapperClass(Mapper.class);
+            getJob().setCombinerClass(Combiner.class);
+            getJob().setReducerClass(Reducer.class);
+
+            getJob().setMapOutputKeyClass(LongWritable.class);
+            getJob().setMapOutputValueClass(PeriodAggregates.class);
+
+            getJob().setOutputKeyClass(LongWritable.class);
+            getJob().setOutputValueClass(Row.class);
+
+            if (table.isAdapter()) {
+                getJob().setInputFormatClass(((AbstractTableAdapter<Writable, Writable>) table).inputFormat());
+            } else {
+                getJob().setInputFormatClass(PrimitiveRowInputFormat.class);
+            }
+            getJob().setOutputFormatClass(SequenceFileOutputFormat.class);
+
+            String inputPathString = composeInputPathString(new Path(table.getRowsPath()));
+            FileInputFormat.setInputPaths(getJob(), inputPathString);
+            FileOutputFormat.setOutputPath(getJob(), outputPath);
+
+            getJob().setJarByClass(Job.class);
+
+            if (!getJob().waitForCompletion(true)) {
+                throw new InterruptedException("Time series aggregations failed processing " + new Path(table.getRowsPath()).toUri().getPath()
+                        + " output: " + outputPath.toUri().getPath());
+            }
+
+            cleanOutput(outputPath);
+
+        } catch (IOException e) {
+            log.error("Error running job", e);
+        } catch (InterruptedException e) {
+            log.error("Error running job", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Error running job", e);
+        }
+    }
+
+    // Fields
+
+    public String[] getColumns() {
+        return columns;
+    }
+
+    public int run(String[] strings) throws Exception {
+        run();
+        return 0;
+    }
+}
@@ -0,0 +1,126 @@
+package extramuros.java.jobs.timeseries.aggregations;
+
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.adapters.AbstractTableAdapter;
+import extramuros.java.jobs.utils.JobKeys;
+import extramuros.java.jobs.utils.LongKeyAggregator;
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * User: antonio
+ * Date: 19/10/2026
+ * Time: 10:45
+ *
+ * Aggregates the rows of the split by period in memory and writes one
+ * pair period/aggregates per period in cleanup(), or before when the
+ * periods do not fit in the memory budget of the task. Consecutive rows
+ * of the same period, the common case for a time series, reuse the
+ * aggregates of the previous row without looking them up.
+ */
+public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writable, LongWritable, PeriodAggregates> {
+
+    // bytes of the aggregates of a column for a period
+    public static final int BYTES_PER_COLUMN = 64;
+
+    protected AbstractTable table;
+    protected String period;
+    protected NumericColumnReader dateReader;
+    protected NumericColumnReader[] readers;
+    protected GregorianCalendar calendar;
+    protected HashMap<Long, PeriodAggregates> periods;
+    protected int maxPeriods;
+    protected long lastPeriod;
+    protected PeriodAggregates lastAggregates;
+
+    private static final Logger log = LoggerFactory.getLogger(Mapper.class);
+
+    protected void map(Writable key, Writable value, Context context) throws IOException, InterruptedException {
+        Row row = null;
+        if (table.isAdapter()) {
+            // adapt input
+            row = ((AbstractTableAdapter<Writable, Writable>) table).map(key, value);
+
+        } else {
+            // force conversion
+            row = (Row) value;
+        }
+
+        long time = dateReader.readLong(row);
+        if (!dateReader.isValid()) {
+            return;
+        }
+
+        long start = extramuros.java.jobs.timeseries.aggregate.Mapper.periodStart(calendar, time, period);
+        if (lastAggregates == null || start != lastPeriod) {
+            lastAggregates = periods.get(start);
+            if (lastAggregates == null) {
+                if (periods.size() >= maxPeriods) {
+                    flush(context);
+                }
+                lastAggregates = new PeriodAggregates(readers.length);
+                periods.put(start, lastAggregates);
+            }
+            lastPeriod = start;
+        }
+
+        for (int i = 0; i < readers.length; i++) {
+            double number = readers[i].readDouble(row);
+            if (readers[i].isValid()) {
+                lastAggregates.add(i, time, number);
+            }
+        }
+    }
+
+    protected void flush(Context context) throws IOException, InterruptedException {
+        LongWritable outputKey = new LongWritable();
+        for (Map.Entry<Long, PeriodAggregates> entry : periods.entrySet()) {
+            outputKey.set(entry.getKey());
+            context.write(outputKey, entry.getValue());
+        }
+        periods.clear();
+        lastAggregates = null;
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        flush(context);
+        super.cleanup(context);
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        String[] columns = config.get(JobKeys.COLUMNS).split(",");
+        period = config.get(JobKeys.PERIOD);
+        calendar = new GregorianCalendar();
+
+        periods = new HashMap<Long, PeriodAggregates>();
+        maxPeriods = (int) Math.max(16, LongKeyAggregator.memoryFor(config) / ((long) BYTES_PER_COLUMN * (columns.length + 1)));
+
+        // table info
+        Path tablePath = new Path(config.get(JobKeys.PATH));
+        log.info("Reading mapper from " + tablePath);
+        try {
+            table = TableUtils.readAbstractTable(tablePath, config);
+            dateReader = NumericColumnReader.forColumn(table.getHeader(), config.get(JobKeys.COLUMN_NAME));
+            readers = NumericColumnReader.forColumns(table.getHeader(), columns);
+        } catch (Exception e) {
+            log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
+        }
+    }
+}
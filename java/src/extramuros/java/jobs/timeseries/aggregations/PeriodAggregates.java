@@ -0,0 +1,190 @@
+package extramuros.java.jobs.timeseries.aggregations;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 19/10/2026
+ * Time: 10:20
+ *
+ * Count, sum, min, max, first and last value of every aggregated column
+ * for the rows of a period, in one primitive array per function. First and
+ * last are the values with the smallest and largest time, with equal
+ * times the value aggregated before is kept, in add() and merge(). Partial
+ * aggregates are merged in the mapper, the combiner and the reducer, so
+ * one aggregate per period and task goes through the shuffle.
+ */
+public class PeriodAggregates implements Writable {
+
+    private long[] counts;
+    private double[] sums;
+    private double[] mins;
+    private double[] maxs;
+    private double[] firsts;
+    private double[] lasts;
+    private long[] firstTimes;
+    private long[] lastTimes;
+
+    public PeriodAggregates() {
+        this(0);
+    }
+
+    public PeriodAggregates(int columns) {
+        allocate(columns);
+    }
+
+    private void allocate(int columns) {
+        counts = new long[columns];
+        sums = new double[columns];
+        mins = new double[columns];
+        maxs = new double[columns];
+        firsts = new double[columns];
+        lasts = new double[columns];
+        firstTimes = new long[columns];
+        lastTimes = new long[columns];
+    }
+
+    public void add(int column, long time, double value) {
+        if(counts[column] == 0) {
+            counts[column] = 1;
+            sums[column] = value;
+            mins[column] = value;
+            maxs[column] = value;
+            firsts[column] = value;
+            lasts[column] = value;
+            firstTimes[column] = time;
+            lastTimes[column] = time;
+            return;
+        }
+        counts[column]++;
+        sums[column] += value;
+        if(value < mins[column]) {
+            mins[column] = value;
+        }
+        if(value > maxs[column]) {
+            maxs[column] = value;
+        }
+        if(time < firstTimes[column]) {
+            firsts[column] = value;
+            firstTimes[column] = time;
+        }
+        if(time > lastTimes[column]) {
+            lasts[column] = value;
+            lastTimes[column] = time;
+        }
+    }
+
+    public void merge(PeriodAggregates other) {
+        if(counts.length == 0) {
+            allocate(other.counts.length);
+        }
+        for(int i=0; i<counts.length; i++) {
+            if(other.counts[i] == 0) {
+                continue;
+            }
+            if(counts[i] == 0) {
+                counts[i] = other.counts[i];
+                sums[i] = other.sums[i];
+                mins[i] = other.mins[i];
+                maxs[i] = other.maxs[i];
+                firsts[i] = other.firsts[i];
+                lasts[i] = other.lasts[i];
+                firstTimes[i] = other.firstTimes[i];
+                lastTimes[i] = other.lastTimes[i];
+                continue;
+            }
+            counts[i] += other.counts[i];
+            sums[i] += other.sums[i];
+            if(other.mins[i] < mins[i]) {
+                mins[i] = other.mins[i];
+            }
+            if(other.maxs[i] > maxs[i]) {
+                maxs[i] = other.maxs[i];
+            }
+            if(other.firstTimes[i] < firstTimes[i]) {
+                firsts[i] = other.firsts[i];
+                firstTimes[i] = other.firstTimes[i];
+            }
+            if(other.lastTimes[i] > lastTimes[i]) {
+                lasts[i] = other.lasts[i];
+                lastTimes[i] = other.lastTimes[i];
+            }
+        }
+    }
+
+    // serialization, only the columns with values of the period
+
+    public void write(DataOutput dataOutput) throws IOException {
+        WritableUtils.writeVInt(dataOutput, counts.length);
+        for(int i=0; i<counts.length; i++) {
+            WritableUtils.writeVLong(dataOutput, counts[i]);
+            if(counts[i] > 0) {
+                dataOutput.writeDouble(sums[i]);
+                dataOutput.writeDouble(mins[i]);
+                dataOutput.writeDouble(maxs[i]);
+                dataOutput.writeDouble(firsts[i]);
+                dataOutput.writeDouble(lasts[i]);
+                WritableUtils.writeVLong(dataOutput, firstTimes[i]);
+                WritableUtils.writeVLong(dataOutput, lastTimes[i]);
+            }
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        int columns = WritableUtils.readVInt(dataInput);
+        if(columns != counts.length) {
+            allocate(columns);
+        }
+        for(int i=0; i<columns; i++) {
+            counts[i] = WritableUtils.readVLong(dataInput);
+            if(counts[i] > 0) {
+                sums[i] = dataInput.readDouble();
+                mins[i] = dataInput.readDouble();
+                maxs[i] = dataInput.readDouble();
+                firsts[i] = dataInput.readDouble();
+                lasts[i] = dataInput.readDouble();
+                firstTimes[i] = WritableUtils.readVLong(dataInput);
+                lastTimes[i] = WritableUtils.readVLong(dataInput);
+            }
+        }
+    }
+
+    // Fields
+
+    public int getColumns() {
+        return counts.length;
+    }
+
+    public long getCount(int column) {
+        return counts[column];
+    }
+
+    public double getSum(int column) {
+        return sums[column];
+    }
+
+    public double getAverage(int column) {
+        return sums[column] / counts[column];
+    }
+
+    public double getMin(int column) {
+        return mins[column];
+    }
+
+    public double getMax(int column) {
+        return maxs[column];
+    }
+
+    public double getFirst(int column) {
+        return firsts[column];
+    }
+
+    public double getLast(int column) {
+        return lasts[column];
+    }
+}
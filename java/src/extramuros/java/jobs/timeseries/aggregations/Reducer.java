@@ -0,0 +1,69 @@
+package extramuros.java.jobs.timeseries.aggregations;
+
+import extramuros.java.formats.DateTimeFormats;
+import extramuros.java.formats.Row;
+import extramuros.java.formats.TableHeader;
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * User: antonio
+ * Date: 19/10/2026
+ * Time: 11:05
+ *
+ * Merges the aggregates of a period and writes a row with the start of the
+ * period and count, sum, average, min, max, first and last value of every
+ * column, see Job.outputHeader.
+ */
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<LongWritable, PeriodAggregates, LongWritable, Row> {
+
+    private TableHeader header;
+    private int counter;
+
+    private static final Logger log = LoggerFactory.getLogger(Reducer.class);
+
+    @Override
+    protected void reduce(LongWritable period, Iterable<PeriodAggregates> values, Context context) throws IOException, InterruptedException {
+        PeriodAggregates merged = new PeriodAggregates();
+        for (PeriodAggregates aggregates : values) {
+            merged.merge(aggregates);
+        }
+
+        ArrayList<Object> rowValues = new ArrayList<Object>(header.getColumnNames().size());
+        rowValues.add(DateTimeFormats.formatFor(Job.DATE_FORMAT).format(new Date(period.get())));
+        for (int i = 0; i < merged.getColumns(); i++) {
+            rowValues.add(merged.getCount(i));
+            if (merged.getCount(i) == 0) {
+                for (int j = 1; j < Job.FUNCTIONS.length; j++) {
+                    rowValues.add(null);
+                }
+            } else {
+                rowValues.add(merged.getSum(i));
+                rowValues.add(merged.getAverage(i));
+                rowValues.add(merged.getMin(i));
+                rowValues.add(merged.getMax(i));
+                rowValues.add(merged.getFirst(i));
+                rowValues.add(merged.getLast(i));
+            }
+        }
+
+        context.write(period, new Row(counter++, header.getColumnNames(), header.getColumnTypes(), rowValues));
+    }
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        super.setup(context);
+        Configuration config = context.getConfiguration();
+
+        header = Job.outputHeader(config.get(JobKeys.COLUMN_NAME), config.get(JobKeys.COLUMNS).split(","));
+        counter = 0;
+        log.info("Aggregating columns " + config.get(JobKeys.COLUMNS));
+    }
+}
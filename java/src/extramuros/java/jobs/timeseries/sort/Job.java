@@ -1,6 +1,8 @@
 package extramuros.java.jobs.timeseries.sort;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
+import extramuros.java.formats.Row;
 import extramuros.java.formats.RowTypes;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.jobs.utils.ExtramurosJob;
@@ -11,17 +13,29 @@ import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.mahout.math.Vector;
 import org.apache.mahout.math.VectorWritable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
 
 /**
  * User: antonio
@@ -30,13 +44,29 @@ import java.util.HashMap;
  */
 
 /**
- * Sort the values in a table according to the value of a date-time column
+ * Sort the values in a table according to the value of a date-time column.
+ *
+ * Without partitions the rows are only keyed by their timestamp. With N
+ * partitions the table is globally sorted: timestamps sampled from all
+ * the splits of the input give N - 1 split points, RangePartitioner sends
+ * every range of time to a reducer and keys are compared in their
+ * serialized form. The output is N sorted part files in timestamp order
+ * and a RangeIndex with the range of every part.
  */
 public class Job extends ExtramurosJob {
 
+    public static final int DEFAULT_SAMPLE_SIZE = 10000;
+    // places of every file split where timestamps are read when sampling
+    public static final int PROBES_PER_SPLIT = 10;
+
     protected String columnName;
         protected AbstractTable table;
         protected Path outputPath;
+        protected int partitions;
+        protected int sampleSize;
+        protected long seed;
+        protected RangeIndex rangeIndex;
+        protected long[] splitPoints;
 
         private static final Logger log = LoggerFactory.getLogger(Job.class);
 
@@ -64,6 +94,15 @@ public class Job extends ExtramurosJob {
             if(found == false) {
                 throw(new IOException("The requested column could not be found"));
             }
+
+            this.partitions = 0;
+            this.sampleSize = DEFAULT_SAMPLE_SIZE;
+            this.seed = (new Date()).getTime();
+        }
+
+        public Job(String columnName, int partitions, AbstractTable table, String outputPath, Configuration configuration) throws IOException {
+            this(columnName, table, outputPath, configuration);
+            this.partitions = partitions;
         }
 
         public Path getOutputFile() {
@@ -91,6 +130,10 @@ public class Job extends ExtramurosJob {
                 if(getFs().exists(outputPath)) {
                     getFs().delete(outputPath, true);
                 }
+                if(getFs().exists(RangeIndex.pathFor(outputPath))) {
+                    getFs().delete(RangeIndex.pathFor(outputPath), false);
+                }
+                rangeIndex = null;
 
                 getConf().set(JobKeys.PATH, new Path(table.getTablePath()).toUri().getPath().toString());
                 getConf().set(JobKeys.COLUMN_NAME, columnName);
@@ -121,6 +164,17 @@ public class Job extends ExtramurosJob {
                 FileInputFormat.setInputPaths(getJob(),inputPathString);
                 FileOutputFormat.setOutputPath(getJob(), outputPath);
 
+                if(partitions > 0) {
+                    splitPoints = sampleSplitPoints();
+                    log.info("Sorting in "+(splitPoints.length + 1)+" ranges of time");
+                    getJob().getConfiguration().set(JobKeys.SORT_SPLIT_POINTS, RangePartitioner.encodeSplitPoints(splitPoints));
+
+                    getJob().setPartitionerClass(RangePartitioner.class);
+                    getJob().setSortComparatorClass(LongWritable.Comparator.class);
+                    getJob().setReducerClass(Reducer.class);
+                    getJob().setNumReduceTasks(splitPoints.length + 1);
+                }
+
                 getJob().setJarByClass(Job.class);
 
                 if (!getJob().waitForCompletion(true)) {
@@ -130,6 +184,11 @@ public class Job extends ExtramurosJob {
 
                 cleanOutput(outputPath);
 
+                if(partitions > 0) {
+                    rangeIndex = RangeIndex.fromRangeFiles(outputPath, getConf());
+                    rangeIndex.save(outputPath, getConf());
+                }
+
             } catch (IOException e) {
                 log.error("Error running job", e);
             } catch (InterruptedException e) {
@@ -139,6 +198,125 @@ public class Job extends ExtramurosJob {
             }
         }
 
+        /**
+         * Up to partitions - 1 distinct split points at the quantiles of about
+         * sampleSize timestamps read from every split of the input. File
+         * splits are read at PROBES_PER_SPLIT random places spread over the
+         * split, a few rows from each, so the timestamps of a time ordered
+         * input are sampled over its whole range without reading every row.
+         */
+        protected long[] sampleSplitPoints() throws IOException, InterruptedException, ClassNotFoundException {
+            Configuration config = getJob().getConfiguration();
+            InputFormat<Writable,Writable> inputFormat = (InputFormat<Writable,Writable>) ReflectionUtils.newInstance(getJob().getInputFormatClass(), config);
+            List<InputSplit> splits = inputFormat.getSplits(getJob());
+
+            int perSplit = Math.max(1, sampleSize / Math.max(splits.size(), 1));
+            NumericColumnReader reader = NumericColumnReader.forColumn(table.getHeader(), columnName);
+            Random random = new Random(seed);
+
+            long[] samples = new long[splits.size() * (perSplit + PROBES_PER_SPLIT)];
+            int count = 0;
+            int probed = 0;
+            for(InputSplit split : splits) {
+                List<InputSplit> probes = probesFor(split, perSplit, random);
+                int perProbe = (perSplit + probes.size() - 1) / probes.size();
+                for(InputSplit probe : probes) {
+                    TaskAttemptContext context = new TaskAttemptContext(config, new TaskAttemptID());
+                    RecordReader<Writable,Writable> recordReader = inputFormat.createRecordReader(probe, context);
+                    recordReader.initialize(probe, context);
+                    try {
+                        int read = 0;
+                        while(read < perProbe && recordReader.nextKeyValue()) {
+                            Row row = null;
+                            if(table.isAdapter()) {
+                                row = ((AbstractTableAdapter<Writable,Writable>) table).map(recordReader.getCurrentKey(), recordReader.getCurrentValue());
+                            } else {
+                                row = (Row) recordReader.getCurrentValue();
+                            }
+                            long time = reader.readLong(row);
+                            if(reader.isValid()) {
+                                samples[count++] = time;
+                            }
+                            read++;
+                        }
+                    } finally {
+                        recordReader.close();
+                    }
+                }
+                probed += probes.size();
+            }
+            log.info("Sampled "+count+" timestamps from "+probed+" places of "+splits.size()+" splits");
+
+            return splitPoints(samples, count, partitions);
+        }
+
+        /**
+         * Parts of the split read when sampling: the split is divided in
+         * PROBES_PER_SPLIT segments and every probe starts at a random offset
+         * in the first half of its segment, record readers skip to the first
+         * record starting in it. Splits that are not file splits are only
+         * read from their start.
+         */
+        public static List<InputSplit> probesFor(InputSplit split, int perSplit, Random random) throws IOException, InterruptedException {
+            ArrayList<InputSplit> probes = new ArrayList<InputSplit>();
+            int segments = Math.min(PROBES_PER_SPLIT, perSplit);
+            if(!(split instanceof FileSplit) || segments < 2 || ((FileSplit) split).getLength() < segments) {
+                probes.add(split);
+                return probes;
+            }
+
+            FileSplit fileSplit = (FileSplit) split;
+            long segment = fileSplit.getLength() / segments;
+            long end = fileSplit.getStart() + fileSplit.getLength();
+            for(int i=0; i<segments; i++) {
+                long start = fileSplit.getStart() + i * segment + (long) (random.nextDouble() * (segment / 2));
+                long length = (i == segments - 1 ? end : fileSplit.getStart() + (i + 1) * segment) - start;
+                probes.add(new FileSplit(fileSplit.getPath(), start, length, fileSplit.getLocations()));
+            }
+            return probes;
+        }
+
+        // distinct values at the i/partitions quantiles of the first count samples
+        public static long[] splitPoints(long[] samples, int count, int partitions) {
+            Arrays.sort(samples, 0, count);
+            ArrayList<Long> points = new ArrayList<Long>(Math.max(partitions - 1, 0));
+            for(int i=1; i<partitions && count > 0; i++) {
+                long point = samples[(int) ((long) i * count / partitions)];
+                if(points.isEmpty() || point > points.get(points.size() - 1)) {
+                    points.add(point);
+                }
+            }
+
+            long[] splitPoints = new long[points.size()];
+            for(int i=0; i<splitPoints.length; i++) {
+                splitPoints[i] = points.get(i);
+            }
+            return splitPoints;
+        }
+
+        // Fields
+
+        public RangeIndex getRangeIndex() {
+            return rangeIndex;
+        }
+
+        // split points of the last global sort, the first timestamp of every range but the first one
+        public long[] getSplitPoints() {
+            return splitPoints;
+        }
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public void setSampleSize(int sampleSize) {
+            this.sampleSize = sampleSize;
+        }
+
+        public void setSeed(long seed) {
+            this.seed = seed;
+        }
+
     public int run(String[] strings) throws Exception {
         run();
         return 0;
@@ -1,6 +1,7 @@
 package extramuros.java.jobs.timeseries.sort;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
 import extramuros.java.formats.Row;
 import extramuros.java.formats.RowTypes;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
@@ -26,6 +27,7 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
 
     protected AbstractTable table;
     protected String columnName;
+    protected NumericColumnReader reader;
 
     private static final Logger log = LoggerFactory.getLogger(Mapper.class);
 
@@ -40,14 +42,12 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
             row = (Row) value;
         }
 
-        int position = table.getHeader().positionFor(columnName);
-        int type = table.getHeader().typeFor(columnName);
+        long time = reader.readLong(row);
 
         try {
-            if (!row.isNullAt(position)) {
+            if (reader.isValid()) {
                 try {
-                    Long tmp  = new Long(TableUtils.parseDateAtColumn(row, position, table).getTime());
-                    LongWritable number = new LongWritable(tmp);
+                    LongWritable number = new LongWritable(time);
                     context.write(number, value);
                 } catch (Exception ex) {
                     // format exception
@@ -73,6 +73,7 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
         log.info("Reading mapper from " + tablePath);
         try {
             table = TableUtils.readAbstractTable(tablePath, config);
+            reader = NumericColumnReader.forColumn(table.getHeader(), columnName);
         } catch (Exception e) {
             log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
         }
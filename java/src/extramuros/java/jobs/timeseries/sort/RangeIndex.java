@@ -0,0 +1,200 @@
+package extramuros.java.jobs.timeseries.sort;
+
+import extramuros.java.jobs.utils.TableUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+
+/**
+ * User: antonio
+ * Date: 19/10/2026
+ * Time: 12:40
+ *
+ * First and last timestamp and number of rows of every part file of a
+ * globally sorted table, stored next to the rows (outputPath + ".ranges").
+ * Part files are kept in timestamp order, so the parts holding a range of
+ * time are found without opening any of them. Empty parts are not listed.
+ */
+public class RangeIndex implements Writable {
+
+    public static final String SUFFIX = ".ranges";
+    // files written by the reducers of the sort job with the range of their part
+    public static final String RANGE_FILE_PREFIX = "_range-";
+
+    public static class Range {
+        private String path;
+        private long min;
+        private long max;
+        private long rows;
+
+        public Range(String path, long min, long max, long rows) {
+            this.path = path;
+            this.min = min;
+            this.max = max;
+            this.rows = rows;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getMin() {
+            return min;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+    }
+
+    private ArrayList<Range> ranges;
+
+    private static final Logger log = LoggerFactory.getLogger(RangeIndex.class);
+
+    public RangeIndex() {
+        ranges = new ArrayList<Range>();
+    }
+
+    public static Path pathFor(Path outputPath) {
+        return new Path(outputPath.toUri().getPath() + SUFFIX);
+    }
+
+    /**
+     * Index built from the range files the reducers left in the output
+     * directory, the range files are deleted.
+     */
+    public static RangeIndex fromRangeFiles(Path outputPath, Configuration config) throws IOException {
+        FileSystem fs = FileSystem.get(config);
+        RangeIndex index = new RangeIndex();
+        for (FileStatus status : fs.listStatus(outputPath)) {
+            String name = status.getPath().getName();
+            if (!name.startsWith(RANGE_FILE_PREFIX)) {
+                continue;
+            }
+            FSDataInputStream in = fs.open(status.getPath());
+            try {
+                long min = in.readLong();
+                long max = in.readLong();
+                long rows = in.readLong();
+                String part = "part-" + name.substring(RANGE_FILE_PREFIX.length());
+                index.ranges.add(new Range(new Path(outputPath, part).toUri().getPath(), min, max, rows));
+            } finally {
+                in.close();
+            }
+            fs.delete(status.getPath(), false);
+        }
+
+        Collections.sort(index.ranges, new Comparator<Range>() {
+            public int compare(Range a, Range b) {
+                return (a.min < b.min) ? -1 : ((a.min == b.min) ? 0 : 1);
+            }
+        });
+        return index;
+    }
+
+    // stored index of the sorted table, null if there is none
+    public static RangeIndex load(Path outputPath, Configuration config) {
+        try {
+            FileSystem fs = FileSystem.get(config);
+            Path path = pathFor(outputPath);
+            if (!fs.exists(path)) {
+                return null;
+            }
+
+            return (RangeIndex) TableUtils.readFirstWritable(path, config)[1];
+        } catch (Exception e) {
+            log.error("Error reading range index", e);
+            return null;
+        }
+    }
+
+    public boolean save(Path outputPath, Configuration config) {
+        try {
+            TableUtils.writeSingleWritable(pathFor(outputPath), new LongWritable((new Date()).getTime()), this, config);
+            return true;
+        } catch (IOException e) {
+            log.error("Error saving range index", e);
+            return false;
+        }
+    }
+
+    // lookups
+
+    // paths of the parts with rows between from and to (both included), in timestamp order
+    public ArrayList<String> partsFor(long from, long to) {
+        ArrayList<String> parts = new ArrayList<String>();
+        for (Range range : ranges) {
+            if (range.min <= to && range.max >= from) {
+                parts.add(range.path);
+            }
+        }
+        return parts;
+    }
+
+    // path of the part that would hold the timestamp, null if it is out of the table
+    public String partFor(long time) {
+        int low = 0;
+        int high = ranges.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Range range = ranges.get(middle);
+            if (time < range.min) {
+                high = middle - 1;
+            } else if (time > range.max) {
+                low = middle + 1;
+            } else {
+                return range.path;
+            }
+        }
+        return null;
+    }
+
+    // serialization
+
+    public void write(DataOutput dataOutput) throws IOException {
+        dataOutput.writeInt(ranges.size());
+        for (Range range : ranges) {
+            Text.writeString(dataOutput, range.path);
+            dataOutput.writeLong(range.min);
+            dataOutput.writeLong(range.max);
+            dataOutput.writeLong(range.rows);
+        }
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        int size = dataInput.readInt();
+        ranges = new ArrayList<Range>(size);
+        for (int i = 0; i < size; i++) {
+            String path = Text.readString(dataInput);
+            long min = dataInput.readLong();
+            long max = dataInput.readLong();
+            long rows = dataInput.readLong();
+            ranges.add(new Range(path, min, max, rows));
+        }
+    }
+
+    // Fields
+
+    public ArrayList<Range> getRanges() {
+        return ranges;
+    }
+}
@@ -0,0 +1,64 @@
+package extramuros.java.jobs.timeseries.sort;
+
+import extramuros.java.jobs.utils.JobKeys;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Partitioner;
+
+import java.util.Arrays;
+
+/**
+ * User: antonio
+ * Date: 19/10/2026
+ * Time: 12:15
+ *
+ * Total order partitioner for timestamps. The sorted split points in
+ * JobKeys.SORT_SPLIT_POINTS divide the timestamps in ranges, reducer i
+ * gets the keys between split point i - 1 (included) and split point i,
+ * so the concatenation of the part files in order is sorted.
+ */
+public class RangePartitioner extends Partitioner<LongWritable, Writable> implements Configurable {
+
+    private Configuration config;
+    private long[] splitPoints;
+
+    public int getPartition(LongWritable key, Writable value, int numPartitions) {
+        int position = Arrays.binarySearch(splitPoints, key.get());
+        int partition = (position >= 0) ? position + 1 : -(position + 1);
+        return Math.min(partition, numPartitions - 1);
+    }
+
+    public void setConf(Configuration config) {
+        this.config = config;
+        splitPoints = decodeSplitPoints(config.get(JobKeys.SORT_SPLIT_POINTS));
+    }
+
+    public Configuration getConf() {
+        return config;
+    }
+
+    public static String encodeSplitPoints(long[] splitPoints) {
+        StringBuilder encoded = new StringBuilder();
+        for (long splitPoint : splitPoints) {
+            if (encoded.length() > 0) {
+                encoded.append(",");
+            }
+            encoded.append(splitPoint);
+        }
+        return encoded.toString();
+    }
+
+    public static long[] decodeSplitPoints(String encoded) {
+        if (encoded == null || encoded.length() == 0) {
+            return new long[0];
+        }
+        String[] parts = encoded.split(",");
+        long[] splitPoints = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            splitPoints[i] = Long.parseLong(parts[i]);
+        }
+        return splitPoints;
+    }
+}
@@ -0,0 +1,55 @@
+package extramuros.java.jobs.timeseries.sort;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 19/10/2026
+ * Time: 12:25
+ *
+ * Writes the rows of its range of timestamps in order, and in cleanup()
+ * a range file with the first and last timestamp and the number of rows
+ * of its part, see RangeIndex. The range file is written in the work
+ * directory of the task, so it is only committed with the part file.
+ */
+public class Reducer extends org.apache.hadoop.mapreduce.Reducer<LongWritable, Writable, LongWritable, Writable> {
+
+    private long min;
+    private long max;
+    private long rows;
+
+    @Override
+    protected void reduce(LongWritable time, Iterable<Writable> values, Context context) throws IOException, InterruptedException {
+        if (rows == 0) {
+            min = time.get();
+        }
+        max = time.get();
+        for (Writable value : values) {
+            context.write(time, value);
+            rows++;
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        if (rows > 0) {
+            Path rangeFile = new Path(FileOutputFormat.getWorkOutputPath(context),
+                    String.format("%sr-%05d", RangeIndex.RANGE_FILE_PREFIX, context.getTaskAttemptID().getTaskID().getId()));
+            FSDataOutputStream out = rangeFile.getFileSystem(context.getConfiguration()).create(rangeFile, true);
+            try {
+                out.writeLong(min);
+                out.writeLong(max);
+                out.writeLong(rows);
+            } finally {
+                out.close();
+            }
+        }
+        super.cleanup(context);
+    }
+}
@@ -1,6 +1,7 @@
 package extramuros.java.jobs.timeseries.stationality;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.NumericColumnReader;
 import extramuros.java.formats.Row;
 import extramuros.java.formats.adapters.AbstractTableAdapter;
 import extramuros.java.jobs.utils.JobKeys;
@@ -26,6 +27,7 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
 
     protected AbstractTable table;
     protected String columnName;
+    protected NumericColumnReader reader;
     protected String period;
 
     private static final Logger log = LoggerFactory.getLogger(Mapper.class);
@@ -41,13 +43,12 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
             row = (Row) value;
         }
 
-        int position = table.getHeader().positionFor(columnName);
-        int type = table.getHeader().typeFor(columnName);
+        long time = reader.readLong(row);
 
         try {
-            if (!row.isNullAt(position)) {
+            if (reader.isValid()) {
                 try {
-                    Date date = new Date(TableUtils.parseDateAtColumn(row, position, table).getTime());
+                    Date date = new Date(time);
 
                     if(period.compareTo("year")==0) {
                         GregorianCalendar calendar = new GregorianCalendar();
@@ -89,11 +90,6 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
                         date = calendar.getTime();
                     }
 
-
-
-                    Date oldDate = new Date(TableUtils.parseDateAtColumn(row, position, table).getTime());
-                    GregorianCalendar cal = new GregorianCalendar();
-                    cal.setTime(oldDate);
                     LongWritable number = new LongWritable(date.getTime());
                     context.write(number, value);
                 } catch (Exception ex) {
@@ -120,6 +116,7 @@ public class Mapper extends org.apache.hadoop.mapreduce.Mapper<Writable, Writabl
         log.info("Reading mapper from " + tablePath);
         try {
             table = TableUtils.readAbstractTable(tablePath, config);
+            reader = NumericColumnReader.forColumn(table.getHeader(), columnName);
         } catch (Exception e) {
             log.error("Error reading extramuros.java.visualization.Table in mapper ", e);
         }
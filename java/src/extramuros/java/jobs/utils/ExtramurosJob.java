@@ -1,11 +1,14 @@
 package extramuros.java.jobs.utils;
 
+import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.StatsCatalog;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.mahout.common.AbstractJob;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -100,6 +103,89 @@ public abstract class ExtramurosJob extends AbstractJob {
         return stringBuilder.toString();
     }
 
+    // adds every file as an input path of the Hadoop job
+    protected void addInputPaths(Path[] files) throws IOException {
+        for(Path file : files) {
+            FileInputFormat.addInputPath(getJob(), file);
+        }
+    }
+
+    // columns joined with commas, as the mappers read them from JobKeys.COLUMNS
+    public static String joinColumns(String[] columns) {
+        StringBuilder columnsBuilder = new StringBuilder();
+        for(String column : columns) {
+            if(columnsBuilder.length() > 0) {
+                columnsBuilder.append(",");
+            }
+            columnsBuilder.append(column);
+        }
+        return columnsBuilder.toString();
+    }
+
+    /**
+     * Hadoop job of a stats job whose states are kept per file in the
+     * StatsCatalog of the table, see catalogStates().
+     */
+    public interface PerFileStates {
+        // runs the job over the files, with perFile the states are keyed by column and file
+        void runFiles(Path[] files, boolean perFile) throws IOException, InterruptedException, ClassNotFoundException;
+
+        // state of a column for a file without valid rows
+        Writable emptyState(String column);
+    }
+
+    /**
+     * Catalog of the table with the states of the kind for every file and
+     * column. Only the files missing in the catalog are read and their
+     * states are saved in it. Null if the table has no catalog or the
+     * states could not be assigned to files, the job is run over the whole
+     * table then and its output is the result.
+     */
+    protected StatsCatalog catalogStates(AbstractTable table, String kind, String[] columns, Path outputPath, PerFileStates states)
+            throws IOException, InterruptedException, ClassNotFoundException {
+        StatsCatalog catalog = StatsCatalog.forTable(table, getConf());
+        if(catalog != null && runMissingFiles(catalog, table, kind, columns, outputPath, states)) {
+            return catalog;
+        }
+
+        states.runFiles(getAllChildrenFiles(new Path(table.getRowsPath())), false);
+        return null;
+    }
+
+    /**
+     * Runs the job over the files of the table missing in the catalog and
+     * saves their states in the catalog. False if the state of some split
+     * could not be assigned to a file.
+     */
+    protected boolean runMissingFiles(StatsCatalog catalog, AbstractTable table, String kind, String[] columns, Path outputPath, PerFileStates states)
+            throws IOException, InterruptedException, ClassNotFoundException {
+        ArrayList<String> missing = catalog.missingFiles(kind, columns);
+        if(missing.isEmpty()) {
+            return true;
+        }
+        log.info("Computing " + kind + " for " + missing.size() + " of " + catalog.getFiles().size() + " files");
+
+        Path[] files = new Path[missing.size()];
+        for(int i = 0; i < files.length; i++) {
+            files[i] = new Path(missing.get(i));
+        }
+        states.runFiles(files, true);
+
+        // files without valid rows have no output
+        for(String file : missing) {
+            for(String column : columns) {
+                catalog.putState(file, kind, column, states.emptyState(column));
+            }
+        }
+        if(!catalog.putJobStates(kind, TableUtils.directorySeqIterator(outputPath, getConf()))) {
+            log.error("States " + kind + " not assigned to files, reading the whole table");
+            return false;
+        }
+
+        catalog.save(table, getConf());
+        return true;
+    }
+
     // executes this task
     public abstract void run();
 
@@ -17,4 +17,25 @@ public interface JobKeys {
     public static String MAX_VALUES = "extramuros.java.jobs.stats.normalization.max_values";
     public static String FILTER_INFORMATION = "extramuros.java.jobs.file.filter_information";
     public static String PERIOD = "extramuros.java.jobs.timeseries.period";
+    public static String PROJECTION = "extramuros.java.jobs.projection";
+    public static String RANGE = "extramuros.java.jobs.range";
+    public static String SKIP_LINES = "extramuros.java.jobs.file.skip_lines";
+    public static String AGGREGATION_MEMORY = "extramuros.java.jobs.aggregation.memory";
+    public static String SKETCH_SIZE = "extramuros.java.jobs.stats.sketch_size";
+    public static String HISTOGRAM_EDGES = "extramuros.java.jobs.stats.histogram.edges";
+    public static String HISTOGRAM_BINS = "extramuros.java.jobs.stats.histogram.bins";
+    public static String HLL_PRECISION = "extramuros.java.jobs.stats.hll_precision";
+    public static String TOP_VALUES_CAPACITY = "extramuros.java.jobs.stats.top_values_capacity";
+    public static String PER_FILE = "extramuros.java.jobs.stats.per_file";
+    public static String PER_SPLIT = "extramuros.java.jobs.stats.per_split";
+    public static String SAMPLED_INPUT_FORMAT = "extramuros.java.jobs.sample.input_format";
+    public static String SAMPLE_SEED = "extramuros.java.jobs.sample.seed";
+    public static String SAMPLE_SPLITS_FROM = "extramuros.java.jobs.sample.splits_from";
+    public static String SAMPLE_SPLITS_TO = "extramuros.java.jobs.sample.splits_to";
+    public static String SAMPLE_SIZE = "extramuros.java.jobs.sample.size";
+    public static String WEIGHT_COLUMN = "extramuros.java.jobs.sample.weight_column";
+    public static String STRATUM_COLUMN = "extramuros.java.jobs.sample.stratum_column";
+    public static String STRATA_QUOTAS = "extramuros.java.jobs.sample.strata_quotas";
+    public static String STRATA_MINIMUM = "extramuros.java.jobs.sample.strata_minimum";
+    public static String SORT_SPLIT_POINTS = "extramuros.java.jobs.timeseries.sort.split_points";
 }
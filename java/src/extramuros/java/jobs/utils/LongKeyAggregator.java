@@ -0,0 +1,113 @@
+package extramuros.java.jobs.utils;
+
+import org.apache.hadoop.conf.Configuration;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 09:15
+ *
+ * In-mapper aggregation of sums and counts by a primitive long key (a
+ * cluster id, the bits of a double value...). Entries live in open
+ * addressing arrays sized from a memory budget; when the table is full,
+ * and when the mapper calls flush() in cleanup(), every entry is handed to
+ * the Flusher and the table is cleared. Mappers write one pair per
+ * distinct key instead of one pair per row, and combiners merge what
+ * different flushes wrote.
+ */
+public class LongKeyAggregator {
+
+    public interface Flusher {
+        void flush(long key, double sum, long count) throws IOException, InterruptedException;
+    }
+
+    // key, sum, count and used flag of up to ~2.7 slots per entry, as the table is kept under 3/4 full
+    public static final int BYTES_PER_ENTRY = 64;
+    public static final long DEFAULT_MEMORY = 16 * 1024 * 1024;
+
+    private long[] keys;
+    private double[] sums;
+    private long[] counts;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int maxEntries;
+    private Flusher flusher;
+
+    public LongKeyAggregator(long memory, Flusher flusher) {
+        this.flusher = flusher;
+        this.maxEntries = (int) Math.max(16, Math.min(memory / BYTES_PER_ENTRY, 1 << 24));
+
+        int capacity = Integer.highestOneBit(maxEntries) * 2;
+        if(capacity < maxEntries * 4 / 3) {
+            capacity *= 2;
+        }
+        keys = new long[capacity];
+        sums = new double[capacity];
+        counts = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    // memory budget of the aggregators of a task, JobKeys.AGGREGATION_MEMORY bytes
+    public static long memoryFor(Configuration config) {
+        return config.getLong(JobKeys.AGGREGATION_MEMORY, DEFAULT_MEMORY);
+    }
+
+    public void add(long key, double value) throws IOException, InterruptedException {
+        add(key, value, 1);
+    }
+
+    public void add(long key, double sum, long count) throws IOException, InterruptedException {
+        int slot = slotFor(key);
+        if(!used[slot]) {
+            if(size == maxEntries) {
+                flush();
+                slot = slotFor(key);
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            sums[slot] = 0;
+            counts[slot] = 0;
+            size++;
+        }
+        sums[slot] += sum;
+        counts[slot] += count;
+    }
+
+    // slot holding the key or the empty slot where it should be inserted
+    private int slotFor(long key) {
+        int slot = hash(key) & mask;
+        while(used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    // writes every entry through the flusher and empties the table
+    public void flush() throws IOException, InterruptedException {
+        for(int i=0; i<used.length; i++) {
+            if(used[i]) {
+                flusher.flush(keys[i], sums[i], counts[i]);
+                used[i] = false;
+            }
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
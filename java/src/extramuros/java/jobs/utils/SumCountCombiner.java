@@ -0,0 +1,24 @@
+package extramuros.java.jobs.utils;
+
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 09:50
+ *
+ * Combiner merging the partial sums and counts written for the same key.
+ */
+public class SumCountCombiner extends org.apache.hadoop.mapreduce.Reducer<Text, SumCountWritable, Text, SumCountWritable> {
+
+    @Override
+    protected void reduce(Text key, Iterable<SumCountWritable> values, Context context) throws IOException, InterruptedException {
+        SumCountWritable merged = new SumCountWritable();
+        for(SumCountWritable value : values) {
+            merged.merge(value);
+        }
+        context.write(key, merged);
+    }
+}
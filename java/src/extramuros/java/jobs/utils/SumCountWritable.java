@@ -0,0 +1,68 @@
+package extramuros.java.jobs.utils;
+
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * User: antonio
+ * Date: 18/10/2026
+ * Time: 09:40
+ *
+ * Partial sum and number of values, written by mappers that aggregate
+ * before emitting so that averages can still be computed in the reducer.
+ */
+public class SumCountWritable implements Writable {
+
+    private double sum;
+    private long count;
+
+    public SumCountWritable() {
+    }
+
+    public SumCountWritable(double sum, long count) {
+        set(sum, count);
+    }
+
+    public void set(double sum, long count) {
+        this.sum = sum;
+        this.count = count;
+    }
+
+    public void add(double value) {
+        sum += value;
+        count++;
+    }
+
+    public void merge(SumCountWritable other) {
+        sum += other.sum;
+        count += other.count;
+    }
+
+    public void write(DataOutput dataOutput) throws IOException {
+        dataOutput.writeDouble(sum);
+        dataOutput.writeLong(count);
+    }
+
+    public void readFields(DataInput dataInput) throws IOException {
+        sum = dataInput.readDouble();
+        count = dataInput.readLong();
+    }
+
+    // Fields
+
+    public double getSum() {
+        return sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // NaN if there are no values
+    public double getAverage() {
+        return sum / count;
+    }
+}
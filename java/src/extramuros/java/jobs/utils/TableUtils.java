@@ -1,13 +1,17 @@
 package extramuros.java.jobs.utils;
 
 import extramuros.java.formats.AbstractTable;
+import extramuros.java.formats.DateTimeFormats;
 import extramuros.java.formats.Row;
 import extramuros.java.formats.RowTypes;
+import extramuros.java.formats.StatsCatalog;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.*;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import org.apache.mahout.common.IOUtils;
 import org.apache.mahout.common.Pair;
 import org.slf4j.Logger;
@@ -19,7 +23,6 @@ import clojure.lang.Var;
 
 import java.io.IOException;
 import java.io.StringReader;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 /**
@@ -174,6 +177,8 @@ class SeqDirectoryIterator implements Iterator<Pair<Writable,Writable>> {
 
 public class TableUtils {
 
+    private static final Logger log = LoggerFactory.getLogger(TableUtils.class);
+
     public static AbstractTable readAbstractTable(Path input, Configuration config) throws IOException, IllegalAccessException, InstantiationException {
 
         FileSystem fs = FileSystem.get(config);
@@ -226,6 +231,43 @@ public class TableUtils {
         }
     }
 
+    /**
+     * Writes a pair name/value for every entry of values, in a single
+     * sequence file with Text keys.
+     */
+    public static void writeNamedWritables(Path outputFile, Map<String, ? extends Writable> values, Class<? extends Writable> valueClass, Configuration configuration) throws IOException {
+        SequenceFile.Writer outWriter = null;
+        try {
+            outWriter = new SequenceFile.Writer(FileSystem.get(configuration), configuration, outputFile, Text.class, valueClass);
+            for(Map.Entry<String, ? extends Writable> entry : values.entrySet()) {
+                outWriter.append(new Text(entry.getKey()), entry.getValue());
+            }
+        } finally {
+            if(outWriter!=null)
+                IOUtils.quietClose(outWriter);
+        }
+    }
+
+    /**
+     * Suffix for the keys written by the mappers of a stats job when the
+     * statistics of every file are computed apart (JobKeys.PER_FILE):
+     * StatsCatalog.FILE_SEPARATOR and the path of the file of the split.
+     * With JobKeys.PER_SPLIT the start of the split follows
+     * StatsCatalog.SPLIT_SEPARATOR. Empty if none of the keys is set.
+     */
+    public static String perFileKeySuffix(Configuration config, InputSplit split) {
+        boolean perSplit = config.getBoolean(JobKeys.PER_SPLIT, false);
+        if(!perSplit && !config.getBoolean(JobKeys.PER_FILE, false)) {
+            return "";
+        }
+        if(split instanceof FileSplit) {
+            String suffix = StatsCatalog.FILE_SEPARATOR + ((FileSplit) split).getPath().toUri().getPath();
+            return perSplit ? suffix + StatsCatalog.SPLIT_SEPARATOR + ((FileSplit) split).getStart() : suffix;
+        }
+        log.error("Cannot compute stats per file for split " + split);
+        return "";
+    }
+
     public static Iterator<Pair<Writable,Writable>> fileSeqIterator(Path input, Configuration config) throws IOException {
         FileSystem fs = FileSystem.get(config);
         SequenceFile.Reader reader = new SequenceFile.Reader(fs,input,config);
@@ -247,17 +289,18 @@ public class TableUtils {
         return Integer.parseInt(uuid);
     }
 
-    public static Integer parseWritableKeyId(Writable key) {
-        Integer id = null;
+    // row ids are longs, keys are not narrowed to int
+    public static Long parseWritableKeyId(Writable key) {
+        Long id = null;
 
         if(key instanceof LongWritable) {
-            id = new Long(((LongWritable)key).get()).intValue();
+            id = ((LongWritable)key).get();
         } else if(key instanceof DoubleWritable) {
-            id = new Double(((DoubleWritable)key).get()).intValue();
+            id = new Double(((DoubleWritable)key).get()).longValue();
         } else if(key instanceof IntWritable) {
-            id = ((IntWritable) key).get();
+            id = (long) ((IntWritable) key).get();
         } else if(key instanceof FloatWritable) {
-            id = new Float(((FloatWritable)key).get()).intValue();
+            id = new Float(((FloatWritable)key).get()).longValue();
         }
 
         return id;
@@ -318,18 +361,17 @@ public class TableUtils {
 
     public static Date parseDateAtColumn(Row row, int column, AbstractTable table) throws Exception {
         if(table.getHeader().typeFor(table.getHeader().getColumnNames().get(column)) == RowTypes.DATE_TIME) {
-              Object tmp = row.getValues().get(column);
+              Object tmp = row.getValue(column);
 
             if(tmp instanceof String) {
                 // It has to be a formatted date string
                 String columnName = table.getHeader().getColumnNames().get(column);
                 String dateFormat = table.getHeader().getDateFormats().get(columnName);
-                SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
-                return sdf.parse((String) tmp);
+                return new Date(DateTimeFormats.parse(dateFormat, (String) tmp));
 
             } else {
                 // It must have been passed as UNIX time
-                return new Date((Long) tmp);
+                return new Date(((Number) tmp).longValue());
             }
 
         } else {
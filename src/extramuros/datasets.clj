@@ -4,7 +4,9 @@
              - Table interface"
       :author "Antonio Garrote"}
   extramuros.datasets
-  (:import (extramuros.java.formats Row Table RowTypes TableHeader)
+  (:import (extramuros.java.formats Row Table RowTypes TableHeader DateTimeFormats TableStatistics StatsCatalog
+                                    FileStatistics NumericColumnReader)
+           (extramuros.java.formats.columnar ColumnarTable ColumnarFileWriter)
            (org.apache.hadoop.io LongWritable)
            (java.util HashMap ArrayList))
   (:use (extramuros hdfs)
@@ -49,7 +51,12 @@
      (map (fn [k] (get (:columns-map schema) k)) (:ordered-columns schema))))
 
 (defn parse-datum
-  "Given a string containing a datum and type information tries to parse the string to the provided kind"
+  "Given a string containing a datum and type information tries to parse the string to the provided kind.
+   If a date format is provided, date-time strings are parsed into epoch milliseconds"
+  ([datum kind date-format]
+     (if (and (= kind *date-time*) date-format (string? datum))
+       (DateTimeFormats/parseOrNull date-format (.trim datum))
+       (parse-datum datum kind)))
   ([datum kind]
      (if (nil? datum)
        nil
@@ -80,7 +87,7 @@
      (if (string? date-time)
        (if (string? column)
          (let [format-str (.. (:table table) (getHeader) (getDateFormats) (get column))]
-           (.parse (java.text.SimpleDateFormat. format-str) date-time))
+           (java.util.Date. (DateTimeFormats/parse format-str date-time)))
          (let [column-name (.. (:table table) (getHeader) (getColumnNames) (get column))]
            (parse-date-time date-time column-name table)))
        (java.util.Date. (long date-time)))))
@@ -95,8 +102,11 @@
               writable)))))
 
 (defn make-row
-  "Creates a new Row object with the given ID, schema and data"
+  "Creates a new Row object with the given ID, schema and data.
+   Date-time columns with a format in date-formats are stored as epoch milliseconds"
   ([id schema data]
+     (make-row id schema data {}))
+  ([id schema data date-formats]
      (loop [columns (:ordered-columns schema)
             data data
             values []]
@@ -108,7 +118,7 @@
                (ArrayList. values))
          ;; keep on building the row
          (let [column (first columns)
-               value (parse-datum (first data) (get (:columns-map schema) column))]
+               value (parse-datum (first data) (get (:columns-map schema) column) (get date-formats column))]
            (recur (rest columns)
                   (rest data)
                   (conj values value)))))))
@@ -128,6 +138,8 @@
        (.setDateFormats header date-formats)
        header)))
 
+(declare write-table-statistics)
+
 (defn write-table
   "Writes the table information to the HDFS file system.
    Different parameters can be provided:
@@ -189,9 +201,82 @@
         :path table-file-path
         :schema (table-obj-to-schema table)} )))
 
+(defn write-columnar-table
+  "Copies the rows of a table into a columnar file at output-path.cols and
+   writes the new table in output-path, returns the table hash for the new table"
+  ([table output-path]
+     (write-columnar-table table output-path ColumnarFileWriter/DEFAULT_ROW_GROUP_SIZE))
+  ([table output-path row-group-size]
+     (ColumnarTable/fromTable (:table table) (str output-path ".cols") output-path (int row-group-size) *conf*)
+     (let [columnar (open-dataset output-path)]
+       (write-table-statistics columnar)
+       columnar)))
+
+(declare wrap-dataset)
+
+(defn- split-import-line
+  "Splits a line of an imported file, parts matching one of the null values are nil"
+  ([line delim nulls]
+     (map (fn [part]
+            (if  (empty? (filter #(if (and (string? %) (string? part))
+                                    (= (.compareToIgnoreCase (.replaceAll part " " "")
+                                                             %)
+                                       0)
+                                    (= part %)) nulls))
+              part
+              nil))
+          (vec (.split line (str delim))))))
+
+(defn- import-dataset-rows
+  "Parses the lines of the local file writing every row to the rows sequence file as
+   soon as it is read, ids are the positions of the imported lines. Returns the
+   statistics of the columns of the rows file, computed while the rows are written"
+  ([in-filename rows-filename schema delim nulls skip line-filter mapper row-date-formats date-formats]
+     (let [writer (seq-file-writer rows-filename LongWritable Row)
+           header (make-table-header schema date-formats)
+           columns (into-array String (.getColumnNames header))
+           readers (NumericColumnReader/forColumns header columns)
+           file-statistics (FileStatistics. (alength columns))]
+       (try
+         (doseq [[i line] (map-indexed vector
+                                       (map #(mapper (split-import-line % delim nulls))
+                                            (filter line-filter
+                                                    (drop skip (read-lines (reader in-filename))))))]
+           (let [row (make-row i schema line row-date-formats)]
+             (.append writer (LongWritable. (long i)) row)
+             (.add file-statistics row readers)))
+         (finally (.close writer)))
+       (.setStatus file-statistics (.getFileStatus *fs* (path rows-filename)))
+       (TableStatistics/fromFiles header [file-statistics]))))
+
+(defn- import-dataset-job
+  "Imports the file with a map only job over a text table adapter for the file, the file is
+   first copied to the cluster file system if it is not there. Ids are the offsets of the lines.
+   Returns the statistics of the table computed by the mappers, nil if they are not complete"
+  ([in-filename out-filename schema delim nulls skip date-formats epoch-dates]
+     (let [uploaded? (not (exists? in-filename))
+           input (if uploaded? (str out-filename ".input") in-filename)
+           source (str out-filename ".source")]
+       (when uploaded?
+         (.copyFromLocalFile *fs* (org.apache.hadoop.fs.Path. (.getAbsolutePath (java.io.File. in-filename))) (path input)))
+       (try
+         (let [adapter (:table (wrap-dataset :text input source schema
+                                             {:separator (str delim) :nulls nulls
+                                              :date-formats date-formats :epoch-dates epoch-dates}))
+               job (extramuros.java.jobs.file.importtext.Job. (path out-filename) adapter (int skip) *conf*)]
+           (.run job)
+           (.getStatistics job))
+         (finally
+          (delete source)
+          (when uploaded? (delete input)))))))
+
 (defn import-dataset
-  "creates a new table from a local file system file, returns the table hash for the new table"
-  ([in-filename out-filename schema & {:keys [delim keyword-headers quote nulls skip header compress-delim filter mapper date-formats]
+  "creates a new table from a local file system file, returns the table hash for the new table.
+   Rows are written while the file is read. With :parallel true the file is imported by a
+   map only job writing one part file per split; :filter and :mapper are not supported then
+   and row ids are line offsets instead of line numbers. Column statistics are computed
+   while the rows are written, without reading the table again"
+  ([in-filename out-filename schema & {:keys [delim keyword-headers quote nulls skip header compress-delim filter mapper date-formats epoch-dates statistics parallel]
                                        :or   {delim \,
                                               quote \"
                                               nulls ["","NULL"]
@@ -200,45 +285,29 @@
                                               filter (constantly true)
                                               mapper identity
                                               keyword-headers true
-                                              date-formats {}}}]
-     (let [lines (read-lines (reader in-filename))
-           skip (if header (inc skip) skip)]
-       (loop [skip skip
-              lines lines
-              acum []]
-         (if (empty? lines)
-        
-           (do (seq-file-write! (seq-file-writer (str out-filename ".rows") LongWritable Row)
-                            (wrapper LongWritable Row)
-                            (first (reduce (fn [[ac i] line]
-                                             (print ".")
-                                             [(conj ac [(long i) (make-row i schema line)]) (inc i)])
-                                           [[] 0]
-                                           acum)))
-               (write-table out-filename (str out-filename ".rows") schema date-formats)
-               (open-dataset out-filename))
-           (if (> skip 0)
-         
-             (recur (dec skip) (rest lines) acum)
-         
-             (let [line (first lines)]
-               (if (filter line)
-             
-                 (let [_ (print ".")
-                       line (vec (.split line (str delim)))
-                       line (map (fn [part]
-                                   (if  (empty? (clojure.core/filter #(if (and (string? %) (string? part))
-                                                                        (= (.compareToIgnoreCase (.replaceAll part " " "")
-                                                                                                 %)
-                                                                           0)
-                                                                        (= part %)) nulls))
-                                     part
-                                     nil))
-                                 line)]
-                   (recur skip (rest lines)
-                          (conj acum (mapper line))))
-             
-                 (recur skip (rest lines) acum)))))))))
+                                              date-formats {}
+                                              epoch-dates false
+                                              statistics true
+                                              parallel false}}]
+     (let [skip (if header (inc skip) skip)
+           row-date-formats (if epoch-dates date-formats {})]
+       (let [imported-statistics (if parallel
+                                   (import-dataset-job in-filename out-filename schema delim nulls skip date-formats epoch-dates)
+                                   (let [file-statistics (import-dataset-rows in-filename (str out-filename ".rows") schema delim nulls skip
+                                                                              filter mapper row-date-formats date-formats)]
+                                     (write-table out-filename (str out-filename ".rows") schema date-formats)
+                                     file-statistics))
+             dataset (open-dataset out-filename)]
+         ;; column stats of a previous import of the table
+         (when (exists? (str out-filename StatsCatalog/SUFFIX))
+           (delete (str out-filename StatsCatalog/SUFFIX)))
+         (if statistics
+           (if imported-statistics
+             (.save imported-statistics (:table dataset) *conf*)
+             (write-table-statistics dataset))
+           (when (exists? (str out-filename TableStatistics/SUFFIX))
+             (delete (str out-filename TableStatistics/SUFFIX))))
+         dataset))))
 
 (defmulti wrap-dataset
   "Wraps a file or set of files stored in the HDFS filesystem with
@@ -261,6 +330,8 @@
       (.setRowsPath input)
       (.setTablePath output)
       (.setConfiguration *conf*)
+      (.setEpochDates (boolean (:epoch-dates opts)))
+      (.setQuote (when-let [quote (:quote opts)] (str quote)))
       (.setHeader (make-table-header schema (or (:date-formats opts) {}))))
     (seq-file-write!
      (seq-file-writer (path (.getTablePath table))
@@ -294,6 +365,58 @@
   ([table]
      (iterator-seq (.iterator (:table table)))))
 
+(defn table-dictionary
+  "Returns the values in the dictionary of a categorical column ordered by code,
+   nil if the column has no dictionary"
+  ([table column]
+     (when-let [dictionary (.. (:table table) (getHeader) (getDictionary (name column)))]
+       (vec (.getValues dictionary)))))
+
+(defn build-dictionaries
+  "Scans the rows of the table adding the values of its categorical columns to
+   the dictionaries in the table header and saves the table"
+  ([table]
+     (let [header (.getHeader (:table table))
+           positions (filter #(= *categorical* (nth (.getColumnTypes header) %))
+                             (range 0 (count (.getColumnNames header))))
+           dictionaries (doall (map #(.dictionaryFor header (nth (.getColumnNames header) %)) positions))]
+       (doseq [row (table-rows table)]
+         (doseq [[position dictionary] (map vector positions dictionaries)]
+           (when-let [value (nth (row-to-seq row) position)]
+             (.add dictionary (str value)))))
+       (write-table table))))
+
+(defn write-table-statistics
+  "Runs a job computing in the mappers the row count and the min, max and
+   number of nulls of every column for each file of the table, and stores them
+   next to the table metadata"
+  ([table]
+     (let [job (extramuros.java.jobs.file.statistics.Job.
+                (path (str (.getTablePath (:table table)) "_statistics"))
+                (:table table)
+                *conf*)]
+       (.run job)
+       (.getOutput job))))
+
+(defn table-statistics
+  "Returns the statistics stored for the table as a map with the number of :rows
+   and the :count, :nulls, :min and :max of every column, or nil if there are no
+   statistics or the rows have changed since they were written"
+  ([table]
+     (when-let [statistics (TableStatistics/load (:table table) *conf*)]
+       {:rows (.getRowCount statistics)
+        :columns (when (.hasColumnStats statistics)
+                   (reduce (fn [ac column]
+                             (let [stats (.getColumnStats statistics column)]
+                               (assoc ac column
+                                      (merge {:count (.getCount stats)
+                                              :nulls (.getNullCount stats)}
+                                             (when (.hasRange stats)
+                                               {:min (.getMin stats)
+                                                :max (.getMax stats)})))))
+                           {}
+                           (.. (:table table) (getHeader) (getColumnNames))))})))
+
 (defn table-schema
   "Returns the schema information for the table as a map"
   ([table]
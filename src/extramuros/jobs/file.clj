@@ -161,6 +161,155 @@
   (ProbabilisticSampleTableJob. (atom nil) (atom nil)))
 
 
+;; Reservoir sampling table job
+
+(defmethod job-info :reservoir-sample-table [_]
+  "Samples exactly sample-size rows of a table in a distributed way, or all the rows if the table has fewer rows.
+   The table is read once and the number of rows does not need to be known in advance.
+
+   * Note:
+     Every mapper keeps a reservoir with sample-size rows of its split chosen with random keys and a single
+     reducer keeps the rows with the smallest keys of all the reservoirs. With a weight column the probability
+     of a row being in the sample is proportional to the value of the column (weighted sampling without
+     replacement); rows with null or non positive weights are never sampled.
+
+   * Options:
+     - directory-output : directory where the output for this job will be stored.
+     - sample-size      : number of rows of the sample
+     - weight-column    : optional, numeric column with the weight of every row
+     - seed             : optional, seed of the random generators
+     - table            : table to be sampled
+
+   * Output Path:
+     Path to the HDFS file containing the sample rows.
+
+   * Output:
+     Returns a new Table map for sampled rows. The table metadata has not yet been written to disk.
+
+   * Visualization:
+     None.")
+
+(defn- reservoir-sample-table-job
+  ([directory-output sample-size weight-column seed table]
+     (let [job (extramuros.java.jobs.file.reservoirsample.Job. directory-output
+                                                               (int sample-size)
+                                                               (when weight-column (name weight-column))
+                                                               table
+                                                               *conf*)]
+       (when seed (.setSeed job (long seed)))
+       (.run job)
+       job)))
+
+(deftype ReservoirSampleTableJob [job configuration]  extramuros.jobs.core.ExtramurosJob
+         (run [this] (let [job-run (reservoir-sample-table-job
+                                    (:directory-output @configuration)
+                                    (:sample-size @configuration)
+                                    (:weight-column @configuration)
+                                    (:seed @configuration)
+                                    (:table (:table @configuration)))]
+                       (swap! job (fn [_] job-run))))
+         (set-config [this map] (swap! configuration (fn [_] map)))
+         (config [this] @config)
+         (job [this] @job)
+         (output [this] (let [table (job-output @job)]
+                          (.setTablePath table (str (.getTablePath table) ".tbl"))
+                          (.setConfiguration table *conf*)
+                          {:table table
+                           :path (.getTablePath table)
+                           :schema (table-obj-to-schema table)}))
+         (output [this options] (job-output @job))
+         (output-path [this] (job-output-file @job))
+         (output-path [this options] (job-output-file @job))
+         (visualize [this] nil)
+         (visualize [this options] nil))
+
+(defmethod make-job :reservoir-sample-table [_]
+  (ReservoirSampleTableJob. (atom nil) (atom nil)))
+
+
+;; Stratified sampling table job
+
+(defmethod job-info :stratified-sample-table [_]
+  "Samples the rows of a table by strata, the groups of rows with the same value for a (categorical) column, in a
+   single pass. Rare strata are represented in the sample whatever the size of the other strata.
+
+   * Note:
+     Every mapper keeps a reservoir per stratum and a single reducer merges them and chooses the rows of every
+     stratum uniformly at random. Rows with a null value in the column are not sampled.
+     With :quotas every stratum in the map gets that number of rows and the strata not in the map :sample-size
+     rows (0 by default). Without :quotas :sample-size rows are allocated in proportion to the sizes of the
+     strata, with at least :minimum rows per stratum, by the reducer once all the strata have been counted:
+     every mapper may keep up to the larger of :sample-size and :minimum rows per stratum.
+
+   * Options:
+     - directory-output : directory where the output for this job will be stored.
+     - column           : column whose values define the strata
+     - quotas           : optional, map from values of the column to the number of rows of that stratum
+     - sample-size      : total number of rows with proportional allocation, rows per stratum without quota otherwise
+     - minimum          : optional, minimum number of rows per stratum with proportional allocation
+     - seed             : optional, seed of the random generators
+     - table            : table to be sampled
+
+   * Output Path:
+     Path to the HDFS file containing the sample rows.
+
+   * Output:
+     Returns a new Table map for sampled rows. The table metadata has not yet been written to disk.
+
+   * Visualization:
+     None.")
+
+(defn- stratified-sample-table-job
+  ([directory-output column quotas sample-size minimum seed table]
+     (let [job (if quotas
+                 (extramuros.java.jobs.file.stratifiedsample.Job. directory-output
+                                                                  (name column)
+                                                                  (let [m (java.util.HashMap.)]
+                                                                    (doseq [[value quota] quotas]
+                                                                      (.put m (str value) (Integer. (int quota))))
+                                                                    m)
+                                                                  (int (or sample-size 0))
+                                                                  table
+                                                                  *conf*)
+                 (extramuros.java.jobs.file.stratifiedsample.Job. directory-output
+                                                                  (name column)
+                                                                  (int sample-size)
+                                                                  (int (or minimum 0))
+                                                                  table
+                                                                  *conf*))]
+       (when seed (.setSeed job (long seed)))
+       (.run job)
+       job)))
+
+(deftype StratifiedSampleTableJob [job configuration]  extramuros.jobs.core.ExtramurosJob
+         (run [this] (let [job-run (stratified-sample-table-job
+                                    (:directory-output @configuration)
+                                    (:column @configuration)
+                                    (:quotas @configuration)
+                                    (:sample-size @configuration)
+                                    (:minimum @configuration)
+                                    (:seed @configuration)
+                                    (:table (:table @configuration)))]
+                       (swap! job (fn [_] job-run))))
+         (set-config [this map] (swap! configuration (fn [_] map)))
+         (config [this] @config)
+         (job [this] @job)
+         (output [this] (let [table (job-output @job)]
+                          (.setTablePath table (str (.getTablePath table) ".tbl"))
+                          (.setConfiguration table *conf*)
+                          {:table table
+                           :path (.getTablePath table)
+                           :schema (table-obj-to-schema table)}))
+         (output [this options] (job-output @job))
+         (output-path [this] (job-output-file @job))
+         (output-path [this options] (job-output-file @job))
+         (visualize [this] nil)
+         (visualize [this options] nil))
+
+(defmethod make-job :stratified-sample-table [_]
+  (StratifiedSampleTableJob. (atom nil) (atom nil)))
+
+
 ;; vectorization of tables
 
 (defmethod job-info :vectorize-table [_]
@@ -265,6 +414,9 @@
                                 (clojure `(fn [row] (and (> (get row \"val\") ~min-val)
                                                         (< (get row \"val\") ~max-val)))))
      - table:               : table to be filtered
+     - range                : optional vector [column low high], only the rows with a numeric or date-time
+                              (epoch milliseconds) value for the column inside the range are passed to the
+                              filter function. Files whose statistics show no values in the range are not read.
 
    * Output Path:
      Path to the HDFS file containing the filtered rows.
@@ -277,11 +429,15 @@
 
 (defn filter-clojure-job
   ([directory-output function-str table]
+     (filter-clojure-job directory-output function-str table nil))
+  ([directory-output function-str table range]
      (let [job (extramuros.java.jobs.file.filter.Job. (path directory-output)
                                                       table
                                                       extramuros.java.jobs.file.filter.ClojureFilterMapper
                                                       function-str
                                                       *conf*)]
+       (when-let [[column low high] range]
+         (.setRange job (extramuros.java.formats.RangeFilter. (name column) (double low) (double high))))
        (.run job)
        job)))
 
@@ -289,7 +445,8 @@
          (run [this] (let [job-run (filter-clojure-job
                                     (:directory-output @configuration)
                                     (:filter-function @configuration)
-                                    (:table (:table @configuration)))]
+                                    (:table (:table @configuration))
+                                    (:range @configuration))]
                        (swap! job (fn [_] job-run))))
          (set-config [this map] (swap! configuration (fn [_] map)))
          (config [this] @config)
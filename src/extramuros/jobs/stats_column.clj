@@ -3,12 +3,33 @@
   extramuros.jobs.stats-column
   (:use [extramuros hdfs]
         [extramuros.datasets :only [open-dataset table-numeric-columns
-                                    table-ordered-columns]]
+                                    table-ordered-columns table-column-type
+                                    *categorical* *string*]]
         [extramuros.datasets :only [table-obj-to-schema]]
         [extramuros.jobs core])
-  (:use [incanter.charts :only [histogram]]
+  (:use [incanter.charts :only [histogram bar-chart]]
         [incanter.core :only [view]]))
 
+;; Approximate stats
+
+(defn- approximate-stats-job
+  "Estimates the moments of the columns reading a sample of the splits of the table"
+  ([columns approximate table-or-path output-path]
+     (let [table (table-from-table-or-path table-or-path)
+           approximate (if (map? approximate) approximate {})
+           job (extramuros.java.jobs.stats.moments.ApproximateJob.
+                (into-array String columns)
+                (double (or (:error approximate) extramuros.java.jobs.stats.moments.ApproximateJob/DEFAULT_ERROR))
+                (double (or (:confidence approximate) extramuros.java.jobs.stats.moments.ApproximateJob/DEFAULT_CONFIDENCE))
+                (long (or (:time-budget approximate) 0))
+                table output-path *conf*)]
+       (when (:seed approximate) (.setSeed job (long (:seed approximate))))
+       (.run job)
+       job)))
+
+(defn- interval [stats key]
+  [(get stats (str key "_low")) (get stats (str key "_high"))])
+
 ;; Centrality measures job
 
 (defmethod job-info :centrality-stats [_]
@@ -18,12 +39,16 @@
      - output-path : path where the final computed values will be stored as a sequence file with keys: 'avg', 'min',  'max' and 'count'.
      - column      : name of the column whose statistics will be computed.
      - table       : table whose rows are going to be counted
+     - approximate : optional, true or a map with keys :error, :confidence, :time-budget and :seed to estimate
+                     the values reading a random sample of the splits of the table, see :table-stats.
 
    * Output path:
      Path to the file where the computed values are stored as a sequence file with keys: 'avg', 'min',  'max' and 'count'.
 
    * Output:
      A java HashMap with the computed values stored in keys: 'avg', 'min',  'max' and 'count'.
+     With :approximate the bounds of the confidence intervals are stored in keys 'avg_low', 'avg_high',
+     'count_low' and 'count_high'.
 
    * Visualization:
      Spreadsheet with the computed values.")
@@ -36,16 +61,24 @@
        job)))
 
 (deftype CentralityStatsJob [job configuration] extramuros.jobs.core.ExtramurosJob
-         (run [this] (let [job-run (centrality-stats-column-job
-                                    (:column @configuration)
-                                    (:table @configuration)
-                                    (:output-path @configuration))]
+         (run [this] (let [job-run (if (:approximate @configuration)
+                                     (approximate-stats-job
+                                      [(:column @configuration)]
+                                      (:approximate @configuration)
+                                      (:table @configuration)
+                                      (:output-path @configuration))
+                                     (centrality-stats-column-job
+                                      (:column @configuration)
+                                      (:table @configuration)
+                                      (:output-path @configuration)))]
                        (swap! job (fn [_] job-run))))
          (set-config [this map] (swap! configuration (fn [_] map)))
          (config [this] @config)
          (job [this] @job)
-         (output [this] (job-output @job))
-         (output [this options] (job-output @job))
+         (output [this] (if (:approximate @configuration)
+                          (get (job-output @job) (:column @configuration))
+                          (job-output @job)))
+         (output [this options] (output this))
          (output-path [this] (job-output-file @job))
          (output-path [this options] (job-output-file @job))
          (visualize [this] [["average" (get (output this) "avg")]
@@ -71,12 +104,17 @@
      - average     : average column value for the rows in the table
      - column      : name of the column whose statistics will be computed.
      - table       : table whose stats are going to be counted
+     - approximate : optional, true or a map with keys :error, :confidence, :time-budget and :seed to estimate
+                     the values reading a random sample of the splits of the table, see :table-stats.
+                     The average is not needed in this mode.
 
    * Output path:
      Path to the file where the computed values are stored as a sequence file with keys: 'var' and 'stdev'.
 
    * Output:
      A java HashMap with the computed values stored in keys: 'var' and 'stdev'.
+     With :approximate the bounds of the confidence intervals are stored in keys 'var_low', 'var_high',
+     'stdev_low' and 'stdev_high'.
 
    * Visualization:
      Spreadsheet with the computed values.")
@@ -90,17 +128,25 @@
        job)))
 
 (deftype DispersionStatsJob [job configuration]  extramuros.jobs.core.ExtramurosJob
-         (run [this] (let [job-run (dispersion-stats-column-job
-                                    (:column @configuration)
-                                    (:average @configuration)
-                                    (:table @configuration)
-                                    (:output-path @configuration))]
+         (run [this] (let [job-run (if (:approximate @configuration)
+                                     (approximate-stats-job
+                                      [(:column @configuration)]
+                                      (:approximate @configuration)
+                                      (:table @configuration)
+                                      (:output-path @configuration))
+                                     (dispersion-stats-column-job
+                                      (:column @configuration)
+                                      (:average @configuration)
+                                      (:table @configuration)
+                                      (:output-path @configuration)))]
                        (swap! job (fn [_] job-run))))
          (set-config [this map] (swap! configuration (fn [_] map)))
          (config [this] @config)
          (job [this] @job)
-         (output [this] (job-output @job))
-         (output [this options] (job-output @job))
+         (output [this] (if (:approximate @configuration)
+                          (get (job-output @job) (:column @configuration))
+                          (job-output @job)))
+         (output [this options] (output this))
          (output-path [this] (job-output-file @job))
          (output-path [this options] (job-output-file @job))
          (visualize [this] [["variance" (get (output this) "var")]
@@ -115,47 +161,131 @@
 (defmethod job-info :frequency-distribution [_]
   "Computes the distribution of frequencies for the values in a table column.
 
+   * Note:
+     By default every distinct value is counted, with continuous data the output can be as large as the
+     table. Columns with a dictionary (see build-dictionaries) are counted by code and the codes are only
+     decoded by the reducer, values missing in the dictionary are not counted. With the :histogram option the values are counted in a fixed number of bins by the mappers
+     and the output has one entry per bin whatever the number of rows:
+       - :equi-width : bins of the same width between :min and :max, computed from the column if not given.
+       - :equi-depth : bins with about the same number of values, edges computed with the :quantile-stats job.
+       - :adaptive   : bins adapting to the values in a single pass (streaming histogram).
+
    * Options:
      - output-path : path where the final computed values will be stored as a sequence of pairs value/frequency.
      - column      : name of the column whose frequencies will be computed.
      - table       : table whose rows are going to be used.
+     - histogram   : optional, :equi-width, :equi-depth or :adaptive.
+     - bins        : optional, number of bins of the histogram, 20 by default.
+     - min         : optional, lower bound of :equi-width bins.
+     - max         : optional, upper bound of :equi-width bins.
 
    * Output path:
-     Path to the file where the computed values are stored as a sequence file with pairs value/frequency.
+     Path to the file where the computed values are stored as a sequence file with pairs value/frequency,
+     or with the histogram for the column.
 
    * Output:
-     A sequence file iterator of Mahout Pairs value/frequency
+     A sequence file iterator of Mahout Pairs value/frequency, or a sequence of bins [lower upper count]
+     with the :histogram option.
 
    * Visualization:
      Histogram of frequencies")
 
+(declare quantile-stats-job)
+
+(defn- column-range
+  "Min. and max. values of a column computed with the moments job"
+  ([column table output-path]
+     (let [job (extramuros.java.jobs.stats.moments.Job. (into-array String [column]) table output-path *conf*)
+           _ (.run job)
+           stats (get (.getOutput job) column)]
+       (delete output-path)
+       [(get stats "min") (get stats "max")])))
+
+(defn- finite-value? [value]
+  (and value (not (Double/isNaN (double value))) (not (Double/isInfinite (double value)))))
+
+(defn- histogram-edges
+  "Edges of the bins of the histogram, empty if the column has no values"
+  ([mode column bins minimum maximum table output-path]
+     (let [edges (condp = mode
+                   :equi-width (let [[minimum maximum] (if (and minimum maximum)
+                                                         [(double minimum) (double maximum)]
+                                                         (column-range column table (str output-path ".range")))]
+                                 (if (and (finite-value? minimum) (finite-value? maximum))
+                                   (let [width (/ (- maximum minimum) bins)]
+                                     (concat (map #(+ minimum (* % width)) (range bins)) [maximum]))
+                                   []))
+                   :equi-depth (let [fractions (map #(/ (double %) bins) (range (inc bins)))
+                                     quantiles-path (str output-path ".quantiles")
+                                     job (quantile-stats-job [column] fractions nil table quantiles-path)
+                                     quantiles (get (job-output job) column)]
+                                 (delete quantiles-path)
+                                 ;; the quantiles of a column without values are NaN
+                                 (if (every? #(finite-value? (get quantiles %)) fractions)
+                                   ;; repeated values would give empty bins
+                                   (distinct (map #(get quantiles %) fractions))
+                                   []))
+                   (throw (Exception. (str "Unknown histogram " mode))))]
+       (cond
+        (empty? edges) edges
+        (< (count edges) 2) [(first edges) (first edges)]
+        :else edges))))
+
 (defn- frequency-distribution-column-job
   ([column table-or-path output-path]
-     (let [table (table-from-table-or-path table-or-path)           
-           job (extramuros.java.jobs.stats.freqdistribution.Job. column table output-path *conf*)]
+     (frequency-distribution-column-job column nil nil nil nil table-or-path output-path))
+  ([column mode bins minimum maximum table-or-path output-path]
+     (let [table (table-from-table-or-path table-or-path)
+           bins (or bins extramuros.java.jobs.stats.histogram.Job/DEFAULT_BINS)
+           job (condp = mode
+                 nil (extramuros.java.jobs.stats.freqdistribution.Job. column table output-path *conf*)
+                 :adaptive (extramuros.java.jobs.stats.histogram.Job. column (int bins) table output-path *conf*)
+                 (extramuros.java.jobs.stats.histogram.Job.
+                  column
+                  (double-array (map double (histogram-edges mode column bins minimum maximum table output-path)))
+                  table output-path *conf*))]
        (.run job)
        job)))
 
 (deftype FrequencyDistributionJob [job configuration]  extramuros.jobs.core.ExtramurosJob
          (run [this] (let [job-run (frequency-distribution-column-job
                                     (:column @configuration)
+                                    (:histogram @configuration)
+                                    (:bins @configuration)
+                                    (:min @configuration)
+                                    (:max @configuration)
                                     (:table @configuration)
                                     (:output-path @configuration))]
                        (swap! job (fn [_] job-run))))
          (set-config [this map] (swap! configuration (fn [_] map)))
          (config [this] @config)
          (job [this] @job)
-         (output [this] (job-output @job))
-         (output [this options] (job-output @job))
+         (output [this] (if (:histogram @configuration)
+                          (map vec (job-output @job))
+                          (job-output @job)))
+         (output [this options] (output this))
          (output-path [this] (job-output-file @job))
          (output-path [this options] (job-output-file @job))
-         (visualize [this] (histogram
-                            (apply concat (map  (fn [[v n]] (repeat n v)) (job-output-pairs @job)))
-                            ;(reduce concat (map (fn [[v n]] (repeat n v))
-                            ;                    (job-output-pairs @job)))
-                            :x-label "value"
-                            :y-label "frequency"
-                            :title (str "frequency distribution for column " (:column @configuration))))
+         (visualize [this] (if (:histogram @configuration)
+                             (let [bins (output this)]
+                               (bar-chart (map first bins) (map #(nth % 2) bins)
+                                          :x-label "value"
+                                          :y-label "frequency"
+                                          :title (str "histogram for column " (:column @configuration))))
+                             (let [pairs (job-output-pairs @job)]
+                               (if (string? (ffirst pairs))
+                                 ;; categorical values counted by code
+                                 (bar-chart (map first pairs) (map second pairs)
+                                            :x-label "value"
+                                            :y-label "frequency"
+                                            :title (str "frequency distribution for column " (:column @configuration)))
+                                 (histogram
+                                  (apply concat (map  (fn [[v n]] (repeat n v)) pairs))
+                                  ;(reduce concat (map (fn [[v n]] (repeat n v))
+                                  ;                    (job-output-pairs @job)))
+                                  :x-label "value"
+                                  :y-label "frequency"
+                                  :title (str "frequency distribution for column " (:column @configuration)))))))
          (visualize [this options] (visualize this)))
 
 (defmethod make-job :frequency-distribution [id]
@@ -167,9 +297,26 @@
 (defmethod job-info :table-stats [_]
   "Computes centraltity and dispersion stats for all the numeric columns in a table.
 
+   * Note:
+     All the columns are computed by a single job reading the table once.
+     The stats of every file of the rows are stored in the catalog of the table (table path + '.catalog')
+     and merged to get the stats of the table. Later :table-stats and :normalization jobs only read the
+     files added or modified since the last run, e.g. new part files appended to the table.
+
+     With :approximate only a random sample of the splits (blocks) of the table is read. A pilot sample
+     of 5% of the splits is read first, and more splits are read while the confidence interval of the
+     average of some column is wider than :error. Intervals are computed from the differences between
+     the splits read; min and max are the ones of the sample. The catalog is not used in this mode.
+
    * Options:
      - output-path : path where the temporary output for all the intermediate jobs will be stored
      - table       : table whose stats are going to be computed.
+     - approximate : optional, true or a map with keys:
+                     - error       : target half width of the interval of the averages relative to the
+                                     averages, 0.01 by default.
+                     - confidence  : confidence level of the intervals, 0.95 by default.
+                     - time-budget : maximum time in milliseconds, no limit by default.
+                     - seed        : seed choosing the splits.
 
    * Output path:
      Path to the directory where all the intermediary data have been stored.
@@ -182,66 +329,79 @@
        - max
        - variance
        - standard-deviation
+       - count
+       - nulls
+     With :approximate also:
+       - confidence-intervals : map with [low high] bounds for :average, :variance, :standard-deviation,
+                                :count and :nulls
+       - splits / sampled-splits : number of splits of the table and of splits read
 
    * Visualization:
      Spreadsheet with all the computed values.")
 
+(defn- approximate-table-stats
+  ([columns approximate table output-path]
+     (let [job (approximate-stats-job columns approximate table output-path)]
+       (reduce (fn [ac [column-name stats]]
+                 (assoc ac column-name
+                        {:average              (get stats "avg")
+                         :min                  (get stats "min")
+                         :max                  (get stats "max")
+                         :variance             (get stats "var")
+                         :standard-deviation   (get stats "stdev")
+                         :count                (Math/round (double (get stats "count")))
+                         :nulls                (Math/round (double (get stats "nulls")))
+                         :confidence-intervals {:average            (interval stats "avg")
+                                                :variance           (interval stats "var")
+                                                :standard-deviation (interval stats "stdev")
+                                                :count              (interval stats "count")
+                                                :nulls              (interval stats "nulls")}
+                         :splits               (long (get stats "splits"))
+                         :sampled-splits       (long (get stats "sampled_splits"))}))
+               {}
+               (.getOutput job)))))
+
 (defn- table-stats-job
   ([table-or-path output-directory]
+     (table-stats-job table-or-path output-directory nil))
+  ([table-or-path output-directory approximate]
      (let [table (table-map-from-table-map-or-path table-or-path)
            numeric-columns (table-numeric-columns table)
            output-directory (path output-directory)]
        ;; paths
-       (println "checking directory")
        (when (exists? output-directory)
          (delete output-directory))
-       (println "creating directory")
        (mkdir output-directory)
        (println (str "starting to compute stats for columns: " (vec numeric-columns)))
-       (reduce (fn [ac [c m]] (assoc ac c m))
-               {}
-               (map (fn [column-name]
-                      (let [centrality-job (make-job :centrality-stats)
-                            dispersion-job (make-job :dispersion-stats)
-                            ;frequencies-job (make-job :frequency-distribution)
-                            ]
-                        (println (str "STATS FOR COLUMN: " column-name))
-                        ;; centrality
-                        (set-config centrality-job
-                                    {:column column-name
-                                     :table table
-                                     :output-path (path-to-string (suffix output-directory (str "/" column-name "/centrality")))})
-                        (run centrality-job)
-                        ;; dispersion
-                        (set-config dispersion-job
-                                    {:column column-name
-                                     :average (get (output centrality-job) "avg")
-                                     :table table
-                                     :output-path (path-to-string (suffix output-directory (str "/" column-name "/dispersion")))})
-                        (run dispersion-job)
-                        ;; frequencies
-                        ;;(set-config frequencies-job
-                        ;;            {:column column-name
-                        ;;             :table table
-                        ;;             :output-path (path-to-string (suffix output-directory (str "/" column-name "/frequencies")))})
-                        ;;(run frequencies-job)
-                        
-                        ;; output
-                        [column-name
-                         {:average            (get (output centrality-job) "avg")
-                          :min                (get (output centrality-job) "min")
-                          :max                (get (output centrality-job) "max")
-                          :variance           (get (output dispersion-job) "var")
-                          :standard-deviation (get (output dispersion-job) "stdev")
-                          ;:frequencies        (job-output-pairs (output frequencies-job))
-                          ;:frequencies-plot   (visualize frequencies-job)
-                          }])) numeric-columns)))))
+       (cond
+        (empty? numeric-columns) {}
+        approximate (approximate-table-stats numeric-columns approximate (:table table)
+                                             (path-to-string (suffix output-directory "/moments")))
+        :else
+        (let [job (extramuros.java.jobs.stats.moments.Job.
+                   (into-array String numeric-columns)
+                   (:table table)
+                   (path-to-string (suffix output-directory "/moments"))
+                   *conf*)]
+          (.run job)
+          (reduce (fn [ac [column-name stats]]
+                    (assoc ac column-name
+                           {:average            (get stats "avg")
+                            :min                (get stats "min")
+                            :max                (get stats "max")
+                            :variance           (get stats "var")
+                            :standard-deviation (get stats "stdev")
+                            :count              (long (get stats "count"))
+                            :nulls              (long (get stats "nulls"))}))
+                  {}
+                  (.getOutput job)))))))
 
 
 (deftype TableStatsJob [job configuration]  extramuros.jobs.core.ExtramurosJob
          (run [this] (let [job-run (table-stats-job
                                     (:table @configuration)
-                                    (:output-path @configuration))]
+                                    (:output-path @configuration)
+                                    (:approximate @configuration))]
                        (swap! job (fn [_] job-run))))
          (set-config [this map] (swap! configuration (fn [_] map)))
          (config [this] @config)
@@ -260,6 +420,285 @@
 (defmethod make-job :table-stats [id]
   (TableStatsJob. (atom nil) (atom nil)))
 
+;; Quantiles job
+
+(defmethod job-info :quantile-stats [_]
+  "Computes approximate quantiles (median, quartiles, percentiles...) for several numeric columns of a table.
+
+   * Note:
+     All the columns are read by a single job. Every task keeps a sketch of bounded size per column
+     and the sketches are merged, the rank error of the returned values is below 1% with the default
+     sketch size. Columns with less rows than the sketch size get exact values.
+
+   * Options:
+     - output-path : path where the merged sketches will be stored as a sequence file column/sketch.
+     - columns     : names of the columns whose quantiles will be computed, all the numeric columns by default.
+     - percentiles : fractions of the quantiles to compute, [0.25 0.5 0.75] by default.
+     - sketch-size : optional size of the sketches, larger sizes are more precise.
+     - table       : table whose rows are going to be used.
+
+   * Output path:
+     Path to the file where the merged sketches are stored.
+
+   * Output:
+     A map with the name of the columns as keys and a map from every percentile to its value.
+
+   * Visualization:
+     Spreadsheet with the computed values.")
+
+(def *default-percentiles* [0.25 0.5 0.75])
+
+(defn- quantile-stats-job
+  ([columns percentiles sketch-size table-or-path output-path]
+     (let [table (table-map-from-table-map-or-path table-or-path)
+           columns (or columns (table-numeric-columns table))
+           job (extramuros.java.jobs.stats.quantiles.Job.
+                (into-array String columns)
+                (double-array (map double (or percentiles *default-percentiles*)))
+                (int (or sketch-size extramuros.java.jobs.stats.quantiles.QuantileSketch/DEFAULT_SIZE))
+                (:table table)
+                output-path
+                *conf*)]
+       (.run job)
+       job)))
+
+(defn- quantile-stats-output
+  ([job]
+     (reduce (fn [ac [column-name quantiles]]
+               (assoc ac column-name (into (sorted-map) quantiles)))
+             {}
+             (job-output job))))
+
+(deftype QuantileStatsJob [job configuration] extramuros.jobs.core.ExtramurosJob
+         (run [this] (let [job-run (quantile-stats-job
+                                    (:columns @configuration)
+                                    (:percentiles @configuration)
+                                    (:sketch-size @configuration)
+                                    (:table @configuration)
+                                    (:output-path @configuration))]
+                       (swap! job (fn [_] job-run))))
+         (set-config [this map] (swap! configuration (fn [_] map)))
+         (config [this] @config)
+         (job [this] @job)
+         (output [this] (quantile-stats-output @job))
+         (output [this options] (get (output this) options))
+         (output-path [this] (job-output-file @job))
+         (output-path [this options] (job-output-file @job))
+         (visualize [this] (let [percentiles (or (:percentiles @configuration) *default-percentiles*)]
+                             (cons (cons "column" percentiles)
+                                   (map (fn [[k quantiles]] (cons k (map #(get quantiles (double %)) percentiles)))
+                                        (output this)))))
+         (visualize [this options] (visualize this)))
+
+(defmethod make-job :quantile-stats [id]
+  (QuantileStatsJob. (atom nil) (atom nil)))
+
+;; Distinct count job
+
+(defmethod job-info :distinct-count [_]
+  "Estimates the number of distinct values for several columns of a table, of any type.
+
+   * Note:
+     All the columns are read by a single job that keeps a HyperLogLog sketch per column, the relative
+     error is about 0.8% with the default precision. The sketches are stored in the output path, passing
+     that path in :merge-paths when the job runs on rows appended later to the table returns the distinct
+     values of all the rows.
+
+   * Options:
+     - output-path : path where the sketches will be stored as a sequence file column/sketch.
+     - columns     : names of the columns whose distinct values will be counted, all the columns by default.
+     - precision   : optional precision of the sketches (4 to 18), 14 by default.
+     - merge-paths : optional list of output paths of previous runs whose sketches are merged.
+     - table       : table whose rows are going to be used.
+
+   * Output path:
+     Path to the file where the sketches are stored.
+
+   * Output:
+     A map with the name of the columns as keys and the estimated number of distinct values.
+
+   * Visualization:
+     Spreadsheet with the computed values.")
+
+(defn- distinct-count-job
+  ([columns precision table-or-path output-path]
+     (let [table (table-map-from-table-map-or-path table-or-path)
+           columns (or columns (table-ordered-columns table))
+           job (extramuros.java.jobs.stats.cardinality.Job.
+                (into-array String columns)
+                (int (or precision extramuros.java.jobs.stats.cardinality.HyperLogLog/DEFAULT_PRECISION))
+                (:table table)
+                output-path
+                *conf*)]
+       (.run job)
+       job)))
+
+(defn- distinct-count-output
+  ([job merge-paths]
+     (let [sketches (reduce (fn [sketches merge-path]
+                              (extramuros.java.jobs.stats.cardinality.Job/mergeSketches
+                               sketches
+                               (extramuros.java.jobs.stats.cardinality.Job/readSketches (path merge-path) *conf*)))
+                            (.getSketches job)
+                            merge-paths)]
+       (into {} (extramuros.java.jobs.stats.cardinality.Job/estimates sketches)))))
+
+(deftype DistinctCountJob [job configuration] extramuros.jobs.core.ExtramurosJob
+         (run [this] (let [job-run (distinct-count-job
+                                    (:columns @configuration)
+                                    (:precision @configuration)
+                                    (:table @configuration)
+                                    (:output-path @configuration))]
+                       (swap! job (fn [_] job-run))))
+         (set-config [this map] (swap! configuration (fn [_] map)))
+         (config [this] @config)
+         (job [this] @job)
+         (output [this] (distinct-count-output @job (:merge-paths @configuration)))
+         (output [this options] (get (output this) options))
+         (output-path [this] (job-output-file @job))
+         (output-path [this options] (job-output-file @job))
+         (visualize [this] (cons ["column" "distinct values"]
+                                 (map (fn [[k n]] [k n]) (output this))))
+         (visualize [this options] (visualize this)))
+
+(defmethod make-job :distinct-count [id]
+  (DistinctCountJob. (atom nil) (atom nil)))
+
+;; Top values job
+
+(defmethod job-info :top-values [_]
+  "Finds the most frequent values (heavy hitters) for one or several columns of a table.
+
+   * Note:
+     All the columns are read by a single job, every task counts the values of a column with a bounded
+     number of counters (Space-Saving) and the counters are merged. Every value more frequent than
+     rows / capacity is found, the counts are upper bounds of the frequencies and the error of every
+     count is returned with it.
+
+   * Options:
+     - output-path : path where the merged counters will be stored as a sequence file column/counters.
+     - columns     : names of the columns, all the categorical and string columns by default.
+     - k           : number of values returned for every column, 10 by default.
+     - capacity    : optional number of counters kept per column, max(1000, 10 * k) by default.
+     - table       : table whose rows are going to be used.
+
+   * Output path:
+     Path to the file where the merged counters are stored.
+
+   * Output:
+     A map with the name of the columns as keys and a sequence of [value count error] with the k most
+     frequent values of the column in decreasing order of count.
+
+   * Visualization:
+     Spreadsheet with the computed values.")
+
+(defn- table-categorical-columns
+  ([table]
+     (filter #(contains? #{*categorical* *string*} (table-column-type % table))
+             (table-ordered-columns table))))
+
+(defn- top-values-job
+  ([columns k capacity table-or-path output-path]
+     (let [table (table-map-from-table-map-or-path table-or-path)
+           columns (or columns (table-categorical-columns table))
+           k (int (or k 10))
+           job (extramuros.java.jobs.stats.topvalues.Job.
+                (into-array String columns)
+                k
+                (int (or capacity (max extramuros.java.jobs.stats.topvalues.SpaceSaving/DEFAULT_CAPACITY (* 10 k))))
+                (:table table)
+                output-path
+                *conf*)]
+       (.run job)
+       job)))
+
+(deftype TopValuesJob [job configuration] extramuros.jobs.core.ExtramurosJob
+         (run [this] (let [job-run (top-values-job
+                                    (:columns @configuration)
+                                    (:k @configuration)
+                                    (:capacity @configuration)
+                                    (:table @configuration)
+                                    (:output-path @configuration))]
+                       (swap! job (fn [_] job-run))))
+         (set-config [this map] (swap! configuration (fn [_] map)))
+         (config [this] @config)
+         (job [this] @job)
+         (output [this] (reduce (fn [ac [column-name top]]
+                                  (assoc ac column-name (map vec top)))
+                                {}
+                                (job-output @job)))
+         (output [this options] (get (output this) options))
+         (output-path [this] (job-output-file @job))
+         (output-path [this options] (job-output-file @job))
+         (visualize [this] (cons ["column" "value" "count" "error"]
+                                 (mapcat (fn [[k top]] (map #(cons k %) top)) (output this))))
+         (visualize [this options] (visualize this)))
+
+(defmethod make-job :top-values [id]
+  (TopValuesJob. (atom nil) (atom nil)))
+
+;; Correlation matrix job
+
+(defmethod job-info :correlation-matrix [_]
+  "Computes the covariance and Pearson correlation matrices for numeric columns of a table.
+
+   * Note:
+     All the pairs of columns are computed by a single job reading the table once, every task keeps the
+     co-moments of the upper triangle of the matrix and they are merged by the reducer. Rows with a null
+     value in any of the columns are not used.
+
+   * Options:
+     - output-path : path where the table with the correlation matrix will be stored.
+     - columns     : names of the columns, all the numeric columns by default.
+     - table       : table whose rows are going to be used.
+
+   * Output path:
+     Path of the table with the correlation matrix.
+
+   * Output:
+     Table map for the correlation matrix, with a 'column' column with the name of the columns and a
+     double column per column. (output job :correlation) and (output job :covariance) return the
+     matrices as vectors of rows.
+
+   * Visualization:
+     Spreadsheet with the correlation matrix.")
+
+(defn- correlation-matrix-job
+  ([columns table-or-path output-path]
+     (let [table (table-map-from-table-map-or-path table-or-path)
+           columns (or columns (table-numeric-columns table))
+           job (extramuros.java.jobs.stats.correlation.Job. (into-array String columns) (:table table) output-path *conf*)]
+       (.run job)
+       job)))
+
+(deftype CorrelationMatrixJob [job configuration] extramuros.jobs.core.ExtramurosJob
+         (run [this] (let [job-run (correlation-matrix-job
+                                    (:columns @configuration)
+                                    (:table @configuration)
+                                    (:output-path @configuration))]
+                       (swap! job (fn [_] job-run))))
+         (set-config [this map] (swap! configuration (fn [_] map)))
+         (config [this] @config)
+         (job [this] @job)
+         (output [this] (let [table (job-output @job)]
+                          {:table table
+                           :path (.getTablePath table)
+                           :schema (table-obj-to-schema table)}))
+         (output [this options] (condp = options
+                                  :correlation (vec (map vec (.correlationMatrix (.getCoMoments @job))))
+                                  :covariance (vec (map vec (.covarianceMatrix (.getCoMoments @job))))
+                                  (output this)))
+         (output-path [this] (job-output-file @job))
+         (output-path [this options] (job-output-file @job))
+         (visualize [this] (let [columns (:columns @configuration)
+                                 columns (if columns columns (rest (.getColumnNames (.getHeader (job-output @job)))))]
+                             (cons (cons "column" columns)
+                                   (map cons columns (output this :correlation)))))
+         (visualize [this options] (visualize this)))
+
+(defmethod make-job :correlation-matrix [id]
+  (CorrelationMatrixJob. (atom nil) (atom nil)))
+
 ;; Normalization job
 
 (defmethod job-info :normalization [_]
@@ -268,15 +707,21 @@
    * Note:
      The normalized values are stored as double components in a Mahout vector. Numeric types in the
      old table will be casted to double.
-     This job requires the min and max values for the columns to be normalized, these data can be obtained
-     using the :centrality-stats or the :table-stats jobs.
+     The min and max values for the columns to be normalized can be passed with the :min-values and :max-values
+     options, e.g. from the :centrality-stats or :table-stats jobs. Without them they are taken from the stats
+     catalog of the table, computing them first if they are not there yet.
+     With :scaling :robust the bounds are computed with the :quantile-stats job from the percentiles of the
+     columns instead, so a few outliers do not squeeze the rest of the values. The values between the two
+     percentiles are scaled to [0,1].
      
 
    * Options:
      - output-path : path where the final computed values will be stored as a sequence file of vectors.
      - columns     : name of the columns whose statistics will be computed.
-     - min-values  : a list with the ordered sequence of min. values for the columns to be normalized.
-     - max-values  : a list with the ordered sequence of max. values for the columns to be normalized
+     - min-values  : optional, a list with the ordered sequence of min. values for the columns to be normalized.
+     - max-values  : optional, a list with the ordered sequence of max. values for the columns to be normalized
+     - scaling     : optional, :robust to use percentiles of the columns as min and max values.
+     - percentiles : optional, lower and upper percentiles for :robust scaling, [0.25 0.75] by default.
      - table       : table whose rows are going to be normalized
 
    * Output path:
@@ -291,6 +736,11 @@
 
 
 (defn- normalization-job
+  ([columns output-path table-or-path]
+     (let [table (table-from-table-or-path table-or-path)
+           job (extramuros.java.jobs.stats.normalization.Job. (into-array String columns) table output-path *conf*)]
+       (.run job)
+       job))
   ([columns min-values max-values output-path table-or-path]
      (let [table (table-from-table-or-path table-or-path)
            columns-array (let [a (make-array String (count columns))]
@@ -316,13 +766,36 @@
        (.run job)
        job)))
 
+(defn- robust-scaling-bounds
+  "Lower and upper percentiles of the columns, used as min and max values"
+  ([columns percentiles table-or-path output-path]
+     (let [[lower upper] (map double (or percentiles [0.25 0.75]))
+           quantiles-path (str output-path ".quantiles")
+           job (quantile-stats-job columns [lower upper] nil table-or-path quantiles-path)
+           quantiles (job-output job)
+           bounds [(vec (map #(get (get quantiles %) lower) columns))
+                   (vec (map #(get (get quantiles %) upper) columns))]]
+       (delete quantiles-path)
+       bounds)))
+
 (deftype NormalizationJob [job configuration]  extramuros.jobs.core.ExtramurosJob
-         (run [this] (let [job-run (normalization-job
-                                    (:columns @configuration)
-                                    (:min-values @configuration)
-                                    (:max-values @configuration)                                    
-                                    (:output-path @configuration)
-                                    (:table (:table @configuration)))]
+         (run [this] (let [[min-values max-values] (if (= :robust (:scaling @configuration))
+                                                     (robust-scaling-bounds (:columns @configuration)
+                                                                            (:percentiles @configuration)
+                                                                            (:table @configuration)
+                                                                            (:output-path @configuration))
+                                                     [(:min-values @configuration) (:max-values @configuration)])
+                           job-run (if (and (nil? min-values) (nil? max-values))
+                                     (normalization-job
+                                      (:columns @configuration)
+                                      (:output-path @configuration)
+                                      (:table (:table @configuration)))
+                                     (normalization-job
+                                      (:columns @configuration)
+                                      min-values
+                                      max-values
+                                      (:output-path @configuration)
+                                      (:table (:table @configuration))))]
                        (swap! job (fn [_] job-run))))
          (set-config [this map] (swap! configuration (fn [_] map)))
          (config [this] @config)
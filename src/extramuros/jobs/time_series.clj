@@ -14,6 +14,11 @@
 
    * Options:
      - column :        the column of date-time type to be used to sort the table
+     - partitions :    optional, number of reducers of a global sort. The rows are written in that many part files
+                       holding consecutive ranges of time, each one sorted. Without partitions the rows are only keyed
+                       by their date.
+     - sample-size :   optional, number of timestamps sampled from the splits of the table to choose the ranges of time
+                       of a global sort, 10000 by default.
      - output-path :   path where the sorted table will be written.
      - table :         the table to sort by date.
 
@@ -22,6 +27,8 @@
 
    * Output:
      A table map for the sorted table. The table meta data has not yet been written into the HDFS file system.
+     With partitions the map also has a :ranges key with the :path, :min and :max timestamps and number of :rows
+     of every part file, in order.
 
    * Visualization:
      - no arguments : Time series plot for all the numeric columns in the sorted table.
@@ -30,17 +37,29 @@
 
 (defn- time-series-sort-job
   ([column-name table output-path]
-     (let [job (extramuros.java.jobs.timeseries.sort.Job.
-                column-name
-                table
-                output-path
-                *conf*)]
+     (time-series-sort-job column-name nil nil table output-path))
+  ([column-name partitions sample-size table output-path]
+     (let [job (if partitions
+                 (extramuros.java.jobs.timeseries.sort.Job.
+                  column-name
+                  (int partitions)
+                  table
+                  output-path
+                  *conf*)
+                 (extramuros.java.jobs.timeseries.sort.Job.
+                  column-name
+                  table
+                  output-path
+                  *conf*))]
+       (when sample-size (.setSampleSize job (int sample-size)))
        (.run job)
        job)))
 
 (deftype TimeSeriesSortJob [job configuration] extramuros.jobs.core.ExtramurosJob
          (run [this] (let [job-run (time-series-sort-job
                                     (:column @configuration)
+                                    (:partitions @configuration)
+                                    (:sample-size @configuration)
                                     (:table (:table @configuration))
                                     (:output-path @configuration))]
                        (swap! job (fn [_] job-run))))
@@ -48,10 +67,17 @@
          (config [this] @config)
          (job [this] @job)
          (output [this] (let [table (job-output @job)
-                              _ (.setTablePath table (str (.getTablePath table) ".tbl"))]
-                          {:table table
-                           :path (.getTablePath table)
-                           :schema (table-obj-to-schema table)}))
+                              _ (.setTablePath table (str (.getTablePath table) ".tbl"))
+                              ranges (.getRangeIndex @job)]
+                          (merge {:table table
+                                  :path (.getTablePath table)
+                                  :schema (table-obj-to-schema table)}
+                                 (when ranges
+                                   {:ranges (map (fn [range] {:path (.getPath range)
+                                                              :min (.getMin range)
+                                                              :max (.getMax range)
+                                                              :rows (.getRows range)})
+                                                 (.getRanges ranges))}))))
          (output [this options] (output this))
          (output-path [this] (job-output-file @job))
          (output-path [this options] (job-output-file @job))
@@ -99,6 +125,10 @@
                               - max : the max value for the period is chosen
                               - min : the min value for the period is chosen
                               - sum : the sum for the values in the period is computed
+                              - all : count, sum, avg, min, max, first and last value of every column are computed
+                                      in a single job, in columns named column_function
+     - columns :              optional, the numeric columns aggregated with the :all function, all the numeric
+                              columns by default.
      - output-path :          path where the sorted table will be written.
      - table :                the table to sort by date.
 
@@ -114,13 +144,23 @@
 
 (defn time-series-aggregate-job
   ([column-name period aggregation-function table output-path]
-     (let [job (extramuros.java.jobs.timeseries.aggregate.Job.
-                column-name
-                period
-                aggregation-function
-                table
-                output-path
-                *conf*)]
+     (time-series-aggregate-job column-name period aggregation-function nil table output-path))
+  ([column-name period aggregation-function columns table output-path]
+     (let [job (if (= aggregation-function "all")
+                 (extramuros.java.jobs.timeseries.aggregations.Job.
+                  column-name
+                  (when columns (into-array String (map name columns)))
+                  period
+                  table
+                  output-path
+                  *conf*)
+                 (extramuros.java.jobs.timeseries.aggregate.Job.
+                  column-name
+                  period
+                  aggregation-function
+                  table
+                  output-path
+                  *conf*))]
        (.run job)
        job)))
 
@@ -129,6 +169,7 @@
                                     (:column @configuration)
                                     (name (:period @configuration))
                                     (name (:aggregation-function @configuration))
+                                    (:columns @configuration)
                                     (:table (:table @configuration))
                                     (:output-path @configuration))]
                        (swap! job (fn [_] job-run))))
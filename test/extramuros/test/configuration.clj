@@ -2,7 +2,8 @@
   (:use [extramuros hdfs datasets])
   (:import [org.apache.hadoop.conf Configuration] 
            [org.apache.hadoop.fs FileSystem Path]
-           [org.apache.hadoop.io Text Writable LongWritable]))
+           [org.apache.hadoop.io Text Writable LongWritable]
+           [extramuros.java.jobs.utils JobKeys LongKeyAggregator]))
 
 (defn setup-env
   ([] (bootstrap!)))
@@ -19,7 +20,9 @@
               (finally
                (do
                (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
-         (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows")))))))))
+         (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))
+         (when (exists? "test_assets/imported_out.csv.stats") (delete "test_assets/imported_out.csv.stats"))
+         (when (exists? "test_assets/imported_out.csv.catalog") (delete "test_assets/imported_out.csv.catalog")))))))))
 
 (defn with-default-text-test-file
   ([test-fn]
@@ -35,7 +38,9 @@
     (let [table (wrap-dataset :text "test_assets/test.txt" "test_assets/test.txt.out" test-file-schema {:separator ","})]
       (test-fn table))
     (when (exists? "test_assets/test.txt") (delete "test_assets/test.txt"))
-    (when (exists? "test_assets/test.txt.out") (delete "test_assets/test.txt.out")))))
+    (when (exists? "test_assets/test.txt.out") (delete "test_assets/test.txt.out"))
+    (when (exists? "test_assets/test.txt.out.stats") (delete "test_assets/test.txt.out.stats"))
+    (when (exists? "test_assets/test.txt.out.catalog") (delete "test_assets/test.txt.out.catalog")))))
 
 (defn with-text-test-file
   ([schema writer-fn test-fn]
@@ -49,4 +54,36 @@
     (let [table (wrap-dataset :text "test_assets/test.txt" "test_assets/test.txt.out" test-file-schema {:separator ","})]
       (test-fn table))
     (when (exists? "test_assets/test.txt") (delete "test_assets/test.txt"))
-    (when (exists? "test_assets/test.txt.out") (delete "test_assets/test.txt.out")))))
+    (when (exists? "test_assets/test.txt.out") (delete "test_assets/test.txt.out"))
+    (when (exists? "test_assets/test.txt.out.stats") (delete "test_assets/test.txt.out.stats"))
+    (when (exists? "test_assets/test.txt.out.catalog") (delete "test_assets/test.txt.out.catalog")))))
+
+(defn with-aggregation-memory
+  "Runs the test with a memory budget of bytes for the in-mapper aggregations, a
+   small budget makes the mappers flush their aggregates after a few keys"
+  ([bytes test-fn]
+     (let [previous (.get *conf* JobKeys/AGGREGATION_MEMORY)]
+       (try
+         (.setLong *conf* JobKeys/AGGREGATION_MEMORY bytes)
+         (test-fn)
+         (finally
+          (if previous
+            (.set *conf* JobKeys/AGGREGATION_MEMORY previous)
+            (.setLong *conf* JobKeys/AGGREGATION_MEMORY LongKeyAggregator/DEFAULT_MEMORY)))))))
+
+(defn map-output-records
+  "Number of pairs written by the mappers of a finished hadoop job"
+  ([hadoop-job]
+     (.getValue (.findCounter (.getCounters hadoop-job) "org.apache.hadoop.mapred.Task$Counter" "MAP_OUTPUT_RECORDS"))))
+
+(defn with-max-split-size
+  "Runs the test reading the tables in splits of at most bytes"
+  ([bytes test-fn]
+     (let [previous (.get *conf* "mapred.max.split.size")]
+       (try
+         (.setLong *conf* "mapred.max.split.size" bytes)
+         (test-fn)
+         (finally
+          (if previous
+            (.set *conf* "mapred.max.split.size" previous)
+            (.setLong *conf* "mapred.max.split.size" Long/MAX_VALUE)))))))
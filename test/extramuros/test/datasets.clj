@@ -4,6 +4,7 @@
   (:use [extramuros.hdfs])
   (:use [clojure.test])
   (:import [org.apache.hadoop.conf Configuration] 
+           [extramuros.java.formats Row PrimitiveRow NumericColumnReader DateTimeFormats]
            [org.apache.hadoop.fs FileSystem Path]
            [org.apache.hadoop.io Text Writable LongWritable]))
 
@@ -45,6 +46,107 @@
     (is (= [*integer* *string*] (.getColumnsTypes row)))
     (is (= [1 "b"] (.getValues row)))))
 
+(deftest test-row-compact-encoding
+  (let [schema (def-schema :a *integer* :b *string* :c *double* :d *long* :e *float* :f *date-time*)
+        row (make-row -7 schema ["1" nil "2.5" "-30000000000" "1.5" "01-05-1982"])
+        out (org.apache.hadoop.io.DataOutputBuffer.)
+        in (org.apache.hadoop.io.DataInputBuffer.)
+        read (Row.)]
+    (.write row out)
+    (.reset in (.getData out) (.getLength out))
+    (.readFields read in)
+    (is (= -7 (.getId read)))
+    (is (= [*integer* *string* *double* *long* *float* *date-time*] (.getColumnsTypes read)))
+    (is (= [1 nil 2.5 -30000000000 1.5 "01-05-1982"] (.getValues read)))))
+
+(deftest test-row-set-date-time-value
+  (let [schema (def-schema :a *integer* :f *date-time*)
+        row (make-row 1 schema ["1" "01-05-1982"])
+        out (org.apache.hadoop.io.DataOutputBuffer.)
+        in (org.apache.hadoop.io.DataInputBuffer.)
+        read (Row.)]
+    (.setValue row "f" (long 389318400000))
+    (is (= 389318400000 (nth (.getValues row) 1)))
+    (.setValue row "f" (java.util.Date. (long 389318400000)))
+    (is (= 389318400000 (nth (.getValues row) 1)))
+    ;; epoch values survive the encoding of the row
+    (.write row out)
+    (.reset in (.getData out) (.getLength out))
+    (.readFields read in)
+    (is (= [1 389318400000] (.getValues read)))
+    (.setValue row "f" "02-05-1982")
+    (is (= "02-05-1982" (nth (.getValues row) 1)))))
+
+(deftest test-primitive-row
+  (let [schema (def-schema :a *integer* :b *string* :c *double*)
+        header (make-table-header schema)
+        out (org.apache.hadoop.io.DataOutputBuffer.)
+        in (org.apache.hadoop.io.DataInputBuffer.)
+        row (PrimitiveRow. header)]
+    (.write (make-row 1 schema ["1" "x" "2.5"]) out)
+    (.write (make-row 2 schema [nil "y" "3.5"]) out)
+    (.reset in (.getData out) (.getLength out))
+    (.readFields row in)
+    (is (= 1 (.getId row)))
+    (is (= 1.0 (.getDouble row 0)))
+    (is (= 2.5 (.getDouble row 2)))
+    (is (= [1 "x" 2.5] (.getValues row)))
+    (.readFields row in)
+    (is (= 2 (.getId row)))
+    (is (.isNullAt row 0))
+    (is (= 3 (.getLong row 2)))
+    (is (= [nil "y" 3.5] (.getValues row)))))
+
+(deftest test-row-legacy-encoding
+  (let [out (org.apache.hadoop.io.DataOutputBuffer.)
+        in (org.apache.hadoop.io.DataInputBuffer.)
+        read (Row.)]
+    ;; id, size and tagged cells as written by the previous Row format
+    (.writeInt out 3)
+    (.writeInt out 3)
+    (.writeByte out *integer*)
+    (.write (org.apache.hadoop.io.IntWritable. 4) out)
+    (.writeByte out *null*)
+    (.writeByte out *double*)
+    (.writeByte out *string*)
+    (.write (org.apache.hadoop.io.Text. "x") out)
+    (.reset in (.getData out) (.getLength out))
+    (.readFields read in)
+    (is (= 3 (.getId read)))
+    (is (= [*integer* *double* *string*] (.getColumnsTypes read)))
+    (is (= [4 nil "x"] (.getValues read)))))
+
+(deftest test-numeric-column-reader
+  (let [schema (def-schema :a *integer* :b *string* :c *date-time*)
+        header (make-table-header schema {:c "dd-MM-yyyy"})
+        reader-a (NumericColumnReader/forColumn header "a")
+        reader-b (NumericColumnReader/forColumn header "b")
+        reader-c (NumericColumnReader/forColumn header "c")
+        row (make-row 0 schema ["3" "x" "01-05-1982"])
+        null-row (make-row 1 schema [nil "x" "not a date"])]
+    (is (= 3.0 (.readDouble reader-a row)))
+    (is (.isValid reader-a))
+    (.readDouble reader-a null-row)
+    (is (= NumericColumnReader/NULL (.getStatus reader-a)))
+    (is (not (.isSupported reader-b)))
+    (is (= (.getTime (.parse (java.text.SimpleDateFormat. "dd-MM-yyyy") "01-05-1982"))
+           (.readLong reader-c row)))
+    (.readLong reader-c null-row)
+    (is (= NumericColumnReader/INVALID (.getStatus reader-c)))
+    ;; invalid dates are NaN, not the epoch
+    (is (= (double (.readLong reader-c row)) (.readDouble reader-c row)))
+    (is (Double/isNaN (.readDouble reader-c null-row)))
+    (is (= NumericColumnReader/INVALID (.getStatus reader-c)))))
+
+(deftest test-date-time-formats
+  (let [expected (.getTime (.parse (java.text.SimpleDateFormat. "dd-MM-yyyy") "01-05-1982"))]
+    (is (= expected (DateTimeFormats/parse "dd-MM-yyyy" "01-05-1982")))
+    (is (= expected (DateTimeFormats/parseOrNull "dd-MM-yyyy" "01-05-1982")))
+    (is (nil? (DateTimeFormats/parseOrNull "dd-MM-yyyy" "not a date")))
+    (is (= expected (DateTimeFormats/toEpoch expected "dd-MM-yyyy")))
+    (is (= expected (parse-datum "01-05-1982" *date-time* "dd-MM-yyyy")))
+    (is (= "01-05-1982" (parse-datum "01-05-1982" *date-time*)))))
+
 (deftest test-ordered-types-schema
   (let [schema (def-schema :a *integer* :b *string* :c *integer*)
         mapped (ordered-types-schema schema)]
@@ -104,6 +206,19 @@
     (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
     (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))))
 
+(deftest test-import-dataset-epoch-dates
+  (let [test-file-schema (def-schema :name *string* :columna *integer* :columnb *date-time*)]
+    (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
+    (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))
+    (let [dataset (import-dataset "test_assets/test_input_dates.tsv" "test_assets/imported_out.csv" test-file-schema
+                                  :date-formats {:columnb "dd-MM-yyyy"} :epoch-dates true)
+          first-date (nth (row-to-seq (first (table-rows dataset))) 2)]
+      (is (= 3 (count (table-rows dataset))))
+      (is (= (.getTime (.parse (java.text.SimpleDateFormat. "dd-MM-yyyy") "01-05-1982")) first-date))
+      (is (= first-date (.getTime (parse-date-time first-date "columnb" dataset)))))
+    (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
+    (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))))
+
 (deftest test-import-dataset-separator
   (let [test-file-schema (def-schema :name *string* :columna *integer* :columnb *float*)]
     (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
@@ -127,6 +242,28 @@
     (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
     (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))))
 
+(deftest test-import-dataset-parallel
+  (let [test-file-schema (def-schema :name *string* :columna *integer* :columnb *float*)]
+    (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
+    (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))
+    (let [expected (doall (map (comp vec row-to-seq)
+                               (table-rows (import-dataset "test_assets/test_input_title.csv" "test_assets/imported_out.csv"
+                                                           test-file-schema :skip 1))))
+          dataset (import-dataset "test_assets/test_input_title.csv" "test_assets/imported_out.csv" test-file-schema
+                                  :skip 1 :parallel true)]
+      (is (exists? "test_assets/imported_out.csv"))
+      (is (not (exists? "test_assets/imported_out.csv.source")))
+      (is (= 3 (count (table-rows dataset))))
+      (is (= expected (map row-to-seq (table-rows dataset))))
+      (is (= 3 (:rows (table-statistics dataset))))
+      ;; the statistics computed by the mappers are the ones of a full scan
+      (let [imported (table-statistics dataset)]
+        (write-table-statistics dataset)
+        (is (= (:columns (table-statistics dataset)) (:columns imported)))))
+    (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
+    (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))
+    (when (exists? "test_assets/imported_out.csv.stats") (delete "test_assets/imported_out.csv.stats"))))
+
 (deftest test-open-dataset
   (let [test-file-schema (def-schema :name *string* :columna *integer* :columnb *float*)]
     (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
@@ -140,6 +277,72 @@
     (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
     (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))))
 
+(deftest test-write-columnar-table
+  (let [test-file-schema (def-schema :name *string* :columna *integer* :columnb *float*)]
+    (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
+    (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))
+    (let [dataset (import-dataset "test_assets/test_input_nulls.csv" "test_assets/imported_out.csv" test-file-schema)
+          columnar (write-columnar-table dataset "test_assets/imported_out.col")]
+      (is (exists? "test_assets/imported_out.col"))
+      (is (exists? "test_assets/imported_out.col.cols"))
+      (is (= 3 (count (table-rows columnar))))
+      (is (= (map row-to-seq (table-rows dataset))
+             (map row-to-seq (table-rows columnar))))
+      (is (= (map #(.getId %) (table-rows dataset))
+             (map #(.getId %) (table-rows (open-dataset "test_assets/imported_out.col"))))))
+    (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
+    (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))
+    (when (exists? "test_assets/imported_out.col") (delete "test_assets/imported_out.col"))
+    (when (exists? "test_assets/imported_out.col.cols") (delete "test_assets/imported_out.col.cols"))
+    (when (exists? "test_assets/imported_out.col.stats") (delete "test_assets/imported_out.col.stats"))))
+
+(deftest test-categorical-dictionaries
+  (let [test-file-schema (def-schema :name *categorical* :columna *integer* :columnb *float*)]
+    (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
+    (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))
+    (let [dataset (import-dataset "test_assets/test_input.csv" "test_assets/imported_out.csv" test-file-schema)
+          _ (build-dictionaries dataset)
+          reopened (open-dataset "test_assets/imported_out.csv")
+          columnar (write-columnar-table dataset "test_assets/imported_out.col")
+          primitive (PrimitiveRow. (.getHeader (:table reopened)))]
+      (is (= ["\"one\"" "\"two\"" "\"three\""] (table-dictionary reopened :name)))
+      (is (nil? (table-dictionary reopened :columna)))
+      (is (= (table-dictionary reopened :name) (table-dictionary columnar :name)))
+      (is (= (map row-to-seq (table-rows dataset))
+             (map row-to-seq (table-rows columnar))))
+      (.set primitive (second (table-rows reopened)))
+      (is (= 1 (.getCode primitive 0)))
+      (is (= -1 (.getCode primitive 1))))
+    (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
+    (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))
+    (when (exists? "test_assets/imported_out.col") (delete "test_assets/imported_out.col"))
+    (when (exists? "test_assets/imported_out.col.cols") (delete "test_assets/imported_out.col.cols"))
+    (when (exists? "test_assets/imported_out.col.stats") (delete "test_assets/imported_out.col.stats"))))
+
+(deftest test-table-statistics
+  (let [test-file-schema (def-schema :name *string* :columna *integer* :columnb *float*)]
+    (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
+    (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))
+    (let [dataset (import-dataset "test_assets/test_input_nulls.csv" "test_assets/imported_out.csv" test-file-schema)
+          statistics (table-statistics dataset)
+          unsaved (import-dataset "test_assets/test_input_nulls.csv" "test_assets/imported_out.csv" test-file-schema
+                                  :statistics false)]
+      (is (exists? "test_assets/imported_out.csv.stats"))
+      (is (= 3 (:rows statistics)))
+      (is (= 1 (:nulls (get (:columns statistics) "name"))))
+      (is (nil? (:min (get (:columns statistics) "name"))))
+      (is (= (reduce min (filter identity (table-points-seq-for-column dataset "columna")))
+             (long (:min (get (:columns statistics) "columna")))))
+      (is (= (reduce max (filter identity (table-points-seq-for-column dataset "columna")))
+             (long (:max (get (:columns statistics) "columna")))))
+      (is (nil? (table-statistics unsaved)))
+      ;; statistics computed while importing are the ones of a full scan
+      (write-table-statistics dataset)
+      (is (= (:columns statistics) (:columns (table-statistics dataset)))))
+    (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
+    (when (exists? "test_assets/imported_out.csv.rows") (delete "test_assets/imported_out.csv.rows"))
+    (when (exists? "test_assets/imported_out.csv.stats") (delete "test_assets/imported_out.csv.stats"))))
+
 (deftest test-null
   (let [test-file-schema (def-schema :name *string* :columna *integer* :columnb *float*)]
     (when (exists? "test_assets/imported_out.csv") (delete "test_assets/imported_out.csv"))
@@ -213,17 +416,100 @@
     (.println wrtr "\"two\",2,12/04/1984")
     (.flush wrtr)
     (.close wrtr)
-    (let [table (wrap-dataset :text "test_assets/test.txt" "test_assets/test.txt.out" test-file-schema {:separator "," :date-formats {:columnb "dd/mm/yyyy"}})]
+    (let [table (wrap-dataset :text "test_assets/test.txt" "test_assets/test.txt.out" test-file-schema {:separator "," :date-formats {:columnb "dd/MM/yyyy"}})]
       (is (= 2 (count (table-rows table))))
-      (is (= "dd/mm/yyyy" (.. (:table table) (getHeader) (getDateFormats) (get "columnb"))))
+      (is (= "dd/MM/yyyy" (.. (:table table) (getHeader) (getDateFormats) (get "columnb"))))
       (is (= "01/05/1982" (nth (row-to-seq (first (table-rows table))) 2)))
-      (is (= 378691500000
+      ;; parsed in the default time zone, as the table does
+      (is (= (.getTime (.parse (java.text.SimpleDateFormat. "dd/MM/yyyy") "01/05/1982"))
              (.getTime (parse-date-time (nth (row-to-seq (first (table-rows table))) 2)
                                         "columnb"
                                         table)))))
     (when (exists? "test_assets/test.txt") (delete "test_assets/test.txt"))
     (when (exists? "test_assets/test.txt.out") (delete "test_assets/test.txt.out"))))
 
+(deftest test-wrap-text-dataset-epoch-dates
+  (when (exists? "test_assets/test.txt") (delete "test_assets/test.txt"))
+  (let [test-file-schema (def-schema :name *string* :columna *integer* :columnb *date-time*)
+        fsos (.create (FileSystem/get *conf*) (path "test_assets/test.txt"))
+        wrtr (java.io.PrintWriter. fsos)]
+    (.println wrtr "\"one\",1,01/05/1982")
+    (.println wrtr "\"two\",2,12/04/1984")
+    (.flush wrtr)
+    (.close wrtr)
+    (wrap-dataset :text "test_assets/test.txt" "test_assets/test.txt.out" test-file-schema {:separator "," :date-formats {:columnb "dd/MM/yyyy"} :epoch-dates true})
+    (let [table (open-dataset "test_assets/test.txt.out")
+          expected (.getTime (.parse (java.text.SimpleDateFormat. "dd/MM/yyyy") "01/05/1982"))]
+      (is (.isEpochDates (:table table)))
+      (is (= expected (nth (row-to-seq (first (table-rows table))) 2)))
+      (is (= expected
+             (.getTime (parse-date-time (nth (row-to-seq (first (table-rows table))) 2)
+                                        "columnb"
+                                        table)))))
+    (when (exists? "test_assets/test.txt") (delete "test_assets/test.txt"))
+    (when (exists? "test_assets/test.txt.out") (delete "test_assets/test.txt.out"))))
+
+(deftest test-wrap-text-dataset-quoted
+  (when (exists? "test_assets/test.txt") (delete "test_assets/test.txt"))
+  (let [test-file-schema (def-schema :name *string* :columna *integer* :columnb *double*)
+        fsos (.create (FileSystem/get *conf*) (path "test_assets/test.txt"))
+        wrtr (java.io.PrintWriter. fsos)]
+    (.println wrtr "\"one, uno\", 1 ,-1.25")
+    (.println wrtr "\"say \"\"two\"\"\",NULL,2e3")
+    (.println wrtr "three,3,")
+    (.flush wrtr)
+    (.close wrtr)
+    (wrap-dataset :text "test_assets/test.txt" "test_assets/test.txt.out" test-file-schema {:separator "," :quote \"})
+    (let [table (open-dataset "test_assets/test.txt.out")
+          rows (map row-to-seq (table-rows table))]
+      (is (= "\"" (.getQuote (:table table))))
+      (is (= ["one, uno" 1 -1.25] (first rows)))
+      (is (= ["say \"two\"" nil 2000.0] (second rows)))
+      (is (= ["three" 3 nil] (nth rows 2))))
+    (when (exists? "test_assets/test.txt") (delete "test_assets/test.txt"))
+    (when (exists? "test_assets/test.txt.out") (delete "test_assets/test.txt.out"))))
+
+(deftest test-wrap-text-dataset-lazy-rows
+  (when (exists? "test_assets/test.txt") (delete "test_assets/test.txt"))
+  (let [test-file-schema (def-schema :name *string* :columna *integer* :columnb *float*)
+        fsos (.create (FileSystem/get *conf*) (path "test_assets/test.txt"))
+        wrtr (java.io.PrintWriter. fsos)]
+    (.println wrtr "\"one\",1,not-a-number")
+    (.flush wrtr)
+    (.close wrtr)
+    (let [table (wrap-dataset :text "test_assets/test.txt" "test_assets/test.txt.out" test-file-schema {:separator ","})
+          row (first (table-rows table))]
+      (is (instance? extramuros.java.formats.adapters.LazyTextRow row))
+      (is (= 1 (.getLong row 1)))
+      (is (.isNullAt row 2))
+      (is (= ["\"one\"" 1 nil] (row-to-seq row)))
+      (is (= Row (class (.toRow row))))
+      (is (= ["\"one\"" 1 nil] (row-to-seq (.toRow row)))))
+    (when (exists? "test_assets/test.txt") (delete "test_assets/test.txt"))
+    (when (exists? "test_assets/test.txt.out") (delete "test_assets/test.txt.out"))))
+
+(deftest test-wrap-text-dataset-large-offsets
+  (when (exists? "test_assets/test.txt") (delete "test_assets/test.txt"))
+  (let [test-file-schema (def-schema :name *string* :columna *integer* :columnb *float*)
+        fsos (.create (FileSystem/get *conf*) (path "test_assets/test.txt"))
+        wrtr (java.io.PrintWriter. fsos)]
+    (.println wrtr "\"one\",1,1.0")
+    (.flush wrtr)
+    (.close wrtr)
+    (let [table (wrap-dataset :text "test_assets/test.txt" "test_assets/test.txt.out" test-file-schema {:separator ","})
+          ;; byte offsets of lines past 4GB do not fit in an int
+          row (.map (:table table) (LongWritable. 5000000000) (Text. "\"two\",2,2.0"))
+          out (org.apache.hadoop.io.DataOutputBuffer.)
+          in (org.apache.hadoop.io.DataInputBuffer.)
+          read (Row.)]
+      (is (= 5000000000 (.getId row)))
+      (.write (.toRow row) out)
+      (.reset in (.getData out) (.getLength out))
+      (.readFields read in)
+      (is (= 5000000000 (.getId read))))
+    (when (exists? "test_assets/test.txt") (delete "test_assets/test.txt"))
+    (when (exists? "test_assets/test.txt.out") (delete "test_assets/test.txt.out"))))
+
 (deftest test-wrap-text-dataset-with-nulls
   (when (exists? "test_assets/test.txt") (delete "test_assets/test.txt"))
   (let [test-file-schema (def-schema :name *string* :columna *integer* :columnb *float*)
@@ -2,12 +2,15 @@
   (:use [incanter core])
   (:use [extramuros.test.configuration])
   (:use [extramuros.jobs.clustering])
+  (:use [extramuros.jobs.clustering.validation])
   (:use [extramuros.jobs.core])
   (:use [extramuros hdfs datasets math])
   (:use [clojure.test])
   (:import [org.apache.hadoop.conf Configuration] 
            [org.apache.hadoop.fs FileSystem Path]
-           [org.apache.hadoop.io Text Writable LongWritable]))
+           [org.apache.hadoop.io Text Writable LongWritable]
+           [org.apache.mahout.math DenseVector VectorWritable]
+           [extramuros.java.jobs.clustering.proclus.algorithm ProClusSampler ProClusConfigKeys]))
 
 ;; Hadoop env setup
 (setup-env)
@@ -93,3 +96,82 @@
           (doseq [chart (visualize job)]
             (is (= org.jfree.chart.JFreeChart (class chart)))))        
         (delete (output-path job))))))
+
+(deftest davies-bouldin-index-native
+  (println "\n*** davies-bouldin-index-native")
+  (with-test-file "test_assets/test_clustering.csv" (def-schema :x *double* :y *double*)
+    (fn [dataset]
+      (let [canopy-job (make-job :canopy)]
+        (set-config canopy-job {:output-path "test_assets/kmeans/canopy"
+                                :distance :euclidean
+                                :t1 0.6
+                                :t2 0.4
+                                :should-cluster true
+                                :table dataset})
+        (run canopy-job)
+        (let [kmeans-job (make-job :kmeans)
+              index (fn []
+                      (let [index-job (make-job :davies-bouldin-index)]
+                        (set-config index-job {:clustering-job kmeans-job
+                                               :output-path "test_assets/kmeans/davies_bouldin"})
+                        (run index-job)
+                        (delete (output-path index-job))
+                        (output index-job)))]
+          (set-config kmeans-job {:output-path "test_assets/kmeans/kmeans"
+                                  :input-clusters-path (output-path canopy-job :clusters)
+                                  :distance :euclidean
+                                  :convergence-delta 0.001
+                                  :num-iterations 5
+                                  :should-cluster true
+                                  :table dataset})
+          (run kmeans-job)
+          ;; partial scatters merged by the combiner give the same index with the smallest budget
+          (let [default-index (index)]
+            (is (> default-index 0.0))
+            (is (= default-index (with-aggregation-memory 1 index)))))
+        (delete "test_assets/kmeans")))))
+
+(def *proclus-points* [[1.0 1.0] [1.1 1.1] [0.9 1.2] [50.0 50.0] [50.1 50.1] [49.9 49.9]])
+
+(defn- with-proclus-vectors
+  ([test-fn]
+     (when (exists? "test_assets/proclus_vectors") (delete "test_assets/proclus_vectors"))
+     (seq-file-write! (seq-file-long-vector "test_assets/proclus_vectors")
+                      (wrapper-identity-value LongWritable)
+                      (map-indexed (fn [i point] [i (VectorWritable. (DenseVector. (double-array point)))]) *proclus-points*))
+     (try (test-fn "test_assets/proclus_vectors")
+          (finally
+           (delete "test_assets/proclus_vectors")
+           (when (exists? "test_assets/proclus_sample") (delete "test_assets/proclus_sample"))))))
+
+(defn- drawn-points
+  ([sampler to-draw]
+     (map #(vec (vector-to-seq (.get %))) (.drawRandomVectors sampler (int to-draw)))))
+
+(deftest proclus-sampler-pool
+  (println "\n*** proclus-sampler-pool")
+  (with-proclus-vectors
+    (fn [input]
+      (let [sampler (ProClusSampler.)]
+        (.run sampler (Configuration. *conf*) (path input) (path "test_assets/proclus_sample") (float 1.0))
+        ;; the pool files of the tasks are merged and removed from the sample
+        (is (= (count *proclus-points*) (count (.getPool sampler))))
+        (is (empty? (filter #(.startsWith (.getName (.getPath %)) ProClusSampler/POOL_FILE_PREFIX)
+                            (.listStatus *fs* (path "test_assets/proclus_sample")))))
+        (let [drawn (drawn-points sampler 3)]
+          (is (= 3 (count (distinct drawn))))
+          (is (every? (set *proclus-points*) drawn)))))))
+
+(deftest proclus-sampler-without-pool
+  (println "\n*** proclus-sampler-without-pool")
+  (with-proclus-vectors
+    (fn [input]
+      (let [sampler (ProClusSampler.)
+            config (doto (Configuration. *conf*)
+                     (.setInt ProClusConfigKeys/POOL_SIZE 0))]
+        (.run sampler config (path input) (path "test_assets/proclus_sample") (float 1.0))
+        ;; no pool, the vectors are drawn counting and scanning the input
+        (is (nil? (.getPool sampler)))
+        (let [drawn (drawn-points sampler 3)]
+          (is (= 3 (count drawn)))
+          (is (every? (set *proclus-points*) drawn)))))))
@@ -1,9 +1,40 @@
 (ns extramuros.test.jobs.core
   (:use [clojure.test])
-  (:use [extramuros.jobs.core]))
+  (:use [extramuros.jobs.core])
+  (:import [extramuros.java.jobs.utils LongKeyAggregator LongKeyAggregator$Flusher SumCountWritable]))
 
 (deftest test-clojure-eval
   (let [x 6
         fn-str (clojure `(fn [m] (> ~x m)))]
     (is (not ((eval (read-string fn-str)) 8)))
     (is ((eval (read-string fn-str)) 4))))
+
+(deftest long-key-aggregator-flush
+  ;; with a one byte budget the table keeps 16 keys and flushes when a new key
+  ;; does not fit, the flushed partial sums and counts add up to the exact ones
+  (let [flushed (atom [])
+        aggregator (LongKeyAggregator. 1 (reify LongKeyAggregator$Flusher
+                                           (flush [this key sum count]
+                                             (swap! flushed conj [key sum count]))))
+        values (map (fn [i] [(long (mod (* i 7) 40)) (double i)]) (range 1000))
+        sizes (doall (map (fn [[key value]] (.add aggregator key value) (.size aggregator)) values))
+        before-cleanup (count @flushed)
+        _ (.flush aggregator)
+        merged (reduce (fn [m [key sum count]] (update-in m [key] (fn [[s c]] [(+ (or s 0) sum) (+ (or c 0) count)])))
+                       {} @flushed)
+        exact (reduce (fn [m [key value]] (update-in m [key] (fn [[s c]] [(+ (or s 0) value) (+ (or c 0) 1)])))
+                      {} values)]
+    (is (every? #(<= % 16) sizes))
+    (is (> before-cleanup 0))
+    (is (= 0 (.size aggregator)))
+    (is (= exact merged))))
+
+(deftest sum-count-writable-merge
+  (let [partials [(SumCountWritable. 3.0 2) (SumCountWritable. 4.5 3) (SumCountWritable.)]
+        merged (reduce (fn [merged partial] (doto merged (.merge partial))) (SumCountWritable.) partials)
+        copy (SumCountWritable.)
+        bytes (java.io.ByteArrayOutputStream.)]
+    (.write merged (java.io.DataOutputStream. bytes))
+    (.readFields copy (java.io.DataInputStream. (java.io.ByteArrayInputStream. (.toByteArray bytes))))
+    (is (= [7.5 5] [(.getSum merged) (.getCount merged)]))
+    (is (= [7.5 5] [(.getSum copy) (.getCount copy)]))))
@@ -6,7 +6,8 @@
   (:use [clojure.test])
   (:import [org.apache.hadoop.conf Configuration] 
            [org.apache.hadoop.fs FileSystem Path]
-           [org.apache.hadoop.io Text Writable LongWritable]))
+           [org.apache.hadoop.io Text Writable LongWritable IntWritable]
+           [extramuros.java.jobs.utils TableUtils]))
 
 
 ;; Hadoop env setup
@@ -53,6 +54,38 @@
         (delete (output-path job))
         (delete "test_assets/test_countlines.txt")))))
 
+(deftest countlinest-text-file-splits
+  (println "\n*** countlinest-text-file-splits")
+  ;; the counts of every split are added by the combiner and the reducer
+  (with-text-test-file *default-test-schema*
+    (fn [writer]
+      (dotimes [i 3000]
+        (.println writer (str "\"one\"," i "," i ".0"))))
+    (fn [dataset]
+      (with-max-split-size 4096
+        (fn []
+          (let [job (make-job :table-count-lines)]
+            (set-config job {:output-path "test_assets/test_countlines.txt"
+                             :table dataset})
+            (run job)
+            (is (= 3000 (output job)))
+            (is (> (map-output-records (.getJob (extramuros.jobs.core/job job))) 1))
+            (delete (output-path job))))))))
+
+(deftest filter-table-range
+  (println "\n*** filter-table-range")
+  (when (exists? "test_assets/test_filter_range") (delete "test_assets/test_filter_range"))
+  (with-test-file "test_assets/test_input.csv" *default-test-schema*
+    (fn [dataset]
+      (let [job (make-job :filter-table)]
+        (set-config job {:directory-output "test_assets/test_filter_range"
+                         :filter-function "(fn [row] true)"
+                         :range [:columna 2 3]
+                         :table dataset})
+        (run job)
+        (is (= [2 3] (sort (map #(nth (row-to-seq %) 1) (table-rows (output job))))))
+        (delete (output-path job))))))
+
 (deftest sample-native
   (println "\n*** sample-native")
   (when (exists? "test_assets/test_sample.txt") (delete "test_assets/test_sample.txt"))
@@ -83,6 +116,72 @@
         (delete (output-path job))
         (delete (table-file (output job)))))))
 
+(deftest reservoir-sample-table-native
+  (println "\n*** reservoir-sample-table-native")
+  (when (exists? "test_assets/test_reservoir_sample.txt") (delete "test_assets/test_reservoir_sample.txt"))
+  (with-test-file "test_assets/test_input_ten_lines.csv" *default-test-schema*
+    (fn [dataset]
+      (let [job (make-job :reservoir-sample-table)]
+        (set-config job {:directory-output "test_assets/test_reservoir_sample.txt"
+                         :sample-size 4
+                         :table dataset})
+        (run job)
+        (is (= 4 (count (table-rows (output job)))))
+        ;; a table smaller than the sample is copied whole
+        (set-config job {:directory-output "test_assets/test_reservoir_sample.txt"
+                         :sample-size 20
+                         :weight-column "columna"
+                         :table dataset})
+        (run job)
+        (is (= 10 (count (table-rows (output job)))))
+        (delete "test_assets/test_reservoir_sample.txt")))))
+
+(deftest stratified-sample-table-native
+  (println "\n*** stratified-sample-table-native")
+  (when (exists? "test_assets/test_stratified_sample.txt") (delete "test_assets/test_stratified_sample.txt"))
+  (with-test-file "test_assets/test_input_ten_lines.csv" *default-test-schema*
+    (fn [dataset]
+      (let [job (make-job :stratified-sample-table)
+            strata (fn [] (frequencies (map (comp first row-to-seq) (table-rows (output job)))))]
+        (set-config job {:directory-output "test_assets/test_stratified_sample.txt"
+                         :column "name"
+                         :quotas {"one" 2}
+                         :sample-size 1
+                         :table dataset})
+        (run job)
+        (is (= {"one" 2 "two" 1 "three" 1} (strata)))
+        ;; 4 'one', 3 'two' and 3 'three' rows
+        (set-config job {:directory-output "test_assets/test_stratified_sample.txt"
+                         :column "name"
+                         :sample-size 5
+                         :minimum 1
+                         :table dataset})
+        (run job)
+        (is (= 5 (reduce + (vals (strata)))))
+        (is (= 2 (get (strata) "one")))
+        (delete "test_assets/test_stratified_sample.txt")))))
+
+(deftest stratified-sample-table-dictionary
+  (println "\n*** stratified-sample-table-dictionary")
+  (when (exists? "test_assets/test_stratified_sample.txt") (delete "test_assets/test_stratified_sample.txt"))
+  (with-text-test-file (def-schema :color *categorical* :vals *integer*)
+    (fn [wrtr]
+      (doseq [[color n] [["red" 4] ["green" 3] ["blue" 3]]]
+        (dotimes [i n]
+          (.println wrtr (str color "," i)))))
+    (fn [dataset]
+      (build-dictionaries dataset)
+      (let [job (make-job :stratified-sample-table)]
+        (set-config job {:directory-output "test_assets/test_stratified_sample.txt"
+                         :column "color"
+                         :quotas {"red" 2}
+                         :sample-size 1
+                         :table (open-dataset "test_assets/test.txt.out")})
+        (run job)
+        (is (= {"red" 2 "green" 1 "blue" 1}
+               (frequencies (map (comp first row-to-seq) (table-rows (output job))))))
+        (delete "test_assets/test_stratified_sample.txt")))))
+
 (deftest probabilistic-sample-table-text
   (println "\n*** probabilistic-sample-table-text")
   (when (exists? "test_assets/test_probabilistic_sample.txt") (delete "test_assets/test_probabilistic_sample.txt"))
@@ -135,6 +234,13 @@
         (delete (output-path job))
         (delete (table-file (output job)))))))
 
+(deftest parse-writable-key-id
+  (println "\n*** parse-writable-key-id")
+  ;; ids larger than an int are kept
+  (is (= 5000000000 (TableUtils/parseWritableKeyId (LongWritable. 5000000000))))
+  (is (= 7 (TableUtils/parseWritableKeyId (IntWritable. 7))))
+  (is (nil? (TableUtils/parseWritableKeyId (Text. "7")))))
+
 (deftest vectorize-table-native
   (println "\n*** vectorize-table")
   (when (exists? "test_assets/test_vectorize.txt") (delete "test_assets/test_vectorize.txt"))
@@ -7,7 +7,9 @@
   (:use [clojure.test])
   (:import [org.apache.hadoop.conf Configuration] 
            [org.apache.hadoop.fs FileSystem Path]
-           [org.apache.hadoop.io Text Writable LongWritable]))
+           [org.apache.hadoop.io Text Writable LongWritable]
+           [org.apache.hadoop.mapreduce.lib.input FileInputFormat]
+           [extramuros.java.formats StatsCatalog]))
 
 ;; Hadoop env setup
 (setup-env)
@@ -27,6 +29,25 @@
         (delete (output-path job))))))
 
 
+(deftest centrality-columnar
+  (println "\n*** centrality-columnar")
+  (with-test-file "test_assets/test_input_stats.csv" (def-schema :vals *integer*)
+    (fn [dataset]
+      (let [columnar (write-columnar-table dataset "test_assets/test_columnar.col")
+            job (make-job :centrality-stats)]
+        (set-config job {:output-path "test_assets/test_centrality.txt"
+                         :column "vals"
+                         :table columnar})
+        (run job)
+        (is (= 1 (get (output job) "min")))
+        (is (= 10 (get (output job) "max")))
+        (is (= 5.5 (get (output job) "avg")))
+        (delete (output-path job))
+        (delete "test_assets/test_columnar.col")
+        (delete "test_assets/test_columnar.col.cols")
+        (delete "test_assets/test_columnar.col.stats")))))
+
+
 (deftest centrality-text
   (println "\n*** centrality-text")
   (with-text-test-file (def-schema :vals *integer*)
@@ -94,6 +115,29 @@
         (= clojure.lang.PersistentVector (class (visualize job)))
         (delete (output-path job))))))
 
+(deftest dispersion-combined
+  (println "\n*** dispersion-combined")
+  ;; the partial sums of every split are merged by the combiner and the reducer
+  (let [values (map #(mod (* % 13) 101) (range 3000))
+        average (/ (reduce + values) (double (count values)))
+        variance (/ (reduce + (map #(Math/pow (- % average) 2) values)) (count values))]
+    (with-text-test-file (def-schema :vals *integer*)
+      (fn [wrtr]
+        (doseq [value values]
+          (.println wrtr (str value))))
+      (fn [dataset]
+        (with-max-split-size 2048
+          (fn []
+            (let [job (make-job :dispersion-stats)]
+              (set-config job {:output-path "test_assets/test_dispersion.txt"
+                               :column "vals"
+                               :average average
+                               :table dataset})
+              (run job)
+              (is (> (map-output-records (.getJob (extramuros.jobs.core/job job))) 1))
+              (is (< (Math/abs (- variance (get (output job) "var"))) 1.0E-6))
+              (delete (output-path job)))))))))
+
 (deftest frequency-distribution-native
   (println "\n*** frequency-distribution-native")
   (with-test-file "test_assets/test_input_stats.csv" (def-schema :vals *integer*)
@@ -109,6 +153,81 @@
         (is (= org.jfree.chart.JFreeChart (class (visualize job))))
         (delete (output-path job))))))
 
+(deftest frequency-distribution-histogram
+  (println "\n*** frequency-distribution-histogram")
+  (with-test-file "test_assets/test_input_stats.csv" (def-schema :vals *integer*)
+    (fn [dataset]
+      (let [job (make-job :frequency-distribution)]
+        (set-config job {:output-path "test_assets/freq_histogram"
+                         :column "vals"
+                         :histogram :equi-width
+                         :bins 3
+                         :table dataset})
+        (run job)
+        (is (= [[1.0 4.0 3.0] [4.0 7.0 3.0] [7.0 10.0 4.0]] (output job)))
+        (is (= org.jfree.chart.JFreeChart (class (visualize job))))
+        (delete (output-path job)))
+      (let [job (make-job :frequency-distribution)]
+        (set-config job {:output-path "test_assets/freq_histogram"
+                         :column "vals"
+                         :histogram :adaptive
+                         :bins 5
+                         :table dataset})
+        (run job)
+        (is (= 5 (count (output job))))
+        (is (= 10.0 (reduce + (map #(nth % 2) (output job)))))
+        (is (= 1.0 (first (first (output job)))))
+        (is (= 10.0 (second (last (output job)))))
+        (delete (output-path job))))))
+
+(deftest frequency-distribution-histogram-nulls
+  (println "\n*** frequency-distribution-histogram-nulls")
+  (with-text-test-file *default-test-schema*
+    (fn [writer]
+      (.println writer "\"one\",,1.0")
+      (.println writer "\"two\",,2.0")
+      (.println writer "\"three\",,3.0"))
+    (fn [dataset]
+      ;; a column without values gives an empty histogram, not NaN edges
+      (doseq [mode [:equi-depth :equi-width]]
+        (let [job (make-job :frequency-distribution)]
+          (set-config job {:output-path "test_assets/freq_histogram"
+                           :column "columna"
+                           :histogram mode
+                           :bins 3
+                           :table dataset})
+          (run job)
+          (is (empty? (output job)))
+          (delete (output-path job)))))))
+
+(deftest frequency-distribution-flush
+  (println "\n*** frequency-distribution-flush")
+  ;; 100 distinct values in every split, with a one byte budget the mappers keep 16
+  (with-text-test-file (def-schema :vals *integer*)
+    (fn [wrtr]
+      (dotimes [i 3000]
+        (.println wrtr (str (mod (* i 7) 100)))))
+    (fn [dataset]
+      (with-max-split-size 4096
+        (fn []
+          (let [run-frequencies (fn []
+                                  (let [job (make-job :frequency-distribution)]
+                                    (set-config job {:output-path "test_assets/test_frequency_dist.txt"
+                                                     :column "vals"
+                                                     :table dataset})
+                                    (run job)
+                                    (let [result [(reduce (fn [m p] (let [[v c] (pair-to-seq p)]
+                                                                      (assoc m (parse-writable v) (parse-writable c))))
+                                                          {} (iterator-seq (output job)))
+                                                  (map-output-records (.getJob (extramuros.jobs.core/job job)))]]
+                                      (delete (output-path job))
+                                      result)))
+                [frequencies records] (run-frequencies)
+                [flushed-frequencies flushed-records] (with-aggregation-memory 1 run-frequencies)]
+            (is (= (zipmap (map double (range 100)) (repeat 30.0)) frequencies))
+            (is (= frequencies flushed-frequencies))
+            (is (> flushed-records records))))))))
+
 (deftest frequency-distribution-text
   (println "\n*** frequency-distribution-text")
   (with-text-test-file (def-schema :vals *integer*)
@@ -178,6 +297,319 @@
         (is (seq? (visualize job)))
          (delete (output-path job))))))
 
+(deftest table-stats-several-columns
+  (println "\n*** table-stats-several-columns")
+  (with-test-file "test_assets/test_input_nulls.csv" *default-test-schema*
+    (fn [dataset]
+      (let [job (make-job :table-stats)]
+        (set-config job {:output-path "test_assets/table_stats.txt"
+                         :table dataset})
+        (run job)
+        (is (= #{"columna" "columnb"} (set (keys (output job)))))
+        (is (= 2 (:count (get (output job) "columna"))))
+        (is (= 1 (:nulls (get (output job) "columna"))))
+        (is (= 2.0 (:average (get (output job) "columna"))))
+        (is (= 1.0 (:variance (get (output job) "columna"))))
+        (is (= 1.5 (:average (get (output job) "columnb"))))
+        (is (= 0.25 (:variance (get (output job) "columnb"))))
+        (delete (output-path job))))))
+
+(deftest table-stats-catalog
+  (println "\n*** table-stats-catalog")
+  (with-test-file "test_assets/test_input_stats.csv" (def-schema :vals *integer*)
+    (fn [dataset]
+      (let [job (make-job :table-stats)]
+        (set-config job {:output-path "test_assets/table_stats.txt"
+                         :table dataset})
+        (run job)
+        (is (exists? "test_assets/imported_out.csv.catalog"))
+        (let [first-output (output job)]
+          (run job)
+          (is (= first-output (output job))))
+        (is (= (:average (get (output job) "vals")) 5.5))
+        (delete (output-path job))))))
+
+(deftest table-stats-approximate
+  (println "\n*** table-stats-approximate")
+  (with-test-file "test_assets/test_input_stats.csv" (def-schema :vals *integer*)
+    (fn [dataset]
+      (let [job (make-job :table-stats)]
+        (set-config job {:output-path "test_assets/table_stats.txt"
+                         :approximate {:error 0.05 :seed 1}
+                         :table dataset})
+        (run job)
+        ;; a single split is read completely, the intervals are exact
+        (is (= (:average (get (output job) "vals")) 5.5))
+        (is (= (:variance (get (output job) "vals")) 8.25))
+        (is (= 10 (:count (get (output job) "vals"))))
+        (is (= [5.5 5.5] (:average (:confidence-intervals (get (output job) "vals")))))
+        (is (= (:splits (get (output job) "vals")) (:sampled-splits (get (output job) "vals"))))
+        (delete (output-path job))))))
+
+(deftest table-stats-approximate-sampled-splits
+  (println "\n*** table-stats-approximate-sampled-splits")
+  ;; 25 splits of 1000 lines of 4 bytes, the level of the values changes from split to split
+  (let [values (map (fn [i] (+ 100 (mod (* i 37) 400) (* 20 (mod (* (quot i 1000) 7) 25)))) (range 25000))
+        exact-average (/ (double (reduce + values)) (count values))
+        max-split-size (.get *conf* "mapred.max.split.size")]
+    (try
+      (.setLong *conf* "mapred.max.split.size" 4000)
+      (with-text-test-file (def-schema :vals *integer*)
+        (fn [wrtr] (doseq [value values] (.println wrtr (str value))))
+        (fn [dataset]
+          (let [job (make-job :table-stats)]
+            (set-config job {:output-path "test_assets/table_stats.txt"
+                             :approximate {:error 0.05 :seed 1}
+                             :table dataset})
+            (run job)
+            (let [stats (get (output job) "vals")
+                  [low high] (:average (:confidence-intervals stats))]
+              ;; only part of the splits are read and the intervals contain the exact values
+              (is (= 25 (:splits stats)))
+              (is (< 1 (:sampled-splits stats) (:splits stats)))
+              (is (<= low exact-average high))
+              (is (< low high))
+              (is (= [25000.0 25000.0] (:count (:confidence-intervals stats))))
+              (is (< (Math/abs (- (:average stats) exact-average)) (* 0.05 exact-average))))
+            (delete (output-path job)))))
+      (finally
+       (if max-split-size
+         (.set *conf* "mapred.max.split.size" max-split-size)
+         (.setLong *conf* "mapred.max.split.size" Long/MAX_VALUE))))))
+
+(deftest table-stats-appended-files
+  (println "\n*** table-stats-appended-files")
+  (let [write-part (fn [name values]
+                     (let [wrtr (java.io.PrintWriter. (.create (FileSystem/get *conf*) (path (str "test_assets/parts/" name))))]
+                       (doseq [value values] (.println wrtr (str value)))
+                       (.flush wrtr)
+                       (.close wrtr)))]
+    (when (exists? "test_assets/parts") (delete "test_assets/parts"))
+    (write-part "part-00000" [1 2 3 4 5])
+    (try
+      (let [dataset (wrap-dataset :text "test_assets/parts" "test_assets/parts.out" (def-schema :vals *integer*) {:separator ","})
+            job (make-job :table-stats)]
+        (set-config job {:output-path "test_assets/table_stats.txt"
+                         :table dataset})
+        (run job)
+        (is (= (:average (get (output job) "vals")) 3.0))
+        (write-part "part-00001" [6 7 8 9 10])
+        (run job)
+        (is (= (:average (get (output job) "vals")) 5.5))
+        (is (= (:count (get (output job) "vals")) 10))
+        (is (= (:max (get (output job) "vals")) 10))
+        (is (= (:variance (get (output job) "vals")) 8.25))
+        ;; the catalog keeps the moments of every file apart
+        (let [catalog (StatsCatalog/forTable (:table dataset) *conf*)]
+          (is (= 2 (count (.getFiles catalog))))
+          (is (every? #(= 5 (.getCount (.getMoments catalog (.getPath %) "vals"))) (.getFiles catalog))))
+        ;; a new run only reads the file appended since the last one
+        (write-part "part-00002" [11 12])
+        (let [moments-job (extramuros.java.jobs.stats.moments.Job. (into-array String ["vals"]) (:table dataset)
+                                                                    "test_assets/table_stats_moments" *conf*)]
+          (.run moments-job)
+          (is (= ["part-00002"] (map #(.getName %) (FileInputFormat/getInputPaths (.getJob moments-job)))))
+          (is (= 12 (.getCount (get (.getMoments moments-job) "vals"))))
+          (delete "test_assets/table_stats_moments"))
+        (delete (output-path job)))
+      (finally
+       (when (exists? "test_assets/parts") (delete "test_assets/parts"))
+       (when (exists? "test_assets/parts.out") (delete "test_assets/parts.out"))
+       (when (exists? "test_assets/parts.out.catalog") (delete "test_assets/parts.out.catalog"))))))
+
+(deftest catalog-appended-files-states
+  (println "\n*** catalog-appended-files-states")
+  (let [write-part (fn [name values]
+                     (let [wrtr (java.io.PrintWriter. (.create (FileSystem/get *conf*) (path (str "test_assets/parts/" name))))]
+                       (doseq [value values] (.println wrtr (str value)))
+                       (.flush wrtr)
+                       (.close wrtr)))
+        columns (into-array String ["vals"])
+        jobs (fn [dataset]
+               {"quantiles:200" (extramuros.java.jobs.stats.quantiles.Job.
+                                 columns (double-array [0.5 1.0]) (:table dataset) "test_assets/catalog_quantiles" *conf*)
+                "distinct:14" (extramuros.java.jobs.stats.cardinality.Job.
+                               columns (:table dataset) "test_assets/catalog_distinct" *conf*)
+                "histogram:adaptive:4" (extramuros.java.jobs.stats.histogram.Job.
+                                        "vals" (int 4) (:table dataset) "test_assets/catalog_histogram" *conf*)})
+        input-files (fn [job] (map #(.getName %) (FileInputFormat/getInputPaths (.getJob job))))
+        state-counts (fn [dataset kind]
+                       (let [catalog (StatsCatalog/forTable (:table dataset) *conf*)]
+                         (map (fn [file] (let [state (.getState catalog (.getPath file) kind "vals")]
+                                           (if (instance? extramuros.java.jobs.stats.cardinality.HyperLogLog state)
+                                             (.estimate state)
+                                             (.getCount state))))
+                              (.getFiles catalog))))]
+    (when (exists? "test_assets/parts") (delete "test_assets/parts"))
+    (write-part "part-00000" [1 2 3 4 5])
+    (write-part "part-00001" [6 7 8 9 10])
+    (try
+      (let [dataset (wrap-dataset :text "test_assets/parts" "test_assets/parts.out" (def-schema :vals *integer*) {:separator ","})]
+        (doseq [[kind job] (jobs dataset)]
+          (.run job)
+          (is (= ["part-00000" "part-00001"] (sort (input-files job))))
+          (is (= [5 5] (state-counts dataset kind))))
+        ;; new runs only read the file appended since the last one and merge its state
+        (write-part "part-00002" [11 12])
+        (doseq [[kind job] (jobs dataset)]
+          (.run job)
+          (is (= ["part-00002"] (input-files job)))
+          (is (= [5 5 2] (state-counts dataset kind))))
+        (let [{quantiles "quantiles:200" distinct "distinct:14" histogram "histogram:adaptive:4"} (jobs dataset)]
+          (.run quantiles)
+          (.run distinct)
+          (.run histogram)
+          (is (= 12 (.getCount (.getSecond (first (.getSketches quantiles))))))
+          (is (= 12.0 (.quantile (.getSecond (first (.getSketches quantiles))) 1.0)))
+          (is (= 12 (.estimate (get (.getSketches distinct) "vals"))))
+          (is (= 12 (.getCount (.getHistogram histogram))))))
+      (finally
+       (doseq [output ["test_assets/parts" "test_assets/parts.out" "test_assets/parts.out.catalog"
+                       "test_assets/catalog_quantiles" "test_assets/catalog_distinct" "test_assets/catalog_histogram"]]
+         (when (exists? output) (delete output)))))))
+
+(deftest quantile-stats-native
+  (println "\n*** quantile-stats-native")
+  (with-test-file "test_assets/test_input_stats.csv" (def-schema :vals *integer*)
+    (fn [dataset]
+      (let [job (make-job :quantile-stats)]
+        (set-config job {:output-path "test_assets/quantile_stats"
+                         :percentiles [0 0.25 0.5 0.75 1]
+                         :table dataset})
+        (run job)
+        (is (= #{"vals"} (set (keys (output job)))))
+        (is (= 1.0 (get (output job "vals") 0.0)))
+        (is (= 3.0 (get (output job "vals") 0.25)))
+        (is (= 5.0 (get (output job "vals") 0.5)))
+        (is (= 8.0 (get (output job "vals") 0.75)))
+        (is (= 10.0 (get (output job "vals") 1.0)))
+        (is (seq? (visualize job)))
+        (delete (output-path job))))))
+
+(deftest distinct-count-native
+  (println "\n*** distinct-count-native")
+  (with-test-file "test_assets/test_input.csv" *default-test-schema*
+    (fn [dataset]
+      (let [first-job (make-job :distinct-count)
+            job (make-job :distinct-count)]
+        (set-config first-job {:output-path "test_assets/distinct_count_first"
+                               :table dataset})
+        (run first-job)
+        (is (= {"name" 3 "columna" 3 "columnb" 3} (output first-job)))
+        ;; merging the sketches of the same rows does not change the counts
+        (set-config job {:output-path "test_assets/distinct_count"
+                         :columns ["name"]
+                         :merge-paths [(path-to-string (output-path first-job))]
+                         :table dataset})
+        (run job)
+        (is (= 3 (output job "name")))
+        (is (= 3 (output job "columna")))
+        (is (seq? (visualize job)))
+        (delete (output-path first-job))
+        (delete (output-path job))))))
+
+(deftest top-values-text
+  (println "\n*** top-values-text")
+  (with-text-test-file (def-schema :color *categorical* :vals *integer*)
+    (fn [wrtr]
+      (doseq [[color n] [["red" 5] ["green" 3] ["blue" 1]]]
+        (dotimes [i n]
+          (.println wrtr (str color "," i)))))
+    (fn [dataset]
+      (let [job (run-job :top-values {:output-path "test_assets/top_values"
+                                      :k 2
+                                      :table dataset})]
+        (is (= #{"color"} (set (keys (output job)))))
+        (is (= [["red" 5 0] ["green" 3 0]] (output job "color")))
+        (is (seq? (visualize job)))
+        (delete (output-path job))))))
+
+(deftest top-values-dictionary
+  (println "\n*** top-values-dictionary")
+  (with-text-test-file (def-schema :color *categorical* :vals *integer*)
+    (fn [wrtr]
+      (doseq [[color n] [["red" 5] ["green" 3] ["blue" 1]]]
+        (dotimes [i n]
+          (.println wrtr (str color "," i)))))
+    (fn [dataset]
+      (build-dictionaries dataset)
+      (let [coded (open-dataset "test_assets/test.txt.out")
+            job (run-job :top-values {:output-path "test_assets/top_values"
+                                      :k 2
+                                      :table coded})]
+        (is (= ["red" "green" "blue"] (table-dictionary coded :color)))
+        (is (= [["red" 5 0] ["green" 3 0]] (output job "color")))
+        (delete (output-path job))))))
+
+(deftest frequency-distribution-dictionary
+  (println "\n*** frequency-distribution-dictionary")
+  (with-text-test-file (def-schema :color *categorical* :vals *integer*)
+    (fn [wrtr]
+      (doseq [[color n] [["red" 5] ["green" 3] ["blue" 1]]]
+        (dotimes [i n]
+          (.println wrtr (str color "," i)))))
+    (fn [dataset]
+      (build-dictionaries dataset)
+      (let [job (make-job :frequency-distribution)]
+        (set-config job {:output-path "test_assets/test_frequency_dist.txt"
+                         :column "color"
+                         :table (open-dataset "test_assets/test.txt.out")})
+        (run job)
+        (is (= {"red" 5.0 "green" 3.0 "blue" 1.0}
+               (reduce (fn [m p] (let [[v c] (pair-to-seq p)]
+                                   (assoc m (parse-writable v) (parse-writable c))))
+                       {} (iterator-seq (output job)))))
+        (is (= org.jfree.chart.JFreeChart (class (visualize job))))
+        (delete (output-path job))))))
+
+(deftest correlation-matrix-native
+  (println "\n*** correlation-matrix-native")
+  (with-test-file "test_assets/test_input.csv" *default-test-schema*
+    (fn [dataset]
+      (let [job (run-job :correlation-matrix {:output-path "test_assets/correlation_matrix"
+                                              :table dataset})]
+        (is (= [[1000 1000] [1000 1000]]
+               (map (fn [row] (map #(Math/round (* 1000 %)) row)) (output job :correlation))))
+        (is (= 667 (Math/round (* 1000 (first (first (output job :covariance)))))))
+        (let [rows (map row-to-seq (table-rows (output job)))]
+          (is (= 2 (count rows)))
+          (is (= "columna" (first (first rows)))))
+        (is (seq? (visualize job)))
+        (delete (output-path job))
+        (delete "test_assets/correlation_matrix.rows")
+        (delete "test_assets/correlation_matrix.comoments")))))
+
+(deftest normalization-robust
+  (println "\n*** normalization-robust")
+  (with-test-file "test_assets/test_input_stats.csv" (def-schema :vals *integer*)
+    (fn [dataset]
+      (let [job (make-job :normalization)]
+        (set-config job {:output-path "test_assets/normalization"
+                         :columns ["vals"]
+                         :scaling :robust
+                         :percentiles [0.1 0.9]
+                         :table dataset})
+        (run job)
+        (let [values (sort (map (comp first row-to-seq) (table-rows (output job))))]
+          (is (= 0.0 (first values)))
+          (is (= 1.0 (nth values 8))))
+        (is (not (exists? "test_assets/normalization.quantiles")))
+        (delete (output-path job))))))
+
+(deftest normalization-catalog
+  (println "\n*** normalization-catalog")
+  (with-test-file "test_assets/test_input.csv" *default-test-schema*
+    (fn [dataset]
+      (let [job (make-job :normalization)]
+        (set-config job {:output-path "test_assets/normalization"
+                         :columns ["columna" "columnb"]
+                         :table dataset})
+        (run job)
+        (is (= [0.0 0.0] (row-to-seq (first (table-rows (output job))))))
+        (is (exists? "test_assets/imported_out.csv.catalog"))
+        (is (not (exists? "test_assets/normalization.moments")))
+        (delete (output-path job))))))
+
 (deftest normalization-native
   (println "\n*** normalization-native")
   (with-test-file "test_assets/test_input.csv" *default-test-schema*
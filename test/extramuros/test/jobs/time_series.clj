@@ -0,0 +1,210 @@
+(ns extramuros.test.jobs.time-series
+  (:use [extramuros.test.configuration])
+  (:use [extramuros.jobs.time-series])
+  (:use [extramuros.jobs.core])
+  (:use [extramuros hdfs datasets])
+  (:use [clojure.test])
+  (:import [org.apache.hadoop.io LongWritable]
+           [extramuros.java.jobs.timeseries.sort RangePartitioner]
+           [extramuros.java.jobs.timeseries.aggregations PeriodAggregates]
+           [extramuros.java.jobs.utils JobKeys TableUtils]))
+
+
+;; Hadoop env setup
+(setup-env)
+
+(def *time-series-rows* 2000)
+
+(def *date-format* "yyyy-MM-dd HH:mm:ss")
+
+(defn- format-time
+  ([time] (.format (java.text.SimpleDateFormat. *date-format*) (java.util.Date. (long time)))))
+
+(defn- with-time-series-lines
+  "Imports the lines time,value as a time series, the test runs with splits of a
+   few KB so the rows file has many splits"
+  ([lines test-fn]
+     (let [max-split-size (.get *conf* "mapred.max.split.size")]
+       (spit "test_assets/test_time_series.csv" (apply str (map #(str % "\n") lines)))
+       (try
+         (.setLong *conf* "mapred.max.split.size" 4096)
+         (let [dataset (import-dataset "test_assets/test_time_series.csv" "test_assets/imported_time_series.csv"
+                                       (def-schema :time *date-time* :value *integer*)
+                                       :date-formats {:time *date-format*})]
+           (test-fn dataset))
+         (finally
+          (if max-split-size
+            (.set *conf* "mapred.max.split.size" max-split-size)
+            (.setLong *conf* "mapred.max.split.size" Long/MAX_VALUE))
+          (.delete (java.io.File. "test_assets/test_time_series.csv"))
+          (doseq [suffix ["" ".rows" ".stats" ".catalog"]]
+            (when (exists? (str "test_assets/imported_time_series.csv" suffix))
+              (delete (str "test_assets/imported_time_series.csv" suffix)))))))))
+
+(defn- with-time-series-file
+  "Time series with a row per minute in time order from 2026-01-01, the value of
+   the row i is i"
+  ([test-fn]
+     (let [start (.getTime (.parse (java.text.SimpleDateFormat. *date-format*) "2026-01-01 00:00:00"))]
+       (with-time-series-lines (map (fn [i] (str (format-time (+ start (* i 60000))) "," i))
+                                    (range *time-series-rows*))
+         test-fn))))
+
+(defn- part-timestamps
+  "Keys of the rows written in a part file of the sorted table"
+  ([part-path]
+     (let [reader (seq-file-reader part-path)]
+       (try
+         (doall (map (fn [[k _]] (.get k)) (pairs reader)))
+         (finally (.close reader))))))
+
+(deftest time-series-sort-partitions
+  (println "\n*** time-series-sort-partitions")
+  (with-time-series-file
+    (fn [dataset]
+      (let [sort-job (make-job :time-series-sort)]
+        (set-config sort-job {:column "time"
+                              :partitions 4
+                              :sample-size 200
+                              :output-path "test_assets/sorted_time_series"
+                              :table dataset})
+        (run sort-job)
+        (let [sorted (output sort-job)
+              timestamps (mapcat #(part-timestamps (:path %)) (:ranges sorted))
+              split-points (.getSplitPoints (job sort-job))]
+          ;; concatenating the parts in range order gives all the rows sorted
+          (is (= *time-series-rows* (count timestamps)))
+          (is (= (sort timestamps) timestamps))
+          (is (every? (fn [[a b]] (< (:max a) (:min b))) (partition 2 1 (:ranges sorted))))
+          ;; the sample covers the whole table, not only the start of a few splits: every
+          ;; reducer receives a similar share of a time ordered input
+          (is (= 3 (count split-points)))
+          (let [partitioner (doto (RangePartitioner.)
+                              (.setConf (doto (org.apache.hadoop.conf.Configuration. *conf*)
+                                          (.set JobKeys/SORT_SPLIT_POINTS
+                                                (RangePartitioner/encodeSplitPoints split-points)))))
+                shares (frequencies (map #(.getPartition partitioner (LongWritable. %) nil (int 4)) timestamps))]
+            (is (= 4 (count shares)))
+            (is (every? #(< (* 0.15 *time-series-rows*) % (* 0.35 *time-series-rows*)) (vals shares)))))
+        (delete "test_assets/sorted_time_series")
+        (delete "test_assets/sorted_time_series.ranges")))))
+
+(defn- output-keys
+  "Keys of the pairs written by a job in the output directory"
+  ([output-path]
+     (doall (map #(.get (.getFirst %))
+                 (iterator-seq (TableUtils/directorySeqIterator (path output-path) *conf*))))))
+
+(defn- aggregated-rows
+  "Rows of the table written by the aggregations job, sorted by period"
+  ([aggregations-job]
+     (sort-by first (map (comp vec row-to-seq) (table-rows (output aggregations-job))))))
+
+(deftest time-series-period-start
+  (println "\n*** time-series-period-start")
+  (let [calendar (java.util.GregorianCalendar.)
+        time (.getTime (.parse (java.text.SimpleDateFormat. *date-format*) "2026-03-18 15:30:20"))
+        start (fn [period] (format-time (extramuros.java.jobs.timeseries.aggregate.Mapper/periodStart calendar time period)))]
+    ;; years and months start on their first day, afternoon times are not moved to noon
+    (is (= "2026-01-01 00:00:00" (start "year")))
+    (is (= "2026-03-01 00:00:00" (start "month")))
+    (is (= "2026-03-16 00:00:00" (start "week")))
+    (is (= "2026-03-18 00:00:00" (start "day")))))
+
+(deftest time-series-aggregate-periods
+  (println "\n*** time-series-aggregate-periods")
+  (with-time-series-file
+    (fn [dataset]
+      (doseq [[period starts] [[:month ["2026-01-01 00:00:00"]]
+                               [:day ["2026-01-01 00:00:00" "2026-01-02 00:00:00"]]]]
+        (let [aggregate-job (make-job :time-series-aggregate)]
+          (set-config aggregate-job {:column "time"
+                                     :period period
+                                     :aggregation-function :sum
+                                     :output-path "test_assets/aggregated_time_series"
+                                     :table dataset})
+          (run aggregate-job)
+          (is (= starts (map format-time (sort (output-keys "test_assets/aggregated_time_series")))))
+          (delete "test_assets/aggregated_time_series"))))))
+
+(deftest time-series-aggregations-functions
+  (println "\n*** time-series-aggregations-functions")
+  (with-time-series-file
+    (fn [dataset]
+      (let [aggregations-job (make-job :time-series-aggregate)]
+        (set-config aggregations-job {:column "time"
+                                      :period :day
+                                      :aggregation-function :all
+                                      :output-path "test_assets/aggregated_time_series"
+                                      :table dataset})
+        (run aggregations-job)
+        ;; minutes 0-1439 the first day and 1440-1999 the second one, values
+        ;; of several splits merged by the combiner and the reducer
+        (is (= [["2026-01-01 00:00:00" 1440 1036080.0 719.5 0.0 1439.0 0.0 1439.0]
+                ["2026-01-02 00:00:00" 560 962920.0 1719.5 1440.0 1999.0 1440.0 1999.0]]
+               (aggregated-rows aggregations-job)))
+        (delete "test_assets/aggregated_time_series")))))
+
+(deftest time-series-aggregations-flush
+  (println "\n*** time-series-aggregations-flush")
+  ;; 40 days in every split, the row i is in the day i mod 40 and its value is i
+  (let [day-start (fn [day] (.getTimeInMillis (doto (java.util.GregorianCalendar. 2026 0 5)
+                                                 (.add java.util.Calendar/DAY_OF_MONTH day))))
+        expected (map (fn [day] [(format-time (day-start day)) 30 (+ 17400.0 (* 30 day)) (+ 580.0 day)
+                                 (double day) (+ 1160.0 day) (double day) (+ 1160.0 day)])
+                      (range 40))]
+    (with-time-series-lines (map (fn [i] (str (format-time (+ (day-start (mod i 40)) (* (quot i 40) 60000))) "," i))
+                                 (range 1200))
+      (fn [dataset]
+        (let [run-aggregations (fn []
+                                 (let [aggregations-job (make-job :time-series-aggregate)]
+                                   (set-config aggregations-job {:column "time"
+                                                                 :period :day
+                                                                 :aggregation-function :all
+                                                                 :columns ["value"]
+                                                                 :output-path "test_assets/aggregated_time_series"
+                                                                 :table dataset})
+                                   (run aggregations-job)
+                                   (let [result [(aggregated-rows aggregations-job)
+                                                 (map-output-records (.getJob (job aggregations-job)))]]
+                                     (delete "test_assets/aggregated_time_series")
+                                     result)))
+              [rows records] (run-aggregations)
+              ;; at most 16 periods are kept by the mappers
+              [flushed-rows flushed-records] (with-aggregation-memory 1 run-aggregations)]
+          (is (= expected rows))
+          (is (= expected flushed-rows))
+          (is (> flushed-records records)))))))
+
+(deftest time-series-aggregations-ties
+  (println "\n*** time-series-aggregations-ties")
+  ;; with equal times the value aggregated before is the first and the last one
+  (with-time-series-lines ["2026-02-01 10:00:00,5" "2026-02-01 10:00:00,7"
+                           "2026-02-01 12:00:00,3" "2026-02-01 12:00:00,9"]
+    (fn [dataset]
+      (let [aggregations-job (make-job :time-series-aggregate)]
+        (set-config aggregations-job {:column "time"
+                                      :period :day
+                                      :aggregation-function :all
+                                      :output-path "test_assets/aggregated_time_series"
+                                      :table dataset})
+        (run aggregations-job)
+        (is (= [["2026-02-01 00:00:00" 4 24.0 6.0 3.0 9.0 5.0 3.0]]
+               (aggregated-rows aggregations-job)))
+        (delete "test_assets/aggregated_time_series")))))
+
+(deftest period-aggregates-merge
+  (println "\n*** period-aggregates-merge")
+  ;; merging the aggregates of two halves gives the aggregates of all the values,
+  ;; ties keep the aggregates merged into
+  (let [values [[10 4.0] [20 1.0] [20 8.0] [30 2.0] [10 6.0] [30 5.0]]
+        aggregate (fn [values] (let [aggregates (PeriodAggregates. 1)]
+                                 (doseq [[time value] values] (.add aggregates 0 time value))
+                                 aggregates))
+        functions (fn [aggregates] [(.getCount aggregates 0) (.getSum aggregates 0) (.getMin aggregates 0)
+                                    (.getMax aggregates 0) (.getFirst aggregates 0) (.getLast aggregates 0)])
+        merged (doto (aggregate (take 3 values)) (.merge (aggregate (drop 3 values))))
+        empty-merged (doto (PeriodAggregates.) (.merge (aggregate values)))]
+    (is (= [6 26.0 1.0 8.0 4.0 2.0] (functions (aggregate values))))
+    (is (= (functions (aggregate values)) (functions merged)))
+    (is (= (functions (aggregate values)) (functions empty-merged)))))